@@ -18,6 +18,10 @@ import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.RobotMode;
+import frc.robot.utilities.LoopProfiler;
+import frc.robot.utilities.PhotonVisionUtility;
 import frc.robot.utilities.ShuffleboardUtility;
 
 public class Robot extends TimedRobot {
@@ -27,16 +31,28 @@ public class Robot extends TimedRobot {
 
     private CommandScheduler commandScheduler;
 
+    // Times each part of robotPeriodic
+    private final int m_shuffleboardSection = LoopProfiler.getInstance().addSection("ShuffleboardUtility");
+    private final int m_canStatusSection = LoopProfiler.getInstance().addSection("CANStatusFrameManager");
+
     @Override
     public void robotInit() {
-        m_robotContainer = new RobotContainer();
         commandScheduler = CommandScheduler.getInstance();
+        // The profiler hooks in on both sides of the button bindings with buttons
+        // of its own. This has to stay before RobotContainer, or the buttons bound
+        // there get timed as part of the subsystem periodics
+        LoopProfiler.getInstance().attachBeforeButtons(commandScheduler);
+        m_robotContainer = new RobotContainer();
+        // This has to stay after RobotContainer and anything else that binds
+        // buttons. A button bound after this gets timed as part of the first
+        // command that executes
+        LoopProfiler.getInstance().attachAfterButtons(commandScheduler);
         // Runs sim method if robot is simulated
         if (RobotBase.isSimulation()) {
             // Flush NetworkTables every loop. This ensures that robot pose and other values
             // are sent during every iteration.
             setNetworkTablesFlushEnabled(true);
-            m_robotContainer.robotSimInit();
+            m_robotContainer.simulationInit();
         } else {
             m_robotContainer.startCamera();
         }
@@ -51,49 +67,39 @@ public class Robot extends TimedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        LoopProfiler.getInstance().startScheduler();
         commandScheduler.run();
+        LoopProfiler.getInstance().stopScheduler();
 
-        // Runs sim method if robot is simulated
-        if (RobotBase.isSimulation()) {
-            m_robotContainer.robotSimPeriodic();
-        }
+        LoopProfiler.getInstance().start(m_shuffleboardSection);
+        PhotonVisionUtility.getInstance().updateShuffleboard();
         ShuffleboardUtility.getInstance().update();
-    }
+        LoopProfiler.getInstance().stop(m_shuffleboardSection);
 
-    @Override
-    public void autonomousInit() {
-        // NOTE: If wish to see (drivetraim motors in simulator force following if to
-        // true or it uses simulation drivetrain)
-        if (RobotBase.isReal()) {
-
-            m_robotContainer.beginAutoRunCommands();
-            m_autonomousCommand = m_robotContainer.getAutonomousCommand();
+        LoopProfiler.getInstance().start(m_canStatusSection);
+        CANStatusFrameManager.getInstance().update();
+        LoopProfiler.getInstance().stop(m_canStatusSection);
 
-            // schedule the autonomous command (example)
-            if (m_autonomousCommand != null) {
-                m_autonomousCommand.schedule();
-            }
-        } else {
-            // Runs sim method if robot is simulated
-            m_robotContainer.autoSimInit();
-        }
+        LoopProfiler.getInstance().endLoop();
     }
 
-    /**
-     * This function is called periodically during autonomous.
-     */
     @Override
-    public void autonomousPeriodic() {
-        // Runs sim method if robot is simulated
-        if (RobotBase.isSimulation()) {
-            m_robotContainer.autoSimPeriodic();
+    public void autonomousInit() {
+        CANStatusFrameManager.getInstance().setMode(RobotMode.AUTONOMOUS);
+        // The same autos run in simulation, the subsystems simulate themselves
+        m_robotContainer.beginAutoRunCommands();
+        m_autonomousCommand = m_robotContainer.getAutonomousCommand();
+
+        // schedule the autonomous command (example)
+        if (m_autonomousCommand != null) {
+            m_autonomousCommand.schedule();
         }
     }
 
     // Needed for robot simulation
     @Override
     public void simulationPeriodic() {
-        m_robotContainer.simPeriodic();
+        m_robotContainer.simulationPeriodic();
     }
 
     @Override
@@ -106,6 +112,7 @@ public class Robot extends TimedRobot {
             m_autonomousCommand.cancel();
         }
 
+        CANStatusFrameManager.getInstance().setMode(RobotMode.TELEOP);
         m_robotContainer.beginTeleopRunCommands();
     }
 
@@ -113,6 +120,7 @@ public class Robot extends TimedRobot {
     public void testInit() {
         // Cancels all running commands at the start of test mode.
         CommandScheduler.getInstance().cancelAll();
+        CANStatusFrameManager.getInstance().setMode(RobotMode.TEST);
 
         m_robotContainer.testInit();
     }
@@ -129,6 +137,21 @@ public class Robot extends TimedRobot {
 
     @Override
     public void disabledInit(){
+        CANStatusFrameManager.getInstance().setMode(RobotMode.DISABLED);
         m_robotContainer.disabledInit();
     }
+
+    @Override
+    public void disabledPeriodic(){
+        m_robotContainer.disabledPeriodic();
+    }
+
+    /**
+     * <h3>getRobotContainer</h3>
+     * 
+     * @return the robot container, or null before robotInit
+     */
+    public RobotContainer getRobotContainer() {
+        return m_robotContainer;
+    }
 }
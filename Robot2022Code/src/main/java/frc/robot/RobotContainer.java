@@ -2,15 +2,12 @@
 
 package frc.robot;
 
-import java.util.List;
-
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 
 import edu.wpi.first.cscore.MjpegServer;
 import edu.wpi.first.cscore.UsbCamera;
 import edu.wpi.first.cscore.VideoMode.PixelFormat;
-import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.util.net.PortForwarder;
@@ -18,11 +15,11 @@ import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.commands.DriveCommand;
 import frc.robot.commands.IndexerMotorCommand;
@@ -44,6 +41,7 @@ import frc.robot.commands.intakecommands.intakemotorcommands.RunIntakeMotorsComm
 import frc.robot.commands.intakecommands.intakemotorcommands.StopIntakeMotorsCommand;
 import frc.robot.commands.shootercommands.ShootCargoCommand;
 import frc.robot.commands.shootercommands.AdjustHoodCommand;
+import frc.robot.subsystems.DriveIOSim;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.EndgameMotorSubsystem;
 import frc.robot.subsystems.EndgamePistonSubsystem;
@@ -54,14 +52,17 @@ import frc.robot.subsystems.LEDSubsystem;
 import frc.robot.subsystems.ShifterSubsystem;
 import frc.robot.subsystems.ShooterHoodSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
-import frc.robot.utilities.SimulatedDrivetrain;
 import frc.robot.utilities.PathPlannerSequentialCommandGroupUtility;
 import frc.robot.utilities.BallSensorUtility;
+import frc.robot.utilities.CargoSimulation;
 import frc.robot.utilities.DriveCameraUtility;
 import frc.robot.utilities.DriveCameraUtility.BallColor;
 import frc.robot.utilities.EndgameSensorUtility;
+import frc.robot.utilities.HubCameraSimulation;
 import frc.robot.utilities.PhotonVisionUtility;
+import frc.robot.utilities.ShootOnTheMoveSolver;
 import frc.robot.utilities.ShooterUtility;
+import frc.robot.utilities.ShotLogger;
 
 //----- CLASS -----\\
 /**
@@ -135,6 +136,8 @@ public class RobotContainer {
 
     // Shoot Sequence Command Group
     private final SequentialCommandGroup m_teleopShootSequence;
+    // Shared by the shoot sequence so aiming and the setpoints lead the hub the same way
+    private final ShootOnTheMoveSolver m_shotSolver;
 
     //----- ENDGAME -----\\
 
@@ -284,17 +287,26 @@ public class RobotContainer {
         m_indexerMotorForwardCommand = new IndexerMotorCommand(m_indexerMotorSubsystem, false);
         m_indexerMotorReverseCommand = new IndexerMotorCommand(m_indexerMotorSubsystem, true);
 
+        m_shotSolver = new ShootOnTheMoveSolver();
         m_teleopShootSequence = new SequentialCommandGroup(
             new PhotonAimCommand(
                 m_driveSubsystem, 
                 m_driverController.getController(),
-                m_codriverController.getController()
+                m_codriverController.getController(),
+                m_shotSolver
             ),
-            new AdjustHoodCommand(m_shooterHoodSubsystem),
-            new ShootCargoCommand(
-                m_shooterSubsystem, 
-                m_indexerMotorSubsystem
-            ).withTimeout(ShootCargoCommand.TELEOP_SHOOT_TIME)
+            // Move the hood while the wheels spin up. The shoot command waits for the
+            // hood before it feeds, and the hood stops waiting once we are done shooting
+            new ParallelDeadlineGroup(
+                new ShootCargoCommand(
+                    m_shooterSubsystem, 
+                    m_indexerMotorSubsystem,
+                    m_shooterHoodSubsystem,
+                    m_shotSolver,
+                    m_driveSubsystem
+                ).withTimeout(ShootCargoCommand.TELEOP_SHOOT_TIME),
+                new AdjustHoodCommand(m_shooterHoodSubsystem, m_shotSolver, m_driveSubsystem)
+            )
         );
 
         //----- ENDGAME COMMAND INITS -----\\
@@ -388,6 +400,15 @@ public class RobotContainer {
             m_shootCargoCommand
         );
 
+        // Tags the last shot as a make when the A button is pressed, or a miss
+        // when the B button is pressed, for tuning the shot table
+        m_driverController.getAButton().whenPressed(
+            new InstantCommand(() -> ShotLogger.getInstance().tagLastShot(true))
+        );
+        m_driverController.getBButton().whenPressed(
+            new InstantCommand(() -> ShotLogger.getInstance().tagLastShot(false))
+        );
+
         //----- CODRIVER CONTROLLER -----\\
 
         // Engages the intake pistons when the left bumper is pressed
@@ -563,6 +584,12 @@ public class RobotContainer {
         m_driveSubsystem.setMotorBrakeMode(NeutralMode.Brake);
         rescheduleAutonomousLEDs(true);
 
+        // Start the simulated match with our preloaded cargo
+        if (m_cargoSimulation != null) {
+            m_cargoSimulation.reset(PRELOADED_CARGO);
+            m_hubCameraSimulation.reset();
+        }
+
         PhotonVisionUtility.getInstance().setPiCameraExposure();
     }
 
@@ -646,124 +673,102 @@ public class RobotContainer {
         m_indexerMotorSubsystem.stopMotors();
     }
 
-    //----- ROBOT SIMULATION -----\\
+    private void rescheduleAutonomousLEDs(boolean useAutonomousLEDCmd) {
+        LEDCommand ledCommand = (useAutonomousLEDCmd) ? m_autonPatternCommand :
+            m_idlePatternCommand;
+        LEDCommand endledCommand = (useAutonomousLEDCmd) ? m_idlePatternCommand :
+        m_autonPatternCommand;
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.unregisterSubsystem(m_LEDSubsystem);
+        endledCommand.cancel();
+        scheduler.setDefaultCommand(m_LEDSubsystem, ledCommand);
+    }
 
-    private final RamseteController m_ramsete = new RamseteController();
-    private final SimulatedDrivetrain m_simDrive = new SimulatedDrivetrain();
+    //----- ROBOT SIMULATION -----\\
 
-    private final Timer m_timer = new Timer();
+    // How much cargo we start a match with
+    private static final int PRELOADED_CARGO = 1;
 
-    private Trajectory m_trajectory;
-    private Command m_autocmd = null;
+    // Moves cargo through the simulated robot, or null on the real robot
+    private CargoSimulation m_cargoSimulation = null;
+    // Makes hub camera frames from where the simulated robot is, or null on the
+    // real robot
+    private HubCameraSimulation m_hubCameraSimulation = null;
 
-    // This begins the robot sim and sets our a trajectory and paths.
     /**
-     * <h3>robotSimInit</h3>
+     * <h3>simulationInit</h3>
      * 
      * Runs when the robot is initialized in simulation.
      */
-    public void robotSimInit() {
-        /*
-         * String trajectoryJSON = Filesystem.getDeployDirectory() +
-         * "/Paths/Bounce.wpilib.json";
-         * //Tries to create a trajectory from a JSON file. Logs and throws exception if
-         * fails.
-         * try {
-         * //Path trajectoryPath =
-         * Filesystem.getDeployDirectory().toPath().resolve(trajectoryJSON);
-         * Path trajectoryPath =
-         * Filesystem.getDeployDirectory().toPath().resolve(trajectoryJSON);
-         * m_trajectory = TrajectoryUtil.fromPathweaverJson(trajectoryPath);
-         * } catch (IOException ex) {
-         * DriverStation.reportError("Unable to open trajectory: " + trajectoryJSON,
-         * ex.getStackTrace());
-         * throw new RuntimeException("Unable to open trajectory: " + trajectoryJSON);
-         * }
-         */
+    public void simulationInit() {
+        m_cargoSimulation = new CargoSimulation(m_intakeMotorSubsystem, m_intakePistonSubsystem,
+                m_indexerMotorSubsystem, m_shooterSubsystem, m_driveSubsystem);
+        m_hubCameraSimulation = new HubCameraSimulation(m_driveSubsystem, (DriveIOSim) m_driveSubsystem.getIO());
     }
 
     /**
-     * <h3>autoSimInit</h3>
+     * <h3>simulationPeriodic</h3>
      * 
-     * Begins autonomous simulation. Resets position and timer.
+     * Moves the simulated cargo and captures a hub camera frame. The subsystems
+     * have already run their own simulations by the time this runs.
      */
-    public void autoSimInit() {
-        rescheduleAutonomousLEDs(true);
-        m_autocmd = m_autoManager.getAutonomousCommand();
-        if (m_autocmd != null) {
-            if (m_autocmd instanceof PathPlannerSequentialCommandGroupUtility) {
-                List<Trajectory> list = ((PathPlannerSequentialCommandGroupUtility) m_autocmd).getTrajectories();
-                if (list.size() == 0) {
-                    DriverStation.reportError(
-                            "Missing trajectories in (please add them this.addTrajectory()): " + m_autocmd.toString(),
-                            true);
-                    throw new RuntimeException(
-                            "Missing trajectories in (please add them this.addTrajectory()): " + m_autocmd.toString());
-                }
-                int ii = 0;
-                for (Trajectory traj : list) {
-                    if (ii == 0) {
-                        m_trajectory = traj;
-                    } else {
-                        m_trajectory = m_trajectory.concatenate(traj);
-                    }
-                    ii++;
-                }
-            } else {
-                DriverStation.reportError("Unable to open trajectory: " + m_autocmd.toString(), true);
-                throw new RuntimeException("Unable to open trajectory: " + m_autocmd.toString());
-            }
-            m_timer.reset();
-            m_timer.start();
-            m_simDrive.resetOdometry(m_trajectory.getInitialPose());
-        }
+    public void simulationPeriodic() {
+        m_cargoSimulation.update();
+        m_hubCameraSimulation.update();
     }
 
-    private void rescheduleAutonomousLEDs(boolean useAutonomousLEDCmd) {
-        LEDCommand ledCommand = (useAutonomousLEDCmd) ? m_autonPatternCommand :
-            m_idlePatternCommand;
-        LEDCommand endledCommand = (useAutonomousLEDCmd) ? m_idlePatternCommand :
-        m_autonPatternCommand;
-        CommandScheduler scheduler = CommandScheduler.getInstance();
-        scheduler.unregisterSubsystem(m_LEDSubsystem);
-        endledCommand.cancel();
-        scheduler.setDefaultCommand(m_LEDSubsystem, ledCommand);
+    /**
+     * <h3>getCargoSimulation</h3>
+     * 
+     * @return the simulated cargo, or null on the real robot
+     */
+    public CargoSimulation getCargoSimulation() {
+        return m_cargoSimulation;
     }
 
     /**
-     * <h3>robotSimPeriodic</h3>
+     * <h3>getHubCameraSimulation</h3>
      * 
-     * Updates simulated robot periodically.
+     * @return the simulated hub camera, or null on the real robot
      */
-    public void robotSimPeriodic() {
-        if (m_autocmd != null) {
-            m_simDrive.periodic();
-        }
+    public HubCameraSimulation getHubCameraSimulation() {
+        return m_hubCameraSimulation;
     }
 
     /**
-     * <h3>autoSimPeriodic</h3>
+     * <h3>getDriveSubsystem</h3>
      * 
-     * Updates the position of the simulated robot autonomous periodically.
+     * @return the drivetrain
      */
-    public void autoSimPeriodic() {
-        if (m_autocmd != null) {
-            double elapsed = m_timer.get();
-            Trajectory.State reference = m_trajectory.sample(elapsed);
-            ChassisSpeeds speeds = m_ramsete.calculate(m_simDrive.getPose(), reference);
-            m_simDrive.drive(speeds.vxMetersPerSecond, speeds.omegaRadiansPerSecond);
-        }
+    public DriveSubsystem getDriveSubsystem() {
+        return m_driveSubsystem;
+    }
+
+    /**
+     * <h3>getDrivePose</h3>
+     * 
+     * @return where the drivetrain thinks it is on the field
+     */
+    public Pose2d getDrivePose() {
+        return m_driveSubsystem.getEstimatedPose();
     }
 
     /**
-     * <h3>simPeriodic</h3>
+     * <h3>getAutonomousTrajectory</h3>
      * 
-     * Updates simulation
+     * @return every path in the selected auto joined together, or null if the
+     *         auto doesn't have any
      */
-    public void simPeriodic() {
-        if (m_autocmd != null) {
-            m_simDrive.simulationPeriodic();
+    public Trajectory getAutonomousTrajectory() {
+        Command autoCommand = m_autoManager.getAutonomousCommand();
+        if (!(autoCommand instanceof PathPlannerSequentialCommandGroupUtility)) {
+            return null;
         }
+        Trajectory trajectory = null;
+        for (Trajectory path : ((PathPlannerSequentialCommandGroupUtility) autoCommand).getTrajectories()) {
+            trajectory = (trajectory == null) ? path : trajectory.concatenate(path);
+        }
+        return trajectory;
     }
 
     //----- DISABLED -----\\
@@ -775,6 +780,16 @@ public class RobotContainer {
      */
     public void disabledInit() {
         m_idlePatternCommand.solidYellowLEDs();
+        ShotLogger.getInstance().flush();
+    }
+
+    /**
+     * <h3>disabledPeriodic</h3>
+     * 
+     * Creates the selected auto ahead of time, so autonomousInit doesn't have to
+     */
+    public void disabledPeriodic() {
+        m_autoManager.prepareAutonomousCommand();
     }
 
 } // End of RobotContainer
\ No newline at end of file
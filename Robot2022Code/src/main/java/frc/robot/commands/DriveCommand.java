@@ -9,7 +9,6 @@ import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.utilities.ShuffleboardUtility;
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
 
 /**
@@ -69,11 +68,11 @@ public class DriveCommand extends CommandBase {
         DifferentialDriveWheelSpeeds wheelSpeeds = driveSubsystem.getWheelSpeeds(forwardSpeed,
                 rotationSpeed);
 
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.testingTab, ShuffleboardKeys.LEFT_SPEED,
-                new ShuffleBoardData<Double>(wheelSpeeds.leftMetersPerSecond));
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.testingTab,
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.testingTab, ShuffleboardKeys.LEFT_SPEED,
+                wheelSpeeds.leftMetersPerSecond);
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.testingTab,
                 ShuffleboardKeys.RIGHT_SPEED,
-                new ShuffleBoardData<Double>(wheelSpeeds.rightMetersPerSecond));
+                wheelSpeeds.rightMetersPerSecond);
 
         driveSubsystem.setVoltages(
                 // Calculate feedforward with the feedforward controller in drive subsystem
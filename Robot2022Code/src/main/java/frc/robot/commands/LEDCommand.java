@@ -526,7 +526,7 @@ public class LEDCommand extends CommandBase {
     private boolean aimStatus() {
         // Gets the boolean value of the AIMED datapoint from the Shuffleboard on whether or not the robot is aimed
         // If aimed, set LEDs to green, if not, clear the strip
-        if ((boolean) ShuffleboardUtility.getInstance().getFromShuffleboard(ShuffleboardKeys.AIMED).getData()) {
+        if (ShuffleboardUtility.getInstance().getBoolean(ShuffleboardKeys.AIMED)) {
             solidGreenLEDs();
             return true;
         } else {
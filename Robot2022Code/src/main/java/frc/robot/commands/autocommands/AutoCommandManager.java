@@ -1,6 +1,7 @@
 package frc.robot.commands.autocommands;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Subsystem;
@@ -17,6 +18,10 @@ import frc.robot.subsystems.*;
 public class AutoCommandManager {
     HashMap<String, Subsystem> subsystemMap = new HashMap<String, Subsystem>();
 
+    // The path selected last time we checked, and the command created for it
+    private Supplier<Command> m_selectedPath;
+    private Command m_selectedCommand;
+
     public static enum subNames {
         ShooterSubsystem("Shooter"),
         ShooterHoodSubsystem("Shooter Hood"),
@@ -47,79 +52,79 @@ public class AutoCommandManager {
     }
 
     /**
-     * Creates instances of each autonomous path command
+     * Adds each autonomous path to the Shuffleboard and starts loading their
+     * trajectories in the background. The path commands aren't created until
+     * one is selected, so only the selected auto takes up memory.
      */
     public void initCommands() {
-
-        TarmacTaxi TarmacTaxi = new TarmacTaxi(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()));
-
-        TaxiOneBall TaxiOneBall = new TaxiOneBall(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        TaxiOneBallAim TaxiOneBallAim = new TaxiOneBallAim(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        TaxiTwoBall TaxiTwoBall = new TaxiTwoBall(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        TerminalPickup TerminalPickup = new TerminalPickup(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        FiveBallAuto FiveBallAuto = new FiveBallAuto(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        DefensiveThreeBall DefensiveThreeBall = new DefensiveThreeBall(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
-
-        DefensiveHangarCleanup DefensiveHangarCleanup = new DefensiveHangarCleanup(
-                (DriveSubsystem) subsystemMap.get(subNames.DriveSubsystem.toString()),
-                (IntakePistonSubsystem) subsystemMap.get(subNames.IntakePistonSubsystem.toString()),
-                (IntakeMotorSubsystem) subsystemMap.get(subNames.IntakeMotorSubsystem.toString()),
-                (ShooterSubsystem) subsystemMap.get(subNames.ShooterSubsystem.toString()),
-                (ShooterHoodSubsystem) subsystemMap.get(subNames.ShooterHoodSubsystem.toString()),
-                (IndexerMotorSubsystem) subsystemMap.get(subNames.IndexerMotorSubsystem.toString()));
+        TrajectoryCache.getInstance().preload();
 
         // Adding auto paths to the Shuffleboard to be used by the get autonomous command
         ShuffleboardUtility.getInstance().setDefaultAutonOptions("(None)", null);
-        ShuffleboardUtility.getInstance().addAutonOptions("defaultAutoPathCommand", TarmacTaxi);
-        ShuffleboardUtility.getInstance().addAutonOptions("TaxiTwoBall", TaxiTwoBall);
-        ShuffleboardUtility.getInstance().addAutonOptions("TaxiOneBall", TaxiOneBall);
-        ShuffleboardUtility.getInstance().addAutonOptions("TaxiOneBallAim", TaxiOneBallAim);
-        ShuffleboardUtility.getInstance().addAutonOptions("TerminalPickup", TerminalPickup);
-        ShuffleboardUtility.getInstance().addAutonOptions("DefensiveThreeBall", DefensiveThreeBall);
-        ShuffleboardUtility.getInstance().addAutonOptions("DefensiveHangarCleanup", DefensiveHangarCleanup);
-        ShuffleboardUtility.getInstance().addAutonOptions("FiveBallAuto", FiveBallAuto);
+        ShuffleboardUtility.getInstance().addAutonOptions("defaultAutoPathCommand", () -> new TarmacTaxi(
+                getSubsystem(subNames.DriveSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("TaxiTwoBall", () -> new TaxiTwoBall(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("TaxiOneBall", () -> new TaxiOneBall(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("TaxiOneBallAim", () -> new TaxiOneBallAim(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("TerminalPickup", () -> new TerminalPickup(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("DefensiveThreeBall", () -> new DefensiveThreeBall(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("DefensiveHangarCleanup", () -> new DefensiveHangarCleanup(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+        ShuffleboardUtility.getInstance().addAutonOptions("FiveBallAuto", () -> new FiveBallAuto(
+                getSubsystem(subNames.DriveSubsystem),
+                getSubsystem(subNames.IntakePistonSubsystem),
+                getSubsystem(subNames.IntakeMotorSubsystem),
+                getSubsystem(subNames.ShooterSubsystem),
+                getSubsystem(subNames.ShooterHoodSubsystem),
+                getSubsystem(subNames.IndexerMotorSubsystem)));
+    }
+
+    /**
+     * Creates the command for the autonomous path that is selected in the
+     * Shuffleboard, if it hasn't been already. This is called while disabled so
+     * the command is ready before the match starts.
+     */
+    public void prepareAutonomousCommand() {
+        Supplier<Command> selectedPath = ShuffleboardUtility.getInstance().getSelectedAutonPath();
+        if (selectedPath != m_selectedPath) {
+            m_selectedPath = selectedPath;
+            m_selectedCommand = (selectedPath == null) ? null : selectedPath.get();
+        }
     }
 
     /**
@@ -129,7 +134,19 @@ public class AutoCommandManager {
      * @return The selected autonomous command
      */
     public Command getAutonomousCommand() {
-        return ShuffleboardUtility.getInstance().getSelectedAutonPath();
+        prepareAutonomousCommand();
+        return m_selectedCommand;
+    }
+
+    /**
+     * Gets a subsystem from the subsystem map as the type it is used as
+     *
+     * @param name the subsystem to get
+     * @return the subsystem
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Subsystem> T getSubsystem(subNames name) {
+        return (T) subsystemMap.get(name.toString());
     }
 
 }
@@ -0,0 +1,104 @@
+package frc.robot.commands.autocommands;
+
+// ----- IMPORTS ----- \\
+
+import com.pathplanner.lib.PathPlanner;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * <h3>AutoPath</h3>
+ * 
+ * Every PathPlanner path an auto drives, along with the constraints it is
+ * driven with. Keeping them all in one place lets the
+ * {@link frc.robot.commands.autocommands.TrajectoryCache TrajectoryCache}
+ * generate every trajectory when the code is built instead of when the robot
+ * boots.
+ */
+public enum AutoPath {
+    // TarmacTaxi and TaxiOneBall
+    TAXI_ONE_BALL("TaxiOneBall", 0.5, 2.5, false), // DriveSubsystem.DRIVETRAIN_MAX_FREE_SPEED_HIGH
+    // TaxiOneBallAim
+    TAXI_ONE_BALL_REVERSED("TaxiOneBall", 0.5, 2.5, true),
+
+    // TaxiTwoBall
+    TAXI_TWO_BALL("TaxiTwoBall", 1.0, 1.0, false),
+
+    // TerminalPickup. MAKE SURE THERE IS LOTS OF SPACE BEHIND TERMINAL WHEN
+    // RUNNING IN FULL SPEED. Set to 3 and 2 when testing
+    TERMINAL_PICKUP_1("TerminalPickup1", 5, 4, false),
+    TERMINAL_PICKUP_2("TerminalPickup2", 5, 4, false),
+    TERMINAL_PICKUP_3("TerminalPickup3", 5, 4, true),
+
+    // DefensiveThreeBall
+    DEFENSIVE_THREE_BALL_1("DefensiveThreeBall1", 1.0, 1.0, false),
+    DEFENSIVE_THREE_BALL_2("DefensiveThreeBall2", 1.0, 1.0, false),
+
+    // DefensiveHangarCleanup
+    DEFENSIVE_HANGAR_CLEANUP_1("DefensiveHangarCleanup1", 1.5, 1.25, false),
+    DEFENSIVE_HANGAR_CLEANUP_2("DefensiveHangarCleanup2", 1.5, 1.25, false),
+    DEFENSIVE_HANGAR_CLEANUP_3("DefensiveHangarCleanup3", 1.5, 1.25, false),
+
+    // FiveBallAuto. MAKE SURE THERE IS LOTS OF SPACE BEHIND TERMINAL WHEN RUNNING
+    // IN FULL SPEED. Set to 3 and 2 when testing
+    FIVE_BALL_AUTO_1("FiveBallAuto1", 4, 2, false),
+    FIVE_BALL_AUTO_2("FiveBallAuto2", 4, 2, true),
+    FIVE_BALL_AUTO_3("FiveBallAuto3", 4, 2, false),
+    FIVE_BALL_AUTO_4("FiveBallAuto4", 4, 2, false),
+    FIVE_BALL_AUTO_4_5("FiveBallAuto4.5", 4, 2, true),
+    FIVE_BALL_AUTO_5("FiveBallAuto5", 4, 2, true);
+
+    private final String pathName;
+    private final double maxSpeed;
+    private final double maxAcceleration;
+    private final boolean isReversed;
+
+    AutoPath(String pathName, double maxSpeed, double maxAcceleration, boolean isReversed) {
+        this.pathName = pathName;
+        this.maxSpeed = maxSpeed;
+        this.maxAcceleration = maxAcceleration;
+        this.isReversed = isReversed;
+    }
+
+    /**
+     * <h3>generate</h3>
+     * 
+     * Parses the path file and generates the trajectory. This is slow, so use
+     * the {@link frc.robot.commands.autocommands.TrajectoryCache TrajectoryCache}
+     * instead.
+     * 
+     * @return the generated trajectory
+     */
+    public Trajectory generate() {
+        return PathPlanner.loadPath(pathName, maxSpeed, maxAcceleration, isReversed);
+    }
+
+    /**
+     * @return the name of the path in PathPlanner, without the extension
+     */
+    public String getPathName() {
+        return pathName;
+    }
+
+    /**
+     * @return the fastest the robot drives the path in meters per second
+     */
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * @return the fastest the robot speeds up on the path in meters per second
+     *         squared
+     */
+    public double getMaxAcceleration() {
+        return maxAcceleration;
+    }
+
+    /**
+     * @return true if the robot drives the path backwards
+     */
+    public boolean isReversed() {
+        return isReversed;
+    }
+}
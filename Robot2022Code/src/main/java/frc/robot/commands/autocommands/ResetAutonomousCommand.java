@@ -1,9 +1,6 @@
 package frc.robot.commands.autocommands;
 
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
-import frc.robot.utilities.GyroUtility;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DriveSubsystem;
 
@@ -17,7 +14,6 @@ import frc.robot.subsystems.DriveSubsystem;
  */
 public class ResetAutonomousCommand extends CommandBase {
 
-    private final DifferentialDriveOdometry m_odometry;
     private final DriveSubsystem m_dSubsystem;
     private final Pose2d m_startingPose;
 
@@ -31,7 +27,6 @@ public class ResetAutonomousCommand extends CommandBase {
 
         // initializing gyro for pose2d
         m_dSubsystem = dSubsystem;
-        m_odometry = m_dSubsystem.getOdometry();
         m_startingPose = startingPose;
 
         addRequirements(m_dSubsystem);
@@ -43,9 +38,9 @@ public class ResetAutonomousCommand extends CommandBase {
      */
     @Override
     public void initialize() {
-        m_odometry.resetPosition(m_startingPose,
-                new Rotation2d(Math.toRadians(GyroUtility.getInstance().getGyro().getCompassHeading())));
-        m_dSubsystem.resetEncoders();
+        // Lines the odometry up with the gyro's yaw, which is what it is updated
+        // with
+        m_dSubsystem.resetOdometry(m_startingPose);
 
     }
 
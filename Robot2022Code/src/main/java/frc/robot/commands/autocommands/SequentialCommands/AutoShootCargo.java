@@ -3,7 +3,7 @@ package frc.robot.commands.autocommands.SequentialCommands;
 import com.ctre.phoenix.sensors.Pigeon2;
 
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import frc.robot.commands.shootercommands.AdjustHoodCommand;
 import frc.robot.commands.shootercommands.ShootCargoCommand;
 import frc.robot.subsystems.IndexerMotorSubsystem;
@@ -14,6 +14,7 @@ import frc.robot.subsystems.ShooterSubsystem;
 import frc.robot.utilities.GyroUtility;
 import frc.robot.utilities.PathPlannerSequentialCommandGroupUtility;
 import frc.robot.utilities.ShooterUtility;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
 
 /**
  * <h3>AutoShootCargo</h3>
@@ -56,12 +57,17 @@ public class AutoShootCargo extends PathPlannerSequentialCommandGroupUtility {
     public AutoShootCargo(ShooterHoodSubsystem shooterHoodSubsystem, ShooterSubsystem shooterSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem, Double distance, IntakeMotorSubsystem intakeMotorSubsystem,
             IntakePistonSubsystem intakePistonSubsystem, Double shootTime) {
+        // Look up the whole shot once instead of once per setpoint
+        ShotSetpoint shot = new ShotSetpoint();
+        ShooterUtility.calculateShot(distance, shot);
+
+        // Move the hood while the wheels spin up. The shoot command waits for the hood
+        // before it feeds, and the hood stops waiting once we are done shooting
         addCommands(
-                new AdjustHoodCommand(shooterHoodSubsystem, ShooterUtility.calculateHoodPos(distance)),
-                new ParallelRaceGroup(
-                        new ShootCargoCommand(shooterSubsystem, indexerMotorSubsystem,
-                                ShooterUtility.calculateTopSpeed(distance),
-                                ShooterUtility.calculateBottomSpeed(distance)).withTimeout(shootTime)));
+                new ParallelDeadlineGroup(
+                        new ShootCargoCommand(shooterSubsystem, indexerMotorSubsystem, shooterHoodSubsystem,
+                                shot.getTopSpeed(), shot.getBottomSpeed()).withTimeout(shootTime),
+                        new AdjustHoodCommand(shooterHoodSubsystem, shot.getHoodPosition())));
     }
 
     @Override
@@ -0,0 +1,289 @@
+package frc.robot.commands.autocommands;
+
+// ----- IMPORTS ----- \\
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * <h3>TrajectoryCache</h3>
+ * 
+ * Loads the trajectory for each {@link AutoPath} once and hands out the same
+ * one from then on. Parsing a path file and generating its trajectory is
+ * slow, so every trajectory is generated when the code is built and saved in
+ * the deploy directory as a small binary file. The robot only has to read the
+ * states back in.
+ * <p>
+ * Each cache file remembers a checksum of the path file and the constraints it
+ * was generated with. If either changed since, or the file is missing, the
+ * path is parsed on the robot like before, so a stale cache can never drive the
+ * wrong path.
+ */
+public class TrajectoryCache {
+    // ----- CONSTANTS ----- \\
+
+    // The first bytes of every cache file, so we don't try to read some other
+    // file
+    private static final int MAGIC = 0x5452414A;
+    // Bumped whenever the layout of the file changes
+    private static final int VERSION = 1;
+
+    // Where PathPlanner keeps the paths and where we keep the cache, inside the
+    // deploy directory
+    private static final String PATH_DIRECTORY = "pathplanner";
+    private static final String CACHE_DIRECTORY = "pathplanner/cache";
+    private static final String PATH_EXTENSION = ".path";
+    private static final String CACHE_EXTENSION = ".traj";
+
+    // ----- VARIABLES ----- \\
+
+    private final Map<AutoPath, Trajectory> trajectories = new EnumMap<>(AutoPath.class);
+    private Thread preloadThread;
+
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+
+    // ----- STATICS ----- \\
+
+    private static TrajectoryCache instance;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>TrajectoryCache</h3>
+     * 
+     * This should only ever be called once by the getInstance method
+     */
+    private TrajectoryCache() {
+    }
+
+    // ----- SINGLETON GET ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * This is the accessor method for the singleton. This ensures that there is
+     * only ever one instance of the TrajectoryCache
+     * 
+     * @return the instance of TrajectoryCache
+     */
+    public static synchronized TrajectoryCache getInstance() {
+        if (instance == null) {
+            instance = new TrajectoryCache();
+        }
+        return instance;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>preload</h3>
+     * 
+     * Starts loading every trajectory on a background thread, so they are ready
+     * by the time an auto is picked. Anything asked for before the thread gets
+     * to it is loaded right away instead.
+     */
+    public synchronized void preload() {
+        if (preloadThread != null) {
+            return;
+        }
+
+        preloadThread = new Thread(() -> {
+            for (AutoPath path : AutoPath.values()) {
+                get(path);
+            }
+            System.out.println("Loaded " + AutoPath.values().length + " trajectories (" + getCacheHits()
+                    + " from the cache, " + getCacheMisses() + " parsed)");
+        }, "TrajectoryPreload");
+        // Don't keep the robot program alive just for this thread
+        preloadThread.setDaemon(true);
+        preloadThread.setPriority(Thread.MIN_PRIORITY);
+        preloadThread.start();
+    }
+
+    /**
+     * <h3>get</h3>
+     * 
+     * Gets the trajectory for a path, loading it first if it hasn't been yet
+     * 
+     * @param path the path to get
+     * @return the trajectory for the path
+     */
+    public synchronized Trajectory get(AutoPath path) {
+        Trajectory trajectory = trajectories.get(path);
+        if (trajectory == null) {
+            trajectory = load(path);
+            trajectories.put(path, trajectory);
+        }
+        return trajectory;
+    }
+
+    /**
+     * <h3>load</h3>
+     * 
+     * Reads a trajectory from the cache, or parses the path if the cache is
+     * missing or out of date
+     * 
+     * @param path the path to load
+     * @return the trajectory for the path
+     */
+    private Trajectory load(AutoPath path) {
+        try {
+            Trajectory trajectory = readCache(path, Filesystem.getDeployDirectory());
+            if (trajectory != null) {
+                cacheHits++;
+                return trajectory;
+            }
+            System.out.println("****** TRAJECTORY CACHE FOR " + path + " IS MISSING OR OUT OF DATE ******");
+        } catch (IOException e) {
+            System.out.println("****** COULDN'T READ TRAJECTORY CACHE FOR " + path + " ******");
+            e.printStackTrace();
+        }
+
+        cacheMisses++;
+        return path.generate();
+    }
+
+    /**
+     * <h3>writeCache</h3>
+     * 
+     * Generates a trajectory and saves it to the cache. This is run when the
+     * code is built, not on the robot.
+     * 
+     * @param path            the path to generate
+     * @param deployDirectory the deploy directory to save into
+     * @throws IOException if the path can't be read or the cache can't be
+     *                     written
+     */
+    public static void writeCache(AutoPath path, File deployDirectory) throws IOException {
+        Trajectory trajectory = path.generate();
+        List<Trajectory.State> states = trajectory.getStates();
+
+        File cacheFile = getCacheFile(path, deployDirectory);
+        cacheFile.getParentFile().mkdirs();
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(getChecksum(path, deployDirectory));
+            output.writeDouble(path.getMaxSpeed());
+            output.writeDouble(path.getMaxAcceleration());
+            output.writeBoolean(path.isReversed());
+
+            // Floats are more than precise enough for a path on the field
+            output.writeInt(states.size());
+            for (Trajectory.State state : states) {
+                output.writeFloat((float) state.timeSeconds);
+                output.writeFloat((float) state.velocityMetersPerSecond);
+                output.writeFloat((float) state.accelerationMetersPerSecondSq);
+                output.writeFloat((float) state.poseMeters.getX());
+                output.writeFloat((float) state.poseMeters.getY());
+                output.writeFloat((float) state.poseMeters.getRotation().getRadians());
+                output.writeFloat((float) state.curvatureRadPerMeter);
+            }
+        }
+    }
+
+    /**
+     * <h3>readCache</h3>
+     * 
+     * Reads a trajectory from the cache
+     * 
+     * @param path            the path to read
+     * @param deployDirectory the deploy directory to read from
+     * @return the trajectory, or null if the cache is missing or was made from a
+     *         different path file or constraints
+     * @throws IOException if the path or the cache can't be read
+     */
+    private static Trajectory readCache(AutoPath path, File deployDirectory) throws IOException {
+        File cacheFile = getCacheFile(path, deployDirectory);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (input.readInt() != MAGIC || input.readUnsignedShort() != VERSION
+                    || input.readLong() != getChecksum(path, deployDirectory)
+                    || input.readDouble() != path.getMaxSpeed()
+                    || input.readDouble() != path.getMaxAcceleration()
+                    || input.readBoolean() != path.isReversed()) {
+                return null;
+            }
+
+            int stateCount = input.readInt();
+            List<Trajectory.State> states = new ArrayList<>(stateCount);
+            for (int i = 0; i < stateCount; i++) {
+                double time = input.readFloat();
+                double velocity = input.readFloat();
+                double acceleration = input.readFloat();
+                double x = input.readFloat();
+                double y = input.readFloat();
+                double heading = input.readFloat();
+                double curvature = input.readFloat();
+                states.add(new Trajectory.State(time, velocity, acceleration,
+                        new Pose2d(x, y, new Rotation2d(heading)), curvature));
+            }
+            return new Trajectory(states);
+        }
+    }
+
+    /**
+     * <h3>getChecksum</h3>
+     * 
+     * @param path            the path to check
+     * @param deployDirectory the deploy directory the path is in
+     * @return a checksum of the path file, to tell if it changed
+     * @throws IOException if the path file can't be read
+     */
+    private static long getChecksum(AutoPath path, File deployDirectory) throws IOException {
+        File pathFile = new File(deployDirectory, PATH_DIRECTORY + "/" + path.getPathName() + PATH_EXTENSION);
+        CRC32 checksum = new CRC32();
+        checksum.update(Files.readAllBytes(pathFile.toPath()));
+        return checksum.getValue();
+    }
+
+    /**
+     * <h3>getCacheFile</h3>
+     * 
+     * @param path            the path to get the cache file of
+     * @param deployDirectory the deploy directory the cache is in
+     * @return where the cache for the path is kept
+     */
+    private static File getCacheFile(AutoPath path, File deployDirectory) {
+        return new File(deployDirectory, CACHE_DIRECTORY + "/" + path.name() + CACHE_EXTENSION);
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return the number of trajectories that were read from the cache
+     */
+    public synchronized int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return the number of trajectories that had to be parsed on the robot
+     */
+    public synchronized int getCacheMisses() {
+        return cacheMisses;
+    }
+}
@@ -2,15 +2,14 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autocommands.SequentialCommands.CombinedIntake;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
@@ -32,10 +31,6 @@ public class DefensiveHangarCleanup extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 1.5;
-    private final static double MAX_ACCELERATION = 1.25;
-
     // Ramsete Controller Parameters
     private final double RAMSETE_B = 2;
     private final double RAMSETE_ZETA = 0.7;
@@ -45,10 +40,6 @@ public class DefensiveHangarCleanup extends AutoBase {
     private double SHOT_DISTANCE_2 = 8.0;
     private double SHOT_DISTANCE_3 = 8.0;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>DefensiveTwoBall</h3>
@@ -69,23 +60,21 @@ public class DefensiveHangarCleanup extends AutoBase {
             ShooterSubsystem shooterSubsystem,
             ShooterHoodSubsystem shooterHoodSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("DefensiveHangarCleanup1", MAX_SPEED, MAX_ACCELERATION));
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.DEFENSIVE_HANGAR_CLEANUP_1));
 
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
 
-        Trajectory t_adjacentEnemyCargo = PathPlanner.loadPath("DefensiveHangarCleanup2", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_adjacentEnemyCargo = TrajectoryCache.getInstance().get(AutoPath.DEFENSIVE_HANGAR_CLEANUP_2);
 
-        Trajectory t_farEnemyCargo = PathPlanner.loadPath("DefensiveHangarCleanup3", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_farEnemyCargo = TrajectoryCache.getInstance().get(AutoPath.DEFENSIVE_HANGAR_CLEANUP_3);
 
         this.addTrajectory(super.m_initialTrajectory);
         this.addTrajectory(t_adjacentEnemyCargo);
         this.addTrajectory(t_farEnemyCargo);
 
         SmartDashboard.putString("Pos1", super.m_initialTrajectory.getInitialPose().toString());
-        SmartDashboard.putString("current Gyro Position", m_odometry.getPoseMeters().toString());
+        SmartDashboard.putString("current Gyro Position", driveSubsystem.getOdometryPose().toString());
 
         // ----- RAMSETE COMMMANDS -----\\
         // Creates a command that can be added to the command scheduler in the
@@ -94,7 +83,7 @@ public class DefensiveHangarCleanup extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_exitTarmac = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -103,7 +92,7 @@ public class DefensiveHangarCleanup extends AutoBase {
 
         Ramsete930Command r_adjacentEnemyCargo = new Ramsete930Command(
                 t_adjacentEnemyCargo,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -112,7 +101,7 @@ public class DefensiveHangarCleanup extends AutoBase {
 
         Ramsete930Command r_farEnemyCargo = new Ramsete930Command(
                 t_farEnemyCargo,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -2,15 +2,14 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autocommands.SequentialCommands.CombinedIntake;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.subsystems.DriveSubsystem;
@@ -31,10 +30,6 @@ public class DefensiveThreeBall extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 1.0;
-    private final static double MAX_ACCELERATION = 1.0;
-
     // Ramsete Controller Parameters
     private final double RAMSETE_B = 2;
     private final double RAMSETE_ZETA = 0.7;
@@ -43,9 +38,6 @@ public class DefensiveThreeBall extends AutoBase {
     private double SHOT_DISTANCE_1 = 11.68;
     private double SHOT_DISTANCE_2 = 8.0;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
     // private final CurrentToHubDistanceUtility currentToHubDistanceUtility;
 
     // ----- CONSTRUCTOR -----\\
@@ -68,23 +60,21 @@ public class DefensiveThreeBall extends AutoBase {
             ShooterSubsystem shooterSubsystem,
             ShooterHoodSubsystem shooterHoodSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("DefensiveThreeBall1", MAX_SPEED, MAX_ACCELERATION));
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.DEFENSIVE_THREE_BALL_1));
 
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
 
         // Robot exits the tarmac, intakes, and shoots
 
         // Robot approaches the adjacent enemy cargo and shoots it into the hangar zone.
-        Trajectory t_adjacentEnemyCargo = PathPlanner.loadPath("DefensiveThreeBall2", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_adjacentEnemyCargo = TrajectoryCache.getInstance().get(AutoPath.DEFENSIVE_THREE_BALL_2);
 
         this.addTrajectory(super.m_initialTrajectory);
         this.addTrajectory(t_adjacentEnemyCargo);
 
         SmartDashboard.putString("Pos1", super.m_initialTrajectory.getInitialPose().toString());
-        SmartDashboard.putString("current Gyro Position", m_odometry.getPoseMeters().toString());
+        SmartDashboard.putString("current Gyro Position", driveSubsystem.getOdometryPose().toString());
 
         // ----- RAMSETE COMMMANDS -----\\
         // Creates a command that can be added to the command scheduler in the
@@ -93,7 +83,7 @@ public class DefensiveThreeBall extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_exitTarmac = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -102,7 +92,7 @@ public class DefensiveThreeBall extends AutoBase {
 
         Ramsete930Command r_adjacentEnemyCargo = new Ramsete930Command(
                 t_adjacentEnemyCargo,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
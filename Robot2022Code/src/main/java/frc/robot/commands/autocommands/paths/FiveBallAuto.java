@@ -2,16 +2,15 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autocommands.SequentialCommands.CombinedIntake;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import frc.robot.commands.intakecommands.intakePistonCommands.DisengageIntakePistonsCommand;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
@@ -36,11 +35,6 @@ public class FiveBallAuto extends AutoBase {
 
     CurrentToHubDistanceUtility currentToHubDistanceUtility;
 
-    // Movement Control
-    // MAKE SURE THERE IS LOTS OF SPACE BEHIND TERMINAL WHEN RUNNING IN FULL SPEED
-    private final static double MAX_SPEED = 4; // Set to 3 when testing
-    private final static double MAX_ACCELERATION = 2; // Set to 2 when testing
-
     // Ramsete Controller Parameters
     private final double RAMSETE_B = 2;
     private final double RAMSETE_ZETA = 0.7;
@@ -50,10 +44,6 @@ public class FiveBallAuto extends AutoBase {
     private final double SHOT_DISTANCE2 = 11.3;
     private final double SHOT_DISTANCE3 = 11.3;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>FiveBallAuto</h3>
@@ -75,37 +65,34 @@ public class FiveBallAuto extends AutoBase {
             ShooterHoodSubsystem shooterHoodSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem) {
 
-        super(driveSubsystem, PathPlanner.loadPath("FiveBallAuto1", MAX_SPEED, MAX_ACCELERATION));
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_1));
 
         currentToHubDistanceUtility = new CurrentToHubDistanceUtility();
 
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
-
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run      
 
         this.addTrajectory(super.m_initialTrajectory);
 
         // Moves from tarmac to terminal to intake.
-        Trajectory t_path2 = PathPlanner.loadPath("FiveBallAuto2", MAX_SPEED, MAX_ACCELERATION, true);
+        Trajectory t_path2 = TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_2);
 
         this.addTrajectory(t_path2);
 
         // Moves from terminal back to tarmac to shoot.
-        Trajectory t_path3 = PathPlanner.loadPath("FiveBallAuto3", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_path3 = TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_3);
 
         this.addTrajectory(t_path3);
 
-        Trajectory t_path4 = PathPlanner.loadPath("FiveBallAuto4", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_path4 = TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_4);
 
         this.addTrajectory(t_path4);
 
-        Trajectory t_path5 = PathPlanner.loadPath("FiveBallAuto5", MAX_SPEED, MAX_ACCELERATION, true);
+        Trajectory t_path5 = TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_5);
 
         this.addTrajectory(t_path5);
 
-        Trajectory t_path4pt5 = PathPlanner.loadPath("FiveBallAuto4.5", MAX_SPEED, MAX_ACCELERATION, true);
+        Trajectory t_path4pt5 = TrajectoryCache.getInstance().get(AutoPath.FIVE_BALL_AUTO_4_5);
 
         this.addTrajectory(t_path4pt5);
         // ----- RAMSETE COMMANDS -----\\
@@ -115,7 +102,7 @@ public class FiveBallAuto extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_path1 = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -126,7 +113,7 @@ public class FiveBallAuto extends AutoBase {
         // Creates RAMSETE Command for second trajectory
         Ramsete930Command r_path2 = new Ramsete930Command(
                 t_path2,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -137,7 +124,7 @@ public class FiveBallAuto extends AutoBase {
         // Creates RAMSETE Command for third trajectory
         Ramsete930Command r_path3 = new Ramsete930Command(
                 t_path3,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -147,7 +134,7 @@ public class FiveBallAuto extends AutoBase {
 
         Ramsete930Command r_path4 = new Ramsete930Command(
                 t_path4,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -157,7 +144,7 @@ public class FiveBallAuto extends AutoBase {
 
         Ramsete930Command r_path5 = new Ramsete930Command(
                 t_path5,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -167,7 +154,7 @@ public class FiveBallAuto extends AutoBase {
 
         Ramsete930Command r_path4pt5 = new Ramsete930Command(
                 t_path4pt5,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -2,12 +2,11 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import frc.robot.subsystems.DriveSubsystem;
 
 //----- CLASS -----\\
@@ -19,16 +18,6 @@ import frc.robot.subsystems.DriveSubsystem;
  */
 public class TarmacTaxi extends AutoBase {
 
-    // ----- CONSTANTS -----\\
-
-    // Movement Control
-    private final static double MAX_SPEED = 0.5;
-    private final static double MAX_ACCELERATION = 2.5;
-
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>TarmacTaxi</h3>
@@ -39,15 +28,11 @@ public class TarmacTaxi extends AutoBase {
      * @param driveSubsystem
      */
     public TarmacTaxi(DriveSubsystem driveSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("TaxiOneBall", MAX_SPEED, MAX_ACCELERATION));
-
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TAXI_ONE_BALL));
 
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
 
-
         // Forward 60 inches;
         this.addTrajectory(super.m_initialTrajectory);
 
@@ -58,7 +43,7 @@ public class TarmacTaxi extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_forwardSixtyInches = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
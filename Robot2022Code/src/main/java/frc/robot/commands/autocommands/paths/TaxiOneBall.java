@@ -2,13 +2,12 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
 import frc.robot.subsystems.IndexerMotorSubsystem;
@@ -26,18 +25,10 @@ public class TaxiOneBall extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 0.5; // DriveSubsystem.DRIVETRAIN_MAX_FREE_SPEED_HIGH
-    private final static double MAX_ACCELERATION = 2.5;
-
     // Distance To The Center of The Hub
     private double SHOT_DISTANCE_1 = 11.68;// figure out distance
 
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     /**
      * <h3>TaxiOneBall</h3>
      * 
@@ -53,10 +44,8 @@ public class TaxiOneBall extends AutoBase {
     public TaxiOneBall(DriveSubsystem driveSubsystem, IntakePistonSubsystem intakePistonSubsystem,
             IntakeMotorSubsystem intakeMotorSubsystem, ShooterSubsystem shooterSubsystem,
             ShooterHoodSubsystem shooterHoodSubsystem, IndexerMotorSubsystem indexerMotorSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("TaxiOneBall", MAX_SPEED, MAX_ACCELERATION));
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TAXI_ONE_BALL));
 
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
         // currentToHubDistanceUtility = new CurrentToHubDistanceUtility();
 
         // ----- TRAJECTORIES -----\\
@@ -71,7 +60,7 @@ public class TaxiOneBall extends AutoBase {
 
         Ramsete930Command r_exitTarmac = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(), // new RamseteController(RAMSETE_B, RAMSETE_ZETA)
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -2,14 +2,13 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autovisioncommands.PhotonAimCommand;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
@@ -28,16 +27,8 @@ public class TaxiOneBallAim extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 0.5; // DriveSubsystem.DRIVETRAIN_MAX_FREE_SPEED_HIGH
-    private final static double MAX_ACCELERATION = 2.5;
-
     // Distance To The Center of The Hub
     private double SHOT_DISTANCE_1 = 11.68;// Figure out distance;
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     /**
      * <h3>TaxiOneBall</h3>
      * 
@@ -53,10 +44,7 @@ public class TaxiOneBallAim extends AutoBase {
     public TaxiOneBallAim(DriveSubsystem driveSubsystem, IntakePistonSubsystem intakePistonSubsystem,
             IntakeMotorSubsystem intakeMotorSubsystem, ShooterSubsystem shooterSubsystem,
             ShooterHoodSubsystem shooterHoodSubsystem, IndexerMotorSubsystem indexerMotorSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("TaxiOneBall", MAX_SPEED, MAX_ACCELERATION, true));
-
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TAXI_ONE_BALL_REVERSED));
 
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
@@ -69,7 +57,7 @@ public class TaxiOneBallAim extends AutoBase {
 
         Ramsete930Command r_exitTarmac = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
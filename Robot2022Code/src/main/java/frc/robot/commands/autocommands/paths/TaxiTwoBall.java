@@ -2,16 +2,15 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autocommands.SequentialCommands.CombinedIntake;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import frc.robot.commands.autovisioncommands.PhotonAimCommand;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
@@ -30,10 +29,6 @@ public class TaxiTwoBall extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 1.0;
-    private final static double MAX_ACCELERATION = 1.0;
-
     // Distance To The Center of The Hub
     private double SHOT_DISTANCE_1 = 11.62;
 
@@ -41,10 +36,6 @@ public class TaxiTwoBall extends AutoBase {
     private final double RAMSETE_B = 2;
     private final double RAMSETE_ZETA = 0.7;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>TaxiTwoBall</h3>
@@ -65,10 +56,7 @@ public class TaxiTwoBall extends AutoBase {
             ShooterHoodSubsystem shooterHoodSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem) {
 
-        super(driveSubsystem, PathPlanner.loadPath("TaxiTwoBall", MAX_SPEED, MAX_ACCELERATION));
-
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TAXI_TWO_BALL));
 
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
@@ -77,7 +65,7 @@ public class TaxiTwoBall extends AutoBase {
         this.addTrajectory(super.m_initialTrajectory);
 
         SmartDashboard.putString("Pos1", super.m_initialTrajectory.getInitialPose().toString());
-        SmartDashboard.putString("current Gyro Position", m_odometry.getPoseMeters().toString());
+        SmartDashboard.putString("current Gyro Position", driveSubsystem.getOdometryPose().toString());
 
         // ----- RAMSETE COMMMANDS -----\\
         // Creates a command that can be added to the command scheduler in the
@@ -85,7 +73,7 @@ public class TaxiTwoBall extends AutoBase {
 
         Ramsete930Command r_exitTarmac = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -2,13 +2,12 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import frc.robot.subsystems.DriveSubsystem;
 
 //----- CLASS -----\\
@@ -21,18 +20,10 @@ public class TemplateCommand extends AutoBase {
 
     // ----- CONSTANTS -----\\
 
-    // Movement Control
-    private final static double MAX_SPEED = 0.0;
-    private final static double MAX_ACCELERATION = 0.0;
-
     // Ramsete Controller Parameters
     private final double RAMSETE_B = 0.0;
     private final double RAMSETE_ZETA = 0.0;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>TemplateCommand</h3>
@@ -43,10 +34,8 @@ public class TemplateCommand extends AutoBase {
      * @param catapultSubsystem
      */
     public TemplateCommand(DriveSubsystem driveSubsystem) {
-        super(driveSubsystem, PathPlanner.loadPath("<ENTER PATHPLANNER PATH NAME HERE>", MAX_SPEED, MAX_ACCELERATION));
-
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
+        // Add each path and its speed limits to AutoPath, then load it from the cache
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TAXI_ONE_BALL));
 
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
@@ -60,7 +49,7 @@ public class TemplateCommand extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_nameYourTrajectoryHere = new Ramsete930Command(
                 m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -2,15 +2,14 @@
 
 package frc.robot.commands.autocommands.paths;
 
-import com.pathplanner.lib.PathPlanner;
-
 import frc.robot.commands.Ramsete930Command;
 import frc.robot.commands.autocommands.AutoBase;
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
 import frc.robot.commands.autocommands.SequentialCommands.AutoShootCargo;
 import frc.robot.commands.autocommands.SequentialCommands.CombinedIntake;
 import frc.robot.commands.autocommands.SequentialCommands.StopDrive;
 import edu.wpi.first.math.controller.RamseteController;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
@@ -36,11 +35,6 @@ public class TerminalPickup extends AutoBase {
 
     CurrentToHubDistanceUtility currentToHubDistanceUtility;
 
-    // Movement Control
-    // MAKE SURE THERE IS LOTS OF SPACE BEHIND TERMINAL WHEN RUNNING IN FULL SPEED
-    private final static double MAX_SPEED = 5; // Set to 3 when testing
-    private final static double MAX_ACCELERATION = 4; // Set to 2 when testing
-
     // Ramsete Controller Parameters
     private final double RAMSETE_B = 2;
     private final double RAMSETE_ZETA = 0.7;
@@ -49,10 +43,6 @@ public class TerminalPickup extends AutoBase {
     private double SHOT_DISTANCE_1 = 10.61; // Figure out distance
     private double SHOT_DISTANCE_2 = 10.68;
 
-    // ----- ODOMETRY -----\\
-
-    private final DifferentialDriveOdometry m_odometry;
-
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>TerminalPickup</h3>
@@ -74,25 +64,22 @@ public class TerminalPickup extends AutoBase {
             ShooterHoodSubsystem shooterHoodSubsystem,
             IndexerMotorSubsystem indexerMotorSubsystem) {
 
-        super(driveSubsystem, PathPlanner.loadPath("TerminalPickup1", MAX_SPEED, MAX_ACCELERATION));
+        super(driveSubsystem, TrajectoryCache.getInstance().get(AutoPath.TERMINAL_PICKUP_1));
 
         currentToHubDistanceUtility = new CurrentToHubDistanceUtility();
 
-        // initializing gyro for pose2d
-        m_odometry = driveSubsystem.getOdometry();
-
         // ----- TRAJECTORIES -----\\
         // Reads path file and puts it into a command for the robot to run
         
         this.addTrajectory(super.m_initialTrajectory);
 
         // Moves from tarmac to terminal to intake.
-        Trajectory t_terminal = PathPlanner.loadPath("TerminalPickup2", MAX_SPEED, MAX_ACCELERATION);
+        Trajectory t_terminal = TrajectoryCache.getInstance().get(AutoPath.TERMINAL_PICKUP_2);
 
         this.addTrajectory(t_terminal);
 
         // Moves from terminal back to tarmac to shoot.
-        Trajectory t_tarmac = PathPlanner.loadPath("TerminalPickup3", MAX_SPEED, MAX_ACCELERATION, true);
+        Trajectory t_tarmac = TrajectoryCache.getInstance().get(AutoPath.TERMINAL_PICKUP_3);
 
         this.addTrajectory(t_tarmac);
 
@@ -103,7 +90,7 @@ public class TerminalPickup extends AutoBase {
         // Creates RAMSETE Command for first trajectory
         Ramsete930Command r_taxi = new Ramsete930Command(
                 super.m_initialTrajectory,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -114,7 +101,7 @@ public class TerminalPickup extends AutoBase {
         // Creates RAMSETE Command for second trajectory
         Ramsete930Command r_terminal = new Ramsete930Command(
                 t_terminal,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
@@ -125,7 +112,7 @@ public class TerminalPickup extends AutoBase {
         // Creates RAMSETE Command for third trajectory
         Ramsete930Command r_tarmac = new Ramsete930Command(
                 t_tarmac,
-                () -> m_odometry.getPoseMeters(),
+                driveSubsystem::getEstimatedPose,
                 new RamseteController(RAMSETE_B, RAMSETE_ZETA),
                 driveSubsystem.getKinematics(),
                 driveSubsystem::getWheelSpeeds,
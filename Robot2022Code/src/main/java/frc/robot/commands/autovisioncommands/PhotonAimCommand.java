@@ -3,22 +3,22 @@
 package frc.robot.commands.autovisioncommands;
 
 import org.photonvision.PhotonCamera;
-import org.photonvision.PhotonUtils;
 import org.photonvision.common.hardware.VisionLEDMode;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.utilities.PhotonVisionUtility;
+import frc.robot.utilities.ShootOnTheMoveSolver;
 import frc.robot.utilities.ShooterUtility;
 import frc.robot.utilities.ShuffleboardUtility;
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
 import frc.robot.utilities.VisionSmoothingStack;
+import frc.robot.utilities.VisionSmoothingStack.SmoothingMode;
+import frc.robot.utilities.VisionSnapshot;
 
 //----- CLASS -----\\
 /**
@@ -33,17 +33,6 @@ public class PhotonAimCommand extends CommandBase {
     // Target yaw offset in degrees
     public static final double YAW_DEADBAND = 2;
 
-    // The height of the camera
-    private final double CAMERA_HEIGHT_METERS = Units.inchesToMeters(48);
-    // The height of the hub
-    private final double HUB_HEIGHT_METERS = Units.inchesToMeters(104);
-
-    // Get the difference in height between the camera and the hub
-    private final double HEIGHT_DIFFERENCE_METERS = HUB_HEIGHT_METERS - CAMERA_HEIGHT_METERS;
-
-    // The pitch of the camera (from ground normal)
-    private final double CAMERA_PITCH_RADIANS = Units.degreesToRadians(20.0);
-
     private final double ANGULAR_P = 0.42;
     private final double ANGULAR_I = 0.01;
     private final double ANGULAR_D = 0.01;
@@ -54,10 +43,17 @@ public class PhotonAimCommand extends CommandBase {
 
     protected PhotonCamera m_hubCamera = PhotonVisionUtility.getInstance().getHubTrackingCamera();
     private DriveSubsystem m_driveSubsystem;
+    // Works out how far to lead the hub if we are still moving
+    private ShootOnTheMoveSolver m_shotSolver;
 
     private int cyclesAimed = 0;
 
-    private VisionSmoothingStack m_smoothingStack = new VisionSmoothingStack(3);
+    // Capture time of the last frame added to the smoothing stack
+    private double m_lastFrameTimestamp = 0;
+
+    // Holds the heading of the hub (robot heading minus camera yaw) and the pitch.
+    // Throw out single-frame reflections so they don't skew the aim
+    private VisionSmoothingStack m_smoothingStack = new VisionSmoothingStack(3, SmoothingMode.OUTLIER_REJECTION);
 
     private XboxController m_driverController;
     private XboxController m_codriverController;
@@ -86,13 +82,31 @@ public class PhotonAimCommand extends CommandBase {
      */
     public PhotonAimCommand(DriveSubsystem dSubsystem, XboxController driverController,
             XboxController codriverController) {
+        this(dSubsystem, driverController, codriverController, new ShootOnTheMoveSolver());
+    }
+
+    /**
+     * <h3>HubAimingCommand</h3>
+     * 
+     * Rotates the robot to aim at the cargo hub, leading it by however much the
+     * robot's velocity will carry the cargo while it is in the air.
+     * 
+     * @param dSubsystem         the drive subsystem to use to rotate the robot
+     * @param driverController   driver controller (for rumble)
+     * @param codriverController driver controller (for rumble)
+     * @param shotSolver         the solver to lead the hub with. This can be shared
+     *                           with the shoot commands
+     */
+    public PhotonAimCommand(DriveSubsystem dSubsystem, XboxController driverController,
+            XboxController codriverController, ShootOnTheMoveSolver shotSolver) {
 
         m_driveSubsystem = dSubsystem;
         m_driverController = driverController;
         m_codriverController = codriverController;
+        m_shotSolver = shotSolver;
 
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                ShuffleboardKeys.AIMED, new ShuffleBoardData<Boolean>(false));
+        ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.AIMED, false);
 
         addRequirements(dSubsystem);
     }
@@ -104,9 +118,14 @@ public class PhotonAimCommand extends CommandBase {
         // Make sure that any previous voltages are not recorded
         m_driveSubsystem.setVoltages(0, 0);
 
+        // Forget the target from the last time we aimed, since the hub's heading has
+        // most likely changed since then
+        m_smoothingStack.clear();
+        m_lastFrameTimestamp = 0;
+
         // Set aimed to false to ensure that we do not exit right away
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                ShuffleboardKeys.AIMED, new ShuffleBoardData<Boolean>(false));
+        ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.AIMED, false);
 
         // Set the pipeline on the camera to be whatever the user has selected on
         // shuffleboard
@@ -121,40 +140,49 @@ public class PhotonAimCommand extends CommandBase {
         // Variables to store our speeds
         double rotationSpeed;
 
-        // Data that we get from the camera
-        var result = m_hubCamera.getLatestResult();
+        // Everything the vision thread worked out from the latest frames
+        VisionSnapshot snapshot = PhotonVisionUtility.getInstance().getLatestSnapshot();
 
         // If an item is detected
-        if (result.hasTargets()) {
-            // Finds the best target and puts into the stack
-            m_smoothingStack.addItem(result.getBestTarget());
+        if (snapshot.hasHubTarget()) {
+            // The same frame can be returned for a few loops, so only add frames we
+            // haven't seen yet to the stack
+            double captureTime = snapshot.getHubTimestamp();
+            if (captureTime != m_lastFrameTimestamp) {
+                m_lastFrameTimestamp = captureTime;
+
+                // The frame is a few loops old, and the yaw is relative to where the robot
+                // was pointing when it was captured. Using the heading from that moment turns
+                // it into the heading the hub is at, which doesn't change as we turn.
+                m_smoothingStack.addItem(m_driveSubsystem.getHeadingAt(captureTime) - snapshot.getHubYaw(),
+                        snapshot.getHubPitch());
+            }
 
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.PHOTON_YAW, new ShuffleBoardData<Double>(m_smoothingStack.getAverageYaw()));
+            // Lead the hub by how far the cargo will drift with the robot. This is 0
+            // once we have stopped
+            m_shotSolver.solve(m_driveSubsystem);
+            double targetHeading = m_smoothingStack.getSmoothedYaw() + m_shotSolver.getLeadAngle();
 
-            // Use the PhotonUtils library to calcluate the distance from the target
-            double range = PhotonUtils.calculateDistanceToTargetMeters(CAMERA_HEIGHT_METERS, HUB_HEIGHT_METERS,
-                    CAMERA_PITCH_RADIANS, Units.degreesToRadians(m_smoothingStack.getAveragePitch()));
+            // Steer against the live gyro, so the yaw left to turn is always up to date
+            // even though the camera isn't
+            double yawError = m_driveSubsystem.getContinuousHeading() - targetHeading;
 
-            // Use some pythagoras to calculate the horizontal distance to the hub
-            range = Math.sqrt(Math.pow(range, 2) - Math.pow(HEIGHT_DIFFERENCE_METERS, 2))
-                    // Adjusted to measure from front of the robot to hub stand wall.
-                    // This distance is in meters ~43.307 inches
-                    - 0.2;
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.PHOTON_YAW, yawError);
 
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.DISTANCE_FROM_GOAL, new ShuffleBoardData<Double>(range));
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.DISTANCE_FROM_GOAL, snapshot.getHubRange());
 
-            // Calculate shooter values
-            ShooterUtility.setValuesToShuffleboard(Units.metersToFeet(range));
+            // The vision thread already calculated the shooter values
+            ShooterUtility.setValuesToShuffleboard(snapshot);
 
             // Use the turn PID controller to calculate how fast we want to turn
-            rotationSpeed = m_turnController.calculate(m_smoothingStack.getAverageYaw(), 0);
+            rotationSpeed = m_turnController.calculate(yawError, 0);
 
             // Put if we are locked onto the target to the Shuffleboard
-            if (Math.abs(m_smoothingStack.getAverageYaw()) < YAW_DEADBAND) {
-                ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                        ShuffleboardKeys.AIMED, new ShuffleBoardData<Boolean>(true));
+            if (Math.abs(yawError) < YAW_DEADBAND) {
+                ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                        ShuffleboardKeys.AIMED, true);
 
                 cyclesAimed++;
 
@@ -166,8 +194,8 @@ public class PhotonAimCommand extends CommandBase {
                     m_codriverController.setRumble(RumbleType.kRightRumble, 1);
                 }
             } else {
-                ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                        ShuffleboardKeys.AIMED, new ShuffleBoardData<Boolean>(false));
+                ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                        ShuffleboardKeys.AIMED, false);
 
                 cyclesAimed = 0;
 
@@ -183,11 +211,11 @@ public class PhotonAimCommand extends CommandBase {
             rotationSpeed = 0.0;
 
             // Set shuffleboard distance to zero if no target
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.DISTANCE_FROM_GOAL, new ShuffleBoardData<Double>(0.0));
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.DISTANCE_FROM_GOAL, 0.0);
 
-            // Set distance to shortest shot for shooter math
-            ShooterUtility.setValuesToShuffleboard(1.6);
+            // The vision thread uses the shortest shot for the shooter math
+            ShooterUtility.setValuesToShuffleboard(snapshot);
         }
 
         // Make sure we aren't sending in weird values to our drive method
@@ -206,8 +234,8 @@ public class PhotonAimCommand extends CommandBase {
 
         // Tell shuffleboard utility that we are no longer aimed. This will make sure
         // that we don't think that we are aimed when we aren't
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                ShuffleboardKeys.AIMED, new ShuffleBoardData<Boolean>(false));
+        ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.AIMED, false);
 
         // Turn off rumble for both controllers
         if (m_driverController != null && m_codriverController != null) {
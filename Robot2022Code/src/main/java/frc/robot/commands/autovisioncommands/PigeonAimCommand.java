@@ -29,15 +29,15 @@ public class PigeonAimCommand extends CommandBase {
     // vector angle minus the current heading of our robot
     @Override
     public void initialize() {
-        targetHeading = robotToHubVectorUtility.CalculateAngle(dSubsystem.getOdometry().getPoseMeters());
+        targetHeading = robotToHubVectorUtility.CalculateAngle(dSubsystem.getEstimatedPose());
         SmartDashboard.putNumber("targetHeading", targetHeading);
-        SmartDashboard.putNumber("poseY", dSubsystem.getOdometry().getPoseMeters().getY());
-        SmartDashboard.putNumber("poseX", dSubsystem.getOdometry().getPoseMeters().getX());
+        SmartDashboard.putNumber("poseY", dSubsystem.getEstimatedPose().getY());
+        SmartDashboard.putNumber("poseX", dSubsystem.getEstimatedPose().getX());
     }
 
     @Override
     public void execute() {
-        robotHeading = dSubsystem.getOdometry().getPoseMeters().getRotation().getDegrees();
+        robotHeading = dSubsystem.getEstimatedPose().getRotation().getDegrees();
         if (Math.signum(robotHeading) == -1) {
             turnController.setP(-1 * ANGULAR_P);
         } else {
@@ -22,6 +22,8 @@ import edu.wpi.first.wpilibj2.command.WaitCommand;
 import frc.robot.Robot;
 import frc.robot.commands.endgamecommands.EndgameCloseWhenTouching.EndgameSensorPairs;
 import frc.robot.commands.endgamecommands.EndgameRotateArmCommand.EndgamePosition;
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.RobotMode;
 import frc.robot.subsystems.EndgameMotorSubsystem;
 import frc.robot.subsystems.EndgamePistonSubsystem;
 import frc.robot.subsystems.IndexerMotorSubsystem;
@@ -51,6 +53,8 @@ public class EndgameManagerCommand extends CommandBase {
     private int newState;
     // Compressor object to disable
     private Compressor m_compressor;
+    // The status frame mode before endgame started, to go back to after
+    private RobotMode modeBeforeEndgame = RobotMode.TELEOP;
 
     // -------- CONSTRUCTOR --------\\
     /**
@@ -201,6 +205,9 @@ public class EndgameManagerCommand extends CommandBase {
     @Override // Called when the command is initially scheduled.
     public void initialize() {
         m_compressor.disable();
+        // Watch the arm closely while climbing
+        modeBeforeEndgame = CANStatusFrameManager.getInstance().getMode();
+        CANStatusFrameManager.getInstance().setMode(RobotMode.ENDGAME);
         CommandScheduler.getInstance().schedule(commands.get(currentState));
     }
 
@@ -229,6 +236,11 @@ public class EndgameManagerCommand extends CommandBase {
     public void end(boolean interrupted) { // Interrupted is true when button is released
         // Ends the command currently running
         m_compressor.enableAnalog(100, 115);
+        // Only go back if nothing else changed the mode. When the robot is disabled
+        // this is cancelled after disabledInit has already set the disabled frames
+        if (CANStatusFrameManager.getInstance().getMode() == RobotMode.ENDGAME) {
+            CANStatusFrameManager.getInstance().setMode(modeBeforeEndgame);
+        }
         CommandScheduler.getInstance().cancel(commands.get(currentState));
     }
 
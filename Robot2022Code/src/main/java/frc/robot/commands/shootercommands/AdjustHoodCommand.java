@@ -1,21 +1,27 @@
 package frc.robot.commands.shootercommands;
 
 import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.ShooterHoodSubsystem;
+import frc.robot.utilities.ShootOnTheMoveSolver;
 import frc.robot.utilities.ShuffleboardUtility;
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
 
 /**
  * <h3>AdjustHoodCommand</h3>
  * 
- * Adjusts position of hood to a specific angle
+ * Adjusts position of hood to a specific angle, and finishes once the hood is
+ * actually there
  */
 public class AdjustHoodCommand extends CommandBase {
 
     private final ShooterHoodSubsystem shooterHoodSubsystem;
     private double pos;
     private boolean usingShuffleboard;
+    // Keeps the hood right while the robot drives, or null to hold one position
+    private ShootOnTheMoveSolver shotSolver;
+    private DriveSubsystem driveSubsystem;
 
     /**
      * <h3>AdjustHoodCommand</h3>
@@ -43,22 +49,66 @@ public class AdjustHoodCommand extends CommandBase {
         usingShuffleboard = true;
     }
 
+    /**
+     * <h3>AdjustHoodCommand</h3>
+     * 
+     * Keeps the hood right for where the robot is and how fast it is driving. The
+     * position from shuffleboard is used whenever the solver can't make the shot.
+     * This never finishes on its own, so run it alongside the shoot command.
+     * 
+     * @param shooterHood The subsystem of the shooter's hood
+     * @param shotSolver  The solver to get the position from. This can be shared
+     *                    with the aim and shoot commands
+     * @param drive       The DriveSubsystem to solve the shot from
+     */
+    public AdjustHoodCommand(ShooterHoodSubsystem shooterHood, ShootOnTheMoveSolver shotSolver,
+            DriveSubsystem drive) {
+        this(shooterHood);
+        this.shotSolver = shotSolver;
+        driveSubsystem = drive;
+    }
+
     @Override
     public void initialize() {
         // Gets values from shuffleboard driver tab
         if (usingShuffleboard) {
-            pos = (double) ShuffleboardUtility.getInstance().getFromShuffleboard(
-                    ShuffleboardKeys.SHOOTER_HOOD_POSITION).getData();
+            pos = ShuffleboardUtility.getInstance().getDouble(ShuffleboardKeys.SHOOTER_HOOD_POSITION);
         } else {
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.SHOOTER_HOOD_POSITION, new ShuffleBoardData<Double>(pos));
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.SHOOTER_HOOD_POSITION, pos);
         }
         // Sets the position for the hood
         shooterHoodSubsystem.setHoodPosition(pos);
+        updateMovingShot();
+    }
+
+    @Override
+    public void execute() {
+        updateMovingShot();
+    }
+
+    /**
+     * <h3>updateMovingShot</h3>
+     * 
+     * Solves the shot again for where the robot is now and moves the hood to it,
+     * if we have a solver and the shot can be made
+     */
+    private void updateMovingShot() {
+        if (shotSolver == null) {
+            return;
+        }
+
+        shotSolver.solve(driveSubsystem);
+        ShotSetpoint shot = shotSolver.getShot();
+        if (shot.isValid()) {
+            pos = shot.getHoodPosition();
+            shooterHoodSubsystem.setHoodPosition(pos);
+        }
     }
 
     @Override
     public boolean isFinished() {
-        return true;
+        // The hood has to keep following a moving shot until we are done shooting
+        return shotSolver == null && shooterHoodSubsystem.isAtTarget();
     }
 }
@@ -9,18 +9,31 @@
 
 package frc.robot.commands.shootercommands;
 
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.IndexerMotorSubsystem;
+import frc.robot.subsystems.ShooterHoodSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.utilities.BallSensorUtility;
+import frc.robot.utilities.PhotonVisionUtility;
+import frc.robot.utilities.ShootOnTheMoveSolver;
+import frc.robot.utilities.ShotLogger;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
 import frc.robot.utilities.ShuffleboardUtility;
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+import frc.robot.utilities.VisionSnapshot;
 
 //----- CLASS -----\\
 /**
  * <h3>ShootCargoCommand</h3>
  * 
- * Complete shooting command.
+ * Complete shooting command. The indexer only feeds while the shooter wheels
+ * are at speed, so each ball waits for the wheels to recover from the last
+ * one. The command ends once the robot is out of cargo. Every ball that
+ * leaves is recorded with the {@link frc.robot.utilities.ShotLogger
+ * ShotLogger}.
  */
 
  // Overloaded constructors
@@ -28,18 +41,42 @@ public class ShootCargoCommand extends CommandBase {
 
     // -----CONSTANTS----\\
 
+    // The longest a teleop shot can take. The command normally ends as soon as we
+    // run out of cargo, so this only matters if a sensor fails
     public static final double TELEOP_SHOOT_TIME = 5.0;
-    // Number of cycles to wait before sending balls into shooter. (Cycles = time(in seconds) / 0.02)
-    private final int INDEXER_DELAY = 20;
+    // Number of cycles the wheels have to be at speed before sending balls into
+    // the shooter. (Cycles = time(in seconds) / 0.02)
+    private final int READY_CYCLES = 5;
+    // Number of cycles both ball sensors have to be empty before we stop, so the
+    // last ball has time to leave the shooter
+    private final int EMPTY_CYCLES = 15;
+    // About how long a ball takes to get from the indexer to the shooter wheels.
+    // We can start feeding once the hood will be in place by the time it gets
+    // there, instead of waiting for the hood to stop
+    private final double BALL_TRANSIT_TIME = 0.1;
 
     // -----VARIABLES----\\
 
     private final ShooterSubsystem shooterSubsystem;
     private final IndexerMotorSubsystem indexerSubsystem;
+    // The hood to wait for, or null to not wait for it
+    private final ShooterHoodSubsystem shooterHoodSubsystem;
+    // Keeps the speeds right while the robot drives, or null to keep them fixed
+    private final ShootOnTheMoveSolver shotSolver;
+    private final DriveSubsystem driveSubsystem;
     private boolean usingShuffleboard;
     private double bottomSpeed;
     private double topSpeed;
-    private int counter;
+    // How many cycles in a row the wheels have been at speed
+    private int readyCounter;
+    // How many cycles in a row both ball sensors have been empty
+    private int emptyCounter;
+    // Whether the indexer is feeding cargo into the shooter
+    private boolean isFeeding;
+    // When the wheels sagged after a shot, or -1 if we aren't recovering
+    private double recoveryStartTime;
+    // Whether the loaded sensor saw a ball last cycle
+    private boolean wasLoaded;
 
     //----- CONSTRUCTOR(S) -----\\
 
@@ -51,8 +88,43 @@ public class ShootCargoCommand extends CommandBase {
      * @param indexer The IndexerMotorSubsystem to use
      */
     public ShootCargoCommand(ShooterSubsystem shooter, IndexerMotorSubsystem indexer) {
+        this(shooter, indexer, (ShooterHoodSubsystem) null);
+    }
+
+    /**
+     * <h3>ShootCargoCommand</h3>
+     * Uses shuffleboard for speeds and waits for the hood before feeding. This
+     * lets the hood move while the wheels spin up.
+     * 
+     * @param shooter The ShooterSubsystem to use
+     * @param indexer The IndexerMotorSubsystem to use
+     * @param hood    The ShooterHoodSubsystem to wait for
+     */
+    public ShootCargoCommand(ShooterSubsystem shooter, IndexerMotorSubsystem indexer, ShooterHoodSubsystem hood) {
+        this(shooter, indexer, hood, null, null);
+    }
+
+    /**
+     * <h3>ShootCargoCommand</h3>
+     * Waits for the hood before feeding, and keeps the speeds right for where the
+     * robot is and how fast it is driving. The speeds from shuffleboard are used
+     * whenever the solver can't make the shot. The drivetrain is only read, not
+     * required, so the driver can keep driving while we shoot.
+     * 
+     * @param shooter    The ShooterSubsystem to use
+     * @param indexer    The IndexerMotorSubsystem to use
+     * @param hood       The ShooterHoodSubsystem to wait for
+     * @param shotSolver The solver to get the speeds from. This can be shared with
+     *                   the aim and hood commands
+     * @param drive      The DriveSubsystem to solve the shot from
+     */
+    public ShootCargoCommand(ShooterSubsystem shooter, IndexerMotorSubsystem indexer, ShooterHoodSubsystem hood,
+            ShootOnTheMoveSolver shotSolver, DriveSubsystem drive) {
         shooterSubsystem = shooter;
         indexerSubsystem = indexer;
+        shooterHoodSubsystem = hood;
+        this.shotSolver = shotSolver;
+        driveSubsystem = drive;
         usingShuffleboard = true;
         addRequirements(shooterSubsystem, indexerSubsystem);
     }
@@ -81,8 +153,29 @@ public class ShootCargoCommand extends CommandBase {
      */
     public ShootCargoCommand(ShooterSubsystem shooter, IndexerMotorSubsystem indexer, double topSpeed,
             double bottomSpeed) {
+        this(shooter, indexer, null, topSpeed, bottomSpeed);
+    }
+
+    /**
+     * <h3>ShootCargoCommand</h3>
+     * Waits for the hood before feeding. This lets the hood move while the wheels
+     * spin up.
+     * 
+     * @param shooter     The ShooterSubsystem to use
+     * @param indexer     The IndexerMotorSubsystem to use
+     * @param hood        The ShooterHoodSubsystem to wait for
+     * @param topSpeed    The speed(in PercentOutput) you want the top wheel to spin
+     *                    at
+     * @param bottomSpeed The speed(in PercentOutput) you want the bottom wheel to
+     *                    spin at
+     */
+    public ShootCargoCommand(ShooterSubsystem shooter, IndexerMotorSubsystem indexer, ShooterHoodSubsystem hood,
+            double topSpeed, double bottomSpeed) {
         shooterSubsystem = shooter;
         indexerSubsystem = indexer;
+        shooterHoodSubsystem = hood;
+        shotSolver = null;
+        driveSubsystem = null;
         usingShuffleboard = false;
         this.topSpeed = topSpeed;
         this.bottomSpeed = bottomSpeed;
@@ -98,20 +191,23 @@ public class ShootCargoCommand extends CommandBase {
     public void initialize() {
         // Gets values from shuffleboard driver tab
         if (usingShuffleboard) {
-            this.bottomSpeed = (double) ShuffleboardUtility.getInstance().getFromShuffleboard(
-                    ShuffleboardKeys.SHOOTER_BOTTOM_SPEED).getData();
-            this.topSpeed = (double) ShuffleboardUtility.getInstance().getFromShuffleboard(
-                    ShuffleboardKeys.SHOOTER_TOP_SPEED).getData();
+            this.bottomSpeed = ShuffleboardUtility.getInstance().getDouble(ShuffleboardKeys.SHOOTER_BOTTOM_SPEED);
+            this.topSpeed = ShuffleboardUtility.getInstance().getDouble(ShuffleboardKeys.SHOOTER_TOP_SPEED);
         } else {
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.SHOOTER_BOTTOM_SPEED, new ShuffleBoardData<Double>(bottomSpeed));
-            ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                    ShuffleboardKeys.SHOOTER_TOP_SPEED, new ShuffleBoardData<Double>(topSpeed));
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.SHOOTER_BOTTOM_SPEED, bottomSpeed);
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.SHOOTER_TOP_SPEED, topSpeed);
         }
 
         shooterSubsystem.setBottomSpeed(bottomSpeed);
         shooterSubsystem.setTopSpeed(topSpeed);
-        counter = 0;
+        updateMovingShot();
+        readyCounter = 0;
+        emptyCounter = 0;
+        isFeeding = false;
+        recoveryStartTime = -1;
+        wasLoaded = BallSensorUtility.getInstance().loadedIsTripped();
     }
 
     /**
@@ -119,13 +215,98 @@ public class ShootCargoCommand extends CommandBase {
      */
     @Override
     public void execute() {
-        // Increments the counter every 20 ms
-        counter++;
-        // Waits for delay before activating indexer system
-        if (counter == INDEXER_DELAY) {
+        updateMovingShot();
+
+        // Counts how long the wheels have been at speed, starting over if they sag
+        if (shooterSubsystem.isAtSpeed()) {
+            readyCounter++;
+        } else {
+            readyCounter = 0;
+        }
+        boolean isReady = readyCounter >= READY_CYCLES && isHoodReady();
+
+        if (isReady && !isFeeding) {
+            // Only feed once the wheels have been at speed for a few cycles
             indexerSubsystem.setStagedMotorSpeed(1.0);
             indexerSubsystem.setLoadedMotorSpeed(1.0);
+            isFeeding = true;
+
+            // Report how long the wheels took to come back after the last ball
+            if (recoveryStartTime >= 0) {
+                ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                        ShuffleboardKeys.SHOOTER_RECOVERY_TIME,
+                        Timer.getFPGATimestamp() - recoveryStartTime);
+                recoveryStartTime = -1;
+            }
+        } else if (!isReady && isFeeding) {
+            // A ball just went through and the wheels sagged, so hold the next one
+            // until they recover
+            indexerSubsystem.stopMotors();
+            isFeeding = false;
+            recoveryStartTime = Timer.getFPGATimestamp();
+        }
+
+        // A ball clearing the loaded sensor while we feed has just gone into the
+        // wheels, so record what the shooter was doing as it left
+        boolean isLoaded = BallSensorUtility.getInstance().loadedIsTripped();
+        if (wasLoaded && !isLoaded && isFeeding) {
+            recordShot();
+        }
+        wasLoaded = isLoaded;
+
+        // Counts how long we have been out of cargo
+        if (isLoaded || BallSensorUtility.getInstance().intakeIsTripped()) {
+            emptyCounter = 0;
+        } else {
+            emptyCounter++;
+        }
+    }
+
+    /**
+     * <h3>updateMovingShot</h3>
+     * 
+     * Solves the shot again for where the robot is now and sets the wheels to it,
+     * if we have a solver and the shot can be made
+     */
+    private void updateMovingShot() {
+        if (shotSolver == null) {
+            return;
         }
+
+        shotSolver.solve(driveSubsystem);
+        ShotSetpoint shot = shotSolver.getShot();
+        if (shot.isValid()) {
+            topSpeed = shot.getTopSpeed();
+            bottomSpeed = shot.getBottomSpeed();
+            shooterSubsystem.setTopSpeed(topSpeed);
+            shooterSubsystem.setBottomSpeed(bottomSpeed);
+        }
+    }
+
+    /**
+     * <h3>isHoodReady</h3>
+     * 
+     * Checks if the hood will be in place by the time a ball reaches the wheels
+     * 
+     * @return true if we aren't waiting for the hood, or it is close enough
+     */
+    private boolean isHoodReady() {
+        return shooterHoodSubsystem == null || shooterHoodSubsystem.getTimeToTarget() <= BALL_TRANSIT_TIME;
+    }
+
+    /**
+     * <h3>recordShot</h3>
+     * 
+     * Logs the ball that just left. The distance comes from the hub camera, since
+     * the speeds may have been picked by hand instead of from the shot table.
+     */
+    private void recordShot() {
+        VisionSnapshot snapshot = PhotonVisionUtility.getInstance().getLatestSnapshot();
+        double distance = snapshot.hasHubTarget() ? Units.metersToFeet(snapshot.getHubRange()) : Double.NaN;
+        double hoodPosition = (shooterHoodSubsystem == null) ? Double.NaN : shooterHoodSubsystem.getHoodPosition();
+
+        ShotLogger.getInstance().recordShot(distance, hoodPosition, topSpeed, bottomSpeed,
+                shooterSubsystem.getTopVelocityError(), shooterSubsystem.getBottomVelocityError());
     }
 
     /**
@@ -133,7 +314,7 @@ public class ShootCargoCommand extends CommandBase {
      */
     @Override
     public boolean isFinished() {
-        return false;
+        return emptyCounter >= EMPTY_CYCLES;
     }
 
     /**
@@ -0,0 +1,99 @@
+package frc.robot.subsystems;
+
+// ----- IMPORTS ----- \\
+
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
+/**
+ * <h3>DriveIO</h3>
+ * 
+ * The hardware under the {@link frc.robot.subsystems.DriveSubsystem
+ * DriveSubsystem}. Everything the drivetrain does (odometry, shifting, feed
+ * forward, paths) lives in the subsystem and only talks to the motors and gyro
+ * through this, so the exact same code runs on the robot with
+ * {@link frc.robot.subsystems.DriveIOTalonFX DriveIOTalonFX} and in simulation
+ * with {@link frc.robot.subsystems.DriveIOSim DriveIOSim}.
+ * <p>
+ * Positions and velocities are in raw Falcon encoder units, the same as
+ * {@code getSelectedSensorPosition()} and {@code getSelectedSensorVelocity()},
+ * so the subsystem can apply the gear it was in.
+ */
+public interface DriveIO {
+
+    /**
+     * <h3>setVoltages</h3>
+     * 
+     * @param leftVoltage  the voltage to send to the left side, positive is
+     *                     forwards
+     * @param rightVoltage the voltage to send to the right side, positive is
+     *                     forwards
+     */
+    void setVoltages(double leftVoltage, double rightVoltage);
+
+    /**
+     * @return the voltage the left motors are putting out
+     */
+    double getLeftVoltage();
+
+    /**
+     * @return the voltage the right motors are putting out
+     */
+    double getRightVoltage();
+
+    /**
+     * @return the position of the left encoder in ticks
+     */
+    double getLeftPosition();
+
+    /**
+     * @return the position of the right encoder in ticks
+     */
+    double getRightPosition();
+
+    /**
+     * @return the velocity of the left encoder in ticks per 100 milliseconds
+     */
+    double getLeftVelocity();
+
+    /**
+     * @return the velocity of the right encoder in ticks per 100 milliseconds
+     */
+    double getRightVelocity();
+
+    /**
+     * <h3>resetPositions</h3>
+     * 
+     * Sets both encoder positions to zero
+     */
+    void resetPositions();
+
+    /**
+     * @return the heading of the gyro in degrees, counterclockwise positive and
+     *         not wrapped to +/-180 degrees
+     */
+    double getYaw();
+
+    /**
+     * <h3>setBrakeMode</h3>
+     * 
+     * @param brakeMode how the motors react to a neutral input
+     */
+    void setBrakeMode(NeutralMode brakeMode);
+
+    /**
+     * <h3>refollow</h3>
+     * 
+     * Makes the followers copy their leaders again, after something like
+     * stopMotor() stopped them following
+     */
+    void refollow();
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * 
+     * Moves the simulated drivetrain forward by one loop. This does nothing on
+     * the robot.
+     */
+    default void simulationPeriodic() {
+    }
+}
@@ -0,0 +1,220 @@
+package frc.robot.subsystems;
+
+// ----- IMPORTS ----- \\
+
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.utilities.ShifterUtility;
+
+/**
+ * <h3>DriveIOSim</h3>
+ * 
+ * A physics model of our drivetrain for simulation. It is built from the same
+ * constants as the real robot: two Falcons a side, the 6.3 and 12.9 gear
+ * ratios, our wheels and track width, and the feed forward gains from
+ * characterizing the real drivetrain. The encoders count ticks the same way
+ * the Falcons do, so the subsystem can't tell the difference.
+ */
+public class DriveIOSim implements DriveIO {
+
+    // ----- CONSTANTS -----\\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+
+    // The drivetrain was characterized in high gear. We only characterized
+    // driving straight, so the same gains are used for turning. They are per
+    // meter per second of wheel speed, so this is close for a skid steer robot
+    private static final LinearSystem<N2, N2, N2> HIGH_GEAR_PLANT = LinearSystemId.identifyDrivetrainSystem(
+            DriveSubsystem.COMBINED_KV, DriveSubsystem.COMBINED_KA, DriveSubsystem.COMBINED_KV,
+            DriveSubsystem.COMBINED_KA);
+
+    // ----- SIMULATION -----\\
+
+    private final DifferentialDrivetrainSim m_drivetrainSim = new DifferentialDrivetrainSim(HIGH_GEAR_PLANT,
+            DCMotor.getFalcon500(2), DriveSubsystem.HIGH_GEAR_RATIO, DriveSubsystem.TRACK_WIDTH,
+            DriveSubsystem.WHEEL_RADIUS, null);
+
+    // Shows where the simulated robot really is in the simulator
+    private final Field2d m_field = new Field2d();
+
+    // ----- VARIABLES -----\\
+
+    private double m_leftVoltage = 0.0;
+    private double m_rightVoltage = 0.0;
+
+    // The simulated encoders in ticks and ticks per 100 milliseconds
+    private double m_leftPosition = 0.0;
+    private double m_rightPosition = 0.0;
+    private double m_leftVelocity = 0.0;
+    private double m_rightVelocity = 0.0;
+
+    // How far each side had driven at the end of the last loop, in meters
+    private double m_lastLeftMeters = 0.0;
+    private double m_lastRightMeters = 0.0;
+
+    // How many meters the encoders count for each meter really driven. Worn
+    // wheels and slipping on the carpet make this more than 1 on a real robot
+    private double m_encoderScale = 1.0;
+
+    // The simulated gyro, which isn't wrapped like the Pigeon's yaw
+    private double m_yaw = 0.0;
+    private double m_lastHeading = 0.0;
+
+    // ----- CONSTRUCTOR -----\\
+
+    /**
+     * <h3>DriveIOSim</h3>
+     * 
+     * Creates a simulated drivetrain sitting still at the origin
+     */
+    public DriveIOSim() {
+        SmartDashboard.putData("Field", m_field);
+    }
+
+    // ----- METHODS -----\\
+
+    @Override
+    public void setVoltages(double leftVoltage, double rightVoltage) {
+        m_leftVoltage = leftVoltage;
+        m_rightVoltage = rightVoltage;
+    }
+
+    @Override
+    public double getLeftVoltage() {
+        return m_leftVoltage;
+    }
+
+    @Override
+    public double getRightVoltage() {
+        return m_rightVoltage;
+    }
+
+    @Override
+    public double getLeftPosition() {
+        return m_leftPosition;
+    }
+
+    @Override
+    public double getRightPosition() {
+        return m_rightPosition;
+    }
+
+    @Override
+    public double getLeftVelocity() {
+        return m_leftVelocity;
+    }
+
+    @Override
+    public double getRightVelocity() {
+        return m_rightVelocity;
+    }
+
+    @Override
+    public void resetPositions() {
+        m_leftPosition = 0.0;
+        m_rightPosition = 0.0;
+    }
+
+    @Override
+    public double getYaw() {
+        return m_yaw;
+    }
+
+    @Override
+    public void setBrakeMode(NeutralMode brakeMode) {
+        // The simulation always brakes
+    }
+
+    @Override
+    public void refollow() {
+        // There are no followers in the simulation
+    }
+
+    /**
+     * <h3>getTruePose</h3>
+     * 
+     * Gets where the simulated robot really is. Only tests should use this, the
+     * robot code has to find out from the encoders and gyro like on the field.
+     * 
+     * @return the pose of the simulated robot
+     */
+    public Pose2d getTruePose() {
+        return m_drivetrainSim.getPose();
+    }
+
+    /**
+     * <h3>setTruePose</h3>
+     * 
+     * Picks the simulated robot up and puts it down at the passed pose, like
+     * setting it on the field before a match. The encoders and gyro don't jump,
+     * so the robot code has to be told where it is separately.
+     * 
+     * @param pose where to put the simulated robot
+     */
+    public void setTruePose(Pose2d pose) {
+        // This also zeroes the simulation's wheel positions
+        m_drivetrainSim.setPose(pose);
+        m_lastLeftMeters = 0.0;
+        m_lastRightMeters = 0.0;
+        m_lastHeading = pose.getRotation().getDegrees();
+    }
+
+    /**
+     * <h3>setEncoderScale</h3>
+     * 
+     * Makes the encoders count a bit more or less than the wheels really drive,
+     * so the odometry drifts like it does on the field. Only tests should use
+     * this.
+     * 
+     * @param scale how many meters the encoders count for each meter driven
+     */
+    public void setEncoderScale(double scale) {
+        m_encoderScale = scale;
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * 
+     * Drives the simulated robot for one loop with the last voltages, then
+     * updates the encoders and gyro from where it ended up
+     */
+    @Override
+    public void simulationPeriodic() {
+        double gearRatio = ShifterUtility.getShifterState() ? DriveSubsystem.LOW_GEAR_RATIO
+                : DriveSubsystem.HIGH_GEAR_RATIO;
+        m_drivetrainSim.setCurrentGearing(gearRatio);
+        m_drivetrainSim.setInputs(m_leftVoltage, m_rightVoltage);
+        m_drivetrainSim.update(LOOP_PERIOD);
+
+        // The motors turn through the gear we are in now, so only this loop's
+        // distance is converted with it
+        double ticksPerMeter = DriveSubsystem.FALCON_ENCODER_RESOLUTION * gearRatio
+                / (2 * Math.PI * DriveSubsystem.WHEEL_RADIUS) * m_encoderScale;
+        double leftMeters = m_drivetrainSim.getLeftPositionMeters();
+        double rightMeters = m_drivetrainSim.getRightPositionMeters();
+        m_leftPosition += (leftMeters - m_lastLeftMeters) * ticksPerMeter;
+        m_rightPosition += (rightMeters - m_lastRightMeters) * ticksPerMeter;
+        m_lastLeftMeters = leftMeters;
+        m_lastRightMeters = rightMeters;
+
+        // Falcons report velocity per 100 milliseconds
+        m_leftVelocity = m_drivetrainSim.getLeftVelocityMetersPerSecond() * ticksPerMeter / 10;
+        m_rightVelocity = m_drivetrainSim.getRightVelocityMetersPerSecond() * ticksPerMeter / 10;
+
+        // Keep the yaw continuous like the Pigeon's
+        double heading = m_drivetrainSim.getHeading().getDegrees();
+        m_yaw += Math.IEEEremainder(heading - m_lastHeading, 360);
+        m_lastHeading = heading;
+
+        m_field.setRobotPose(m_drivetrainSim.getPose());
+    }
+}
@@ -0,0 +1,152 @@
+package frc.robot.subsystems;
+
+// ----- IMPORTS ----- \\
+
+import com.ctre.phoenix.motorcontrol.InvertType;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.sensors.SensorVelocityMeasPeriod;
+
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
+import frc.robot.utilities.GyroUtility;
+
+/**
+ * <h3>DriveIOTalonFX</h3>
+ * 
+ * The real drivetrain: four Falcon 500s, with the followers copying the
+ * leaders, and the Pigeon
+ */
+public class DriveIOTalonFX implements DriveIO {
+
+    // ----- TALONS -----\\
+
+    // Our Falcon 500s
+    private final WPI_TalonFX m_leftLeader;
+    private final WPI_TalonFX m_leftFollower;
+    private final WPI_TalonFX m_rightLeader;
+    private final WPI_TalonFX m_rightFollower;
+
+    // ----- CONSTRUCTOR -----\\
+
+    /**
+     * <h3>DriveIOTalonFX</h3>
+     * 
+     * Configures the drive motors
+     * 
+     * @param leftMotorLeaderID    the ID of the left motor leader
+     * @param leftMotorFollowerID  the ID of the left motor follower
+     * @param rightMotorLeaderID   the ID of the right motor leader
+     * @param rightMotorFollowerID the ID of the right motor follower
+     */
+    public DriveIOTalonFX(int leftMotorLeaderID, int leftMotorFollowerID, int rightMotorLeaderID,
+            int rightMotorFollowerID) {
+        m_leftLeader = new WPI_TalonFX(leftMotorLeaderID);
+        m_leftFollower = new WPI_TalonFX(leftMotorFollowerID);
+        m_rightLeader = new WPI_TalonFX(rightMotorLeaderID);
+        m_rightFollower = new WPI_TalonFX(rightMotorFollowerID);
+
+        TalonFXConfiguration config = new TalonFXConfiguration();
+        config.velocityMeasurementPeriod = SensorVelocityMeasPeriod.Period_10Ms;
+        config.statorCurrLimit = new StatorCurrentLimitConfiguration(true, 60, 50, 10);
+
+        // Configures all settings on all motors to TalonFX configurations.
+        m_leftLeader.configAllSettings(config);
+        m_leftFollower.configAllSettings(config);
+        m_rightLeader.configAllSettings(config);
+        m_rightFollower.configAllSettings(config);
+
+        // Only the leaders are read from, the followers just copy them
+        CANStatusFrameManager.getInstance().register(m_leftLeader, DeviceRole.LEADER);
+        CANStatusFrameManager.getInstance().register(m_leftFollower, DeviceRole.FOLLOWER);
+        CANStatusFrameManager.getInstance().register(m_rightLeader, DeviceRole.LEADER);
+        CANStatusFrameManager.getInstance().register(m_rightFollower, DeviceRole.FOLLOWER);
+
+        // Resets motor position.
+        m_leftLeader.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
+        m_leftFollower.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
+        m_rightLeader.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
+        m_rightFollower.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
+
+        m_leftLeader.setInverted(InvertType.None);
+        // Right side motors are inverted (opposite direction)
+        m_rightLeader.setInverted(true);
+
+        refollow();
+
+        // Brake mode (no coasting)
+        setBrakeMode(NeutralMode.Brake);
+    }
+
+    // ----- METHODS -----\\
+
+    @Override
+    public void setVoltages(double leftVoltage, double rightVoltage) {
+        m_leftLeader.setVoltage(leftVoltage);
+        m_rightLeader.setVoltage(rightVoltage);
+    }
+
+    @Override
+    public double getLeftVoltage() {
+        return m_leftLeader.getMotorOutputVoltage();
+    }
+
+    @Override
+    public double getRightVoltage() {
+        return m_rightLeader.getMotorOutputVoltage();
+    }
+
+    @Override
+    public double getLeftPosition() {
+        // This is the sensor position of the left encoder relative to startup
+        return m_leftLeader.getSelectedSensorPosition();
+    }
+
+    @Override
+    public double getRightPosition() {
+        // This is the sensor position of the right encoder relative to startup
+        return m_rightLeader.getSelectedSensorPosition();
+    }
+
+    @Override
+    public double getLeftVelocity() {
+        return m_leftLeader.getSelectedSensorVelocity();
+    }
+
+    @Override
+    public double getRightVelocity() {
+        return m_rightLeader.getSelectedSensorVelocity();
+    }
+
+    @Override
+    public void resetPositions() {
+        m_leftLeader.setSelectedSensorPosition(0.0);
+        m_rightLeader.setSelectedSensorPosition(0.0);
+    }
+
+    @Override
+    public double getYaw() {
+        return GyroUtility.getInstance().getGyro().getYaw();
+    }
+
+    @Override
+    public void setBrakeMode(NeutralMode brakeMode) {
+        m_leftLeader.setNeutralMode(brakeMode);
+        m_leftFollower.setNeutralMode(brakeMode);
+        m_rightLeader.setNeutralMode(brakeMode);
+        m_rightFollower.setNeutralMode(brakeMode);
+    }
+
+    // Needed to overcome stopMotor() calls by CTRE's WPI motor controls
+    // See https://github.com/CrossTheRoadElec/Phoenix-Releases/issues/28
+    @Override
+    public void refollow() {
+        m_leftFollower.follow(m_leftLeader);
+        m_rightFollower.follow(m_rightLeader);
+        // Need to set setInverted to Follow Leader Motors (master)
+        m_leftFollower.setInverted(InvertType.FollowMaster);
+        m_rightFollower.setInverted(InvertType.FollowMaster);
+    }
+}
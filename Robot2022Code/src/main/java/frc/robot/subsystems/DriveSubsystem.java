@@ -1,25 +1,28 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.InvertType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
-import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.ctre.phoenix.sensors.SensorVelocityMeasPeriod;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.math.trajectory.constraint.DifferentialDriveVoltageConstraint;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.utilities.GyroUtility;
+import frc.robot.utilities.HeadingHistoryBuffer;
+import frc.robot.utilities.LoopProfiler;
+import frc.robot.utilities.PhotonVisionUtility;
+import frc.robot.utilities.PoseHistoryBuffer;
+import frc.robot.utilities.PoseHistoryBuffer.PoseSample;
 import frc.robot.utilities.ShifterUtility;
+import frc.robot.utilities.VisionPoseEstimator;
+import frc.robot.utilities.VisionSnapshot;
 
 /**
  * <h3>DriveSubsystem</h3>
@@ -54,6 +57,18 @@ public class DriveSubsystem extends SubsystemBase {
     // This is negative for a motor going backwards and positive for a motor going
     // forwards
     public static final double MAX_VOLTS = 11.0;
+    // How many loops of heading history to keep for vision latency compensation
+    // (50 loops is one second)
+    public static final int HEADING_HISTORY_SIZE = 50;
+    // How many loops of pose history to keep for looking up where we were
+    // (250 loops is five seconds)
+    public static final int POSE_HISTORY_SIZE = 250;
+
+    // How far the wheels travel for one encoder tick in each gear, in meters
+    private static final double HIGH_GEAR_METERS_PER_TICK = (2 * Math.PI * WHEEL_RADIUS) / FALCON_ENCODER_RESOLUTION
+            / HIGH_GEAR_RATIO;
+    private static final double LOW_GEAR_METERS_PER_TICK = (2 * Math.PI * WHEEL_RADIUS) / FALCON_ENCODER_RESOLUTION
+            / LOW_GEAR_RATIO;
 
     // 6380 is the max free speed (in rpms) of a Falcon 500
     // These are the max speeds of the robot in meters per second
@@ -83,9 +98,10 @@ public class DriveSubsystem extends SubsystemBase {
     private final double m_LEFT_KS = 0.73198;
     private final double m_LEFT_KV = 2.2081;
     private final double m_LEFT_KA = 0.20989;
-    private final double m_COMBINED_KS = 0.72074;
-    private final double m_COMBINED_KV = 2.1866;
-    private final double m_COMBINED_KA = 0.20704;
+    // The combined gains are also used to build the drivetrain simulation
+    static final double COMBINED_KS = 0.72074;
+    static final double COMBINED_KV = 2.1866;
+    static final double COMBINED_KA = 0.20704;
 
     // PID Constants
     // P is the proportional error gain
@@ -98,13 +114,10 @@ public class DriveSubsystem extends SubsystemBase {
     private final double m_RIGHT_I = 0.0;
     private final double m_RIGHT_D = 0.0;
 
-    // ----- TALONS -----\\
+    // ----- HARDWARE -----\\
 
-    // Our Falcon 500s
-    private final WPI_TalonFX m_leftLeader;
-    private final WPI_TalonFX m_leftFollower;
-    private final WPI_TalonFX m_rightLeader;
-    private final WPI_TalonFX m_rightFollower;
+    // The motors and gyro, real or simulated
+    private final DriveIO m_io;
 
     // ----- KINEMATICS -----\\
 
@@ -118,8 +131,8 @@ public class DriveSubsystem extends SubsystemBase {
             m_LEFT_KA);
     private final SimpleMotorFeedforward m_rightMotorFeedforward = new SimpleMotorFeedforward(m_RIGHT_KS, m_RIGHT_KV,
             m_RIGHT_KA);
-    private final SimpleMotorFeedforward m_constraintFeedforward = new SimpleMotorFeedforward(m_COMBINED_KS,
-            m_COMBINED_KV, m_COMBINED_KA);
+    private final SimpleMotorFeedforward m_constraintFeedforward = new SimpleMotorFeedforward(COMBINED_KS,
+            COMBINED_KV, COMBINED_KA);
 
     // ----- PID -----\\
 
@@ -133,25 +146,64 @@ public class DriveSubsystem extends SubsystemBase {
     private final DifferentialDriveVoltageConstraint m_voltageConstraint = new DifferentialDriveVoltageConstraint(
             m_constraintFeedforward, m_kinematics, 10);
 
-    // Set up odometry for calculating robot position
-    private final DifferentialDriveOdometry m_odometry = new DifferentialDriveOdometry(
-            new Rotation2d(Math.toRadians(GyroUtility.getInstance().getGyro().getYaw())));
+    // Where the odometry thinks the robot is, in meters and radians. This does the
+    // same math as DifferentialDriveOdometry, but that makes a new Pose2d every
+    // update, so it is kept in primitives instead. The heading isn't wrapped, so
+    // it can be subtracted across a full turn
+    private double m_odometryX = 0.0;
+    private double m_odometryY = 0.0;
+    private double m_odometryHeading = 0.0;
+    // What to add to the gyro heading to get the odometry heading, in radians
+    private double m_gyroOffset;
 
     // ----- VARIABLES -----\\
 
-    private double m_yawPitchRollValues[] = new double[3];
+    // Headings from the last few loops so we can tell where we were pointing when a
+    // vision frame was captured
+    private final HeadingHistoryBuffer m_headingHistory = new HeadingHistoryBuffer(HEADING_HISTORY_SIZE);
+    // Poses and wheel speeds from the last few seconds
+    private final PoseHistoryBuffer m_poseHistory = new PoseHistoryBuffer(POSE_HISTORY_SIZE);
+
+    // Corrects the odometry with the hub camera. This stays off until the
+    // camera's offset on the robot has been measured
+    private final VisionPoseEstimator m_poseEstimator = new VisionPoseEstimator();
+    private boolean m_isVisionCorrectionEnabled = VisionPoseEstimator.IS_CAMERA_OFFSET_MEASURED;
+    // The odometry when the last hub frame was captured
+    private final PoseSample m_captureSample = new PoseSample();
+    // The capture time of the last hub frame we used, so each frame is only used
+    // once
+    private double m_lastHubTimestamp = 0.0;
+    // The odometry pose with the vision correction added. Pose2d can't be changed,
+    // so this is kept in pieces and the pose is only made when something asks for
+    // it after it moved. The heading is in radians, wrapped to +/-pi
+    private double m_estimatedX = 0.0;
+    private double m_estimatedY = 0.0;
+    private double m_estimatedHeading = 0.0;
+    private Pose2d m_estimatedPose = new Pose2d();
+
+    // How far each side has driven since the encoders were reset, in meters. This
+    // is built up a loop at a time so each stretch uses the gear it was driven in
+    private double m_leftDistance = 0.0;
+    private double m_rightDistance = 0.0;
+    // The raw encoder positions from the last loop
+    private double m_lastLeftTicks = 0.0;
+    private double m_lastRightTicks = 0.0;
+    // The gear we were in at the end of the last loop
+    private double m_metersPerTick = HIGH_GEAR_METERS_PER_TICK;
+
+    // Times the odometry and the vision correction in periodic, and the
+    // simulated drivetrain in simulationPeriodic
+    private final int m_odometrySection = LoopProfiler.getInstance().addSection("DriveSubsystem odometry");
+    private final int m_visionSection = LoopProfiler.getInstance().addSection("DriveSubsystem vision");
+    private final int m_simSection = LoopProfiler.getInstance().addSection("DriveSubsystem sim");
 
     // ----- CONSTRUCTOR -----\\
 
-    /**
-     * Constructs a differential drive object. Sets the encoder distance per pulse
-     * and resets the gyro.
-     */
     /**
      * <h3>DriveSubsystem</h3>
      * 
-     * Constructs a differential drive object. Sets the encoder distance per pulse
-     * and resets the gyro.
+     * Constructs a differential drive object. On the robot this drives the
+     * Falcons, in simulation it drives a physics model of them.
      * 
      * @param leftMotorLeaderID    the ID of the left motor leader
      * @param leftMotorFollowerID  the ID of the left motor follower
@@ -160,38 +212,23 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public DriveSubsystem(int leftMotorLeaderID, int leftMotorFollowerID, int rightMotorLeaderID,
             int rightMotorFollowerID) {
-        m_leftLeader = new WPI_TalonFX(leftMotorLeaderID);
-        m_leftFollower = new WPI_TalonFX(leftMotorFollowerID);
-        m_rightLeader = new WPI_TalonFX(rightMotorLeaderID);
-        m_rightFollower = new WPI_TalonFX(rightMotorFollowerID);
-
-        TalonFXConfiguration config = new TalonFXConfiguration();
-        config.velocityMeasurementPeriod = SensorVelocityMeasPeriod.Period_10Ms;
-        config.statorCurrLimit = new StatorCurrentLimitConfiguration(true, 60, 50, 10);
-
-        // Configures all settings on all motors to TalonFX configurations.
-        m_leftLeader.configAllSettings(config);
-        m_leftFollower.configAllSettings(config);
-        m_rightLeader.configAllSettings(config);
-        m_rightFollower.configAllSettings(config);
-
-        // Resets motor position.
-        m_leftLeader.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
-        m_leftFollower.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
-        m_rightLeader.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
-        m_rightFollower.getSensorCollection().setIntegratedSensorPosition(0.0, 100);
-
-        m_leftLeader.setInverted(InvertType.None);
-        // Right side motors are inverted (opposite direction)
-        m_rightLeader.setInverted(true);
-
-        refollowDriveMotors();
+        this(RobotBase.isReal()
+                ? new DriveIOTalonFX(leftMotorLeaderID, leftMotorFollowerID, rightMotorLeaderID,
+                        rightMotorFollowerID)
+                : new DriveIOSim());
+    }
 
-        // Brake mode (no coasting)
-        m_leftLeader.setNeutralMode(NeutralMode.Brake);
-        m_leftFollower.setNeutralMode(NeutralMode.Brake);
-        m_rightLeader.setNeutralMode(NeutralMode.Brake);
-        m_rightFollower.setNeutralMode(NeutralMode.Brake);
+    /**
+     * <h3>DriveSubsystem</h3>
+     * 
+     * Constructs a differential drive object on top of the passed hardware
+     * 
+     * @param io the motors and gyro to use
+     */
+    public DriveSubsystem(DriveIO io) {
+        m_io = io;
+        // Start at the origin facing forwards, wherever the gyro is pointing
+        m_gyroOffset = -Math.toRadians(m_io.getYaw());
     }
 
     // ----- METHODS -----\\
@@ -199,11 +236,7 @@ public class DriveSubsystem extends SubsystemBase {
     // Needed to overcome stopMotor() calls by CTRE's WPI motor controls
     // See https://github.com/CrossTheRoadElec/Phoenix-Releases/issues/28
     public void refollowDriveMotors() {
-        m_leftFollower.follow(m_leftLeader);
-        m_rightFollower.follow(m_rightLeader);
-        // Need to set setInverted to Follow Leader Motors (master)
-        m_leftFollower.setInverted(InvertType.FollowMaster);
-        m_rightFollower.setInverted(InvertType.FollowMaster);
+        m_io.refollow();
     }
 
     /**
@@ -216,10 +249,7 @@ public class DriveSubsystem extends SubsystemBase {
      * @param brakeMode
      */
     public void setMotorBrakeMode(NeutralMode brakeMode) {
-        m_leftLeader.setNeutralMode(brakeMode);
-        m_leftFollower.setNeutralMode(brakeMode);
-        m_rightLeader.setNeutralMode(brakeMode);
-        m_rightFollower.setNeutralMode(brakeMode);
+        m_io.setBrakeMode(brakeMode);
     }
 
     /**
@@ -236,8 +266,7 @@ public class DriveSubsystem extends SubsystemBase {
         rightVoltage = MathUtil.clamp(rightVoltage, -MAX_VOLTS, MAX_VOLTS);
 
         // Send the output to the motors
-        m_leftLeader.setVoltage(leftVoltage);
-        m_rightLeader.setVoltage(rightVoltage);
+        m_io.setVoltages(leftVoltage, rightVoltage);
     }
 
     /**
@@ -248,7 +277,7 @@ public class DriveSubsystem extends SubsystemBase {
      * @return the left motor output voltage
      */
     public double getLeftVoltage() {
-        return m_leftLeader.getMotorOutputVoltage();
+        return m_io.getLeftVoltage();
     }
 
     /**
@@ -259,7 +288,7 @@ public class DriveSubsystem extends SubsystemBase {
      * @return the right motor output voltage
      */
     public double getRightVoltage() {
-        return m_rightLeader.getMotorOutputVoltage();
+        return m_io.getRightVoltage();
     }
 
     /**
@@ -391,7 +420,7 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public double getLeftEncoder() {
         // This will return the sensor velocity in encoder ticks per 100 milliseconds
-        return m_leftLeader.getSelectedSensorVelocity()
+        return m_io.getLeftVelocity()
                 // Multiply by 10 to get encoder units per second
                 * 10
                 // Divide by the number of ticks in a rotation
@@ -407,7 +436,7 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public double getRightEncoder() {
         // This will return the sensor velocity in encoder ticks per 100 milliseconds
-        return m_rightLeader.getSelectedSensorVelocity()
+        return m_io.getRightVelocity()
                 // Multiply by 10 to get encoder units per second
                 * 10
                 // Divide by the number of ticks in a rotation
@@ -427,7 +456,7 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public double getRawLeftSensorPosition() {
         // This is the sensor position of the left encoder relative to startup
-        return m_leftLeader.getSelectedSensorPosition();
+        return m_io.getLeftPosition();
     }
 
     /**
@@ -441,7 +470,7 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public double getRawRightSensorPosition() {
         // This is the sensor position of the right encoder relative to startup
-        return m_rightLeader.getSelectedSensorPosition();
+        return m_io.getRightPosition();
     }
 
     /**
@@ -471,8 +500,70 @@ public class DriveSubsystem extends SubsystemBase {
      * but not the absolute position
      */
     public void resetEncoders() {
-        m_leftLeader.setSelectedSensorPosition(0.0);
-        m_rightLeader.setSelectedSensorPosition(0.0);
+        m_io.resetPositions();
+        m_leftDistance = 0.0;
+        m_rightDistance = 0.0;
+        m_lastLeftTicks = 0.0;
+        m_lastRightTicks = 0.0;
+        // The odometry is reset along with the encoders, so the old poses and
+        // corrections no longer line up with the new ones
+        m_poseHistory.clear();
+        m_poseEstimator.reset();
+    }
+
+    /**
+     * <h3>resetOdometry</h3>
+     * 
+     * Resets the encoders and puts the robot at the passed pose. The odometry
+     * is lined up with the gyro as it reads right now, so it doesn't matter where
+     * the gyro was zeroed.
+     * 
+     * @param pose where the robot is on the field
+     */
+    public void resetOdometry(Pose2d pose) {
+        resetEncoders();
+        m_odometryX = pose.getX();
+        m_odometryY = pose.getY();
+        m_odometryHeading = pose.getRotation().getRadians();
+        m_gyroOffset = m_odometryHeading - Math.toRadians(getContinuousHeading());
+        m_estimatedX = m_odometryX;
+        m_estimatedY = m_odometryY;
+        m_estimatedHeading = MathUtil.angleModulus(m_odometryHeading);
+        m_estimatedPose = pose;
+    }
+
+    /**
+     * <h3>getLeftDistance</h3>
+     * 
+     * Gets how far the left side has driven since the encoders were reset. This
+     * accounts for every shift along the way.
+     * 
+     * @return the distance in meters
+     */
+    public double getLeftDistance() {
+        return m_leftDistance;
+    }
+
+    /**
+     * <h3>getRightDistance</h3>
+     * 
+     * Gets how far the right side has driven since the encoders were reset. This
+     * accounts for every shift along the way.
+     * 
+     * @return the distance in meters
+     */
+    public double getRightDistance() {
+        return m_rightDistance;
+    }
+
+    /**
+     * <h3>getMetersPerTick</h3>
+     * 
+     * @return how far the wheels travel for one encoder tick in the current gear,
+     *         in meters
+     */
+    private static double getMetersPerTick() {
+        return ShifterUtility.getShifterState() ? LOW_GEAR_METERS_PER_TICK : HIGH_GEAR_METERS_PER_TICK;
     }
 
     /**
@@ -504,19 +595,134 @@ public class DriveSubsystem extends SubsystemBase {
      * @return the heading of the gyro.
      */
     public double getHeading() {
-        GyroUtility.getInstance().getGyro().getYawPitchRoll(m_yawPitchRollValues);
-        // Math.IEEERemainder(m_yawPitchRollValues[0], 360) is the double version of
-        // m_yawPitchRollValues[0] % 360
-        return Math.IEEEremainder(m_yawPitchRollValues[0], 360);
+        // Math.IEEERemainder(yaw, 360) is the double version of yaw % 360
+        return Math.IEEEremainder(m_io.getYaw(), 360);
     }
 
     /**
-     * Drives the robot with the given linear velocity and angular velocity.
-     *
-     * @return m_odometry .
+     * <h3>getContinuousHeading</h3>
+     * 
+     * Gets the heading of the gyro without wrapping it to +/-180 degrees. This
+     * keeps the heading continuous while turning, which makes it safe to subtract
+     * and interpolate.
+     * 
+     * @return the heading of the gyro in degrees
+     */
+    public double getContinuousHeading() {
+        return m_io.getYaw();
+    }
+
+    /**
+     * <h3>getHeadingAt</h3>
+     * 
+     * Gets the continuous heading that the robot had at the passed time. This is
+     * interpolated from the headings recorded in periodic.
+     * 
+     * @param timestamp the FPGA time in seconds
+     * @return the heading of the gyro in degrees at that time
+     * @see #getContinuousHeading()
+     */
+    public double getHeadingAt(double timestamp) {
+        double heading = m_headingHistory.getHeadingAt(timestamp);
+        // Nothing has been recorded yet, so the live heading is the best we have
+        if (Double.isNaN(heading)) {
+            return getContinuousHeading();
+        }
+        return heading;
+    }
+
+    /**
+     * <h3>getOdometryPose</h3>
+     * 
+     * Gets the pose of the robot from the wheels and gyro alone, without the hub
+     * camera correction. This makes a new pose every call.
+     * 
+     * @return where the odometry thinks the robot is on the field
+     */
+    public Pose2d getOdometryPose() {
+        return new Pose2d(m_odometryX, m_odometryY, new Rotation2d(MathUtil.angleModulus(m_odometryHeading)));
+    }
+
+    /**
+     * <h3>getEstimatedPose</h3>
+     * 
+     * Gets the pose of the robot from the odometry, corrected with the hub camera.
+     * This is what paths and aiming should follow, since plain odometry drifts
+     * over a long auto. A new pose is only made when the robot has moved since
+     * the last call, so code that runs every loop should use the getters for
+     * each part instead.
+     * 
+     * @return the estimated pose of the robot on the field
+     */
+    public Pose2d getEstimatedPose() {
+        if (m_estimatedPose == null) {
+            m_estimatedPose = new Pose2d(m_estimatedX, m_estimatedY, new Rotation2d(m_estimatedHeading));
+        }
+        return m_estimatedPose;
+    }
+
+    /**
+     * <h3>getEstimatedX</h3>
+     * 
+     * @return the x position of the estimated pose in meters
+     * @see #getEstimatedPose()
+     */
+    public double getEstimatedX() {
+        return m_estimatedX;
+    }
+
+    /**
+     * <h3>getEstimatedY</h3>
+     * 
+     * @return the y position of the estimated pose in meters
+     * @see #getEstimatedPose()
+     */
+    public double getEstimatedY() {
+        return m_estimatedY;
+    }
+
+    /**
+     * <h3>getEstimatedHeading</h3>
+     * 
+     * @return the heading of the estimated pose in radians
+     * @see #getEstimatedPose()
+     */
+    public double getEstimatedHeading() {
+        return m_estimatedHeading;
+    }
+
+    /**
+     * <h3>getPoseEstimator</h3>
+     * 
+     * @return the estimator that corrects the odometry with the hub camera
+     */
+    public VisionPoseEstimator getPoseEstimator() {
+        return m_poseEstimator;
+    }
+
+    /**
+     * <h3>getIO</h3>
+     * 
+     * @return the motors and gyro this drives, which in simulation is the
+     *         simulated drivetrain
+     */
+    public DriveIO getIO() {
+        return m_io;
+    }
+
+    /**
+     * <h3>getPoseAt</h3>
+     * 
+     * Gets where the robot was and how fast its wheels were turning at the passed
+     * time. This is interpolated from the poses recorded in periodic and doesn't
+     * allocate anything.
+     * 
+     * @param timestamp the FPGA time in seconds
+     * @param sample    where to put the result
+     * @return false if nothing has been recorded yet
      */
-    public DifferentialDriveOdometry getOdometry() {
-        return m_odometry;
+    public boolean getPoseAt(double timestamp, PoseSample sample) {
+        return m_poseHistory.getSampleAt(timestamp, sample);
     }
 
     /**
@@ -524,32 +730,154 @@ public class DriveSubsystem extends SubsystemBase {
      * 
      * Called every loop iteration when the scheduler runs.
      * <p>
-     * This will update the odometry for automous
+     * This will update the odometry for automous and record the heading. The
+     * odometry follows the shifter, so it stays right in either gear.
      * 
      * @see super {@link edu.wpi.first.wpilibj2.command.Subsystem#periodic
      *      periodic} method
      */
     @Override
     public void periodic() {
-        // Update odometry using the gyro and the wheel rotations
-        m_odometry.update(
-                // Create a new Rotation2d object with the reading from the pigeon
-                new Rotation2d(Math.toRadians(GyroUtility.getInstance().getGyro().getYaw())),
-                // Convert raw sensor units to meters
-                getRawLeftSensorPosition()
-                        // Convert raw sensor units to wheel rotations
-                        * (1.0 / 2048.0)
-                        // Convert wheel rotations to meters
-                        * (WHEEL_RADIUS * Math.PI * 2)
-                        // Divide by the current gear ratio
-                        / HIGH_GEAR_RATIO,
-                // Convert raw sensor units to meters
-                getRawRightSensorPosition()
-                        // Convert raw sensor units to wheel rotations
-                        * (1.0 / 2048.0)
-                        // Convert wheel rotations to meters
-                        * (WHEEL_RADIUS * Math.PI * 2)
-                        // Divide by the current gear ratio
-                        / HIGH_GEAR_RATIO);
+        LoopProfiler.getInstance().start(m_odometrySection);
+        double timestamp = Timer.getFPGATimestamp();
+        double heading = getContinuousHeading();
+
+        // Remember where we were pointing for vision latency compensation
+        m_headingHistory.addSample(timestamp, heading);
+
+        // Add up the distance a loop at a time. The ticks since last loop were
+        // turned in the gear we were in at the start of it, so a shift only
+        // changes the ratio from here on instead of rescaling the whole path
+        double leftTicks = getRawLeftSensorPosition();
+        double rightTicks = getRawRightSensorPosition();
+        double leftChange = (leftTicks - m_lastLeftTicks) * m_metersPerTick;
+        double rightChange = (rightTicks - m_lastRightTicks) * m_metersPerTick;
+        m_leftDistance += leftChange;
+        m_rightDistance += rightChange;
+        m_lastLeftTicks = leftTicks;
+        m_lastRightTicks = rightTicks;
+        m_metersPerTick = getMetersPerTick();
+
+        // Update odometry using the gyro and the wheel distances
+        updateOdometry((leftChange + rightChange) / 2.0, Math.toRadians(heading) + m_gyroOffset);
+
+        // Remember where we were for anything that needs to look back in time
+        m_poseHistory.addSample(timestamp, m_odometryX, m_odometryY, Math.toDegrees(m_odometryHeading),
+                getLeftEncoder(), getRightEncoder());
+        LoopProfiler.getInstance().stop(m_odometrySection);
+
+        // Correct the odometry with any new hub frame, using the odometry from when
+        // it was captured
+        LoopProfiler.getInstance().start(m_visionSection);
+        m_poseEstimator.addOdometry((Math.abs(leftChange) + Math.abs(rightChange)) / 2.0);
+        VisionSnapshot snapshot = PhotonVisionUtility.getInstance().getLatestSnapshot();
+        if (snapshot.hasHubTarget()) {
+            addHubMeasurement(snapshot.getHubTimestamp(), snapshot.getHubRange(), snapshot.getHubYaw());
+        }
+        // Only throw away the old pose if we actually moved
+        double estimatedX = m_odometryX + m_poseEstimator.getCorrectionX();
+        double estimatedY = m_odometryY + m_poseEstimator.getCorrectionY();
+        double estimatedHeading = MathUtil.angleModulus(m_odometryHeading);
+        if (estimatedX != m_estimatedX || estimatedY != m_estimatedY || estimatedHeading != m_estimatedHeading) {
+            m_estimatedX = estimatedX;
+            m_estimatedY = estimatedY;
+            m_estimatedHeading = estimatedHeading;
+            m_estimatedPose = null;
+        }
+        LoopProfiler.getInstance().stop(m_visionSection);
+    }
+
+    /**
+     * <h3>addHubMeasurement</h3>
+     * 
+     * Blends a hub camera frame into the pose, using the odometry from when it
+     * was captured. Periodic does this with every new frame from
+     * PhotonVisionUtility, so this only needs to be called by simulations that
+     * make their own frames. The estimated pose moves on the next periodic.
+     * 
+     * @param timestamp the FPGA time the frame was captured in seconds
+     * @param hubRange  the range to the hub from the camera, as adjusted by
+     *                  {@link frc.robot.utilities.PhotonVisionUtility
+     *                  PhotonVisionUtility}, in meters
+     * @param hubYaw    the yaw to the hub in degrees, positive to the right
+     * @return true if the frame was used
+     */
+    public boolean addHubMeasurement(double timestamp, double hubRange, double hubYaw) {
+        if (!m_isVisionCorrectionEnabled || timestamp == m_lastHubTimestamp) {
+            return false;
+        }
+        m_lastHubTimestamp = timestamp;
+        if (timestamp < m_poseHistory.getOldestTimestamp()
+                || !m_poseHistory.getSampleAt(timestamp, m_captureSample)) {
+            return false;
+        }
+        return m_poseEstimator.addHubMeasurement(m_captureSample, hubRange, hubYaw);
+    }
+
+    /**
+     * <h3>setVisionCorrectionEnabled</h3>
+     * 
+     * Turns correcting the pose with the hub camera on or off. It starts off
+     * until {@link frc.robot.utilities.VisionPoseEstimator#IS_CAMERA_OFFSET_MEASURED
+     * the camera offset has been measured}, so only tests and simulations should
+     * turn it on before then. Turning it off throws away the correction so far.
+     * 
+     * @param isEnabled true to correct the pose with the hub camera
+     */
+    public void setVisionCorrectionEnabled(boolean isEnabled) {
+        m_isVisionCorrectionEnabled = isEnabled;
+        if (!isEnabled) {
+            m_poseEstimator.reset();
+        }
+    }
+
+    /**
+     * <h3>updateOdometry</h3>
+     * 
+     * Moves the odometry pose along an arc. This is the same as the pose
+     * exponential DifferentialDriveOdometry uses, worked out by hand so it
+     * doesn't make any objects.
+     * 
+     * @param distance how far the middle of the robot drove since last loop, in
+     *                 meters
+     * @param heading  the heading the robot ended up at, in radians
+     */
+    private void updateOdometry(double distance, double heading) {
+        double turn = heading - m_odometryHeading;
+
+        // How far along and across the starting heading the arc ends up, for each
+        // meter driven. These divide by the turn, so use their series when the turn
+        // is tiny, which it is whenever we drive straight
+        double along;
+        double across;
+        if (Math.abs(turn) < 1e-9) {
+            along = 1.0 - turn * turn / 6.0;
+            across = turn / 2.0;
+        } else {
+            along = Math.sin(turn) / turn;
+            across = (1.0 - Math.cos(turn)) / turn;
+        }
+
+        double cos = Math.cos(m_odometryHeading);
+        double sin = Math.sin(m_odometryHeading);
+        m_odometryX += distance * (along * cos - across * sin);
+        m_odometryY += distance * (along * sin + across * cos);
+        m_odometryHeading = heading;
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * 
+     * Moves the simulated drivetrain forward by one loop. This only runs in
+     * simulation, right after periodic.
+     * 
+     * @see super {@link edu.wpi.first.wpilibj2.command.Subsystem#simulationPeriodic
+     *      simulationPeriodic} method
+     */
+    @Override
+    public void simulationPeriodic() {
+        LoopProfiler.getInstance().start(m_simSection);
+        m_io.simulationPeriodic();
+        LoopProfiler.getInstance().stop(m_simSection);
     }
 }
@@ -17,6 +17,8 @@ import com.ctre.phoenix.motorcontrol.TalonFXFeedbackDevice;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
 
 //-------- SUBSYSTEM CLASS --------\\
 /**
@@ -56,6 +58,9 @@ public class EndgameMotorSubsystem extends SubsystemBase {
         // Sets default for added motors
         m_endgameMotorMaster.configFactoryDefault();
         m_endgameMotorSlave.configFactoryDefault();
+        // The arm position is only read often while climbing
+        CANStatusFrameManager.getInstance().register(m_endgameMotorMaster, DeviceRole.ENDGAME_ARM);
+        CANStatusFrameManager.getInstance().register(m_endgameMotorSlave, DeviceRole.FOLLOWER);
         m_endgameMotorMaster.configSelectedFeedbackSensor(TalonFXFeedbackDevice.IntegratedSensor, 0, 0);
         m_endgameMotorMaster.config_kP(0, MOTOR_KP);
 
@@ -5,6 +5,10 @@ package frc.robot.subsystems;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
+import frc.robot.utilities.LoopProfiler;
+import frc.robot.utilities.RollerSim;
 
 //----- CLASS -----\\
 /**
@@ -14,11 +18,24 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  */
 public class IndexerMotorSubsystem extends SubsystemBase {
 
+    // ----- CONSTANTS -----\\
+
+    // Estimated gearing and roller radius (in meters) of both indexer stages
+    private static final double INDEXER_GEAR_RATIO = 4.0;
+    private static final double INDEXER_ROLLER_RADIUS = 0.0254;
+
     // ----- MOTORS -----\\
 
     private final WPI_TalonFX m_stagedIndexer;
     private final WPI_TalonFX m_loadedIndexer;
 
+    // ----- SIMULATION -----\\
+
+    private final RollerSim m_stagedSim;
+    private final RollerSim m_loadedSim;
+    // Times simulationPeriodic
+    private final int m_simSection = LoopProfiler.getInstance().addSection("IndexerMotorSubsystem sim");
+
     // ----- CONSTRUCTOR -----\\
     /**
      * <h3>IndexerMotorSubsystem</h3>
@@ -33,6 +50,12 @@ public class IndexerMotorSubsystem extends SubsystemBase {
         m_stagedIndexer.stopMotor();
         m_loadedIndexer = new WPI_TalonFX(loadedID);
         m_loadedIndexer.stopMotor();
+        CANStatusFrameManager.getInstance().register(m_stagedIndexer, DeviceRole.MECHANISM);
+        CANStatusFrameManager.getInstance().register(m_loadedIndexer, DeviceRole.MECHANISM);
+
+        m_stagedSim = new RollerSim(m_stagedIndexer, INDEXER_GEAR_RATIO, INDEXER_ROLLER_RADIUS, false);
+        // The loaded motor is run backwards to feed
+        m_loadedSim = new RollerSim(m_loadedIndexer, INDEXER_GEAR_RATIO, INDEXER_ROLLER_RADIUS, true);
     }
 
     // ----- METHODS -----\\
@@ -71,4 +94,43 @@ public class IndexerMotorSubsystem extends SubsystemBase {
         m_stagedIndexer.setVoltage(0.0);
         m_loadedIndexer.setVoltage(0.0);
     }
+
+    /**
+     * <h3>getStagedSurfaceSpeed</h3>
+     * 
+     * Gets how fast the simulated staged roller moves cargo. This is only
+     * updated in simulation.
+     * 
+     * @return the roller surface speed in meters per second, positive towards
+     *         the shooter
+     */
+    public double getStagedSurfaceSpeed() {
+        return m_stagedSim.getSurfaceSpeed();
+    }
+
+    /**
+     * <h3>getLoadedSurfaceSpeed</h3>
+     * 
+     * Gets how fast the simulated loaded roller moves cargo. This is only
+     * updated in simulation.
+     * 
+     * @return the roller surface speed in meters per second, positive towards
+     *         the shooter
+     */
+    public double getLoadedSurfaceSpeed() {
+        return m_loadedSim.getSurfaceSpeed();
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * 
+     * Runs the simulated indexer rollers.
+     */
+    @Override
+    public void simulationPeriodic() {
+        LoopProfiler.getInstance().start(m_simSection);
+        m_stagedSim.update();
+        m_loadedSim.update();
+        LoopProfiler.getInstance().stop(m_simSection);
+    }
 }
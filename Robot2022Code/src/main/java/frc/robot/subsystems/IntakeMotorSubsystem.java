@@ -6,6 +6,11 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
+import frc.robot.utilities.LoopProfiler;
+import frc.robot.utilities.RollerSim;
+
 //----- CLASS -----\\
 /**
  * <h3>IntakeMotorSubsystem</h3>
@@ -14,6 +19,12 @@ import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
  */
 public class IntakeMotorSubsystem extends SubsystemBase {
 
+    //----- CONSTANTS -----\\
+
+    // Estimated gearing and roller radius (in meters) of the intake
+    private static final double INTAKE_GEAR_RATIO = 3.0;
+    private static final double INTAKE_ROLLER_RADIUS = 0.0254;
+
     //----- VARIABLES -----\\
 
     /**
@@ -21,6 +32,16 @@ public class IntakeMotorSubsystem extends SubsystemBase {
      */
     private final WPI_TalonFX m_intakeMotorController;
 
+    /**
+     * The simulated intake roller
+     */
+    private final RollerSim m_intakeSim;
+
+    /**
+     * Times simulationPeriodic
+     */
+    private final int m_simSection = LoopProfiler.getInstance().addSection("IntakeMotorSubsystem sim");
+
     //----- CONSTRUCTOR -----\\
     /**
      * <h3>IntakeMotorSubsystem</h3>
@@ -32,6 +53,8 @@ public class IntakeMotorSubsystem extends SubsystemBase {
      */
     public IntakeMotorSubsystem(int intakeID) {
         m_intakeMotorController = new WPI_TalonFX(intakeID);
+        CANStatusFrameManager.getInstance().register(m_intakeMotorController, DeviceRole.MECHANISM);
+        m_intakeSim = new RollerSim(m_intakeMotorController, INTAKE_GEAR_RATIO, INTAKE_ROLLER_RADIUS, false);
     }
 
     //----- METHODS -----\\
@@ -58,4 +81,27 @@ public class IntakeMotorSubsystem extends SubsystemBase {
     public double getMotorSpeed() {
         return m_intakeMotorController.getMotorOutputPercent();
     }
+
+    /**
+     * <h3>getSurfaceSpeed</h3>
+     * This method returns how fast the simulated intake roller moves cargo. It is
+     * only updated in simulation.
+     * 
+     * @return the roller surface speed in meters per second, positive into the
+     *         robot
+     */
+    public double getSurfaceSpeed() {
+        return m_intakeSim.getSurfaceSpeed();
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * This method runs the simulated intake roller
+     */
+    @Override
+    public void simulationPeriodic() {
+        LoopProfiler.getInstance().start(m_simSection);
+        m_intakeSim.update();
+        LoopProfiler.getInstance().stop(m_simSection);
+    }
 } // end of class IntakeMotorSubsystem
\ No newline at end of file
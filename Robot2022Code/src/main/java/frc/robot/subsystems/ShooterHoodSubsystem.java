@@ -9,6 +9,9 @@
 
 package frc.robot.subsystems;
 
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import com.ctre.phoenix.ErrorCode;
@@ -17,9 +20,14 @@ import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.InvertType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
 import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
+import frc.robot.utilities.LoopProfiler;
+
 //-------- SUBSYSTEM CLASS --------\\
 
 /**
@@ -35,12 +43,37 @@ public class ShooterHoodSubsystem extends SubsystemBase {
     private static final double GEAR_RATIO = (16.0 / 36.0) * (15.0 / 235.0);
     // Maxiumum travel of hood in degrees
     private static final double HOOD_MAX_POSITION = 30.0;
+    // Lowest the hood can go in encoder ticks. This is the reverse soft limit
+    private static final double HOOD_MIN_TICKS = 250;
     // PID values
     private static final double MOTOR_KP = 1;
     private static final double MOTOR_KD = 15;
+    // Motion magic limits for the hood in degrees per second (and per second
+    // squared)
+    private static final double HOOD_CRUISE_VELOCITY = 60.0;
+    private static final double HOOD_ACCELERATION = 240.0;
+    // How close (in degrees) the hood has to be to the target to count as there
+    private static final double HOOD_TOLERANCE = 0.5;
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // Estimated length (in meters) and mass (in kilograms) of the hood, for
+    // simulation
+    private static final double HOOD_LENGTH = 0.3;
+    private static final double HOOD_MASS = 1.5;
 
     // -------- DECLARATIONS --------\\
     private final WPI_TalonFX hoodMotor;
+    // The position the hood is moving to in degrees
+    private double targetPosition;
+
+    // The model of the hood for sim. The hood is treated as an arm that is level
+    // at 0 degrees
+    private final SingleJointedArmSim hoodSim = new SingleJointedArmSim(DCMotor.getFalcon500(1),
+            1.0 / GEAR_RATIO, SingleJointedArmSim.estimateMOI(HOOD_LENGTH, HOOD_MASS), HOOD_LENGTH, 0.0,
+            Math.toRadians(HOOD_MAX_POSITION), HOOD_MASS, true);
+    private final TalonFXSimCollection hoodSimCollection;
+    // Times simulationPeriodic
+    private final int simProfilerSection = LoopProfiler.getInstance().addSection("ShooterHoodSubsystem sim");
 
     // -------- CONSTRUCTOR --------\\
     /**
@@ -64,14 +97,19 @@ public class ShooterHoodSubsystem extends SubsystemBase {
         // Allow encoder deadband to prevent oscillation
         config.slot0.allowableClosedloopError = 25;
 
+        // Limit how fast the hood moves so motion magic can plan a smooth move.
+        // Talon velocities are in ticks per 100 ms
+        config.motionCruiseVelocity = degreesToTicks(HOOD_CRUISE_VELOCITY) / 10.0;
+        config.motionAcceleration = degreesToTicks(HOOD_ACCELERATION) / 10.0;
+
         // Set current and voltage control for brake mode
         config.statorCurrLimit = new StatorCurrentLimitConfiguration(true, 30, 30, 0.0);
         config.statorCurrLimit.enable = true;
         config.voltageCompSaturation = 9.0;
 
         // Sets encoder limits so the hood can't break itself by going too far
-        config.forwardSoftLimitThreshold = ((HOOD_MAX_POSITION / 360.0) * TALON_CPR / GEAR_RATIO);
-        config.reverseSoftLimitThreshold = 250;
+        config.forwardSoftLimitThreshold = degreesToTicks(HOOD_MAX_POSITION);
+        config.reverseSoftLimitThreshold = HOOD_MIN_TICKS;
         config.forwardSoftLimitEnable = true;
         config.reverseSoftLimitEnable = true;
 
@@ -87,23 +125,25 @@ public class ShooterHoodSubsystem extends SubsystemBase {
             error = hoodMotor.configAllSettings(config, 500);
             System.out.println("Trying!");
         } while (error != ErrorCode.OK);
+        CANStatusFrameManager.getInstance().register(hoodMotor, DeviceRole.POSITION_MECHANISM);
+        hoodSimCollection = hoodMotor.getSimCollection();
+
+        targetPosition = getHoodPosition();
     }
 
     /**
      * <h3>setHoodPosition</h3>
-     * Sets the desired position of the shooter hood
+     * Starts a motion profiled move of the shooter hood to the desired position
      * 
      * @param angle desired hood position in degrees
      */
     public void setHoodPosition(double angle) {
-        // Clamps position to the limits
-        if (angle < 0) {
-            angle = 0;
-        } else if (angle > HOOD_MAX_POSITION) {
-            angle = HOOD_MAX_POSITION;
-        }
+        // Clamps position to the limits. The soft limit stops the hood a little
+        // above 0, so we can't ask it to go lower than that or it would never get
+        // there
+        targetPosition = Math.max(ticksToDegrees(HOOD_MIN_TICKS), Math.min(angle, HOOD_MAX_POSITION));
         // Converts degrees into encoder ticks
-        hoodMotor.set(ControlMode.Position, (angle / 360.0) * TALON_CPR / GEAR_RATIO,
+        hoodMotor.set(ControlMode.MotionMagic, degreesToTicks(targetPosition),
                 DemandType.ArbitraryFeedForward, 0.06);
     }
 
@@ -115,7 +155,90 @@ public class ShooterHoodSubsystem extends SubsystemBase {
      */
     public double getHoodPosition() {
         // Converts encoder ticks to degrees of the hood
-        return (hoodMotor.getSelectedSensorPosition() / TALON_CPR) * GEAR_RATIO * 360.0;
+        return ticksToDegrees(hoodMotor.getSelectedSensorPosition());
+    }
+
+    /**
+     * <h3>getTargetPosition</h3>
+     * Gets the position the hood is moving to
+     * 
+     * @return target position of hood in degrees
+     */
+    public double getTargetPosition() {
+        return targetPosition;
+    }
+
+    /**
+     * <h3>isAtTarget</h3>
+     * Checks if the hood has actually reached its target, using the encoder
+     * 
+     * @return true if the hood is at the target position
+     */
+    public boolean isAtTarget() {
+        return Math.abs(targetPosition - getHoodPosition()) < HOOD_TOLERANCE;
+    }
+
+    /**
+     * <h3>getTimeToTarget</h3>
+     * Predicts how long the hood will take to reach its target. This assumes a
+     * move from rest, so it is a little long when the hood is already moving.
+     * 
+     * @return the predicted time in seconds, or 0 if the hood is there
+     */
+    public double getTimeToTarget() {
+        if (isAtTarget()) {
+            return 0;
+        }
+        double distance = Math.abs(targetPosition - getHoodPosition());
+
+        // Short moves never reach the cruise velocity, so they are a triangle of
+        // speeding up and slowing down
+        if (distance < HOOD_CRUISE_VELOCITY * HOOD_CRUISE_VELOCITY / HOOD_ACCELERATION) {
+            return 2 * Math.sqrt(distance / HOOD_ACCELERATION);
+        }
+        // Longer moves speed up, cruise, then slow down
+        return distance / HOOD_CRUISE_VELOCITY + HOOD_CRUISE_VELOCITY / HOOD_ACCELERATION;
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * Runs the simulated hood with the voltage the talon is putting out and
+     * feeds its position back to the talon's encoder
+     */
+    @Override
+    public void simulationPeriodic() {
+        LoopProfiler.getInstance().start(simProfilerSection);
+        hoodSimCollection.setBusVoltage(RobotController.getBatteryVoltage());
+        hoodSim.setInputVoltage(hoodSimCollection.getMotorOutputLeadVoltage());
+        hoodSim.update(LOOP_PERIOD);
+        // Talon velocities are in ticks per 100 ms
+        hoodSimCollection.setIntegratedSensorRawPosition(
+                (int) degreesToTicks(Math.toDegrees(hoodSim.getAngleRads())));
+        hoodSimCollection.setIntegratedSensorVelocity(
+                (int) (degreesToTicks(Math.toDegrees(hoodSim.getVelocityRadPerSec())) / 10.0));
+        LoopProfiler.getInstance().stop(simProfilerSection);
+    }
+
+    /**
+     * <h3>degreesToTicks</h3>
+     * Converts a hood angle to encoder ticks
+     * 
+     * @param degrees the hood angle in degrees
+     * @return the angle in encoder ticks
+     */
+    private static double degreesToTicks(double degrees) {
+        return (degrees / 360.0) * TALON_CPR / GEAR_RATIO;
+    }
+
+    /**
+     * <h3>ticksToDegrees</h3>
+     * Converts encoder ticks to a hood angle
+     * 
+     * @param ticks the position in encoder ticks
+     * @return the hood angle in degrees
+     */
+    private static double ticksToDegrees(double ticks) {
+        return (ticks / TALON_CPR) * GEAR_RATIO * 360.0;
     }
 }
 // end of class ShooterHoodSubsystem
\ No newline at end of file
@@ -10,9 +10,13 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.utilities.CANStatusFrameManager;
+import frc.robot.utilities.CANStatusFrameManager.DeviceRole;
+import frc.robot.utilities.FlywheelController;
+import frc.robot.utilities.LoopProfiler;
 import frc.robot.utilities.ShooterUtility;
+import frc.robot.utilities.FlywheelController.FlywheelControlMode;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FollowerType;
 import com.ctre.phoenix.motorcontrol.InvertType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
@@ -26,11 +30,26 @@ import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
  */
 public class ShooterSubsystem extends SubsystemBase {
 
+    // -------- CONSTANTS --------\\
+    // How each wheel is controlled. Velocity control holds the wheel speed no
+    // matter the battery, so it recovers faster after a ball goes through
+    private static final FlywheelControlMode TOP_CONTROL_MODE = FlywheelControlMode.TALON_VELOCITY;
+    private static final FlywheelControlMode BOTTOM_CONTROL_MODE = FlywheelControlMode.TALON_VELOCITY;
+    // Roughly how much of its speed each wheel loses when a ball goes through,
+    // for simulation
+    private static final double SIMULATED_SHOT_SPEED_LOSS = 0.08;
+
     // -------- DECLARATIONS --------\\
     // motor controllers for the shooter wheels
     private final WPI_TalonFX topShooter;
     private final WPI_TalonFX bottomShooterMaster;
     private final WPI_TalonFX bottomShooterFollower;
+    // Controllers that run each wheel in its control mode
+    private final FlywheelController topFlywheel;
+    private final FlywheelController bottomFlywheel;
+    // Times periodic and simulationPeriodic
+    private final int profilerSection = LoopProfiler.getInstance().addSection("ShooterSubsystem");
+    private final int simProfilerSection = LoopProfiler.getInstance().addSection("ShooterSubsystem sim");
 
     // -------- CONSTRUCTOR --------\\
     /**
@@ -53,6 +72,9 @@ public class ShooterSubsystem extends SubsystemBase {
         topShooter.configFactoryDefault();
         bottomShooterMaster.configFactoryDefault();
         bottomShooterFollower.configFactoryDefault();
+        CANStatusFrameManager.getInstance().register(topShooter, DeviceRole.FLYWHEEL);
+        CANStatusFrameManager.getInstance().register(bottomShooterMaster, DeviceRole.FLYWHEEL);
+        CANStatusFrameManager.getInstance().register(bottomShooterFollower, DeviceRole.FOLLOWER);
 
         // Sets motors to coast so that they can move freely when not being used
         topShooter.setNeutralMode(NeutralMode.Coast);
@@ -63,6 +85,11 @@ public class ShooterSubsystem extends SubsystemBase {
         topShooter.setInverted(InvertType.None);
         refollowShooterMotors();
 
+        // The bottom wheel has two falcons on it, but only the master is controlled.
+        // The follower still gets the master's voltage compensation so they agree
+        topFlywheel = new FlywheelController(topShooter, TOP_CONTROL_MODE);
+        bottomFlywheel = new FlywheelController(bottomShooterMaster, BOTTOM_CONTROL_MODE, bottomShooterFollower);
+
         // Need to bring shooter values with 0 to prevent null pointer
         ShooterUtility.setValuesToShuffleboard(0.0);
     }
@@ -85,8 +112,7 @@ public class ShooterSubsystem extends SubsystemBase {
      * @param speed speed of the bottom wheel in percent output
      */
     public void setBottomSpeed(double speed) {
-        // Sets speed to 0 if speed argument is less than 0
-        bottomShooterMaster.set(ControlMode.PercentOutput, Math.max(0.0, speed));
+        bottomFlywheel.setSpeed(speed);
     }
 
     /**
@@ -96,8 +122,7 @@ public class ShooterSubsystem extends SubsystemBase {
      * @param speed speed of the top wheel in percent output
      */
     public void setTopSpeed(double speed) {
-        // Sets speed to 0 if speed argument is less than 0
-        topShooter.set(ControlMode.PercentOutput, Math.max(0.0, speed));
+        topFlywheel.setSpeed(speed);
     }
 
     /**
@@ -105,8 +130,8 @@ public class ShooterSubsystem extends SubsystemBase {
      * Stops both shooter motors.
      */
     public void stopMotors() {
-        topShooter.stopMotor();
-        bottomShooterMaster.stopMotor();
+        topFlywheel.stop();
+        bottomFlywheel.stop();
     }
 
     /**
@@ -128,4 +153,91 @@ public class ShooterSubsystem extends SubsystemBase {
     public double getTopSpeed() {
         return topShooter.getMotorOutputPercent();
     }
+
+    /**
+     * <h3>getTopVelocity</h3>
+     * Gets the velocity of the top shooter wheel from the last loop.
+     *
+     * @return velocity of the top wheel in RPM
+     */
+    public double getTopVelocity() {
+        return topFlywheel.getVelocity();
+    }
+
+    /**
+     * <h3>getBottomVelocity</h3>
+     * Gets the velocity of the bottom shooter wheel from the last loop.
+     *
+     * @return velocity of the bottom wheel in RPM
+     */
+    public double getBottomVelocity() {
+        return bottomFlywheel.getVelocity();
+    }
+
+    /**
+     * <h3>getTopVelocityError</h3>
+     * Gets how far the top wheel is below its target velocity.
+     *
+     * @return the velocity error in RPM, or 0 in percent output
+     */
+    public double getTopVelocityError() {
+        return topFlywheel.getVelocityError();
+    }
+
+    /**
+     * <h3>getBottomVelocityError</h3>
+     * Gets how far the bottom wheel is below its target velocity.
+     *
+     * @return the velocity error in RPM, or 0 in percent output
+     */
+    public double getBottomVelocityError() {
+        return bottomFlywheel.getVelocityError();
+    }
+
+    /**
+     * <h3>isAtSpeed</h3>
+     * Checks if both wheels are at their speed. In velocity control this uses
+     * the velocity error, and in percent output it checks that the wheels have
+     * stopped accelerating. After a ball goes through, the wheels sag and this is
+     * false until they recover.
+     *
+     * @return true if the shooter is ready to shoot
+     */
+    public boolean isAtSpeed() {
+        return topFlywheel.isAtSpeed() && bottomFlywheel.isAtSpeed();
+    }
+
+    /**
+     * <h3>periodic</h3>
+     * Samples the wheel velocities and runs any state space controllers once per
+     * loop.
+     */
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(profilerSection);
+        topFlywheel.update();
+        bottomFlywheel.update();
+        LoopProfiler.getInstance().stop(profilerSection);
+    }
+
+    /**
+     * <h3>simulateShot</h3>
+     * Slows the simulated wheels down like a ball going through them does.
+     */
+    public void simulateShot() {
+        topFlywheel.simulateShot(SIMULATED_SHOT_SPEED_LOSS);
+        bottomFlywheel.simulateShot(SIMULATED_SHOT_SPEED_LOSS);
+    }
+
+    /**
+     * <h3>simulationPeriodic</h3>
+     * Runs the simulated flywheels.
+     */
+    @Override
+    public void simulationPeriodic() {
+        LoopProfiler.getInstance().start(simProfilerSection);
+        topFlywheel.simulate();
+        bottomFlywheel.simulate();
+        LoopProfiler.getInstance().stop(simProfilerSection);
+    }
 } // end of class ShooterSubsystem
\ No newline at end of file
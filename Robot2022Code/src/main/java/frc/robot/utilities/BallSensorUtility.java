@@ -17,6 +17,9 @@ public class BallSensorUtility {
     private final int TRIGGER_DISTANCE = 200;
     private final int INTAKE_ID = 16;
     private final int LOADED_ID = 15;
+    // The DIO channels the sensors are simulated on
+    public static final int INTAKE_SIM_CHANNEL = 5;
+    public static final int LOADED_SIM_CHANNEL = 6;
 
     private static BallSensorUtility instance = null;
 
@@ -39,8 +42,8 @@ public class BallSensorUtility {
             intakeSensor.setRangingMode(RangingMode.Short, 25);
             loadedSensor.setRangingMode(RangingMode.Short, 25);
         } else {
-            intakeSensorSim = new DigitalInput(5);
-            loadedSensorSim = new DigitalInput(6);
+            intakeSensorSim = new DigitalInput(INTAKE_SIM_CHANNEL);
+            loadedSensorSim = new DigitalInput(LOADED_SIM_CHANNEL);
         }
     }
 
@@ -0,0 +1,316 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+
+/**
+ * <h3>CANStatusFrameManager</h3>
+ * 
+ * Sets how often every talon reports back over the CAN bus. By default every
+ * talon sends everything it knows, even followers we never read from, which
+ * fills up the bus and delays the frames we actually need. Each talon is
+ * registered with a role, and only gets the frames that role needs at the
+ * speed it needs them.
+ * <p>
+ * Talons forget their frame periods when they reset, such as after a brownout,
+ * so {@link #update()} checks for resets and sets them again.
+ */
+public class CANStatusFrameManager {
+    // ----- CONSTANTS ----- \\
+
+    // The slowest a talon can send a frame in milliseconds. Frames we never read
+    // are set to this
+    private static final int SLOWEST_PERIOD = 255;
+    // How fast frames we read every loop are sent in milliseconds
+    private static final int LOOP_PERIOD = 20;
+    // How fast a leader sends its output in milliseconds. Followers copy the
+    // leader from this frame, so it has to stay at the talon's default
+    private static final int LEADER_GENERAL_PERIOD = 10;
+    // How fast talons without followers send their output and faults in
+    // milliseconds. Nothing reads these every loop
+    private static final int MECHANISM_GENERAL_PERIOD = 100;
+
+    // Frames that no role reads. These are always set to the slowest period
+    private static final StatusFrameEnhanced[] UNUSED_FRAMES = {
+            StatusFrameEnhanced.Status_4_AinTempVbat,
+            StatusFrameEnhanced.Status_10_Targets,
+            StatusFrameEnhanced.Status_12_Feedback1,
+            StatusFrameEnhanced.Status_14_Turn_PIDF1,
+            StatusFrameEnhanced.Status_21_FeedbackIntegrated,
+            StatusFrameEnhanced.Status_Brushless_Current
+    };
+
+    // Roughly how many bits a CAN frame takes on the wire, including the
+    // extended ID and bit stuffing, and how fast the bus runs in bits per second
+    private static final double BITS_PER_FRAME = 130;
+    private static final double BUS_BITS_PER_SECOND = 1_000_000;
+    // How often the roborio sends each talon its control frame in milliseconds
+    private static final int CONTROL_FRAME_PERIOD = 10;
+    // Frames per second from everything that isn't a talon, like the PDP, PCM
+    // and pigeon, estimated from their default periods
+    private static final double OTHER_DEVICE_FRAMES_PER_SECOND = 400;
+
+    // How many loops between bus load reports
+    private static final int REPORT_LOOPS = 50;
+
+    // ----- VARIABLES ----- \\
+
+    private final List<Device> devices = new ArrayList<>();
+    private RobotMode mode = RobotMode.DISABLED;
+    private int loopsSinceReport = 0;
+
+    // ----- STATICS ----- \\
+
+    private static CANStatusFrameManager instance;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>CANStatusFrameManager</h3>
+     * 
+     * This should only ever be called once by the getInstance method
+     */
+    private CANStatusFrameManager() {
+    }
+
+    // ----- SINGLETON GET ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * This is the accessor method for the singleton. This ensures that there is
+     * only ever one instance of the CANStatusFrameManager
+     * 
+     * @return the instance of CANStatusFrameManager
+     */
+    public static synchronized CANStatusFrameManager getInstance() {
+        if (instance == null) {
+            instance = new CANStatusFrameManager();
+        }
+        return instance;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>register</h3>
+     * 
+     * Sets up a talon's frame periods for its role and keeps them up to date
+     * from then on. This should be called after the talon is reset to factory
+     * defaults. The periods are sent without waiting for the talon to confirm
+     * them, so a talon that is missing or unpowered can't hold up robotInit. A
+     * talon that comes up later reports a reset, so {@link #update()} sets its
+     * frames then.
+     * 
+     * @param motor the talon to manage
+     * @param role  what the talon is used for
+     */
+    public void register(WPI_TalonFX motor, DeviceRole role) {
+        Device device = new Device(motor, role);
+        devices.add(device);
+        applyAll(device, 0);
+    }
+
+    /**
+     * <h3>setMode</h3>
+     * 
+     * Changes the frame periods for what the robot is doing. Only the frames that
+     * change between modes are sent again.
+     * 
+     * @param newMode what the robot is doing now
+     */
+    public void setMode(RobotMode newMode) {
+        if (newMode == mode) {
+            return;
+        }
+        mode = newMode;
+
+        for (Device device : devices) {
+            int feedbackPeriod = device.role.getFeedbackPeriod(mode);
+            if (feedbackPeriod != device.feedbackPeriod) {
+                device.feedbackPeriod = feedbackPeriod;
+                apply(device, StatusFrameEnhanced.Status_2_Feedback0, feedbackPeriod, 0);
+            }
+        }
+    }
+
+    /**
+     * <h3>update</h3>
+     * 
+     * Sets the frames again on any talon that has reset, and reports the bus
+     * load. This needs to be called once every loop.
+     */
+    public void update() {
+        for (Device device : devices) {
+            if (device.motor.hasResetOccurred()) {
+                System.out.println("****** TALON " + device.motor.getDeviceID()
+                        + " RESET, SETTING STATUS FRAMES AGAIN ******");
+                applyAll(device, 0);
+            }
+        }
+
+        if (++loopsSinceReport >= REPORT_LOOPS) {
+            loopsSinceReport = 0;
+            // The testing tab isn't sent at competitions, which is when we most need to
+            // see the bus load, so this goes on the driver tab
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.CAN_ESTIMATED_LOAD, getEstimatedBusLoad());
+            ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                    ShuffleboardKeys.CAN_MEASURED_LOAD,
+                    RobotController.getCANStatus().percentBusUtilization * 100.0);
+        }
+    }
+
+    /**
+     * <h3>getEstimatedBusLoad</h3>
+     * 
+     * Estimates how busy the CAN bus is from the frame periods we set. This
+     * doesn't count retries or devices that send more than their defaults, so
+     * compare it with the measured load from the roborio.
+     * 
+     * @return the estimated bus load in percent
+     */
+    public double getEstimatedBusLoad() {
+        double framesPerSecond = OTHER_DEVICE_FRAMES_PER_SECOND;
+        for (Device device : devices) {
+            framesPerSecond += 1000.0 / CONTROL_FRAME_PERIOD;
+            framesPerSecond += 1000.0 / device.role.generalPeriod;
+            framesPerSecond += 1000.0 / device.feedbackPeriod;
+            framesPerSecond += 1000.0 / device.role.closedLoopPeriod;
+            framesPerSecond += UNUSED_FRAMES.length * 1000.0 / SLOWEST_PERIOD;
+        }
+        return framesPerSecond * BITS_PER_FRAME / BUS_BITS_PER_SECOND * 100.0;
+    }
+
+    /**
+     * <h3>applyAll</h3>
+     * 
+     * Sets every frame period on a talon for its role and the current mode
+     * 
+     * @param device    the talon to set up
+     * @param timeoutMs how long to wait for each frame to be confirmed
+     */
+    private void applyAll(Device device, int timeoutMs) {
+        device.feedbackPeriod = device.role.getFeedbackPeriod(mode);
+        apply(device, StatusFrameEnhanced.Status_1_General, device.role.generalPeriod, timeoutMs);
+        apply(device, StatusFrameEnhanced.Status_2_Feedback0, device.feedbackPeriod, timeoutMs);
+        apply(device, StatusFrameEnhanced.Status_13_Base_PIDF0, device.role.closedLoopPeriod, timeoutMs);
+        for (StatusFrameEnhanced frame : UNUSED_FRAMES) {
+            apply(device, frame, SLOWEST_PERIOD, timeoutMs);
+        }
+    }
+
+    /**
+     * <h3>apply</h3>
+     * 
+     * Sets one frame period on a talon and prints if it didn't take
+     * 
+     * @param device    the talon to set
+     * @param frame     the frame to change
+     * @param period    how often to send it in milliseconds
+     * @param timeoutMs how long to wait for it to be confirmed
+     */
+    private static void apply(Device device, StatusFrameEnhanced frame, int period, int timeoutMs) {
+        ErrorCode error = device.motor.setStatusFramePeriod(frame, period, timeoutMs);
+        if (error != ErrorCode.OK) {
+            System.out.println("****** COULDN'T SET " + frame + " ON TALON " + device.motor.getDeviceID() + ": "
+                    + error + " ******");
+        }
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return what the robot is doing
+     */
+    public RobotMode getMode() {
+        return mode;
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>Device</h3>
+     * 
+     * A registered talon and the feedback period it was last set to
+     */
+    private static class Device {
+        private final WPI_TalonFX motor;
+        private final DeviceRole role;
+        private int feedbackPeriod;
+
+        private Device(WPI_TalonFX motor, DeviceRole role) {
+            this.motor = motor;
+            this.role = role;
+        }
+    }
+
+    // ----- ENUMS ----- \\
+
+    /**
+     * <h3>DeviceRole</h3>
+     * 
+     * What a talon is used for, which decides what it needs to send us
+     */
+    public static enum DeviceRole {
+        // Drives other talons and is read every loop, like the drivetrain leaders
+        LEADER(LEADER_GENERAL_PERIOD, LOOP_PERIOD, SLOWEST_PERIOD, null),
+        // Copies a leader. Nothing is ever read from it
+        FOLLOWER(SLOWEST_PERIOD, SLOWEST_PERIOD, SLOWEST_PERIOD, null),
+        // A shooter wheel. The velocity and the closed loop error are read every
+        // loop, and the bottom wheel has a follower
+        FLYWHEEL(LEADER_GENERAL_PERIOD, LOOP_PERIOD, LOOP_PERIOD, null),
+        // A mechanism whose position is read every loop, like the hood
+        POSITION_MECHANISM(MECHANISM_GENERAL_PERIOD, LOOP_PERIOD, SLOWEST_PERIOD, null),
+        // A mechanism that is only ever given an output, like the intake and
+        // indexer
+        MECHANISM(MECHANISM_GENERAL_PERIOD, SLOWEST_PERIOD, SLOWEST_PERIOD, null),
+        // The endgame arm leader. Its position is only watched closely while
+        // climbing
+        ENDGAME_ARM(LEADER_GENERAL_PERIOD, MECHANISM_GENERAL_PERIOD, SLOWEST_PERIOD, RobotMode.ENDGAME);
+
+        private final int generalPeriod;
+        private final int feedbackPeriod;
+        private final int closedLoopPeriod;
+        // The mode where the feedback is sent every loop, or null for none
+        private final RobotMode fastFeedbackMode;
+
+        DeviceRole(int generalPeriod, int feedbackPeriod, int closedLoopPeriod, RobotMode fastFeedbackMode) {
+            this.generalPeriod = generalPeriod;
+            this.feedbackPeriod = feedbackPeriod;
+            this.closedLoopPeriod = closedLoopPeriod;
+            this.fastFeedbackMode = fastFeedbackMode;
+        }
+
+        /**
+         * @param mode what the robot is doing
+         * @return how often the position and velocity are sent in milliseconds
+         */
+        private int getFeedbackPeriod(RobotMode mode) {
+            return (mode == fastFeedbackMode) ? LOOP_PERIOD : feedbackPeriod;
+        }
+    }
+
+    /**
+     * <h3>RobotMode</h3>
+     * 
+     * What the robot is doing, for roles that need different frames at
+     * different times
+     */
+    public static enum RobotMode {
+        DISABLED,
+        AUTONOMOUS,
+        TELEOP,
+        ENDGAME,
+        TEST
+    }
+}
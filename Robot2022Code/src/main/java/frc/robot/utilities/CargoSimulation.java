@@ -0,0 +1,377 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.IndexerMotorSubsystem;
+import frc.robot.subsystems.IntakeMotorSubsystem;
+import frc.robot.subsystems.IntakePistonSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+
+/**
+ * <h3>CargoSimulation</h3>
+ * 
+ * Moves simulated cargo through the robot in simulation. Cargo is picked up
+ * when the intake is down and running, carried by whichever roller it is
+ * sitting on, and leaves through the shooter, slowing the wheels down as it
+ * goes. The ball sensors are set from where the cargo is, so the real intake,
+ * indexer and shooter commands run on it unchanged and a whole intake to shot
+ * cycle can be timed without the robot.
+ * <p>
+ * Cargo can be picked up from spots on the field, or from a pile in front of
+ * the intake that is added to with the "Sim/Add Cargo" button on the
+ * dashboard.
+ */
+public class CargoSimulation {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // The most cargo the robot can hold
+    private static final int MAX_CARGO = 2;
+    // Cargo is 9.5 inches across
+    private static final double CARGO_DIAMETER = Units.inchesToMeters(9.5);
+    // Cargo rolls between the rollers and the wall, so it only moves at about
+    // half the speed of the rollers
+    private static final double CARGO_SPEED_RATIO = 0.5;
+    // How close (in meters) the middle of the robot has to get to cargo on the
+    // field to pick it up
+    private static final double PICKUP_DISTANCE = 0.6;
+
+    // Where things are along the path cargo takes through the robot, in meters
+    // from where the intake grabs it. The intake roller carries cargo to the end
+    // of the intake, the staged roller to the end of the staged section, and the
+    // loaded roller from there into the shooter
+    private static final double INTAKE_END = 0.2;
+    private static final double INTAKE_SENSOR = 0.3;
+    private static final double STAGED_END = 0.55;
+    private static final double LOADED_SENSOR = 0.75;
+    private static final double SHOOTER = 1.0;
+
+    // ----- VARIABLES ----- \\
+
+    private final IntakeMotorSubsystem intakeMotor;
+    private final IntakePistonSubsystem intakePiston;
+    private final IndexerMotorSubsystem indexer;
+    private final ShooterSubsystem shooter;
+    private final DriveSubsystem drive;
+
+    // The simulated ball sensors
+    private final DIOSim intakeSensor = new DIOSim(BallSensorUtility.INTAKE_SIM_CHANNEL);
+    private final DIOSim loadedSensor = new DIOSim(BallSensorUtility.LOADED_SIM_CHANNEL);
+
+    // Where each cargo in the robot is, with the one closest to the shooter first
+    private final double[] cargoPositions = new double[MAX_CARGO];
+    // When each cargo in the robot was picked up, or NaN if it was preloaded
+    private final double[] cargoPickupTimes = new double[MAX_CARGO];
+    // When each cargo in the robot reached the loaded sensor, or NaN if it hasn't
+    // yet or was preloaded there
+    private final double[] cargoIndexTimes = new double[MAX_CARGO];
+    private int cargoCount = 0;
+
+    // Cargo sitting on the field
+    private final List<Translation2d> fieldCargo = new ArrayList<>();
+    // Cargo waiting in front of the intake
+    private int waitingCargo = 0;
+
+    // How many cargo have left through the shooter since the last reset
+    private int shotCount = 0;
+    // How long the last cargo took from being picked up to being shot, and how
+    // that split between the intake and indexer getting it to the loaded sensor
+    // and the shooter taking it from there, in seconds
+    private double lastCycleTime = Double.NaN;
+    private double lastIndexTime = Double.NaN;
+    private double lastShootTime = Double.NaN;
+    // The slowest cycle since the last reset in seconds
+    private double longestCycleTime = Double.NaN;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>CargoSimulation</h3>
+     * 
+     * Starts with the robot and the field empty
+     * 
+     * @param intakeMotor  the intake roller
+     * @param intakePiston the piston that puts the intake down
+     * @param indexer      the indexer rollers
+     * @param shooter      the shooter wheels
+     * @param drive        the drivetrain, to know where the robot is
+     */
+    public CargoSimulation(IntakeMotorSubsystem intakeMotor, IntakePistonSubsystem intakePiston,
+            IndexerMotorSubsystem indexer, ShooterSubsystem shooter, DriveSubsystem drive) {
+        this.intakeMotor = intakeMotor;
+        this.intakePiston = intakePiston;
+        this.indexer = indexer;
+        this.shooter = shooter;
+        this.drive = drive;
+
+        SmartDashboard.putBoolean("Sim/Add Cargo", false);
+        updateSensors();
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>reset</h3>
+     * 
+     * Empties the field and the robot, then preloads the passed number of cargo
+     * at the loaded sensor like we do before a match
+     * 
+     * @param preloadedCargo how many cargo the robot starts with
+     */
+    public void reset(int preloadedCargo) {
+        fieldCargo.clear();
+        waitingCargo = 0;
+        shotCount = 0;
+        lastCycleTime = Double.NaN;
+        lastIndexTime = Double.NaN;
+        lastShootTime = Double.NaN;
+        longestCycleTime = Double.NaN;
+
+        cargoCount = Math.min(preloadedCargo, MAX_CARGO);
+        for (int i = 0; i < cargoCount; i++) {
+            cargoPositions[i] = LOADED_SENSOR - i * CARGO_DIAMETER;
+            cargoPickupTimes[i] = Double.NaN;
+            cargoIndexTimes[i] = Double.NaN;
+        }
+        updateSensors();
+    }
+
+    /**
+     * <h3>addFieldCargo</h3>
+     * 
+     * Puts cargo on the field for the robot to pick up
+     * 
+     * @param position where the cargo is on the field in meters
+     */
+    public void addFieldCargo(Translation2d position) {
+        fieldCargo.add(position);
+    }
+
+    /**
+     * <h3>addWaitingCargo</h3>
+     * 
+     * Puts cargo in front of the intake, to be picked up as soon as it runs
+     * 
+     * @param count how many cargo to add
+     */
+    public void addWaitingCargo(int count) {
+        waitingCargo += count;
+    }
+
+    /**
+     * <h3>update</h3>
+     * 
+     * Picks up, moves and shoots the cargo for one loop, then sets the ball
+     * sensors. This needs to be called once every loop in simulation, after the
+     * subsystems have run their simulations.
+     */
+    public void update() {
+        if (SmartDashboard.getBoolean("Sim/Add Cargo", false)) {
+            SmartDashboard.putBoolean("Sim/Add Cargo", false);
+            waitingCargo++;
+        }
+
+        double time = Timer.getFPGATimestamp();
+        boolean isIntaking = intakePiston.getIntakeSolenoidOneState() && intakeMotor.getSurfaceSpeed() > 0;
+        boolean hasRoom = cargoCount == 0 || cargoPositions[cargoCount - 1] >= CARGO_DIAMETER;
+        if (isIntaking && hasRoom && cargoCount < MAX_CARGO && pickUpCargo()) {
+            cargoPositions[cargoCount] = 0.0;
+            cargoPickupTimes[cargoCount] = time;
+            cargoIndexTimes[cargoCount] = Double.NaN;
+            cargoCount++;
+        }
+
+        // Cargo can't pass the cargo in front of or behind it
+        for (int i = 0; i < cargoCount; i++) {
+            double position = cargoPositions[i]
+                    + getRollerSpeed(cargoPositions[i]) * CARGO_SPEED_RATIO * LOOP_PERIOD;
+            if (i > 0) {
+                position = Math.min(position, cargoPositions[i - 1] - CARGO_DIAMETER);
+            }
+            if (i < cargoCount - 1) {
+                position = Math.max(position, cargoPositions[i + 1] + CARGO_DIAMETER);
+            }
+            cargoPositions[i] = position;
+            // Picked up cargo is indexed once it trips the loaded sensor
+            if (!Double.isNaN(cargoPickupTimes[i]) && Double.isNaN(cargoIndexTimes[i])
+                    && position >= LOADED_SENSOR - CARGO_DIAMETER / 2) {
+                cargoIndexTimes[i] = time;
+            }
+        }
+
+        // Cargo past the shooter wheels has been shot
+        while (cargoCount > 0 && cargoPositions[0] >= SHOOTER) {
+            shooter.simulateShot();
+            shotCount++;
+            lastCycleTime = time - cargoPickupTimes[0];
+            lastIndexTime = cargoIndexTimes[0] - cargoPickupTimes[0];
+            lastShootTime = time - cargoIndexTimes[0];
+            // Preloaded cargo has no cycle time, and NaN is never greater
+            if (Double.isNaN(longestCycleTime) || lastCycleTime > longestCycleTime) {
+                longestCycleTime = lastCycleTime;
+            }
+            removeFirstCargo();
+            SmartDashboard.putNumber("Sim/Cargo Cycle Time", lastCycleTime);
+            SmartDashboard.putNumber("Sim/Cargo Index Time", lastIndexTime);
+            SmartDashboard.putNumber("Sim/Cargo Shoot Time", lastShootTime);
+        }
+        // Cargo pushed back out of the intake is back on the floor in front of it
+        if (cargoCount > 0 && cargoPositions[cargoCount - 1] < 0) {
+            cargoCount--;
+            waitingCargo++;
+        }
+
+        updateSensors();
+    }
+
+    /**
+     * <h3>pickUpCargo</h3>
+     * 
+     * Takes cargo from the field near the robot, or from in front of the intake
+     * 
+     * @return true if there was cargo to pick up
+     */
+    private boolean pickUpCargo() {
+        Translation2d robotPosition = drive.getEstimatedPose().getTranslation();
+        Iterator<Translation2d> iterator = fieldCargo.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getDistance(robotPosition) < PICKUP_DISTANCE) {
+                iterator.remove();
+                return true;
+            }
+        }
+        if (waitingCargo > 0) {
+            waitingCargo--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * <h3>getRollerSpeed</h3>
+     * 
+     * @param position where the cargo is in the robot in meters
+     * @return the surface speed of the roller under the cargo in meters per
+     *         second, positive towards the shooter
+     */
+    private double getRollerSpeed(double position) {
+        if (position < INTAKE_END) {
+            return intakeMotor.getSurfaceSpeed();
+        } else if (position < STAGED_END) {
+            return indexer.getStagedSurfaceSpeed();
+        }
+        return indexer.getLoadedSurfaceSpeed();
+    }
+
+    /**
+     * <h3>removeFirstCargo</h3>
+     * 
+     * Removes the cargo closest to the shooter
+     */
+    private void removeFirstCargo() {
+        for (int i = 1; i < cargoCount; i++) {
+            cargoPositions[i - 1] = cargoPositions[i];
+            cargoPickupTimes[i - 1] = cargoPickupTimes[i];
+            cargoIndexTimes[i - 1] = cargoIndexTimes[i];
+        }
+        cargoCount--;
+    }
+
+    /**
+     * <h3>updateSensors</h3>
+     * 
+     * Trips each ball sensor that has cargo in front of it
+     */
+    private void updateSensors() {
+        intakeSensor.setValue(isCargoAt(INTAKE_SENSOR));
+        loadedSensor.setValue(isCargoAt(LOADED_SENSOR));
+    }
+
+    /**
+     * <h3>isCargoAt</h3>
+     * 
+     * @param position a spot in the robot in meters
+     * @return true if any cargo is covering that spot
+     */
+    private boolean isCargoAt(double position) {
+        for (int i = 0; i < cargoCount; i++) {
+            if (Math.abs(cargoPositions[i] - position) < CARGO_DIAMETER / 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <h3>getCargoCount</h3>
+     * 
+     * @return how many cargo are in the robot
+     */
+    public int getCargoCount() {
+        return cargoCount;
+    }
+
+    /**
+     * <h3>getShotCount</h3>
+     * 
+     * @return how many cargo have been shot since the last reset
+     */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * <h3>getLastCycleTime</h3>
+     * 
+     * @return how long the last cargo shot took from being picked up to leaving
+     *         the shooter in seconds, or NaN if it was preloaded or nothing has
+     *         been shot
+     */
+    public double getLastCycleTime() {
+        return lastCycleTime;
+    }
+
+    /**
+     * <h3>getLastIndexTime</h3>
+     * 
+     * @return how long the last cargo shot took from being picked up to reaching
+     *         the loaded sensor in seconds, or NaN if it was preloaded or nothing
+     *         has been shot
+     */
+    public double getLastIndexTime() {
+        return lastIndexTime;
+    }
+
+    /**
+     * <h3>getLastShootTime</h3>
+     * 
+     * @return how long the last cargo shot took from reaching the loaded sensor
+     *         to leaving the shooter in seconds, or NaN if it was preloaded or
+     *         nothing has been shot
+     */
+    public double getLastShootTime() {
+        return lastShootTime;
+    }
+
+    /**
+     * <h3>getLongestCycleTime</h3>
+     * 
+     * @return the longest any cargo shot since the last reset took from being
+     *         picked up to leaving the shooter in seconds, or NaN if only
+     *         preloaded cargo has been shot
+     */
+    public double getLongestCycleTime() {
+        return longestCycleTime;
+    }
+}
@@ -0,0 +1,307 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.controller.LinearQuadraticRegulator;
+import edu.wpi.first.math.estimator.KalmanFilter;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.LinearSystemLoop;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+
+/**
+ * <h3>FlywheelController</h3>
+ * 
+ * Runs one shooter wheel in percent output or velocity control. Speeds are
+ * still passed in percent output so the shot table works in every mode, but
+ * in velocity control they are turned into a target velocity that is held no
+ * matter what the battery is doing. This also holds a simulated model of the
+ * wheel for sim.
+ */
+public class FlywheelController {
+    // ----- CONSTANTS ----- \\
+
+    // Converts the falcon's velocity (ticks per 100 ms) to RPM
+    private static final double TICKS_PER_100MS_TO_RPM = 600.0 / 2048.0;
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // The voltage we control to. This is lower than a full battery so we still
+    // have headroom when the battery sags
+    private static final double NOMINAL_VOLTAGE = 11.0;
+    // The speed a falcon spins at with nothing on it at the nominal voltage
+    private static final double FREE_SPEED_RPM = Units.radiansPerSecondToRotationsPerMinute(
+            DCMotor.getFalcon500(1).freeSpeedRadPerSec) * NOMINAL_VOLTAGE / 12.0;
+
+    // A wheel in percent output is at speed once its velocity changes by less
+    // than this (in RPM) between loops, since that means it stopped accelerating
+    private static final double SETTLED_VELOCITY_CHANGE_RPM = 30.0;
+    // A wheel in velocity control is at speed within this many RPM of its target
+    private static final double VELOCITY_TOLERANCE_RPM = 75.0;
+
+    // Gains for the talon's onboard velocity PID. The feed forward is the output
+    // (out of 1023) for a tick per 100 ms at the nominal voltage
+    private static final double TALON_KF = 1023.0 / (FREE_SPEED_RPM / TICKS_PER_100MS_TO_RPM);
+    private static final double TALON_KP = 0.1;
+
+    // Estimated moment of inertia of the wheel and shaft in kg m^2
+    private static final double MOMENT_OF_INERTIA = 0.0015;
+    // How much we trust the model (rad/s) vs the encoder (rad/s) in the Kalman
+    // filter
+    private static final double MODEL_STANDARD_DEVIATION = 3.0;
+    private static final double ENCODER_STANDARD_DEVIATION = 0.01;
+    // How much velocity error (rad/s) and voltage (volts) the LQR tolerates.
+    // Lowering the velocity error makes it recover harder after a ball
+    private static final double LQR_VELOCITY_TOLERANCE = 8.0;
+    private static final double LQR_VOLTAGE_TOLERANCE = 12.0;
+
+    // ----- VARIABLES ----- \\
+
+    private final WPI_TalonFX motor;
+    private final FlywheelControlMode controlMode;
+
+    // Only created for state space control
+    private final LinearSystemLoop<N1, N1, N1> loop;
+
+    // The model of the wheel for sim
+    private final FlywheelSim flywheelSim;
+    private final TalonFXSimCollection simCollection;
+    private final TalonFXSimCollection[] followerSimCollections;
+
+    // The velocity we are holding in RPM, or 0 if stopped or in percent output
+    private double targetVelocity = 0;
+    // The velocity of the wheel in RPM and how much it changed since last loop
+    private double velocity = 0;
+    private double velocityChange = 0;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>FlywheelController</h3>
+     * 
+     * Sets up the motor and its followers for the passed control mode. The
+     * motors should already be reset to factory defaults.
+     * 
+     * @param motor       the motor driving the wheel
+     * @param controlMode how to control the wheel
+     * @param followers   any motors on the same wheel that follow this motor's
+     *                    output
+     */
+    public FlywheelController(WPI_TalonFX motor, FlywheelControlMode controlMode, WPI_TalonFX... followers) {
+        this.motor = motor;
+        this.controlMode = controlMode;
+
+        DCMotor gearbox = DCMotor.getFalcon500(1 + followers.length);
+        LinearSystem<N1, N1, N1> plant = LinearSystemId.createFlywheelSystem(gearbox, MOMENT_OF_INERTIA, 1.0);
+
+        if (controlMode == FlywheelControlMode.TALON_VELOCITY) {
+            // Voltage compensation keeps kF right when the battery sags
+            motor.configVoltageCompSaturation(NOMINAL_VOLTAGE);
+            motor.enableVoltageCompensation(true);
+            motor.config_kF(0, TALON_KF);
+            motor.config_kP(0, TALON_KP);
+            // Followers copy the master's percent output, so they have to turn it into
+            // the same voltage or they fight the master whenever the battery isn't at 11 V
+            for (WPI_TalonFX follower : followers) {
+                follower.configVoltageCompSaturation(NOMINAL_VOLTAGE);
+                follower.enableVoltageCompensation(true);
+            }
+        }
+
+        if (controlMode == FlywheelControlMode.STATE_SPACE) {
+            KalmanFilter<N1, N1, N1> observer = new KalmanFilter<>(Nat.N1(), Nat.N1(), plant,
+                    VecBuilder.fill(MODEL_STANDARD_DEVIATION), VecBuilder.fill(ENCODER_STANDARD_DEVIATION),
+                    LOOP_PERIOD);
+            LinearQuadraticRegulator<N1, N1, N1> controller = new LinearQuadraticRegulator<>(plant,
+                    VecBuilder.fill(LQR_VELOCITY_TOLERANCE), VecBuilder.fill(LQR_VOLTAGE_TOLERANCE), LOOP_PERIOD);
+            // The loop adds a plant inversion feed forward on top of the LQR
+            loop = new LinearSystemLoop<>(plant, controller, observer, NOMINAL_VOLTAGE, LOOP_PERIOD);
+        } else {
+            loop = null;
+        }
+
+        flywheelSim = new FlywheelSim(plant, gearbox, 1.0);
+        simCollection = motor.getSimCollection();
+        followerSimCollections = new TalonFXSimCollection[followers.length];
+        for (int i = 0; i < followers.length; i++) {
+            followerSimCollections[i] = followers[i].getSimCollection();
+        }
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>setSpeed</h3>
+     * 
+     * Spins the wheel. In velocity control, the speed is held as the velocity
+     * that percent output would reach at the nominal voltage.
+     * 
+     * @param speed the speed of the wheel in percent output
+     */
+    public void setSpeed(double speed) {
+        // Sets speed to 0 if speed argument is less than 0
+        speed = Math.max(0.0, speed);
+        if (speed == 0.0) {
+            stop();
+            return;
+        }
+
+        switch (controlMode) {
+            case TALON_VELOCITY:
+                targetVelocity = Math.min(speed, 1.0) * FREE_SPEED_RPM;
+                motor.set(ControlMode.Velocity, targetVelocity / TICKS_PER_100MS_TO_RPM);
+                break;
+
+            case STATE_SPACE:
+                // Start the estimate from where the wheel actually is if it was coasting
+                if (targetVelocity == 0) {
+                    loop.reset(VecBuilder.fill(Units.rotationsPerMinuteToRadiansPerSecond(velocity)));
+                }
+                targetVelocity = Math.min(speed, 1.0) * FREE_SPEED_RPM;
+                loop.setNextR(VecBuilder.fill(Units.rotationsPerMinuteToRadiansPerSecond(targetVelocity)));
+                break;
+
+            default:
+                motor.set(ControlMode.PercentOutput, speed);
+                break;
+        }
+    }
+
+    /**
+     * <h3>stop</h3>
+     * 
+     * Lets the wheel coast to a stop
+     */
+    public void stop() {
+        targetVelocity = 0;
+        motor.stopMotor();
+    }
+
+    /**
+     * <h3>update</h3>
+     * 
+     * Samples the velocity of the wheel and, in state space control, works out
+     * the voltage for this loop. This needs to be called once every loop.
+     */
+    public void update() {
+        double newVelocity = motor.getSelectedSensorVelocity() * TICKS_PER_100MS_TO_RPM;
+        velocityChange = newVelocity - velocity;
+        velocity = newVelocity;
+
+        if (controlMode == FlywheelControlMode.STATE_SPACE && targetVelocity > 0) {
+            loop.correct(VecBuilder.fill(Units.rotationsPerMinuteToRadiansPerSecond(velocity)));
+            loop.predict(LOOP_PERIOD);
+            // setVoltage scales by the battery voltage, so the wheel sees what the loop
+            // asked for even when the battery sags
+            motor.setVoltage(loop.getU(0));
+        }
+    }
+
+    /**
+     * <h3>simulate</h3>
+     * 
+     * Runs the simulated wheel with the voltage the talon is putting out and
+     * feeds its velocity back to the talon's encoder
+     */
+    public void simulate() {
+        simCollection.setBusVoltage(RobotController.getBatteryVoltage());
+        for (TalonFXSimCollection followerSimCollection : followerSimCollections) {
+            followerSimCollection.setBusVoltage(RobotController.getBatteryVoltage());
+        }
+        flywheelSim.setInputVoltage(simCollection.getMotorOutputLeadVoltage());
+        flywheelSim.update(LOOP_PERIOD);
+        simCollection.setIntegratedSensorVelocity(
+                (int) (flywheelSim.getAngularVelocityRPM() / TICKS_PER_100MS_TO_RPM));
+    }
+
+    /**
+     * <h3>simulateShot</h3>
+     * 
+     * Slows the simulated wheel down like a ball going through it does
+     * 
+     * @param speedLoss the fraction of its speed the wheel loses
+     */
+    public void simulateShot(double speedLoss) {
+        flywheelSim.setState(VecBuilder.fill(flywheelSim.getAngularVelocityRadPerSec() * (1.0 - speedLoss)));
+        simCollection.setIntegratedSensorVelocity(
+                (int) (flywheelSim.getAngularVelocityRPM() / TICKS_PER_100MS_TO_RPM));
+    }
+
+    /**
+     * <h3>isAtSpeed</h3>
+     * 
+     * Checks if the wheel is ready to shoot. In velocity control this uses the
+     * velocity error, and in percent output it checks if the wheel has stopped
+     * accelerating.
+     * 
+     * @return true if the wheel is at speed
+     */
+    public boolean isAtSpeed() {
+        if (controlMode == FlywheelControlMode.PERCENT_OUTPUT) {
+            return velocity > 0 && Math.abs(velocityChange) < SETTLED_VELOCITY_CHANGE_RPM;
+        }
+        return targetVelocity > 0 && Math.abs(getVelocityError()) < VELOCITY_TOLERANCE_RPM;
+    }
+
+    /**
+     * <h3>getVelocityError</h3>
+     * 
+     * @return how far the wheel is below its target velocity in RPM, or 0 in
+     *         percent output
+     */
+    public double getVelocityError() {
+        switch (controlMode) {
+            case TALON_VELOCITY:
+                // The talon already works this out for its PID
+                return motor.getClosedLoopError() * TICKS_PER_100MS_TO_RPM;
+            case STATE_SPACE:
+                return targetVelocity - velocity;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * <h3>getVelocity</h3>
+     * 
+     * @return the velocity of the wheel from the last update in RPM
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * <h3>getTargetVelocity</h3>
+     * 
+     * @return the velocity the wheel is being held at in RPM, or 0 if it is
+     *         stopped or in percent output
+     */
+    public double getTargetVelocity() {
+        return targetVelocity;
+    }
+
+    // ----- ENUM ----- \\
+
+    /**
+     * <h3>FlywheelControlMode</h3>
+     * 
+     * The ways a shooter wheel can be controlled
+     */
+    public static enum FlywheelControlMode {
+        // Open loop, the speed depends on the battery
+        PERCENT_OUTPUT,
+        // The talon's onboard velocity PID with a feed forward
+        TALON_VELOCITY,
+        // A Kalman filter and LQR running on the roborio
+        STATE_SPACE
+    }
+}
@@ -0,0 +1,128 @@
+package frc.robot.utilities;
+
+/**
+ * <h3>HeadingHistoryBuffer</h3>
+ * 
+ * Remembers where the robot was pointing over the last few loops. Vision
+ * results are tens of milliseconds old by the time we read them, so this lets
+ * us look up the heading the robot had when the frame was actually captured.
+ */
+public class HeadingHistoryBuffer {
+    /**
+     * The most samples the buffer can hold
+     */
+    private final int capacity;
+
+    /**
+     * The ring buffers that hold the timestamps and headings
+     */
+    private final double[] timestamps;
+    private final double[] headings;
+
+    /**
+     * The index that the next sample will be written to
+     */
+    private int head;
+
+    /**
+     * The number of samples currently held in the buffers
+     */
+    private int count;
+
+    /**
+     * <h3>HeadingHistoryBuffer</h3>
+     * 
+     * Initializes a new {@link frc.robot.utilities.HeadingHistoryBuffer
+     * HeadingHistoryBuffer} that holds the passed number of samples
+     * 
+     * @param size the number of samples to remember
+     */
+    public HeadingHistoryBuffer(int size) {
+        capacity = size;
+        timestamps = new double[size];
+        headings = new double[size];
+    }
+
+    /**
+     * <h3>addSample</h3>
+     * 
+     * Adds a heading to the buffer, overwriting the oldest sample once the buffer
+     * is full. Samples must be added in time order.
+     * 
+     * @param timestamp the time of the sample in seconds
+     * @param heading   the heading of the robot in degrees
+     */
+    public void addSample(double timestamp, double heading) {
+        timestamps[head] = timestamp;
+        headings[head] = heading;
+
+        head = (head + 1) % capacity;
+        if (count < capacity) {
+            count++;
+        }
+    }
+
+    /**
+     * <h3>clear</h3>
+     * 
+     * Removes all of the samples from the buffer
+     */
+    public void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    /**
+     * <h3>getHeadingAt</h3>
+     * 
+     * Gets the heading of the robot at the passed time, linearly interpolating
+     * between the two samples on either side of it. Times outside of the buffer
+     * get the oldest or newest heading.
+     * 
+     * @param timestamp the time to look up in seconds
+     * @return the heading in degrees, or NaN if the buffer is empty
+     */
+    public double getHeadingAt(double timestamp) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        // Clamp to the ends of the buffer
+        if (timestamp <= timestamps[index(0)]) {
+            return headings[index(0)];
+        }
+        if (timestamp >= timestamps[index(count - 1)]) {
+            return headings[index(count - 1)];
+        }
+
+        // Binary search for the first sample that is after the timestamp
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int before = index(low - 1);
+        int after = index(low);
+        double fraction = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        return headings[before] + (headings[after] - headings[before]) * fraction;
+    }
+
+    /**
+     * <h3>index</h3>
+     * 
+     * Converts an age-ordered position (0 is the oldest sample) to an index in
+     * the ring buffers
+     * 
+     * @param position the position of the sample from oldest to newest
+     * @return the index in the ring buffers
+     */
+    private int index(int position) {
+        return (head - count + position + capacity) % capacity;
+    }
+}
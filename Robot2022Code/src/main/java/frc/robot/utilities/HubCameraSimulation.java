@@ -0,0 +1,138 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.util.Random;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.subsystems.DriveIOSim;
+import frc.robot.subsystems.DriveSubsystem;
+
+/**
+ * <h3>HubCameraSimulation</h3>
+ * 
+ * Makes the hub frames our camera would see from where the simulated robot
+ * really is, and hands them to the drive like PhotonVisionUtility does on the
+ * robot. Frames are only made when the hub is in front of the camera, have a
+ * little noise on them, and show up a few loops after they were captured, so
+ * the drive has to line them up with its pose history the same way it does on
+ * the field.
+ * <p>
+ * The drive ignores the frames unless its vision correction has been turned
+ * on.
+ */
+public class HubCameraSimulation {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // How long a frame takes from being captured to reaching the robot code, in
+    // seconds. This is a few loops, so the drive has to look back in its pose
+    // history like it does with the real camera
+    private static final double LATENCY = 0.06;
+    // How far to each side of straight ahead the camera can see the hub, in
+    // degrees, and how far away it can still find it, in meters
+    private static final double HALF_FIELD_OF_VIEW = 30.0;
+    private static final double MAX_RANGE = 8.0;
+    // How much noise is put on each frame, in meters and degrees
+    private static final double RANGE_STANDARD_DEVIATION = 0.05;
+    private static final double YAW_STANDARD_DEVIATION = 0.3;
+    // The noise is the same every run, so simulations can be compared
+    private static final long SEED = 930;
+
+    // ----- VARIABLES ----- \\
+
+    private final DriveSubsystem drive;
+    private final DriveIOSim drivetrain;
+
+    // Where the center of the hub is on the field in meters
+    private final double hubX;
+    private final double hubY;
+
+    private final Random random = new Random(SEED);
+
+    // Frames that have been captured but haven't reached the robot code yet, in a
+    // ring with the oldest at head
+    private final double[] captureTimes = new double[(int) Math.ceil(LATENCY / LOOP_PERIOD) + 1];
+    private final double[] ranges = new double[captureTimes.length];
+    private final double[] yaws = new double[captureTimes.length];
+    private int head = 0;
+    private int pendingCount = 0;
+
+    // How many frames have been handed to the drive since the last reset
+    private int frameCount = 0;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>HubCameraSimulation</h3>
+     * 
+     * @param drive      the drive to hand the frames to
+     * @param drivetrain the simulated drivetrain, to know where the robot really
+     *                   is
+     */
+    public HubCameraSimulation(DriveSubsystem drive, DriveIOSim drivetrain) {
+        this.drive = drive;
+        this.drivetrain = drivetrain;
+        CurrentToHubDistanceUtility hubDistanceUtility = new CurrentToHubDistanceUtility();
+        hubX = hubDistanceUtility.hubPosition.x;
+        hubY = hubDistanceUtility.hubPosition.y;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>reset</h3>
+     * 
+     * Throws away any frames that haven't arrived yet and starts counting
+     * frames again
+     */
+    public void reset() {
+        head = 0;
+        pendingCount = 0;
+        frameCount = 0;
+    }
+
+    /**
+     * <h3>update</h3>
+     * 
+     * Hands the drive any frames that have arrived, then captures a new one.
+     * This needs to be called every loop after the drivetrain simulation.
+     */
+    public void update() {
+        double now = Timer.getFPGATimestamp();
+        while (pendingCount > 0 && captureTimes[head] + LATENCY <= now) {
+            drive.addHubMeasurement(captureTimes[head], ranges[head], yaws[head]);
+            head = (head + 1) % captureTimes.length;
+            pendingCount--;
+            frameCount++;
+        }
+
+        // The drivetrain simulation has just moved the robot forward a loop, and
+        // the drive reads the encoders at that spot next loop, so that is when
+        // this frame is captured as far as the drive is concerned
+        Pose2d pose = drivetrain.getTruePose();
+        double distance = Math.hypot(hubX - pose.getX(), hubY - pose.getY());
+        double angleToHub = Math.toDegrees(Math.atan2(hubY - pose.getY(), hubX - pose.getX()));
+        double yaw = Math.IEEEremainder(pose.getRotation().getDegrees() - angleToHub, 360);
+        if (Math.abs(yaw) > HALF_FIELD_OF_VIEW || distance > MAX_RANGE || pendingCount == captureTimes.length) {
+            return;
+        }
+        int tail = (head + pendingCount) % captureTimes.length;
+        captureTimes[tail] = now + LOOP_PERIOD;
+        ranges[tail] = distance - VisionPoseEstimator.CAMERA_RANGE_TO_HUB_CENTER_OFFSET_METERS
+                + random.nextGaussian() * RANGE_STANDARD_DEVIATION;
+        yaws[tail] = yaw + random.nextGaussian() * YAW_STANDARD_DEVIATION;
+        pendingCount++;
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return how many frames have been handed to the drive since the last reset
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,318 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+
+/**
+ * <h3>LoopProfiler</h3>
+ * 
+ * Times the parts of the robot loop so we can tell what made it run over 20
+ * ms. Each part is a section with a histogram of how long it took, and every
+ * few seconds the sections with the worst 99th percentile are put on
+ * shuffleboard with their median and max.
+ * <p>
+ * Sections are timed with {@link #start(int)} and {@link #stop(int)}. Every
+ * command the scheduler runs gets a section by name automatically, once the
+ * profiler has been attached to the scheduler. Timing a section is two calls to
+ * {@code System.nanoTime()} and an array write, so the profiler costs a few
+ * microseconds a loop. This is only meant to be used from the main robot
+ * thread.
+ */
+public class LoopProfiler {
+    // ----- CONSTANTS ----- \\
+
+    // How many loops go into each report (250 loops is five seconds)
+    private static final int REPORT_LOOPS = 250;
+    // How many of the slowest sections are reported
+    private static final int REPORTED_SECTIONS = 8;
+    // The most sections we can time. Commands get one section per name, so this
+    // doesn't grow with every auto that is made
+    private static final int MAX_SECTIONS = 64;
+
+    // Each histogram bucket is this many microseconds wide. Anything longer than
+    // the last bucket goes in it
+    private static final int BUCKET_WIDTH_US = 50;
+    private static final int BUCKET_COUNT = 400;
+
+    // ----- VARIABLES ----- \\
+
+    // What each section is called
+    private final String[] names = new String[MAX_SECTIONS];
+    // When each section was last started in nanoseconds
+    private final long[] startTimes = new long[MAX_SECTIONS];
+    // How many times each section took each bucket's time since the last report
+    private final int[][] histograms = new int[MAX_SECTIONS][];
+    // How many times each section ran and the longest it took, in nanoseconds,
+    // since the last report
+    private final int[] counts = new int[MAX_SECTIONS];
+    private final long[] maxTimes = new long[MAX_SECTIONS];
+    private int sectionCount = 0;
+
+    // The section for each command name
+    private final Map<String, Integer> commandSections = new HashMap<>();
+    // When the scheduler started running commands, or the last command finished
+    // executing, in nanoseconds
+    private long lastCommandTime;
+    // The whole scheduler run, and the parts of it before the commands run
+    private final int schedulerSection;
+    private final int subsystemsSection;
+    private final int buttonsSection;
+
+    private int loopsSinceReport = 0;
+    // The last report, slowest first
+    private String[] report = new String[0];
+    // Reused to sort the sections for each report
+    private final Integer[] reportOrder = new Integer[MAX_SECTIONS];
+    private final long[] reportP99 = new long[MAX_SECTIONS];
+
+    // ----- STATICS ----- \\
+
+    private static LoopProfiler instance;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    private LoopProfiler() {
+        schedulerSection = addSection("Scheduler");
+        subsystemsSection = addSection("Subsystem periodics");
+        buttonsSection = addSection("Buttons");
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * LoopProfiler is a singleton, so getInstance returns the instance of the
+     * class that the program will use
+     * 
+     * @return the instance
+     */
+    public static LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    /**
+     * <h3>addSection</h3>
+     * 
+     * Adds a part of the loop to time
+     * 
+     * @param name what to call the section in reports
+     * @return the section to pass to {@link #start(int)} and {@link #stop(int)},
+     *         or -1 if there are too many sections, which is never timed
+     */
+    public int addSection(String name) {
+        if (sectionCount >= MAX_SECTIONS) {
+            System.out.println("****** TOO MANY LOOP PROFILER SECTIONS, NOT TIMING " + name + " ******");
+            return -1;
+        }
+        names[sectionCount] = name;
+        histograms[sectionCount] = new int[BUCKET_COUNT];
+        return sectionCount++;
+    }
+
+    /**
+     * <h3>attachBeforeButtons</h3>
+     * 
+     * Hooks into the scheduler to mark the end of the subsystem periodics. This
+     * has to be called before any buttons are bound, since buttons are polled in
+     * the order they were added, right after the subsystems. A button bound
+     * before this is counted as part of the subsystem periodics.
+     * 
+     * @param scheduler the scheduler to time
+     */
+    public void attachBeforeButtons(CommandScheduler scheduler) {
+        scheduler.addButton(() -> {
+            long now = System.nanoTime();
+            record(subsystemsSection, now - startTimes[schedulerSection]);
+            startTimes[buttonsSection] = now;
+        });
+    }
+
+    /**
+     * <h3>attachAfterButtons</h3>
+     * 
+     * Hooks into the scheduler to mark the end of the buttons and time every
+     * command's execute. This has to be called after every button is bound. A
+     * button bound after this is counted as part of the first command that
+     * executes.
+     * 
+     * @param scheduler the scheduler to time
+     */
+    public void attachAfterButtons(CommandScheduler scheduler) {
+        scheduler.addButton(() -> {
+            lastCommandTime = System.nanoTime();
+            record(buttonsSection, lastCommandTime - startTimes[buttonsSection]);
+        });
+        // This runs right after each command's execute, so the time since the last
+        // one is that command's execute. It also includes the isFinished and end
+        // of the command before it, which are usually tiny
+        scheduler.onCommandExecute(this::commandExecuted);
+    }
+
+    /**
+     * <h3>startScheduler</h3>
+     * 
+     * Marks the start of the scheduler's run. This needs to be called right
+     * before the scheduler runs.
+     */
+    public void startScheduler() {
+        start(schedulerSection);
+    }
+
+    /**
+     * <h3>stopScheduler</h3>
+     * 
+     * Marks the end of the scheduler's run. This needs to be called right after
+     * the scheduler runs.
+     */
+    public void stopScheduler() {
+        stop(schedulerSection);
+    }
+
+    /**
+     * <h3>start</h3>
+     * 
+     * Starts timing a section
+     * 
+     * @param section the section from {@link #addSection(String)}
+     */
+    public void start(int section) {
+        if (section >= 0) {
+            startTimes[section] = System.nanoTime();
+        }
+    }
+
+    /**
+     * <h3>stop</h3>
+     * 
+     * Stops timing a section and records how long it took since it was started
+     * 
+     * @param section the section from {@link #addSection(String)}
+     */
+    public void stop(int section) {
+        if (section >= 0) {
+            record(section, System.nanoTime() - startTimes[section]);
+        }
+    }
+
+    /**
+     * <h3>endLoop</h3>
+     * 
+     * Reports the slowest sections every few seconds and starts over. This needs
+     * to be called once at the end of every loop.
+     */
+    public void endLoop() {
+        if (++loopsSinceReport < REPORT_LOOPS) {
+            return;
+        }
+        loopsSinceReport = 0;
+
+        int reportedCount = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            if (counts[i] > 0) {
+                reportP99[i] = getPercentile(i, 0.99);
+                reportOrder[reportedCount++] = i;
+            }
+        }
+        Arrays.sort(reportOrder, 0, reportedCount, (a, b) -> Long.compare(reportP99[b], reportP99[a]));
+
+        String[] newReport = new String[Math.min(reportedCount, REPORTED_SECTIONS)];
+        for (int i = 0; i < newReport.length; i++) {
+            int section = reportOrder[i];
+            newReport[i] = String.format(Locale.US, "%-28s p50 %6.2f ms  p99 %6.2f ms  max %6.2f ms",
+                    names[section], getPercentile(section, 0.5) / 1e6, reportP99[section] / 1e6,
+                    maxTimes[section] / 1e6);
+        }
+        report = newReport;
+        // This goes on the driver tab since the testing tab is only sent while
+        // debugging, and overruns matter most in a match
+        ShuffleboardUtility.getInstance().putStringArray(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.LOOP_PROFILE, report);
+
+        for (int i = 0; i < sectionCount; i++) {
+            Arrays.fill(histograms[i], 0);
+            counts[i] = 0;
+            maxTimes[i] = 0;
+        }
+    }
+
+    /**
+     * <h3>getReport</h3>
+     * 
+     * @return the slowest sections from the last report, slowest first
+     */
+    public String[] getReport() {
+        return report;
+    }
+
+    /**
+     * <h3>commandExecuted</h3>
+     * 
+     * Records how long a command took since the last command executed
+     * 
+     * @param command the command that just executed
+     */
+    private void commandExecuted(Command command) {
+        long now = System.nanoTime();
+        Integer section = commandSections.get(command.getName());
+        if (section == null) {
+            section = addSection(command.getName());
+            commandSections.put(command.getName(), section);
+        }
+        if (section >= 0) {
+            record(section, now - lastCommandTime);
+        }
+        lastCommandTime = now;
+    }
+
+    /**
+     * <h3>record</h3>
+     * 
+     * Adds a time to a section's histogram
+     * 
+     * @param section the section that ran
+     * @param nanos   how long it took in nanoseconds
+     */
+    private void record(int section, long nanos) {
+        int bucket = (int) Math.min(nanos / (BUCKET_WIDTH_US * 1000L), BUCKET_COUNT - 1);
+        histograms[section][bucket]++;
+        counts[section]++;
+        if (nanos > maxTimes[section]) {
+            maxTimes[section] = nanos;
+        }
+    }
+
+    /**
+     * <h3>getPercentile</h3>
+     * 
+     * Works out a percentile of a section's times from its histogram. This is
+     * the top of the bucket the percentile falls in, so it is never more than a
+     * bucket too low, and never more than the longest time.
+     * 
+     * @param section    the section to look at
+     * @param percentile the percentile from 0 to 1
+     * @return the time in nanoseconds
+     */
+    private long getPercentile(int section, double percentile) {
+        int target = (int) Math.ceil(counts[section] * percentile);
+        int total = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            total += histograms[section][bucket];
+            if (total >= target) {
+                return Math.min((bucket + 1) * BUCKET_WIDTH_US * 1000L, maxTimes[section]);
+            }
+        }
+        return maxTimes[section];
+    }
+}
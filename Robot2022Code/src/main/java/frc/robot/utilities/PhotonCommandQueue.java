@@ -0,0 +1,439 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <h3>PhotonCommandQueue</h3>
+ * 
+ * Sends settings changes to photon over the websocket one message at a time.
+ * The websocket only allows one send in flight, so everything goes through
+ * this queue instead of calling sendBinary directly. Commands that are
+ * submitted with the same key replace each other while they are still waiting,
+ * so toggling a setting quickly only sends the last value.
+ */
+public class PhotonCommandQueue {
+    // ----- CONSTANTS ----- \\
+
+    // The size of the pooled buffers. Photon commands are tiny msgpack maps, so
+    // this is plenty. Anything bigger moves into its own buffer as it is written
+    private static final int BUFFER_SIZE = 256;
+    // The most buffers kept around for reuse
+    private static final int POOL_SIZE = 8;
+    // The most commands that can be waiting to send. Past this, new commands are
+    // refused so a dead websocket can't build up an endless backlog
+    private static final int MAX_PENDING_COMMANDS = 32;
+
+    // ----- VARIABLES ----- \\
+
+    private final ObjectMapper objectMapper;
+    private final Supplier<WebSocket> webSocketSupplier;
+
+    // Commands waiting to be sent, oldest first
+    private final ArrayDeque<PendingCommand> pendingCommands = new ArrayDeque<>();
+    // The waiting commands that have a key, so new ones can replace them
+    private final Map<String, PendingCommand> pendingCommandsByKey = new HashMap<>();
+    // Buffers that have finished sending and can be reused
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    // Writes converted messages straight into the pooled buffers
+    private final BufferOutputStream bufferStream = new BufferOutputStream();
+    // The command that is currently being sent, or null if the websocket is free
+    private PendingCommand sendingCommand;
+
+    // ----- STATISTICS ----- \\
+
+    private long sentCount = 0;
+    private long coalescedCount = 0;
+    private long droppedCount = 0;
+    private double lastLatency = 0;
+    private double maxLatency = 0;
+    private double totalLatency = 0;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>PhotonCommandQueue</h3>
+     * 
+     * Creates a queue that sends to whatever websocket the supplier returns. The
+     * supplier should return null when photon isn't connected.
+     * 
+     * @param objectMapper      the mapper used to convert commands to msgpack
+     * @param webSocketSupplier gets the websocket to send on
+     */
+    public PhotonCommandQueue(ObjectMapper objectMapper, Supplier<WebSocket> webSocketSupplier) {
+        this.objectMapper = objectMapper;
+        this.webSocketSupplier = webSocketSupplier;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>submit</h3>
+     * 
+     * Queues messages to send to photon. All of the messages are sent in order
+     * as one command. If a command with the same key is still waiting, its
+     * messages are replaced with these ones and it keeps its place in the queue.
+     * 
+     * @param key      the setting these messages change, or null to never
+     *                 replace them
+     * @param messages the messages to convert to msgpack and send
+     * @return a future that completes once the messages have been sent, or fails
+     *         if they couldn't be
+     * @throws IOException if a message can't be converted
+     */
+    public CompletableFuture<Void> submit(String key, Object... messages) throws IOException {
+        PendingCommand command;
+        synchronized (this) {
+            command = (key == null) ? null : pendingCommandsByKey.get(key);
+            if (command != null) {
+                // Only the last value matters, so overwrite what hasn't gone out yet. The
+                // wait is counted from now, since that is when this value was asked for
+                ByteBuffer[] buffers = convert(messages);
+                releaseBuffers(command.buffers);
+                command.buffers = buffers;
+                command.submitTime = System.nanoTime();
+                coalescedCount++;
+                return command.future;
+            }
+
+            if (pendingCommands.size() >= MAX_PENDING_COMMANDS) {
+                droppedCount++;
+                return CompletableFuture.failedFuture(new IllegalStateException("Photon command queue is full"));
+            }
+
+            command = new PendingCommand(key, convert(messages));
+            pendingCommands.add(command);
+            if (key != null) {
+                pendingCommandsByKey.put(key, command);
+            }
+        }
+
+        sendNext();
+        return command.future;
+    }
+
+    /**
+     * <h3>clear</h3>
+     * 
+     * Fails every command that is still waiting. This should be called when
+     * photon disconnects, since it will need its settings sent again anyway.
+     */
+    public void clear() {
+        failPending(new IllegalStateException("Photon disconnected"));
+    }
+
+    /**
+     * <h3>sendNext</h3>
+     * 
+     * Starts sending the oldest waiting command if nothing else is being sent.
+     * The next command isn't started until the websocket finishes the last one.
+     */
+    private void sendNext() {
+        PendingCommand command;
+        WebSocket webSocket;
+        synchronized (this) {
+            if (sendingCommand != null || pendingCommands.isEmpty()) {
+                return;
+            }
+
+            webSocket = webSocketSupplier.get();
+            if (webSocket == null) {
+                command = null;
+            } else {
+                command = pendingCommands.poll();
+                if (command.key != null) {
+                    pendingCommandsByKey.remove(command.key);
+                }
+                sendingCommand = command;
+            }
+        }
+
+        if (command == null) {
+            failPending(new IllegalStateException("Websocket not initialized"));
+            return;
+        }
+        sendBuffer(webSocket, command);
+    }
+
+    /**
+     * <h3>sendBuffer</h3>
+     * 
+     * Sends the next buffer of a command and chains the one after it onto the
+     * websocket finishing
+     * 
+     * @param webSocket the websocket to send on
+     * @param command   the command being sent
+     */
+    private void sendBuffer(WebSocket webSocket, PendingCommand command) {
+        CompletableFuture<WebSocket> send;
+        try {
+            send = webSocket.sendBinary(command.buffers[command.sentBuffers], true);
+        } catch (RuntimeException e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+
+        send.whenComplete((sentWebSocket, error) -> {
+            if (error == null && ++command.sentBuffers < command.buffers.length) {
+                sendBuffer(webSocket, command);
+                return;
+            }
+            finishCommand(command, error);
+        });
+    }
+
+    /**
+     * <h3>finishCommand</h3>
+     * 
+     * Records how long a command took, hands its buffers back to the pool, and
+     * starts the next one
+     * 
+     * @param command the command that finished
+     * @param error   what went wrong, or null if it was sent
+     */
+    private void finishCommand(PendingCommand command, Throwable error) {
+        synchronized (this) {
+            if (error == null) {
+                double latency = (System.nanoTime() - command.submitTime) / 1e6;
+                sentCount++;
+                lastLatency = latency;
+                maxLatency = Math.max(maxLatency, latency);
+                totalLatency += latency;
+            }
+            releaseBuffers(command.buffers);
+            sendingCommand = null;
+        }
+
+        // Complete outside of the lock in case whoever is waiting submits more
+        if (error == null) {
+            command.future.complete(null);
+        } else {
+            command.future.completeExceptionally(error);
+        }
+        sendNext();
+    }
+
+    /**
+     * <h3>failPending</h3>
+     * 
+     * Throws away every waiting command and fails its future
+     * 
+     * @param error the reason the commands failed
+     */
+    private void failPending(Throwable error) {
+        List<PendingCommand> failedCommands;
+        synchronized (this) {
+            failedCommands = new ArrayList<>(pendingCommands);
+            pendingCommands.clear();
+            pendingCommandsByKey.clear();
+            for (PendingCommand command : failedCommands) {
+                releaseBuffers(command.buffers);
+            }
+            droppedCount += failedCommands.size();
+        }
+
+        for (PendingCommand command : failedCommands) {
+            command.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * <h3>convert</h3>
+     * 
+     * Converts messages to msgpack, writing each one straight into a buffer from
+     * the pool. Must be called while holding the lock.
+     * 
+     * @param messages the messages to convert
+     * @return buffers ready to send
+     * @throws IOException if a message can't be converted
+     */
+    private ByteBuffer[] convert(Object[] messages) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[messages.length];
+        try {
+            for (int i = 0; i < messages.length; i++) {
+                bufferStream.buffer = takeBuffer();
+                try {
+                    objectMapper.writeValue(bufferStream, messages[i]);
+                } finally {
+                    // The stream may have moved the message into a bigger buffer
+                    buffers[i] = bufferStream.buffer;
+                    bufferStream.buffer = null;
+                }
+                buffers[i].flip();
+            }
+        } catch (IOException e) {
+            // Don't lose the buffers we already took
+            releaseBuffers(buffers);
+            throw e;
+        }
+        return buffers;
+    }
+
+    /**
+     * <h3>takeBuffer</h3>
+     * 
+     * Takes an empty buffer from the pool, or makes one if the pool is empty.
+     * Must be called while holding the lock.
+     * 
+     * @return an empty buffer
+     */
+    private ByteBuffer takeBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * <h3>releaseBuffers</h3>
+     * 
+     * Hands buffers back to the pool. The websocket reads the buffers until the
+     * send finishes, so this must only be called once they are done. Must be
+     * called while holding the lock.
+     * 
+     * @param buffers the buffers to give back. Empty slots are skipped
+     */
+    private void releaseBuffers(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * <h3>releaseBuffer</h3>
+     * 
+     * Hands a buffer back to the pool if it is pool sized and the pool isn't
+     * full. Must be called while holding the lock.
+     * 
+     * @param buffer the buffer to give back, or null
+     */
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == BUFFER_SIZE && bufferPool.size() < POOL_SIZE) {
+            bufferPool.add(buffer);
+        }
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return the number of commands that have been sent
+     */
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return the number of commands that were replaced before they were sent
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return the number of commands that were refused or thrown away
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the time from submitting to finishing the last sent command in
+     *         milliseconds
+     */
+    public synchronized double getLastLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * @return the average time from submitting to finishing a command in
+     *         milliseconds
+     */
+    public synchronized double getAverageLatency() {
+        return (sentCount == 0) ? 0 : totalLatency / sentCount;
+    }
+
+    /**
+     * @return the longest time from submitting to finishing a command in
+     *         milliseconds
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatency;
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>PendingCommand</h3>
+     * 
+     * One or more messages that are sent together
+     */
+    private static class PendingCommand {
+        private final String key;
+        private long submitTime = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private ByteBuffer[] buffers;
+        private int sentBuffers = 0;
+
+        private PendingCommand(String key, ByteBuffer[] buffers) {
+            this.key = key;
+            this.buffers = buffers;
+        }
+    }
+
+    /**
+     * <h3>BufferOutputStream</h3>
+     * 
+     * Lets the object mapper write into a buffer. If a message doesn't fit, it is
+     * moved into a bigger buffer that isn't pooled and the pooled one is given
+     * back. Only used while holding the lock.
+     */
+    private class BufferOutputStream extends OutputStream {
+        private ByteBuffer buffer;
+
+        @Override
+        public void write(int b) {
+            makeRoom(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            makeRoom(length);
+            buffer.put(bytes, offset, length);
+        }
+
+        /**
+         * <h3>makeRoom</h3>
+         * 
+         * Moves what has been written so far into a bigger buffer if the next
+         * write won't fit
+         * 
+         * @param length the number of bytes about to be written
+         */
+        private void makeRoom(int length) {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            ByteBuffer biggerBuffer = ByteBuffer
+                    .allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            biggerBuffer.put(buffer);
+            releaseBuffer(buffer);
+            buffer = biggerBuffer;
+        }
+    }
+}
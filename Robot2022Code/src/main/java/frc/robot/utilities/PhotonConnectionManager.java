@@ -0,0 +1,472 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.net.http.WebSocket.Listener;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h3>PhotonConnectionManager</h3>
+ * 
+ * Finds photon on the network and keeps a websocket open to it. Everything
+ * happens on a single background thread: the coprocessor is probed with
+ * non-blocking connects, failed attempts back off exponentially with jitter,
+ * and the websocket is reopened automatically if photon goes away (for example
+ * when the pi reboots mid-match). Anything that cares can register a
+ * {@link ConnectionListener} to be told when the connection state changes.
+ */
+public class PhotonConnectionManager {
+    // ----- CONSTANTS ----- \\
+
+    // How long to wait for a probe to connect before giving up on it
+    private static final long PROBE_TIMEOUT_MS = 1000;
+    // The shortest and longest we wait between failed attempts
+    private static final long MIN_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 5000;
+    // How long to give the websocket before we start sending it settings
+    private static final long WEBSOCKET_SETTLE_MS = 2000;
+    // How long the websocket can take to open
+    private static final long WEBSOCKET_CONNECT_TIMEOUT_MS = 5000;
+    // How often to ping photon while connected, and how long it can go without
+    // answering before we decide it is gone
+    private static final long HEALTH_CHECK_PERIOD_MS = 1000;
+    private static final long HEALTH_CHECK_TIMEOUT_MS = 3000;
+
+    // ----- VARIABLES ----- \\
+
+    // The address of photon's web server, used for the probe
+    private final InetSocketAddress address;
+    // The address of photon's websocket
+    private final URI websocketUri;
+    private final HttpClient httpClient;
+
+    // The thread that does all of the connecting. All of the state below is only
+    // changed on this thread
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "PhotonConnection");
+        // Don't keep the robot program alive just for this thread
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private volatile WebSocket webSocket;
+
+    private boolean isStarted = false;
+    private int failedAttempts = 0;
+    // When we started trying to connect (or reconnect) in nanoseconds
+    private long searchStartTime;
+    // When photon last answered a ping in nanoseconds
+    private volatile long lastPongTime;
+
+    // ----- METRICS ----- \\
+
+    private volatile double firstTimeToReady = -1;
+    private volatile double lastTimeToReady = -1;
+    private volatile int reconnectCount = 0;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>PhotonConnectionManager</h3>
+     * 
+     * Creates a connection manager for photon at the passed address. Nothing
+     * happens until {@link #start()} is called.
+     * 
+     * @param host          the address of photon
+     * @param port          the port photon's web server runs on
+     * @param websocketPath the path to photon's websocket
+     * @param httpClient    the client used to open the websocket
+     */
+    public PhotonConnectionManager(String host, int port, String websocketPath, HttpClient httpClient) {
+        address = new InetSocketAddress(host, port);
+        websocketUri = URI.create("ws://" + host + ":" + port + websocketPath);
+        this.httpClient = httpClient;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>start</h3>
+     * 
+     * Starts looking for photon in the background. Calling this more than once
+     * does nothing.
+     */
+    public void start() {
+        executor.execute(() -> {
+            if (!isStarted) {
+                isStarted = true;
+                searchStartTime = System.nanoTime();
+                probe();
+            }
+        });
+    }
+
+    /**
+     * <h3>stop</h3>
+     * 
+     * Stops looking for photon and drops the websocket. The manager can't be
+     * started again after this.
+     */
+    public void stop() {
+        executor.shutdownNow();
+        WebSocket openWebSocket = webSocket;
+        webSocket = null;
+        if (openWebSocket != null) {
+            openWebSocket.abort();
+        }
+    }
+
+    /**
+     * <h3>addListener</h3>
+     * 
+     * Adds a listener that is told whenever the connection state changes.
+     * Listeners are called on the connection thread, so they are free to block
+     * but that will hold up the connection.
+     * 
+     * @param listener the listener to add
+     */
+    public void addListener(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * <h3>getState</h3>
+     * 
+     * @return the current state of the connection
+     */
+    public ConnectionState getState() {
+        return state;
+    }
+
+    /**
+     * <h3>getWebSocket</h3>
+     * 
+     * @return the websocket to photon, or null if we aren't connected
+     */
+    public WebSocket getWebSocket() {
+        return (state == ConnectionState.CONNECTED) ? webSocket : null;
+    }
+
+    /**
+     * <h3>getFirstTimeToReady</h3>
+     * 
+     * @return the seconds it took to connect to photon for the first time, or -1
+     *         if we haven't connected yet
+     */
+    public double getFirstTimeToReady() {
+        return firstTimeToReady;
+    }
+
+    /**
+     * <h3>getLastTimeToReady</h3>
+     * 
+     * @return the seconds it took for the most recent connection (or
+     *         reconnection) to photon, or -1 if we haven't connected yet
+     */
+    public double getLastTimeToReady() {
+        return lastTimeToReady;
+    }
+
+    /**
+     * <h3>getReconnectCount</h3>
+     * 
+     * @return how many times we have lost the connection to photon
+     */
+    public int getReconnectCount() {
+        return reconnectCount;
+    }
+
+    /**
+     * <h3>probe</h3>
+     * 
+     * Checks if photon is reachable and opens the websocket if it is. If not,
+     * another probe is scheduled after a backoff.
+     */
+    private void probe() {
+        setState(ConnectionState.PROBING);
+        if (isReachable()) {
+            openWebSocket();
+        } else {
+            scheduleRetry();
+        }
+    }
+
+    /**
+     * <h3>isReachable</h3>
+     * 
+     * Attempts a non-blocking connect to photon's web server, waiting at most
+     * the probe timeout for it to finish
+     * 
+     * @return whether photon answered in time
+     */
+    private boolean isReachable() {
+        try (Selector selector = Selector.open(); SocketChannel channel = SocketChannel.open()) {
+            channel.configureBlocking(false);
+            // Connects on the local network can finish right away
+            if (channel.connect(address)) {
+                return true;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            // Nothing was selected, so the connect timed out
+            if (selector.select(PROBE_TIMEOUT_MS) == 0) {
+                return false;
+            }
+            return channel.finishConnect();
+        } catch (IOException e) {
+            // Failed somewhere, usually because photon refused the connection
+            return false;
+        }
+    }
+
+    /**
+     * <h3>openWebSocket</h3>
+     * 
+     * Starts opening the websocket. Once it opens we give it a moment to settle
+     * and then tell everyone we are connected.
+     */
+    private void openWebSocket() {
+        setState(ConnectionState.CONNECTING);
+        httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofMillis(WEBSOCKET_CONNECT_TIMEOUT_MS))
+                .buildAsync(websocketUri, new WebsocketListener())
+                // The future completes on the http client's threads, so hop back onto ours
+                .whenCompleteAsync((newWebSocket, error) -> {
+                    if (error != null) {
+                        scheduleRetry();
+                        return;
+                    }
+                    webSocket = newWebSocket;
+                    executor.schedule(() -> markConnected(newWebSocket), WEBSOCKET_SETTLE_MS,
+                            TimeUnit.MILLISECONDS);
+                }, executor);
+    }
+
+    /**
+     * <h3>markConnected</h3>
+     * 
+     * Records how long it took to connect, tells the listeners, and starts
+     * checking that photon is still there
+     * 
+     * @param connectedWebSocket the websocket that was opened
+     */
+    private void markConnected(WebSocket connectedWebSocket) {
+        // The websocket closed while it was settling
+        if (connectedWebSocket != webSocket) {
+            return;
+        }
+
+        failedAttempts = 0;
+        lastPongTime = System.nanoTime();
+        lastTimeToReady = (lastPongTime - searchStartTime) / 1e9;
+        if (firstTimeToReady < 0) {
+            firstTimeToReady = lastTimeToReady;
+        }
+        System.out.println("Connected to photon in " + lastTimeToReady + " s (reconnects: " + reconnectCount + ")");
+
+        setState(ConnectionState.CONNECTED);
+        executor.schedule(() -> checkHealth(connectedWebSocket), HEALTH_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>checkHealth</h3>
+     * 
+     * Pings photon and drops the connection if it hasn't answered recently. A pi
+     * that loses power doesn't close its sockets, so without this we wouldn't
+     * notice it was gone until we tried to send something.
+     * 
+     * @param checkedWebSocket the websocket to check
+     */
+    private void checkHealth(WebSocket checkedWebSocket) {
+        // We have already moved on from this websocket
+        if (checkedWebSocket != webSocket || state != ConnectionState.CONNECTED) {
+            return;
+        }
+
+        if (System.nanoTime() - lastPongTime > TimeUnit.MILLISECONDS.toNanos(HEALTH_CHECK_TIMEOUT_MS)) {
+            System.out.println("****** PHOTON STOPPED RESPONDING ******");
+            handleDisconnect(checkedWebSocket);
+            return;
+        }
+
+        // A ping can fail if a send is still in progress, which is fine. The timeout
+        // above will catch it if photon is really gone
+        checkedWebSocket.sendPing(ByteBuffer.allocate(0));
+        executor.schedule(() -> checkHealth(checkedWebSocket), HEALTH_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>handleDisconnect</h3>
+     * 
+     * Throws away the websocket and starts looking for photon again
+     * 
+     * @param closedWebSocket the websocket that closed
+     */
+    private void handleDisconnect(WebSocket closedWebSocket) {
+        // Ignore anything from a websocket we already threw away
+        if (closedWebSocket != webSocket) {
+            return;
+        }
+
+        webSocket = null;
+        closedWebSocket.abort();
+        reconnectCount++;
+        searchStartTime = System.nanoTime();
+        System.out.println("****** LOST CONNECTION TO PHOTON, RECONNECTING ******");
+
+        setState(ConnectionState.DISCONNECTED);
+        executor.schedule(this::probe, MIN_BACKOFF_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>scheduleRetry</h3>
+     * 
+     * Schedules another probe. The wait doubles with every failure up to the
+     * maximum, and is randomized so we don't hit photon at the same moment it
+     * is busy every time.
+     */
+    private void scheduleRetry() {
+        setState(ConnectionState.DISCONNECTED);
+
+        long delay = getRetryDelay(failedAttempts);
+        failedAttempts++;
+
+        executor.schedule(this::probe, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>getBackoff</h3>
+     * 
+     * @param failedAttempts how many attempts in a row have failed
+     * @return the longest to wait before the next attempt in milliseconds
+     */
+    static long getBackoff(int failedAttempts) {
+        return Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(failedAttempts, 10));
+    }
+
+    /**
+     * <h3>getRetryDelay</h3>
+     * 
+     * @param failedAttempts how many attempts in a row have failed
+     * @return how long to wait before the next attempt in milliseconds,
+     *         somewhere between half and all of the backoff
+     */
+    static long getRetryDelay(int failedAttempts) {
+        long backoff = getBackoff(failedAttempts);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * <h3>setState</h3>
+     * 
+     * Changes the state and tells the listeners if it is different
+     * 
+     * @param newState the new state
+     */
+    private void setState(ConnectionState newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        for (ConnectionListener listener : listeners) {
+            try {
+                listener.onConnectionStateChanged(newState);
+            } catch (RuntimeException e) {
+                // Make sure one bad listener can't kill the connection thread
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>WebsocketListener</h3>
+     * 
+     * We don't want to do anything with the targeting data that photon sends
+     * back, but we do need to know when photon answers a ping or the websocket
+     * closes
+     */
+    private class WebsocketListener implements Listener {
+        @Override
+        public CompletionStage<?> onPong(WebSocket pongWebSocket, ByteBuffer message) {
+            lastPongTime = System.nanoTime();
+            return Listener.super.onPong(pongWebSocket, message);
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket closedWebSocket, int statusCode, String reason) {
+            runOnConnectionThread(() -> handleDisconnect(closedWebSocket));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket closedWebSocket, Throwable error) {
+            runOnConnectionThread(() -> handleDisconnect(closedWebSocket));
+        }
+
+        /**
+         * Hands work to the connection thread, unless the manager was stopped and
+         * there is nothing left to do
+         * 
+         * @param work what to run
+         */
+        private void runOnConnectionThread(Runnable work) {
+            try {
+                executor.execute(work);
+            } catch (RejectedExecutionException e) {
+                // The manager was stopped
+            }
+        }
+    }
+
+    /**
+     * <h3>ConnectionListener</h3>
+     * 
+     * Something that wants to know when the connection to photon changes
+     */
+    @FunctionalInterface
+    public static interface ConnectionListener {
+        /**
+         * Called on the connection thread whenever the state changes
+         * 
+         * @param newState the new connection state
+         */
+        public void onConnectionStateChanged(ConnectionState newState);
+    }
+
+    /**
+     * <h3>ConnectionState</h3>
+     * 
+     * The states the connection to photon can be in
+     */
+    public static enum ConnectionState {
+        // Waiting to try again
+        DISCONNECTED,
+        // Checking if photon is reachable
+        PROBING,
+        // Photon is reachable and the websocket is opening
+        CONNECTING,
+        // The websocket is open and ready for messages
+        CONNECTED
+    }
+}
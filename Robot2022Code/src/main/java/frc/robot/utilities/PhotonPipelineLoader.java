@@ -0,0 +1,281 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * <h3>PhotonPipelineLoader</h3>
+ * 
+ * Reads the pipelines out of photon's settings zip. The zip is hashed with
+ * SHA-256 as it is read, and the pipelines are cached in a file along with
+ * that hash. If the next zip has the same hash, the cached pipelines are used
+ * instead of unzipping and parsing it again.
+ */
+public class PhotonPipelineLoader {
+    // ----- CONSTANTS ----- \\
+
+    // This is the path inside of the config zip to where the camera's pipeline files
+    // are located
+    private static final String PIPELINE_JSON_RELATIVE_PATH = "cameras/mmal_service_16.1/pipelines/";
+
+    // ----- VARIABLES ----- \\
+
+    // Where the pipelines are cached
+    private final File cacheFile;
+    // Whether the last load used the cache
+    private boolean wasLastLoadCached = false;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>PhotonPipelineLoader</h3>
+     * 
+     * @param cacheFile where to cache the pipelines between boots
+     */
+    public PhotonPipelineLoader(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>load</h3>
+     * 
+     * Reads the pipelines from a settings zip, using the cache if the zip hasn't
+     * changed since it was written. The cache is rewritten whenever the zip is
+     * parsed.
+     * 
+     * @param zipStream the settings zip. This is read to the end but not closed
+     * @return the settings of every pipeline
+     * @throws IOException if the zip can't be read or parsed
+     */
+    public List<PipelineSettings> load(InputStream zipStream) throws IOException {
+        // We hash the zip with SHA-256 so we can tell if the settings have changed
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256, so this shouldn't
+            // happen
+            throw new IOException("SHA-256 is not available", e);
+        }
+
+        // The digest input stream hashes the bytes as we read them
+        byte[] zipBytes = new DigestInputStream(zipStream, digest).readAllBytes();
+        byte[] zipHash = digest.digest();
+
+        // Only parse the zip if the settings are different than last time
+        List<PipelineSettings> pipelines = readCache(zipHash);
+        wasLastLoadCached = pipelines != null;
+        if (pipelines == null) {
+            pipelines = parsePipelines(zipBytes);
+            writeCache(zipHash, pipelines);
+        }
+        return pipelines;
+    }
+
+    /**
+     * <h3>wasLastLoadCached</h3>
+     * 
+     * @return true if the last load used the cache instead of parsing the zip
+     */
+    public boolean wasLastLoadCached() {
+        return wasLastLoadCached;
+    }
+
+    /**
+     * <h3>parsePipelines</h3>
+     * 
+     * Reads the name, index and exposure of every pipeline straight out of the
+     * photon settings zip. Nothing is written to disk: the pipeline entries are
+     * picked out by path as the zip streams past and handed to a streaming json
+     * parser that only pulls out the fields we need.
+     * 
+     * @param zipBytes the settings zip downloaded from photon
+     * @return the settings of every pipeline
+     * @throws IOException if the zip can't be read or a pipeline can't be parsed
+     */
+    private static List<PipelineSettings> parsePipelines(byte[] zipBytes) throws IOException {
+        // This will hold the settings of every pipeline we find
+        List<PipelineSettings> pipelines = new ArrayList<>();
+
+        // The parser would normally close the stream when it is done, which would
+        // close the whole zip, so turn that off
+        JsonFactory jsonFactory = new JsonFactory();
+        jsonFactory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+        // A zip input stream is a file stream that can read zip files
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            // Each part of the file (both files and directories) is a zip entry
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                // Photon stores its pipelines in this directory *for now*, but this could
+                // change in the future. Everything else in the zip is skipped
+                if (zipEntry.isDirectory() || !zipEntry.getName().startsWith(PIPELINE_JSON_RELATIVE_PATH)) {
+                    continue;
+                }
+
+                // The zip input stream only returns the data for the current entry, so the
+                // parser can read from it directly
+                try (JsonParser parser = jsonFactory.createParser(zis)) {
+                    pipelines.add(parsePipeline(parser, zipEntry.getName()));
+                }
+            }
+        }
+
+        return pipelines;
+    }
+
+    /**
+     * <h3>parsePipeline</h3>
+     * 
+     * Pulls the pipeline name, index and exposure out of a pipeline json. Photon
+     * stores its pipeline settings in a list for some strange reason, so the
+     * settings are the object inside of the top level list.
+     * 
+     * @param parser    the parser positioned at the start of the pipeline json
+     * @param entryName the name of the zip entry, used for error messages
+     * @return the settings of the pipeline
+     * @throws IOException if the json is invalid or missing a setting
+     */
+    private static PipelineSettings parsePipeline(JsonParser parser, String entryName) throws IOException {
+        String pipelineName = null;
+        Integer pipelineIndex = null;
+        Double exposure = null;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != null
+                && (pipelineName == null || pipelineIndex == null || exposure == null)) {
+            // Only look at the fields of the settings object, which is an object in the
+            // top level list
+            JsonStreamContext parent = parser.getParsingContext().getParent();
+            if (token != JsonToken.FIELD_NAME || !parent.inArray() || !parent.getParent().inRoot()) {
+                continue;
+            }
+
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("pipelineNickname".equals(fieldName)) {
+                pipelineName = parser.getValueAsString();
+            } else if ("pipelineIndex".equals(fieldName)) {
+                pipelineIndex = parser.getValueAsInt();
+            } else if ("cameraExposure".equals(fieldName)) {
+                exposure = parser.getValueAsDouble();
+            } else {
+                // Skip over any lists or objects we don't care about
+                parser.skipChildren();
+            }
+        }
+
+        if (pipelineName == null || pipelineIndex == null || exposure == null) {
+            throw new IOException("Pipeline settings missing from " + entryName);
+        }
+        return new PipelineSettings(pipelineName, pipelineIndex, exposure);
+    }
+
+    /**
+     * <h3>readCache</h3>
+     * 
+     * Reads the pipelines from the cache file if it was written for a settings zip
+     * with the passed hash
+     * 
+     * @param zipHash the hash of the settings zip
+     * @return the cached pipelines, or null if the cache is missing or out of date
+     */
+    private List<PipelineSettings> readCache(byte[] zipHash) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try (DataInputStream cache = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            // The file starts with the hash of the zip it was made from
+            byte[] cachedHash = new byte[cache.readUnsignedByte()];
+            cache.readFully(cachedHash);
+            if (!MessageDigest.isEqual(cachedHash, zipHash)) {
+                return null;
+            }
+
+            // Followed by the number of pipelines and then each pipeline
+            int pipelineCount = cache.readInt();
+            if (pipelineCount < 0) {
+                throw new IOException("Negative pipeline count");
+            }
+            List<PipelineSettings> pipelines = new ArrayList<>();
+            for (int i = 0; i < pipelineCount; i++) {
+                pipelines.add(new PipelineSettings(cache.readUTF(), cache.readInt(), cache.readDouble()));
+            }
+            return pipelines;
+        } catch (IOException e) {
+            // A broken cache just means we have to parse the zip again
+            System.out.println("****** COULDN'T READ PHOTON PIPELINE CACHE ******");
+            return null;
+        }
+    }
+
+    /**
+     * <h3>writeCache</h3>
+     * 
+     * Writes the pipelines to the cache file along with the hash of the settings
+     * zip they came from
+     * 
+     * @param zipHash   the hash of the settings zip
+     * @param pipelines the pipelines to cache
+     */
+    private void writeCache(byte[] zipHash, List<PipelineSettings> pipelines) {
+        try (DataOutputStream cache = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            cache.writeByte(zipHash.length);
+            cache.write(zipHash);
+            cache.writeInt(pipelines.size());
+            for (PipelineSettings pipeline : pipelines) {
+                cache.writeUTF(pipeline.name);
+                cache.writeInt(pipeline.index);
+                cache.writeDouble(pipeline.exposure);
+            }
+        } catch (IOException e) {
+            // We can still run without the cache, it will just be slower next boot
+            System.out.println("****** COULDN'T WRITE PHOTON PIPELINE CACHE ******");
+        }
+    }
+
+    // ----- STRUCT(S) ----- \\
+
+    /**
+     * <h3>PipelineSettings</h3>
+     * 
+     * The settings we need from each of photon's pipelines
+     */
+    public static class PipelineSettings {
+        public final String name;
+        public final int index;
+        public final double exposure;
+
+        public PipelineSettings(String name, int index, double exposure) {
+            this.name = name;
+            this.index = index;
+            this.exposure = exposure;
+        }
+    }
+}
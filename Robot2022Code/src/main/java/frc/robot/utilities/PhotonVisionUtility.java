@@ -4,67 +4,84 @@ package frc.robot.utilities;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
-import java.net.Socket;
-import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
-import java.net.http.WebSocket.Listener;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.msgpack.jackson.dataformat.MessagePackFactory;
 import org.msgpack.jackson.dataformat.Tuple;
 import org.photonvision.PhotonCamera;
+import org.photonvision.PhotonUtils;
 import org.photonvision.common.hardware.VisionLEDMode;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
 
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Notifier;
 import frc.robot.Robot;
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
+import frc.robot.utilities.PhotonConnectionManager.ConnectionState;
+import frc.robot.utilities.PhotonPipelineLoader.PipelineSettings;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+import frc.robot.utilities.VisionSmoothingStack.SmoothingMode;
 
 /**
  * <h3>PhotonVisionUtility</h3>
  * 
  * PhotonVisionUtility holds the cameras that we use for our aiming.
  */
-public class PhotonVisionUtility {
+public class PhotonVisionUtility implements AutoCloseable {
     // ----- CONSTANTS ----- \\
 
     // This is the ip address that the vision server is running on
-    private static final String PHOTON_URL_NO_PORT = "10.9.30.25";
+    private static final String DEFAULT_PHOTON_HOST = "10.9.30.25";
     // This is the port that the vision server web interface is running on
-    private static final String PHOTON_URL = PHOTON_URL_NO_PORT + ":5800";
+    private static final int DEFAULT_PHOTON_PORT = 5800;
+    // These system properties point us at a different photon, like a stand-in
+    // server on a laptop. Setting the host also connects in sim
+    private static final String PHOTON_HOST_PROPERTY = "photon.host";
+    private static final String PHOTON_PORT_PROPERTY = "photon.port";
     // This is the path to where the websocket should point to
     private static final String WEBSOCKET_RELATIVE_PATH = "/websocket";
     // This is the path to where the config file should be
     private static final String CONFIG_ZIP_RELATIVE_PATH = "/api/settings/photonvision_config.zip";
-    // This is the path to where the camera config file is located
-    private static final String PIPELINE_JSON_RELATIVE_PATH = "/cameras/mmal_service_16.1/pipelines";
-    // This is the path to where the robot should unzip the config file to
-    private static final String TEMPORARY_UNZIP_LOCATION = Filesystem.getOperatingDirectory().getAbsolutePath()
-            + "/settings_unzipped";
+    // This is where the pipelines are cached along with the hash of the zip they
+    // came from, so we only have to unzip the settings when they change
+    private static final String PIPELINE_CACHE_LOCATION = Filesystem.getOperatingDirectory().getAbsolutePath()
+            + "/photon_pipeline_cache.bin";
 
     private static final int PI_CAMERA_INDEX = 0;
 
+    // The keys used to replace settings in the command queue that haven't been sent
+    private static final String EXPOSURE_COMMAND_KEY = "exposure";
+    private static final String PIPELINE_COMMAND_KEY = "pipeline";
+
+    // How often the vision thread checks the cameras for new frames in seconds
+    private static final double VISION_THREAD_PERIOD = 0.01;
+
+    // The height of the camera
+    private static final double CAMERA_HEIGHT_METERS = Units.inchesToMeters(48);
+    // The height of the hub
+    private static final double HUB_HEIGHT_METERS = Units.inchesToMeters(104);
+    // Get the difference in height between the camera and the hub
+    private static final double HEIGHT_DIFFERENCE_METERS = HUB_HEIGHT_METERS - CAMERA_HEIGHT_METERS;
+    // The pitch of the camera (from ground normal)
+    private static final double CAMERA_PITCH_RADIANS = Units.degreesToRadians(20.0);
+
     // ----- VARIABLES ----- \\
 
+    // Where photon's web interface is running
+    private final String photonHost;
+    private final int photonPort;
+
     // This is the camera that is used for reflective targets
     private PhotonCamera hubTracking = new PhotonCamera("PiCamera");
     // This is the camera that is used for ball tracking
@@ -75,10 +92,41 @@ public class PhotonVisionUtility {
     // for sending over the network
     private ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
     private HttpClient httpClient = HttpClient.newHttpClient();
-    private WebSocket ws;
+    // Finds photon and keeps the websocket to it open. This is null in sim
+    private PhotonConnectionManager connectionManager;
+    // Sends settings to photon one at a time, replacing settings that haven't gone
+    // out yet
+    private final PhotonCommandQueue commandQueue = new PhotonCommandQueue(objectMapper, this::getWebSocket);
+    // Reads the pipelines out of photon's settings, using the cache if they haven't
+    // changed
+    private final PhotonPipelineLoader pipelineLoader;
+    // Whether the pipelines have been read from photon yet
+    private boolean arePipelinesLoaded = false;
+    // Pipelines read on the connection thread that still need to be added to the
+    // shuffleboard chooser from the main loop, or null if there are none
+    private volatile List<PipelineSettings> pipelinesToAdd;
 
     private List<Tuple<String, Double>> exposureValues = new ArrayList<>();
 
+    // ----- VISION THREAD ----- \\
+
+    // Runs the camera processing off of the main robot loop
+    private final Notifier visionNotifier = new Notifier(this::updateVisionSnapshot);
+    // Smooths the hub pitch on the vision thread. Only the vision thread touches this
+    private final VisionSmoothingStack hubSmoothingStack = new VisionSmoothingStack(3,
+            SmoothingMode.OUTLIER_REJECTION);
+    // Reused for the shot table lookup on the vision thread
+    private final ShotSetpoint hubShot = new ShotSetpoint();
+    // Capture times of the last frames the vision thread processed
+    private double lastHubTimestamp = 0;
+    private double lastCargoTimestamp = 0;
+    // The latest results from the vision thread. This is replaced as a whole, never
+    // modified, so reading it from the main loop doesn't need a lock
+    private volatile VisionSnapshot latestSnapshot = VisionSnapshot.EMPTY;
+    // Whether photon has been sent our settings and is ready. This is set on the
+    // connection thread and put to shuffleboard from the main loop
+    private volatile boolean isPhotonReady = false;
+
     // ----- STATICS ----- \\
 
     private static PhotonVisionUtility instance;
@@ -92,278 +140,291 @@ public class PhotonVisionUtility {
      * getInstance method
      */
     private PhotonVisionUtility() {
+        // Only connect if we are not simulating the robot, unless we were told where
+        // to find photon. This prevents waiting a long time for photon to initialize
+        // in sim, because it will not be able to locate the pi
+        this(System.getProperty(PHOTON_HOST_PROPERTY, DEFAULT_PHOTON_HOST),
+                Integer.getInteger(PHOTON_PORT_PROPERTY, DEFAULT_PHOTON_PORT),
+                Robot.isReal() || System.getProperty(PHOTON_HOST_PROPERTY) != null,
+                new File(PIPELINE_CACHE_LOCATION));
+    }
+
+    /**
+     * <h3>PhotonVisionUtility</h3>
+     * 
+     * This contstructs the photonvision pointed at a specific photon server. This
+     * lets a stand-in server be used instead of the pi.
+     * 
+     * @param photonHost    the address of photon
+     * @param photonPort    the port photon's web interface is running on
+     * @param connect       whether to connect to photon at all
+     * @param pipelineCache where to cache the pipelines between boots
+     */
+    PhotonVisionUtility(String photonHost, int photonPort, boolean connect, File pipelineCache) {
+        this.photonHost = photonHost;
+        this.photonPort = photonPort;
+        pipelineLoader = new PhotonPipelineLoader(pipelineCache);
+
         // Set the banner to show the driver that photon isn't ready yet
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                ShuffleboardKeys.PHOTON_READY, new ShuffleBoardData<Boolean>(false));
-
-        // Only initialize if we are not simulating the robot. This prevents waiting a
-        // long time for photon to initialize in sim, because it will not be able to
-        // locate the pi
-        if (Robot.isReal()) {
-            // Start a scheduled executor service to wait a bit before trying to initialize
-            // photon
-            ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-            executorService.schedule(() -> {
-                // ------ WAIT FOR PHOTON TO COME ONLINE ------ \\
-
-                // Initialize to false so that the loop runs at least once
-                boolean isPhotonOnline = false;
-                do {
-                    // Check if photon is online using a helper method
-                    isPhotonOnline = isReachable(PHOTON_URL_NO_PORT, 5800, 10000);
-                } while (!isPhotonOnline);
-
-                // ------ END WAIT FOR PHOTON TO COME ONLINE ------ \\
+        ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.PHOTON_READY, false);
+
+        // Start processing camera results in the background. PhotonCamera just reads
+        // network tables, so this is safe to run in sim as well
+        visionNotifier.setName("PhotonVision");
+        visionNotifier.startPeriodic(VISION_THREAD_PERIOD);
+
+        if (connect) {
+            // The connection manager finds photon in the background and reconnects if it
+            // goes away, so we just react to it connecting
+            connectionManager = new PhotonConnectionManager(photonHost, photonPort, WEBSOCKET_RELATIVE_PATH,
+                    httpClient);
+            connectionManager.addListener(this::onConnectionStateChanged);
+            connectionManager.start();
+        }
+    }
+
+    // ----- SINGLETON GET ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * This is the accessor method for the singleton. This ensures that there is
+     * only ever one instance of the PhotonVisionUtility
+     * 
+     * @return the instance of PhotonVisionUtility
+     */
+    public static PhotonVisionUtility getInstance() {
+        if (instance == null) {
+            return (instance = new PhotonVisionUtility());
+        }
+        return instance;
+    }
+
+    // ------ METHODS ------ \\
 
+    /**
+     * <h3>onConnectionStateChanged</h3>
+     * 
+     * Runs on the connection thread whenever the connection to photon changes.
+     * Once photon is reachable we load the pipelines (if we haven't already), and
+     * once the websocket is ready we send photon our settings. This also happens
+     * after a reconnect, since a rebooted pi will have forgotten them.
+     * 
+     * @param state the new state of the connection
+     */
+    private void onConnectionStateChanged(ConnectionState state) {
+        switch (state) {
+            case CONNECTING:
                 // ------ PIPELINE RETREIVAL ------ \\
 
-                try {
-                    // We can use the buffered input stream to get a file over the network, in this
-                    // case from photon
-                    BufferedInputStream zipFile = new BufferedInputStream(
-                            new URL("http://" + PHOTON_URL + CONFIG_ZIP_RELATIVE_PATH).openStream());
-
-                    // Set up the object mapper from jackson to read json from the photon zip
-                    ObjectMapper objectMapper = new ObjectMapper();
-
-                    // We need to unzip the files to a temporary directory, so we can create a file
-                    // object that points to this directory, in this case CWD/settings_unzipped
-                    File destDir = new File(TEMPORARY_UNZIP_LOCATION);
-                    // The buffer that will hold the zip file as we are unzipping it
-                    byte[] buffer = new byte[1024];
-                    // A zip input stream is a file stream that can read zip files
-                    ZipInputStream zis = new ZipInputStream(zipFile);
-                    // Each part of the file (both files and directories) is a zip entry
-                    ZipEntry zipEntry = zis.getNextEntry();
-                    // We want to get all of the files and directories out of the zip file, so
-                    // looping until we have no entries left will ensure that that goal is achieved
-                    while (zipEntry != null) {
-                        // Create a new file using the zip entry and the destination directory
-                        File newFile = newFile(destDir, zipEntry);
-                        // Check to see if the zip entry is a directory: if it is, we make sure that the
-                        // file returned by the newFile method is a directory and attempt to create all
-                        // intermediate directories
-                        if (zipEntry.isDirectory()) {
-                            if (!newFile.isDirectory() && !newFile.mkdirs()) {
-                                // This will run if either the file returned by newFile is not a directory (even
-                                // though the zip entry is) or if we fail to make the intermediate directories
-                                // (indicating most likely an access error)
-                                throw new IOException("Failed to create directory " + newFile);
-                            }
-                        } else {
-                            // This checks to see that the parent file object to the "newFile" is a
-                            // directory. Since all files reside in directories, this should always be the
-                            // case. Like the previous couple of statements, we also attempt to create the
-                            // parent directories with parent.mkdirs(). If this fails it likely indicates a
-                            // filesystem access error
-                            File parent = newFile.getParentFile();
-                            if (!parent.isDirectory() && !parent.mkdirs()) {
-                                // Either the zip structure is bad (having a file as child of another file) or
-                                // we have an filesystem access error
-                                throw new IOException("Failed to create directory " + parent);
-                            }
-
-                            // With all these checks in place, we can be assured that the file we now have
-                            // is an actual file, and we can now write the data from the zip to this file
-                            // location
-
-                            // We use a file output stream to write the file to the specified location
-                            FileOutputStream fos = new FileOutputStream(newFile);
-                            // This variable will be used to store the length of the buffer that we read.
-                            // When this length goes to zero, it indicates that the buffer is empty, meaning
-                            // that there is no more data to write to the current file
-                            int len;
-                            while ((len = zis.read(buffer)) > 0) {
-                                // Write the data using our buffer and length variable
-                                fos.write(buffer, 0, len);
-                            }
-                            // Close the file to prevent resource leaks
-                            fos.close();
-                        }
-                        // Get the next entry. If we have exhasuted all the fils in the zip, this
-                        // function will return null, and the exit condition of the loop will trigger
-                        zipEntry = zis.getNextEntry();
-                    }
-                    // Close the zip entry and zip file to prevent resource leaks
-                    zis.closeEntry();
-                    zis.close();
-
-                    // Determine the directory where the pipelines are stored. This will be
-                    // CWD/%path% where path includes the following: the folder where we unzipped
-                    // the settings, "cameras," the name of the camera, and "pipelines."
-                    // Photonvision stores its pipelines in this directory *for now*, but this could
-                    // change in the future
-                    File pipelinesDir = new File(TEMPORARY_UNZIP_LOCATION + PIPELINE_JSON_RELATIVE_PATH);
-                    // This will list the files (and directories) in the pipelines folder. Photon
-                    // doesn't store any other directories in the pipelines folder, so we don't have
-                    // to check if the entries are files or directories
-                    String[] pipelinesList = pipelinesDir.list();
-                    // Iterate over the list of pipeline json files
-                    for (String piplineFile : pipelinesList) {
-                        // Append the name of the pipeline (plus a forward slash to indicate that the
-                        // json is in a subdirectory) to the path of the directory determined above.
-                        File currentPipeline = new File(pipelinesDir.getPath() + "/" + piplineFile);
-                        // fileContents starts empty and will be filled by all the file's data
-                        String fileContents = "";
-                        // Initialize a scanner with the file for the current pipeline
-                        Scanner sc = new Scanner(currentPipeline);
-                        // Iterate over the entire file until the scanner's buffer is empty
-                        while (sc.hasNextLine()) {
-                            fileContents += sc.nextLine() + "\n";
-                        }
-                        // Close the scanner to prevent resource leaks
-                        sc.close();
-
-                        // Parse the json we get from the pipeline files
-                        // This first statement will get a json node from the file
-                        JsonNode jsonNode = objectMapper.readTree(fileContents);
-                        // Photon stores its pipeline settings in a list for some strange reason, so we
-                        // need to get the second item in the list
-                        JsonNode settingsMap = jsonNode.get(1);
-                        // Get the values we will use from the map of all the settings
-                        String pipelineName = settingsMap.get("pipelineNickname").asText();
-                        int pipelineIndex = Integer.parseInt(settingsMap.get("pipelineIndex").asText());
-                        double exposure = Double.parseDouble(settingsMap.get("cameraExposure").asText());
-
-                        // Add the options to the shuffleboard chooser. This will allow the driver to
-                        // select different pipelines
-                        ShuffleboardUtility.getInstance().addPipelineChooser(pipelineName, pipelineIndex);
-                        // This will photon what exposure value to set when changing the pipeline over
-                        // the websocket
-                        PhotonVisionUtility.getInstance().addPipeline(pipelineName, exposure);
+                if (!arePipelinesLoaded) {
+                    try {
+                        loadPipelines();
+                        arePipelinesLoaded = true;
+                    } catch (MalformedURLException e) {
+                        e.printStackTrace();
+                    } catch (IOException e) {
+                        e.printStackTrace();
                     }
-                } catch (MalformedURLException e) {
-                    e.printStackTrace();
-                } catch (IOException e) {
-                    e.printStackTrace();
                 }
+                break;
 
-                // ------ END PIPELINE RETREIVAL ------ \\
+            case CONNECTED:
                 // ------ SET UP WEBSOCKET ------ \\
 
-                // Surround with try/catch to make sure we don't error out the thread
-                try {
-                    // The websocket we will use to send data to photon
-                    // The address was obtained by opening dev tools with photon open. This
-                    // shouldn't change in the near future, but if it does, a new address can be
-                    // found by using dev tools
-                    ws = httpClient.newWebSocketBuilder().buildAsync(
-                            // This URI will point to the location found using dev tools
-                            URI.create("ws://" + PHOTON_URL + WEBSOCKET_RELATIVE_PATH),
-                            // Our websocket listener doesn't actually do anything, because we don't need to
-                            // use the values from the websocket for aiming
-                            new WebsocketListener())
-                            // Wait for the future to complete so we get the websocket right away
-                            .get();
-
-                    // Set up a timeout waiting for the websocket
-                    int counter = 0;
-                    // If the websocket is null (which it shouldn't be) then we wait until the
-                    // future completes
-                    while (ws == null) {
-                        // Sleep for 100 ms so as to not hog the roborio cpu
-                        Thread.sleep(100);
-                        // If we have been waiting for more than 10 seconds, throw a timeout error
-                        if (counter++ > 100) {
-                            throw new RuntimeException("Error connecting to photon: Timeout");
-                        }
-                    }
+                // Use our method to set the picamera's exposure
+                setPiCameraExposure();
 
-                    // Sleep for 2 seconds to ensure websocket is able to send messages
-                    Thread.sleep(2000);
+                getHubTrackingCamera().setLED(VisionLEDMode.kOff);
+                // Only reset the pipeline the first time. After a reconnect, setting the
+                // exposure has already put photon back on the selected pipeline
+                if (connectionManager.getReconnectCount() == 0) {
+                    setPiCameraPipeline(0);
+                }
 
-                    // Use our method to set the picamera's exposure
-                    setPiCameraExposure();
+                // Tell shuffleboard that photon is up and ready on the next loop
+                isPhotonReady = true;
+                break;
 
-                    PhotonVisionUtility.getInstance().getHubTrackingCamera().setLED(VisionLEDMode.kOff);
-                    PhotonVisionUtility.getInstance().setPiCameraPipeline(0);
+            case DISCONNECTED:
+                // Anything still waiting is stale, it all gets sent again on reconnect
+                commandQueue.clear();
 
-                    // Tell shuffleboard that photon is up and ready
-                    ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
-                            ShuffleboardKeys.PHOTON_READY, new ShuffleBoardData<Boolean>(true));
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.println("****** ERROR CONNECTING TO PHOTONVISION ******");
-                }
+                // Let the driver know photon has gone away on the next loop
+                isPhotonReady = false;
+                break;
 
-                // ------ END SET UP WEBSOCKET ------ \\
-            }, 500, TimeUnit.MILLISECONDS);
+            default:
+                break;
         }
     }
 
-    // ----- SINGLETON GET ----- \\
-
     /**
-     * <h3>getInstance</h3>
+     * <h3>getConnectionManager</h3>
      * 
-     * This is the accessor method for the singleton. This ensures that there is
-     * only ever one instance of the PhotonVisionUtility
+     * Gets the manager for the connection to photon. This can be used to listen
+     * for connection changes or read how long it took to connect.
      * 
-     * @return the instance of PhotonVisionUtility
+     * @return the connection manager, or null when simulating
      */
-    public static PhotonVisionUtility getInstance() {
-        if (instance == null) {
-            return (instance = new PhotonVisionUtility());
+    public PhotonConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * <h3>updateShuffleboard</h3>
+     * 
+     * Adds any newly loaded pipelines to the chooser, and puts whether photon is
+     * ready, how long it took to get ready and how many times it has dropped to
+     * shuffleboard. This is called from the main loop, since the connection
+     * thread can't touch shuffleboard.
+     */
+    public void updateShuffleboard() {
+        if (connectionManager == null) {
+            return;
         }
-        return instance;
+        List<PipelineSettings> pipelines = pipelinesToAdd;
+        if (pipelines != null) {
+            pipelinesToAdd = null;
+            for (PipelineSettings pipeline : pipelines) {
+                // Add the options to the shuffleboard chooser. This will allow the driver
+                // to select different pipelines
+                ShuffleboardUtility.getInstance().addPipelineChooser(pipeline.name, pipeline.index);
+            }
+        }
+        ShuffleboardUtility.getInstance().putBoolean(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.PHOTON_READY, isPhotonReady);
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.PHOTON_TIME_TO_READY, connectionManager.getLastTimeToReady());
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.PHOTON_RECONNECTS, connectionManager.getReconnectCount());
     }
 
-    // ----- STATIC METHODS ----- \\
+    /**
+     * <h3>getWebSocket</h3>
+     * 
+     * @return the websocket to photon, or null if we aren't connected
+     */
+    private WebSocket getWebSocket() {
+        return (connectionManager == null) ? null : connectionManager.getWebSocket();
+    }
 
     /**
-     * <h3>newFile</h3>
+     * <h3>getLatestSnapshot</h3>
      * 
-     * Initializes a new file with the passed zip entry. This is used to the
-     * location of where to store the file
+     * Gets the latest results from the vision thread. This is safe to call from
+     * the main loop and never blocks.
      * 
-     * @param destinationDir the directory to store the file
-     * @param zipEntry       the zip entry on which to operate
-     * @return a file that will store the contents of the zip entry
-     * @throws IOException if there is an error writing the file
+     * @return the latest vision snapshot
      */
-    private static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
-        // This uses one of the overloaded constructors available for File that will
-        // take a parent and a child. This ensures cross-platform compatability
-        File destFile = new File(destinationDir, zipEntry.getName());
-
-        // Get the directory and file paths. Using canonical paths allows us to make
-        // sure that we have a unique representation of where the file is stored
-        String destDirPath = destinationDir.getCanonicalPath();
-        String destFilePath = destFile.getCanonicalPath();
-
-        // Make sure that the file is inside of the destination directory
-        if (!destFilePath.startsWith(destDirPath + File.separator)) {
-            throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
+    public VisionSnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * <h3>updateVisionSnapshot</h3>
+     * 
+     * Runs on the vision thread. Reads both cameras, smooths the hub target,
+     * works out the range and shooter values, and publishes them as a new
+     * snapshot. Nothing is published if neither camera has a new frame.
+     */
+    private void updateVisionSnapshot() {
+        PhotonPipelineResult hubResult = hubTracking.getLatestResult();
+        PhotonPipelineResult cargoResult = ballTracking.getLatestResult();
+
+        double hubTimestamp = hubResult.getTimestampSeconds();
+        double cargoTimestamp = cargoResult.getTimestampSeconds();
+        boolean isNewHubFrame = hubTimestamp != lastHubTimestamp;
+
+        // Don't redo the math if neither camera has sent a new frame
+        if (!isNewHubFrame && cargoTimestamp == lastCargoTimestamp) {
+            return;
+        }
+        lastHubTimestamp = hubTimestamp;
+        lastCargoTimestamp = cargoTimestamp;
+
+        boolean hasHubTarget = hubResult.hasTargets();
+        boolean hasCargoTarget = cargoResult.hasTargets();
+
+        double hubYaw = 0;
+        double hubPitch = 0;
+        double hubRange = 0;
+        double hubDistance = ShooterUtility.DEFAULT_DISTANCE;
+
+        if (hasHubTarget) {
+            PhotonTrackedTarget hubTarget = hubResult.getBestTarget();
+            hubYaw = hubTarget.getYaw();
+
+            // Only add frames we haven't seen yet to the stack
+            if (isNewHubFrame) {
+                hubSmoothingStack.addItem(hubTarget);
+            }
+            hubPitch = hubSmoothingStack.getSmoothedPitch();
+
+            // Use the PhotonUtils library to calcluate the distance from the target
+            hubRange = PhotonUtils.calculateDistanceToTargetMeters(CAMERA_HEIGHT_METERS, HUB_HEIGHT_METERS,
+                    CAMERA_PITCH_RADIANS, Units.degreesToRadians(hubPitch));
+
+            // Use some pythagoras to calculate the horizontal distance to the hub
+            hubRange = Math.sqrt(hubRange * hubRange - HEIGHT_DIFFERENCE_METERS * HEIGHT_DIFFERENCE_METERS)
+                    // Adjusted to measure from front of the robot to hub stand wall.
+                    // This distance is in meters ~43.307 inches
+                    - 0.2;
+            hubDistance = Units.metersToFeet(hubRange);
+        } else {
+            // Start fresh the next time we see the hub
+            hubSmoothingStack.clear();
+        }
+
+        double cargoYaw = 0;
+        double cargoPitch = 0;
+        if (hasCargoTarget) {
+            PhotonTrackedTarget cargoTarget = cargoResult.getBestTarget();
+            cargoYaw = cargoTarget.getYaw();
+            cargoPitch = cargoTarget.getPitch();
         }
 
-        return destFile;
+        ShooterUtility.calculateShot(hubDistance, hubShot);
+        latestSnapshot = new VisionSnapshot(hasHubTarget, hubTimestamp, hubYaw, hubPitch, hubRange, hubShot,
+                hasCargoTarget, cargoYaw, cargoPitch);
     }
 
     /**
-     * <h3>isReachable</h3>
+     * <h3>loadPipelines</h3>
      * 
-     * This method attempts to connect to a host over the passed port, returning
-     * true if successful and false if it fails
+     * Downloads the settings zip from photon and keeps the exposure of every
+     * pipeline in it. The pipelines are added to the shuffleboard chooser on the
+     * next main loop. The zip is hashed as it downloads, and if it matches the
+     * hash in the pipeline cache file the cached pipelines are used instead of
+     * unzipping and parsing the zip again.
      * 
-     * @param addr          the remote address
-     * @param openPort      the port used for connection
-     * @param timeoutMillis a timeout in milliseconds
-     * @return whether the server responded in time
+     * @throws IOException if the zip can't be downloaded or parsed
      */
-    private static boolean isReachable(String addr, int openPort, int timeoutMillis) {
-        // Use try-with-resources to ensure we don't err out
-        try (Socket soc = new Socket()) {
-            // Attempt to connect to the specified address
-            soc.connect(new InetSocketAddress(addr, openPort), timeoutMillis);
-            // We've successfully connected - return true
-            return true;
-        } catch (IOException e) {
-            // Failed somewhere, usually because of a timeout
-            return false;
+    private void loadPipelines() throws IOException {
+        long startTime = System.nanoTime();
+
+        // We can use the buffered input stream to get a file over the network, in this
+        // case from photon
+        List<PipelineSettings> pipelines;
+        try (BufferedInputStream zipStream = new BufferedInputStream(
+                new URL("http://" + photonHost + ":" + photonPort + CONFIG_ZIP_RELATIVE_PATH).openStream())) {
+            pipelines = pipelineLoader.load(zipStream);
         }
-    }
 
-    // ------ METHODS ------ \\
+        for (PipelineSettings pipeline : pipelines) {
+            // This will photon what exposure value to set when changing the pipeline over
+            // the websocket
+            addPipeline(pipeline.name, pipeline.exposure);
+        }
+        // This runs on the connection thread, so the chooser is filled in from the
+        // main loop
+        pipelinesToAdd = pipelines;
+
+        System.out.println("Loaded " + pipelines.size() + " photon pipelines "
+                + (pipelineLoader.wasLastLoadCached() ? "from cache" : "from settings zip") + " in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+    }
 
     /**
      * <h3>setPiCameraExposure</h3>
@@ -374,7 +435,7 @@ public class PhotonVisionUtility {
     public void setPiCameraExposure() {
         try {
             // Make sure that we will be able to actually communicate with photon
-            if (ws == null) {
+            if (getWebSocket() == null) {
                 throw new RuntimeException("Websocket not initialized");
             }
 
@@ -389,48 +450,31 @@ public class PhotonVisionUtility {
             // Tell photon that we want to operate on the camera at pi camera's index
             pipelineToggleMap.put("cameraIndex", PI_CAMERA_INDEX);
 
-            // Use the object mapper to convert the java LinkedHashMap to a bson byte array.
-            // BSON stands for binary json, and is just a binary representation of data
-            byte[] convertedMap = objectMapper.writeValueAsBytes(pipelineToggleMap);
-            // Send the data over the websocket
-            ws.sendBinary(ByteBuffer.wrap(convertedMap), true);
-
-            // Sleep three milliseconds to ensure the data gets sent
-            Thread.sleep(3);
-
-            // Set up the map used for setting exposure
-            LinkedHashMap<String, Object> exposureToggleMap = new LinkedHashMap<>();
+            // Set up the maps used for setting exposure. Set the exposure to the target
+            // plus 0.1 first. This will simulate clicking the up arrow on the web
+            // interface.
+            LinkedHashMap<String, Object> exposureNudgeValueMap = new LinkedHashMap<>();
+            exposureNudgeValueMap.put("cameraExposure", (double) (exposureValues.get(currentPipeline).second() + 0.1));
+            exposureNudgeValueMap.put("cameraIndex", PI_CAMERA_INDEX);
+            LinkedHashMap<String, Object> exposureNudgeMap = new LinkedHashMap<>();
+            exposureNudgeMap.put("changePipelineSetting", exposureNudgeValueMap);
+
+            // Then change the exposure to the target. This simulates pressing the down
+            // arrow on the web interface
             LinkedHashMap<String, Object> exposureValueMap = new LinkedHashMap<>();
-            // Set the exposure to the target plus 0.1. This will simulate clicking the up
-            // arrow on the web interface.
-            exposureValueMap.put("cameraExposure", (double) (exposureValues.get(currentPipeline).second() + 0.1));
+            exposureValueMap.put("cameraExposure", (double) (exposureValues.get(currentPipeline).second()));
             exposureValueMap.put("cameraIndex", PI_CAMERA_INDEX);
-            // Put the exposure values (and camera index) into the exposure toggle map to
-            // send to photon
+            LinkedHashMap<String, Object> exposureToggleMap = new LinkedHashMap<>();
             exposureToggleMap.put("changePipelineSetting", exposureValueMap);
 
-            // Once again, convert the hash map to a binary json
-            convertedMap = objectMapper.writeValueAsBytes(exposureToggleMap);
-            // Send data over the websocket
-            ws.sendBinary(ByteBuffer.wrap(convertedMap), true);
-
-            // Wait to ensure we don't overload the websocket
-            Thread.sleep(3);
-
-            // Change the exposure to the target. This simulates pressing the down arrow on
-            // the web interface
-            exposureValueMap.put("cameraExposure", (double) (exposureValues.get(currentPipeline).second()));
-
-            // Convert and send data again
-            convertedMap = objectMapper.writeValueAsBytes(exposureToggleMap);
-            ws.sendBinary(ByteBuffer.wrap(convertedMap), true);
+            // Queue all three together so they always go out in order, and so a newer
+            // exposure request replaces this one if it hasn't been sent yet
+            commandQueue.submit(EXPOSURE_COMMAND_KEY, pipelineToggleMap, exposureNudgeMap, exposureToggleMap)
+                    .exceptionally(this::printSendError);
         } catch (RuntimeException e) {
             e.printStackTrace();
             System.out.println("****** PHOTON WEBSOCKET ERROR ******");
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            System.out.println("****** ERROR SETTING PHOTON SETTINGS ******");
-        } catch (InterruptedException e) {
+        } catch (IOException e) {
             e.printStackTrace();
             System.out.println("****** ERROR SETTING PHOTON SETTINGS ******");
         }
@@ -439,14 +483,14 @@ public class PhotonVisionUtility {
     /**
      * <h3>setPiCameraPipeline</h3>
      * 
-     * This method will use the websocket that is initialized in the constructor to
-     * send a pipeline change request to photon
+     * This method will queue a pipeline change request to send to photon over
+     * the websocket
      * 
      * @param pipeline the pipeline index to set
      */
     public void setPiCameraPipeline(int pipeline) {
         try {
-            if (ws == null) {
+            if (getWebSocket() == null) {
                 throw new RuntimeException("Websocket not initialized");
             }
 
@@ -459,15 +503,57 @@ public class PhotonVisionUtility {
             pipelineSetMap.put("currentPipeline", pipeline);
             pipelineSetMap.put("cameraIndex", PI_CAMERA_INDEX);
 
-            // Convert and send data to photon
-            byte[] convertedMap = objectMapper.writeValueAsBytes(pipelineSetMap);
-            ws.sendBinary(ByteBuffer.wrap(convertedMap), true);
+            // Queue the change, replacing any pipeline change that hasn't gone out yet
+            commandQueue.submit(PIPELINE_COMMAND_KEY, pipelineSetMap).exceptionally(this::printSendError);
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("****** ERROR SETTING PHOTON PIPELINE ******");
         }
     }
 
+    /**
+     * <h3>printSendError</h3>
+     * 
+     * Reports a command that the queue couldn't send to photon
+     * 
+     * @param error what went wrong
+     * @return nothing, so this can be used with exceptionally
+     */
+    private Void printSendError(Throwable error) {
+        error.printStackTrace();
+        System.out.println("****** ERROR SENDING PHOTON SETTINGS ******");
+        return null;
+    }
+
+    /**
+     * <h3>getCommandQueue</h3>
+     * 
+     * Gets the queue that sends settings to photon, which keeps track of how long
+     * the sends take
+     * 
+     * @return the command queue
+     */
+    public PhotonCommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * <h3>close</h3>
+     * 
+     * Stops the vision thread and the connection to photon. The robot never
+     * needs this, but every utility a test makes would otherwise keep its
+     * threads running.
+     */
+    @Override
+    public void close() {
+        visionNotifier.stop();
+        visionNotifier.close();
+        if (connectionManager != null) {
+            connectionManager.stop();
+        }
+        commandQueue.clear();
+    }
+
     /**
      * <h3>addPipeline</h3>
      * 
@@ -502,13 +588,4 @@ public class PhotonVisionUtility {
     public PhotonCamera getHubTrackingCamera() {
         return hubTracking;
     }
-
-    /**
-     * <h3>WebsocketListener</h3>
-     * 
-     * This class represents a "dummy" listener. We don't want to do anything with
-     * the targeting data that photon sends back
-     */
-    private class WebsocketListener implements Listener {
-    }
 }
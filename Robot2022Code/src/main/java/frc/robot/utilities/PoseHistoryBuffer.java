@@ -0,0 +1,286 @@
+package frc.robot.utilities;
+
+/**
+ * <h3>PoseHistoryBuffer</h3>
+ * 
+ * Remembers where the robot was on the field and how fast its wheels were
+ * turning over the last few seconds. This answers "where was the robot at time
+ * t" for vision latency compensation, shooting on the move and looking back
+ * over a match.
+ * <p>
+ * Everything is kept in primitive arrays that are made once, so adding a
+ * sample every loop doesn't allocate anything.
+ */
+public class PoseHistoryBuffer {
+    /**
+     * The most samples the buffer can hold
+     */
+    private final int capacity;
+
+    /**
+     * The ring buffers that hold each part of the samples
+     */
+    private final double[] timestamps;
+    private final double[] xPositions;
+    private final double[] yPositions;
+    private final double[] headings;
+    private final double[] leftSpeeds;
+    private final double[] rightSpeeds;
+
+    /**
+     * The index that the next sample will be written to
+     */
+    private int head;
+
+    /**
+     * The number of samples currently held in the buffers
+     */
+    private int count;
+
+    /**
+     * <h3>PoseHistoryBuffer</h3>
+     * 
+     * Initializes a new {@link frc.robot.utilities.PoseHistoryBuffer
+     * PoseHistoryBuffer} that holds the passed number of samples
+     * 
+     * @param size the number of samples to remember
+     */
+    public PoseHistoryBuffer(int size) {
+        capacity = size;
+        timestamps = new double[size];
+        xPositions = new double[size];
+        yPositions = new double[size];
+        headings = new double[size];
+        leftSpeeds = new double[size];
+        rightSpeeds = new double[size];
+    }
+
+    /**
+     * <h3>addSample</h3>
+     * 
+     * Adds a sample to the buffer, overwriting the oldest sample once the buffer
+     * is full. Samples must be added in time order.
+     * 
+     * @param timestamp  the time of the sample in seconds
+     * @param x          the x position of the robot in meters
+     * @param y          the y position of the robot in meters
+     * @param heading    the heading of the robot in degrees
+     * @param leftSpeed  the speed of the left wheels in meters per second
+     * @param rightSpeed the speed of the right wheels in meters per second
+     */
+    public void addSample(double timestamp, double x, double y, double heading, double leftSpeed,
+            double rightSpeed) {
+        // Keep the headings continuous so interpolating across +/-180 degrees
+        // doesn't spin the long way around
+        if (count > 0) {
+            double lastHeading = headings[index(count - 1)];
+            heading = lastHeading + Math.IEEEremainder(heading - lastHeading, 360);
+        }
+
+        timestamps[head] = timestamp;
+        xPositions[head] = x;
+        yPositions[head] = y;
+        headings[head] = heading;
+        leftSpeeds[head] = leftSpeed;
+        rightSpeeds[head] = rightSpeed;
+
+        head = (head + 1) % capacity;
+        if (count < capacity) {
+            count++;
+        }
+    }
+
+    /**
+     * <h3>clear</h3>
+     * 
+     * Removes all of the samples from the buffer. This should be called when the
+     * pose is reset, so lookups don't blend the old pose with the new one.
+     */
+    public void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    /**
+     * <h3>getSampleAt</h3>
+     * 
+     * Gets the state of the robot at the passed time, linearly interpolating
+     * between the two samples on either side of it. Times outside of the buffer
+     * get the oldest or newest sample. Nothing is allocated, so this is safe to
+     * call every loop.
+     * 
+     * @param timestamp the time to look up in seconds
+     * @param sample    where to put the result
+     * @return false if the buffer is empty, in which case the sample isn't
+     *         changed
+     */
+    public boolean getSampleAt(double timestamp, PoseSample sample) {
+        if (count == 0) {
+            return false;
+        }
+
+        // Clamp to the ends of the buffer
+        if (timestamp <= timestamps[index(0)]) {
+            copySample(index(0), sample);
+            return true;
+        }
+        if (timestamp >= timestamps[index(count - 1)]) {
+            copySample(index(count - 1), sample);
+            return true;
+        }
+
+        // Binary search for the first sample that is after the timestamp
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int before = index(low - 1);
+        int after = index(low);
+        double fraction = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        sample.timestamp = timestamp;
+        sample.x = interpolate(xPositions, before, after, fraction);
+        sample.y = interpolate(yPositions, before, after, fraction);
+        sample.heading = interpolate(headings, before, after, fraction);
+        sample.leftSpeed = interpolate(leftSpeeds, before, after, fraction);
+        sample.rightSpeed = interpolate(rightSpeeds, before, after, fraction);
+        return true;
+    }
+
+    /**
+     * <h3>getOldestTimestamp</h3>
+     * 
+     * @return the time of the oldest sample in seconds, or NaN if the buffer is
+     *         empty
+     */
+    public double getOldestTimestamp() {
+        return (count == 0) ? Double.NaN : timestamps[index(0)];
+    }
+
+    /**
+     * <h3>getNewestTimestamp</h3>
+     * 
+     * @return the time of the newest sample in seconds, or NaN if the buffer is
+     *         empty
+     */
+    public double getNewestTimestamp() {
+        return (count == 0) ? Double.NaN : timestamps[index(count - 1)];
+    }
+
+    /**
+     * <h3>size</h3>
+     * 
+     * @return the number of samples currently held in the buffer
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * <h3>copySample</h3>
+     * 
+     * Copies one stored sample into a result
+     * 
+     * @param index  the index in the ring buffers
+     * @param sample where to put the result
+     */
+    private void copySample(int index, PoseSample sample) {
+        sample.timestamp = timestamps[index];
+        sample.x = xPositions[index];
+        sample.y = yPositions[index];
+        sample.heading = headings[index];
+        sample.leftSpeed = leftSpeeds[index];
+        sample.rightSpeed = rightSpeeds[index];
+    }
+
+    /**
+     * <h3>interpolate</h3>
+     * 
+     * @param values   the ring buffer to interpolate in
+     * @param before   the index of the sample before
+     * @param after    the index of the sample after
+     * @param fraction how far to go from before to after, from 0 to 1
+     * @return the interpolated value
+     */
+    private static double interpolate(double[] values, int before, int after, double fraction) {
+        return values[before] + (values[after] - values[before]) * fraction;
+    }
+
+    /**
+     * <h3>index</h3>
+     * 
+     * Converts an age-ordered position (0 is the oldest sample) to an index in
+     * the ring buffers
+     * 
+     * @param position the position of the sample from oldest to newest
+     * @return the index in the ring buffers
+     */
+    private int index(int position) {
+        return (head - count + position + capacity) % capacity;
+    }
+
+    /**
+     * <h3>PoseSample</h3>
+     * 
+     * Holds the result of a lookup. These are meant to be reused, so each thread
+     * that does lookups should keep its own.
+     */
+    public static class PoseSample {
+        private double timestamp;
+        private double x;
+        private double y;
+        private double heading;
+        private double leftSpeed;
+        private double rightSpeed;
+
+        /**
+         * @return the time that was looked up in seconds, or the time of the
+         *         closest sample if it was outside of the buffer
+         */
+        public double getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return the x position of the robot in meters
+         */
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * @return the y position of the robot in meters
+         */
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * @return the heading of the robot in degrees. This isn't wrapped to +/-180
+         *         degrees
+         */
+        public double getHeading() {
+            return heading;
+        }
+
+        /**
+         * @return the speed of the left wheels in meters per second
+         */
+        public double getLeftSpeed() {
+            return leftSpeed;
+        }
+
+        /**
+         * @return the speed of the right wheels in meters per second
+         */
+        public double getRightSpeed() {
+            return rightSpeed;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+/**
+ * <h3>RollerSim</h3>
+ * 
+ * A simulated roller driven by one falcon through a gearbox, like the intake
+ * and indexer rollers. It runs on the voltage the talon is putting out and
+ * feeds its position and velocity back to the talon's encoder, so the
+ * subsystem reads it like the real motor.
+ */
+public class RollerSim {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // The amount of internal encoder units in one motor revolution
+    private static final double TICKS_PER_ROTATION = 2048.0;
+    // Estimated moment of inertia of a roller and its shaft in kg m^2
+    private static final double MOMENT_OF_INERTIA = 0.0005;
+
+    // ----- VARIABLES ----- \\
+
+    private final TalonFXSimCollection simCollection;
+    private final DCMotorSim motorSim;
+    private final double gearRatio;
+    private final double rollerRadius;
+    // 1 if positive motor output moves cargo into the robot, -1 if it moves it out
+    private final double direction;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>RollerSim</h3>
+     * 
+     * @param motor        the motor driving the roller
+     * @param gearRatio    how many times the motor turns for one turn of the
+     *                     roller
+     * @param rollerRadius the radius of the roller in meters
+     * @param isReversed   true if the motor is run backwards to move cargo into
+     *                     the robot
+     */
+    public RollerSim(WPI_TalonFX motor, double gearRatio, double rollerRadius, boolean isReversed) {
+        this.gearRatio = gearRatio;
+        this.rollerRadius = rollerRadius;
+        direction = isReversed ? -1.0 : 1.0;
+
+        motorSim = new DCMotorSim(DCMotor.getFalcon500(1), gearRatio, MOMENT_OF_INERTIA);
+        simCollection = motor.getSimCollection();
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>update</h3>
+     * 
+     * Runs the simulated roller for one loop with the voltage the talon is
+     * putting out. This needs to be called once every loop in simulation.
+     */
+    public void update() {
+        simCollection.setBusVoltage(RobotController.getBatteryVoltage());
+        motorSim.setInputVoltage(simCollection.getMotorOutputLeadVoltage());
+        motorSim.update(LOOP_PERIOD);
+
+        // The talon's encoder is on the motor, before the gearbox. Talon velocities
+        // are in ticks per 100 ms
+        simCollection.setIntegratedSensorRawPosition(
+                (int) (motorSim.getAngularPositionRotations() * gearRatio * TICKS_PER_ROTATION));
+        simCollection.setIntegratedSensorVelocity(
+                (int) (motorSim.getAngularVelocityRPM() * gearRatio / 600.0 * TICKS_PER_ROTATION));
+    }
+
+    /**
+     * <h3>getSurfaceSpeed</h3>
+     * 
+     * @return how fast the outside of the roller is moving in meters per second,
+     *         positive into the robot
+     */
+    public double getSurfaceSpeed() {
+        return direction * motorSim.getAngularVelocityRadPerSec() * rollerRadius;
+    }
+}
@@ -0,0 +1,275 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
+
+/**
+ * <h3>ShootOnTheMoveSolver</h3>
+ * 
+ * Works out how to make a shot while the robot is driving. The cargo keeps the
+ * robot's velocity after it leaves the shooter, so instead of aiming at the hub
+ * we aim at a virtual target that is offset against our velocity by how far
+ * we would drift during the flight. The flight time depends on the distance to
+ * the virtual target, so the solver repeats this until the target settles.
+ * <p>
+ * The solver reuses its own fields for everything, so it can run every loop
+ * without allocating.
+ */
+public class ShootOnTheMoveSolver {
+    // ----- CONSTANTS ----- \\
+
+    // The most times the solver will move the virtual target in one solve
+    private static final int MAX_ITERATIONS = 6;
+    // Stop early once the flight time changes by less than this in seconds
+    private static final double CONVERGENCE_TOLERANCE = 0.001;
+
+    // Rough time of flight of the cargo, as a line over the shot distance. This
+    // was estimated from match video and should be tuned with the shot logger
+    private static final double TIME_OF_FLIGHT_BASE_SECONDS = 0.8;
+    private static final double TIME_OF_FLIGHT_SECONDS_PER_FOOT = 0.03;
+    private static final double TIME_OF_FLIGHT_SECONDS_PER_METER = TIME_OF_FLIGHT_SECONDS_PER_FOOT
+            / Units.feetToMeters(1);
+
+    // Odometry measures from the center of the robot to the center of the hub,
+    // but the shot table is measured from the front of the robot to the hub wall
+    static final double CENTER_TO_SHOT_DISTANCE_OFFSET_METERS = 1.2;
+
+    // ----- VARIABLES ----- \\
+
+    // Where the center of the hub is on the field in meters
+    private final double hubX;
+    private final double hubY;
+
+    // The results of the last solve
+    private final ShotSetpoint shot = new ShotSetpoint();
+    private double virtualTargetX;
+    private double virtualTargetY;
+    private double shotDistance;
+    private double aimHeading;
+    private double hubHeading;
+    private double timeOfFlight;
+    private int iterations;
+    private boolean isConverged;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>ShootOnTheMoveSolver</h3>
+     * 
+     * Creates a solver that aims at the hub from
+     * {@link frc.robot.utilities.CurrentToHubDistanceUtility
+     * CurrentToHubDistanceUtility}
+     */
+    public ShootOnTheMoveSolver() {
+        this(new CurrentToHubDistanceUtility());
+    }
+
+    /**
+     * <h3>ShootOnTheMoveSolver</h3>
+     * 
+     * Creates a solver that aims at the hub position of the passed utility
+     * 
+     * @param hubDistanceUtility the utility that knows where the hub is
+     */
+    public ShootOnTheMoveSolver(CurrentToHubDistanceUtility hubDistanceUtility) {
+        this(hubDistanceUtility.hubPosition.x, hubDistanceUtility.hubPosition.y);
+    }
+
+    /**
+     * <h3>ShootOnTheMoveSolver</h3>
+     * 
+     * Creates a solver that aims at a hub at the passed position
+     * 
+     * @param hubX the x position of the center of the hub in meters
+     * @param hubY the y position of the center of the hub in meters
+     */
+    ShootOnTheMoveSolver(double hubX, double hubY) {
+        this.hubX = hubX;
+        this.hubY = hubY;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>solve</h3>
+     * 
+     * Solves the shot using the drivetrain's estimated pose and wheel speeds
+     * 
+     * @param driveSubsystem the drivetrain to read from
+     */
+    public void solve(DriveSubsystem driveSubsystem) {
+        solve(driveSubsystem.getEstimatedX(), driveSubsystem.getEstimatedY(), driveSubsystem.getEstimatedHeading(),
+                driveSubsystem.getLeftEncoder(), driveSubsystem.getRightEncoder());
+    }
+
+    /**
+     * <h3>solve</h3>
+     * 
+     * Solves the shot for a differential drive robot. A differential drive can
+     * only move along its heading, so the field velocity comes from the average
+     * of the wheel speeds.
+     * 
+     * @param robotX     the x position of the robot on the field in meters
+     * @param robotY     the y position of the robot on the field in meters
+     * @param heading    the heading of the robot in radians
+     * @param leftSpeed  the speed of the left wheels in meters per second
+     * @param rightSpeed the speed of the right wheels in meters per second
+     */
+    public void solve(double robotX, double robotY, double heading, double leftSpeed, double rightSpeed) {
+        double speed = (leftSpeed + rightSpeed) / 2.0;
+        solveWithFieldVelocity(robotX, robotY, speed * Math.cos(heading), speed * Math.sin(heading));
+    }
+
+    /**
+     * <h3>solveWithFieldVelocity</h3>
+     * 
+     * Solves the shot for a robot moving with the passed field velocity. The
+     * results are read with the getters.
+     * 
+     * @param robotX    the x position of the robot on the field in meters
+     * @param robotY    the y position of the robot on the field in meters
+     * @param velocityX the x velocity of the robot on the field in meters per
+     *                  second
+     * @param velocityY the y velocity of the robot on the field in meters per
+     *                  second
+     */
+    public void solveWithFieldVelocity(double robotX, double robotY, double velocityX, double velocityY) {
+        // Start with the flight time for a shot at the real hub
+        timeOfFlight = calculateTimeOfFlight(getDistance(hubX - robotX, hubY - robotY));
+        isConverged = false;
+
+        // Newton's method on (flight time to the virtual target - our guess). The
+        // target only moves a little as the guess changes, so this settles in a
+        // few iterations even at full speed
+        for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+            // Move the target back against our velocity by how far we drift in the air
+            double deltaX = hubX - velocityX * timeOfFlight - robotX;
+            double deltaY = hubY - velocityY * timeOfFlight - robotY;
+            double distance = getDistance(deltaX, deltaY);
+
+            double error = calculateTimeOfFlight(distance) - timeOfFlight;
+            double slope = -1;
+            if (distance > 0) {
+                slope -= TIME_OF_FLIGHT_SECONDS_PER_METER * (velocityX * deltaX + velocityY * deltaY) / distance;
+            }
+
+            double step = error / slope;
+            timeOfFlight -= step;
+            if (Math.abs(step) < CONVERGENCE_TOLERANCE) {
+                isConverged = true;
+                break;
+            }
+        }
+        // The loop leaves this one past the last iteration when it doesn't converge
+        iterations = Math.min(iterations, MAX_ITERATIONS);
+
+        // Shoot for the virtual target as if we were standing still
+        virtualTargetX = hubX - velocityX * timeOfFlight;
+        virtualTargetY = hubY - velocityY * timeOfFlight;
+        shotDistance = Units.metersToFeet(getDistance(virtualTargetX - robotX, virtualTargetY - robotY)
+                - CENTER_TO_SHOT_DISTANCE_OFFSET_METERS);
+        aimHeading = Math.toDegrees(Math.atan2(virtualTargetY - robotY, virtualTargetX - robotX));
+        hubHeading = Math.toDegrees(Math.atan2(hubY - robotY, hubX - robotX));
+        ShooterUtility.calculateShot(shotDistance, shot);
+    }
+
+    /**
+     * <h3>calculateTimeOfFlight</h3>
+     * 
+     * @param distance the distance between the centers of the robot and the
+     *                 target in meters
+     * @return how long the cargo takes to reach the target in seconds
+     */
+    static double calculateTimeOfFlight(double distance) {
+        return TIME_OF_FLIGHT_BASE_SECONDS
+                + TIME_OF_FLIGHT_SECONDS_PER_METER * (distance - CENTER_TO_SHOT_DISTANCE_OFFSET_METERS);
+    }
+
+    /**
+     * <h3>getDistance</h3>
+     * 
+     * @param deltaX the x distance in meters
+     * @param deltaY the y distance in meters
+     * @return the straight line distance in meters
+     */
+    private static double getDistance(double deltaX, double deltaY) {
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return the shooter setpoints for the virtual target. These are -1 if the
+     *         shot can't be made
+     */
+    public ShotSetpoint getShot() {
+        return shot;
+    }
+
+    /**
+     * @return the field heading to point the robot at in degrees
+     */
+    public double getAimHeading() {
+        return aimHeading;
+    }
+
+    /**
+     * <h3>getLeadAngle</h3>
+     * 
+     * Gets how far to turn away from the real hub to aim at the virtual target.
+     * Adding this to the heading of the hub from the camera leads the shot
+     * without trusting the odometry for the aim itself. It is 0 while the robot
+     * is still.
+     * 
+     * @return the aim heading minus the heading of the hub in degrees, from -180
+     *         to 180
+     */
+    public double getLeadAngle() {
+        return Math.IEEEremainder(aimHeading - hubHeading, 360);
+    }
+
+    /**
+     * @return the distance used for the shot table in feet
+     */
+    public double getShotDistance() {
+        return shotDistance;
+    }
+
+    /**
+     * @return the x position of the virtual target on the field in meters
+     */
+    public double getVirtualTargetX() {
+        return virtualTargetX;
+    }
+
+    /**
+     * @return the y position of the virtual target on the field in meters
+     */
+    public double getVirtualTargetY() {
+        return virtualTargetY;
+    }
+
+    /**
+     * @return the estimated time of flight of the cargo in seconds
+     */
+    public double getTimeOfFlight() {
+        return timeOfFlight;
+    }
+
+    /**
+     * @return how many times the virtual target was moved in the last solve
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return whether the virtual target settled within the iteration limit
+     */
+    public boolean isConverged() {
+        return isConverged;
+    }
+}
@@ -1,112 +1,114 @@
 package frc.robot.utilities;
 
-import frc.robot.utilities.ShuffleboardUtility.ShuffleBoardData;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
 import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
 
 /**
  * ShooterUtility
- * Calculates how to get a shot in the hub
+ * Calculates how to get a shot in the hub using the calibrated
+ * {@link frc.robot.utilities.ShotTable ShotTable}
  */
 public class ShooterUtility {
 
-    // Maximum distance that you can shoot from in feet.
-    private static double MAX_DISTANCE = 27;
-    // Used Desmos to plot out best-fit lines
-    // Link: https://www.desmos.com/calculator/mbuhfoziwi
-    // Constants for speed best-fit lines
-    // Y = MX + B
-    private static double SPEED_M = 1.323076923;
-    private static double TOP_SPEED_B = 65.48717949;
-    private static double BOT_SPEED_B = 15.48717949;
-    // Constants for hood best-fit line
-    // Y = A(X^3) + B(X^2) + CX + D
-    private static double HOOD_A = 0.13834842;
-    private static double HOOD_B = -2.30271897;
-    private static double HOOD_C = 15.14317395;
-    private static double HOOD_D = -16.10579851;
+    // Distance in feet to use for the shooter math when we can't see the hub.
+    // This is the shortest shot
+    public static final double DEFAULT_DISTANCE = 1.6;
+
+    // Reused by the lookups below so they don't allocate. These are only called
+    // from the main robot thread, other threads keep their own setpoint and call
+    // calculateShot
+    private static final ShotSetpoint mainThreadShot = new ShotSetpoint();
 
     /**
      * <h3>setValuesToShuffleboard</h3>
-     * Sends all three calculation results to the shuffleboard.
+     * Sends all three calculation results to the shuffleboard. Only call this
+     * from the main robot thread.
      * 
      * @param distance the distance from the hub in feet
      */
     public static void setValuesToShuffleboard(double distance) {
+        calculateShot(distance, mainThreadShot);
+
         // Applies each calculation to the shuffleboard
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
                 ShuffleboardKeys.SHOOTER_BOTTOM_SPEED,
-                new ShuffleBoardData<Double>(calculateBottomSpeed(distance)));
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
+                mainThreadShot.getBottomSpeed());
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
                 ShuffleboardKeys.SHOOTER_TOP_SPEED,
-                new ShuffleBoardData<Double>(calculateTopSpeed(distance)));
-        ShuffleboardUtility.getInstance().putToShuffleboard(ShuffleboardUtility.driverTab,
+                mainThreadShot.getTopSpeed());
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
                 ShuffleboardKeys.SHOOTER_HOOD_POSITION,
-                new ShuffleBoardData<Double>(calculateHoodPos(distance)));
+                mainThreadShot.getHoodPosition());
+    }
+
+    /**
+     * <h3>setValuesToShuffleboard</h3>
+     * Sends the shooter values that the vision thread already calculated to the
+     * shuffleboard.
+     * 
+     * @param snapshot the latest vision snapshot
+     */
+    public static void setValuesToShuffleboard(VisionSnapshot snapshot) {
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.SHOOTER_BOTTOM_SPEED,
+                snapshot.getShooterBottomSpeed());
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.SHOOTER_TOP_SPEED,
+                snapshot.getShooterTopSpeed());
+        ShuffleboardUtility.getInstance().putDouble(ShuffleboardUtility.driverTab,
+                ShuffleboardKeys.SHOOTER_HOOD_POSITION,
+                snapshot.getShooterHoodPosition());
+    }
+
+    /**
+     * <h3>calculateShot</h3>
+     * Looks up all three setpoints for a distance in the shot table at once.
+     * 
+     * @param distance the distance from the hub in feet
+     * @param setpoint where to put the setpoints, which are -1 if the shot can't
+     *                 be made
+     */
+    public static void calculateShot(double distance, ShotSetpoint setpoint) {
+        ShotTable.getInstance().lookup(distance, setpoint);
     }
 
     /**
      * <h3>calculateTopSpeed</h3>
-     * Returns the new speed for the top roller to make the shot.
+     * Returns the new speed for the top roller to make the shot. Only call this
+     * from the main robot thread. To get more than one setpoint, use
+     * {@link #calculateShot(double, ShotSetpoint)} once instead.
      * 
      * @param distance the distance from the hub in feet
      * @return the required speed in percent output
      */
     public static double calculateTopSpeed(double distance) {
-        if (distance >= 0 && distance <= MAX_DISTANCE) {
-            if (distance >= 8) {
-                return (SPEED_M * distance + TOP_SPEED_B) / 100;
-            } else if (distance >= 5) {
-                return 0.76;
-            } else if (distance >= 2) {
-                return 0.74;
-            }
-            else{
-                return 1.0;
-            }
-        } else {
-            return -1;
-        }
+        calculateShot(distance, mainThreadShot);
+        return mainThreadShot.getTopSpeed();
     }
 
     /**
      * <h3>calculateBottomSpeed</h3>
-     * Returns the new speed for the bottom roller to make the shot.
+     * Returns the new speed for the bottom roller to make the shot. Only call
+     * this from the main robot thread.
      * 
      * @param distance the distance from the hub in feet
      * @return the required speed in percent output
      */
     public static double calculateBottomSpeed(double distance) {
-        if (distance >= 0 && distance <= MAX_DISTANCE) {
-            if (distance >= 8) {
-                return (SPEED_M * distance + BOT_SPEED_B) / 100;
-            } else if (distance >= 5) {
-                return 0.26;
-            } else {
-                return 0.2;
-            }
-        } else {
-            return -1;
-        }
+        calculateShot(distance, mainThreadShot);
+        return mainThreadShot.getBottomSpeed();
     }
 
     /**
      * <h3>calculateHoodPos</h3>
-     * Returns the new hood positiion to make the shot.
+     * Returns the new hood positiion to make the shot. Only call this from the
+     * main robot thread.
      * 
      * @param distance the distance from the hub in feet
      * @return the required position in degrees
      */
     public static double calculateHoodPos(double distance) {
-        if (distance >= 0 && distance <= MAX_DISTANCE) {
-            if (distance >= 19) {
-                return 30.0;
-            } else if (distance >= 8) {
-                return 28.44;
-            } else {
-                return HOOD_A * Math.pow(distance, 3) + HOOD_B * Math.pow(distance, 2) + HOOD_C * distance + HOOD_D;
-            }
-        } else {
-            return -1;
-        }
+        calculateShot(distance, mainThreadShot);
+        return mainThreadShot.getHoodPosition();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * <h3>ShotLogger</h3>
+ * 
+ * Records every shot the robot takes to a binary log on the roborio, along
+ * with whether the driver tagged it as a make or a miss. The logs are pulled
+ * off the robot and fed to the shot table fitter to tune the shot table from
+ * real shots. See {@link frc.robot.utilities.ShotRecord ShotRecord} for the
+ * layout of the file.
+ * <p>
+ * Records are buffered in memory, so logging a shot doesn't wait on the
+ * disk. The buffer is written out whenever a shot is tagged and when the robot
+ * is disabled.
+ */
+public class ShotLogger {
+    // ----- CONSTANTS ----- \\
+
+    // Where the log is kept. This is appended to across restarts
+    private static final File SHOT_LOG_LOCATION = new File(Filesystem.getOperatingDirectory(), "shots.bin");
+
+    // ----- VARIABLES ----- \\
+
+    // The open log, or null if it couldn't be opened
+    private DataOutputStream output;
+    // The number of the last shot recorded, or -1 if none have been
+    private int lastShotNumber = -1;
+    // Whether the last shot has already been tagged
+    private boolean isLastShotTagged = false;
+
+    // ----- STATICS ----- \\
+
+    private static ShotLogger instance;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>ShotLogger</h3>
+     * 
+     * Opens the shot log and marks the start of a new session. This should only
+     * ever be called once by the getInstance method
+     */
+    private ShotLogger() {
+        try {
+            boolean isNewFile = !SHOT_LOG_LOCATION.exists() || SHOT_LOG_LOCATION.length() == 0;
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(SHOT_LOG_LOCATION, true)));
+            if (isNewFile) {
+                ShotRecord.writeHeader(output);
+            }
+            ShotRecord.writeSession(output, Timer.getFPGATimestamp());
+            output.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("****** COULDN'T OPEN SHOT LOG ******");
+            output = null;
+        }
+    }
+
+    // ----- SINGLETON GET ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * This is the accessor method for the singleton. This ensures that there is
+     * only ever one instance of the ShotLogger
+     * 
+     * @return the instance of ShotLogger
+     */
+    public static synchronized ShotLogger getInstance() {
+        if (instance == null) {
+            instance = new ShotLogger();
+        }
+        return instance;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>recordShot</h3>
+     * 
+     * Records a ball leaving the shooter
+     * 
+     * @param distance            the distance from the hub in feet, or NaN if
+     *                            unknown
+     * @param hoodPosition        the hood position in degrees, or NaN if unknown
+     * @param topSpeed            the top roller setpoint in percent output
+     * @param bottomSpeed         the bottom roller setpoint in percent output
+     * @param topVelocityError    how far the top roller was below its target in
+     *                            RPM
+     * @param bottomVelocityError how far the bottom roller was below its target
+     *                            in RPM
+     */
+    public synchronized void recordShot(double distance, double hoodPosition, double topSpeed, double bottomSpeed,
+            double topVelocityError, double bottomVelocityError) {
+        lastShotNumber++;
+        isLastShotTagged = false;
+        if (output == null) {
+            return;
+        }
+
+        try {
+            ShotRecord.writeShot(output, lastShotNumber, Timer.getFPGATimestamp(), distance, hoodPosition,
+                    topSpeed, bottomSpeed, topVelocityError, bottomVelocityError);
+        } catch (IOException e) {
+            printWriteError(e);
+        }
+    }
+
+    /**
+     * <h3>tagLastShot</h3>
+     * 
+     * Marks the last shot as a make or a miss. Pressing the button again before
+     * the next shot changes the tag, and the fitter uses the last one.
+     * 
+     * @param isMade true if the shot went in
+     */
+    public synchronized void tagLastShot(boolean isMade) {
+        if (lastShotNumber < 0) {
+            return;
+        }
+        isLastShotTagged = true;
+        if (output == null) {
+            return;
+        }
+
+        try {
+            ShotRecord.writeOutcome(output, lastShotNumber, isMade ? ShotRecord.MADE : ShotRecord.MISSED);
+            output.flush();
+        } catch (IOException e) {
+            printWriteError(e);
+        }
+    }
+
+    /**
+     * <h3>flush</h3>
+     * 
+     * Writes anything still buffered out to the log. This is called when the
+     * robot is disabled, so nothing is lost when it is turned off.
+     */
+    public synchronized void flush() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.flush();
+        } catch (IOException e) {
+            printWriteError(e);
+        }
+    }
+
+    /**
+     * <h3>printWriteError</h3>
+     * 
+     * Prints a failed write. The log is closed after the first failure so a
+     * full disk doesn't print every shot.
+     * 
+     * @param e the error
+     */
+    private void printWriteError(IOException e) {
+        e.printStackTrace();
+        System.out.println("****** COULDN'T WRITE SHOT LOG ******");
+        try {
+            output.close();
+        } catch (IOException closeError) {
+            // The log is already broken, so there is nothing else to do
+        }
+        output = null;
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return the number of shots recorded since the robot code started
+     */
+    public synchronized int getShotCount() {
+        return lastShotNumber + 1;
+    }
+
+    /**
+     * @return whether the last shot has been tagged as a make or a miss
+     */
+    public synchronized boolean isLastShotTagged() {
+        return isLastShotTagged;
+    }
+}
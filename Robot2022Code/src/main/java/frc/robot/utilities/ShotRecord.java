@@ -0,0 +1,290 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h3>ShotRecord</h3>
+ * 
+ * One record in a shot log. The robot writes these with the
+ * {@link frc.robot.utilities.ShotLogger ShotLogger} and the shot table fitter
+ * reads them back on a laptop, so this class can't use anything from WPILib.
+ * <p>
+ * Every record starts with a type byte:
+ * <ul>
+ * <li>SESSION - the robot code started. Shot numbers start over after this</li>
+ * <li>SHOT - a ball left the shooter. Holds the shot number, the match time and
+ * everything the shooter was doing at release</li>
+ * <li>OUTCOME - the driver tagged a shot as a make or a miss. Holds the shot
+ * number and the outcome</li>
+ * </ul>
+ * All numbers are big endian, and values are stored as floats since the
+ * sensors aren't any more precise than that.
+ */
+public class ShotRecord {
+    // ----- CONSTANTS ----- \\
+
+    // The first bytes of every shot log, so we don't try to read some other file
+    public static final int MAGIC = 0x53484F54;
+    // Bumped whenever the layout of a record changes
+    public static final int VERSION = 1;
+
+    // Record types
+    public static final byte SESSION = 0;
+    public static final byte SHOT = 1;
+    public static final byte OUTCOME = 2;
+
+    // Outcomes
+    public static final byte UNKNOWN = 0;
+    public static final byte MADE = 1;
+    public static final byte MISSED = 2;
+
+    // ----- VARIABLES ----- \\
+
+    private byte type;
+    private int shotNumber;
+    private float timestamp;
+    private float distance;
+    private float hoodPosition;
+    private float topSpeed;
+    private float bottomSpeed;
+    private float topVelocityError;
+    private float bottomVelocityError;
+    private byte outcome;
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>writeHeader</h3>
+     * 
+     * Writes the bytes that start a shot log
+     * 
+     * @param output where to write to
+     * @throws IOException if the write fails
+     */
+    public static void writeHeader(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+    }
+
+    /**
+     * <h3>readHeader</h3>
+     * 
+     * Reads the bytes that start a shot log and checks that we know how to read
+     * the rest of it
+     * 
+     * @param input where to read from
+     * @throws IOException if the file isn't a shot log or is from a newer version
+     */
+    public static void readHeader(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a shot log");
+        }
+        int version = input.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported shot log version " + version);
+        }
+    }
+
+    /**
+     * <h3>writeSession</h3>
+     * 
+     * @param output    where to write to
+     * @param timestamp when the robot code started in seconds
+     * @throws IOException if the write fails
+     */
+    public static void writeSession(DataOutput output, double timestamp) throws IOException {
+        output.writeByte(SESSION);
+        output.writeFloat((float) timestamp);
+    }
+
+    /**
+     * <h3>writeShot</h3>
+     * 
+     * @param output              where to write to
+     * @param shotNumber          the number of the shot in this session
+     * @param timestamp           when the ball left the shooter in seconds
+     * @param distance            the distance from the hub in feet, or NaN if
+     *                            unknown
+     * @param hoodPosition        the hood position in degrees, or NaN if unknown
+     * @param topSpeed            the top roller setpoint in percent output
+     * @param bottomSpeed         the bottom roller setpoint in percent output
+     * @param topVelocityError    how far the top roller was below its target in
+     *                            RPM
+     * @param bottomVelocityError how far the bottom roller was below its target
+     *                            in RPM
+     * @throws IOException if the write fails
+     */
+    public static void writeShot(DataOutput output, int shotNumber, double timestamp, double distance,
+            double hoodPosition, double topSpeed, double bottomSpeed, double topVelocityError,
+            double bottomVelocityError) throws IOException {
+        output.writeByte(SHOT);
+        output.writeInt(shotNumber);
+        output.writeFloat((float) timestamp);
+        output.writeFloat((float) distance);
+        output.writeFloat((float) hoodPosition);
+        output.writeFloat((float) topSpeed);
+        output.writeFloat((float) bottomSpeed);
+        output.writeFloat((float) topVelocityError);
+        output.writeFloat((float) bottomVelocityError);
+    }
+
+    /**
+     * <h3>writeOutcome</h3>
+     * 
+     * @param output     where to write to
+     * @param shotNumber the number of the shot being tagged
+     * @param outcome    MADE or MISSED
+     * @throws IOException if the write fails
+     */
+    public static void writeOutcome(DataOutput output, int shotNumber, byte outcome) throws IOException {
+        output.writeByte(OUTCOME);
+        output.writeInt(shotNumber);
+        output.writeByte(outcome);
+    }
+
+    /**
+     * <h3>read</h3>
+     * 
+     * Reads the next record into this one. Fields the record doesn't have are
+     * left as they were.
+     * 
+     * @param input where to read from
+     * @throws java.io.EOFException if there are no more records
+     * @throws IOException          if the read fails or the record type is
+     *                              unknown
+     */
+    public void read(DataInput input) throws IOException {
+        type = input.readByte();
+        switch (type) {
+            case SESSION:
+                timestamp = input.readFloat();
+                break;
+
+            case SHOT:
+                shotNumber = input.readInt();
+                timestamp = input.readFloat();
+                distance = input.readFloat();
+                hoodPosition = input.readFloat();
+                topSpeed = input.readFloat();
+                bottomSpeed = input.readFloat();
+                topVelocityError = input.readFloat();
+                bottomVelocityError = input.readFloat();
+                outcome = UNKNOWN;
+                break;
+
+            case OUTCOME:
+                shotNumber = input.readInt();
+                outcome = input.readByte();
+                break;
+
+            default:
+                throw new IOException("Unknown shot log record type " + type);
+        }
+    }
+
+    /**
+     * <h3>copy</h3>
+     * 
+     * @return a copy of this record, so it can be kept after reading the next
+     *         one
+     */
+    public ShotRecord copy() {
+        ShotRecord copy = new ShotRecord();
+        copy.type = type;
+        copy.shotNumber = shotNumber;
+        copy.timestamp = timestamp;
+        copy.distance = distance;
+        copy.hoodPosition = hoodPosition;
+        copy.topSpeed = topSpeed;
+        copy.bottomSpeed = bottomSpeed;
+        copy.topVelocityError = topVelocityError;
+        copy.bottomVelocityError = bottomVelocityError;
+        copy.outcome = outcome;
+        return copy;
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return SESSION, SHOT or OUTCOME
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of the shot in its session
+     */
+    public int getShotNumber() {
+        return shotNumber;
+    }
+
+    /**
+     * @return when the shot was taken or the session started in seconds
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the distance from the hub in feet, or NaN if unknown
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the hood position in degrees, or NaN if unknown
+     */
+    public double getHoodPosition() {
+        return hoodPosition;
+    }
+
+    /**
+     * @return the top roller setpoint in percent output
+     */
+    public double getTopSpeed() {
+        return topSpeed;
+    }
+
+    /**
+     * @return the bottom roller setpoint in percent output
+     */
+    public double getBottomSpeed() {
+        return bottomSpeed;
+    }
+
+    /**
+     * @return how far the top roller was below its target in RPM
+     */
+    public double getTopVelocityError() {
+        return topVelocityError;
+    }
+
+    /**
+     * @return how far the bottom roller was below its target in RPM
+     */
+    public double getBottomVelocityError() {
+        return bottomVelocityError;
+    }
+
+    /**
+     * @return UNKNOWN, MADE or MISSED
+     */
+    public byte getOutcome() {
+        return outcome;
+    }
+
+    // ----- SETTERS ----- \\
+
+    /**
+     * @param outcome UNKNOWN, MADE or MISSED
+     */
+    public void setOutcome(byte outcome) {
+        this.outcome = outcome;
+    }
+}
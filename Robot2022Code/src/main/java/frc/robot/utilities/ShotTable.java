@@ -0,0 +1,294 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * <h3>ShotTable</h3>
+ * 
+ * Looks up the shooter speeds and hood position for a distance from a table of
+ * calibrated shots. The table is loaded from the deploy directory and can be
+ * reloaded while the robot is running, so new shots can be tuned without
+ * redeploying code.
+ */
+public class ShotTable {
+    // ----- CONSTANTS ----- \\
+
+    // Where the table is deployed to
+    private static final Path SHOT_TABLE_LOCATION = Filesystem.getDeployDirectory().toPath()
+            .resolve("shooter/shottable.csv");
+
+    // What the setpoints are set to when we can't make the shot
+    private static final double NO_SHOT = -1;
+
+    // ----- VARIABLES ----- \\
+
+    // Where the table is loaded from
+    private final Path location;
+    // The current table. This is replaced as a whole when reloading, never
+    // modified, so lookups on other threads always see a complete table
+    private volatile Table table = new Table(new double[0], new double[0], new double[0], new double[0]);
+
+    // ----- STATICS ----- \\
+
+    private static ShotTable instance;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>ShotTable</h3>
+     * 
+     * Loads the shot table. This should only ever be called once by the
+     * getInstance method
+     */
+    private ShotTable() {
+        this(SHOT_TABLE_LOCATION);
+    }
+
+    /**
+     * <h3>ShotTable</h3>
+     * 
+     * Loads a shot table from a specific file, so it can be checked without the
+     * robot's deploy directory
+     * 
+     * @param location the shot table file
+     */
+    ShotTable(Path location) {
+        this.location = location;
+        reload();
+    }
+
+    // ----- SINGLETON GET ----- \\
+
+    /**
+     * <h3>getInstance</h3>
+     * 
+     * This is the accessor method for the singleton. This ensures that there is
+     * only ever one instance of the ShotTable
+     * 
+     * @return the instance of ShotTable
+     */
+    public static synchronized ShotTable getInstance() {
+        if (instance == null) {
+            instance = new ShotTable();
+        }
+        return instance;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>reload</h3>
+     * 
+     * Reads the table from the deploy directory again. If the file is missing or
+     * has a bad row, the old table is kept.
+     * 
+     * @return true if the table was loaded
+     */
+    public boolean reload() {
+        try {
+            table = parse(Files.readAllLines(location));
+            System.out.println("Loaded " + table.distances.length + " shots from the shot table");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            System.out.println("****** COULDN'T LOAD SHOT TABLE ******");
+            return false;
+        }
+    }
+
+    /**
+     * <h3>lookup</h3>
+     * 
+     * Finds the setpoints for a distance by interpolating between the two shots
+     * on either side of it. Nothing is allocated, so this is safe to call every
+     * loop. Distances outside of the table can't be made, so the setpoints are
+     * all set to -1.
+     * 
+     * @param distance the distance from the hub in feet
+     * @param setpoint where to put the setpoints
+     */
+    public void lookup(double distance, ShotSetpoint setpoint) {
+        // Read the table once so a reload can't swap it out halfway through
+        Table currentTable = table;
+        double[] distances = currentTable.distances;
+        int last = distances.length - 1;
+
+        if (last < 0 || !(distance >= distances[0] && distance <= distances[last])) {
+            setpoint.set(NO_SHOT, NO_SHOT, NO_SHOT);
+            return;
+        }
+
+        // Binary search for the last shot at or before the distance. When two shots
+        // share a distance this finds the second one, which makes a step
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (distances[middle] <= distance) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        if (low == last) {
+            setpoint.set(currentTable.topSpeeds[last], currentTable.bottomSpeeds[last],
+                    currentTable.hoodPositions[last]);
+            return;
+        }
+
+        int after = low + 1;
+        double fraction = (distance - distances[low]) / (distances[after] - distances[low]);
+        setpoint.set(interpolate(currentTable.topSpeeds, low, fraction),
+                interpolate(currentTable.bottomSpeeds, low, fraction),
+                interpolate(currentTable.hoodPositions, low, fraction));
+    }
+
+    /**
+     * <h3>getMaxDistance</h3>
+     * 
+     * @return the farthest distance in the table in feet, or 0 if it is empty
+     */
+    public double getMaxDistance() {
+        double[] distances = table.distances;
+        return (distances.length == 0) ? 0 : distances[distances.length - 1];
+    }
+
+    /**
+     * <h3>interpolate</h3>
+     * 
+     * Linearly interpolates between a value and the one after it
+     * 
+     * @param values   the column to interpolate
+     * @param index    the index of the first value
+     * @param fraction how far to go towards the next value, from 0 to 1
+     * @return the interpolated value
+     */
+    private static double interpolate(double[] values, int index, double fraction) {
+        return values[index] + (values[index + 1] - values[index]) * fraction;
+    }
+
+    /**
+     * <h3>parse</h3>
+     * 
+     * Converts the lines of the table file to a table. Blank lines, lines
+     * starting with # and the column header are skipped.
+     * 
+     * @param lines the lines of the file
+     * @return the parsed table
+     * @throws IllegalArgumentException if a row is malformed or out of order
+     */
+    private static Table parse(List<String> lines) {
+        List<double[]> rows = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("distance")) {
+                continue;
+            }
+
+            String[] columns = line.split(",");
+            if (columns.length != 4) {
+                throw new IllegalArgumentException("Shot table line " + (i + 1) + " should have 4 columns");
+            }
+
+            double[] row = new double[4];
+            for (int column = 0; column < 4; column++) {
+                row[column] = Double.parseDouble(columns[column].trim());
+            }
+
+            if (!rows.isEmpty() && row[0] < rows.get(rows.size() - 1)[0]) {
+                throw new IllegalArgumentException("Shot table line " + (i + 1) + " is out of order");
+            }
+            rows.add(row);
+        }
+
+        // Split the rows into columns so lookups only touch the arrays they need
+        double[] distances = new double[rows.size()];
+        double[] topSpeeds = new double[rows.size()];
+        double[] bottomSpeeds = new double[rows.size()];
+        double[] hoodPositions = new double[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            double[] row = rows.get(i);
+            distances[i] = row[0];
+            topSpeeds[i] = row[1];
+            bottomSpeeds[i] = row[2];
+            hoodPositions[i] = row[3];
+        }
+        return new Table(distances, topSpeeds, bottomSpeeds, hoodPositions);
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>Table</h3>
+     * 
+     * The columns of the shot table, sorted by distance
+     */
+    private static class Table {
+        private final double[] distances;
+        private final double[] topSpeeds;
+        private final double[] bottomSpeeds;
+        private final double[] hoodPositions;
+
+        private Table(double[] distances, double[] topSpeeds, double[] bottomSpeeds, double[] hoodPositions) {
+            this.distances = distances;
+            this.topSpeeds = topSpeeds;
+            this.bottomSpeeds = bottomSpeeds;
+            this.hoodPositions = hoodPositions;
+        }
+    }
+
+    /**
+     * <h3>ShotSetpoint</h3>
+     * 
+     * Holds the result of a lookup. These are meant to be reused, so each thread
+     * that does lookups should keep its own.
+     */
+    public static class ShotSetpoint {
+        private double topSpeed;
+        private double bottomSpeed;
+        private double hoodPosition;
+
+        private void set(double topSpeed, double bottomSpeed, double hoodPosition) {
+            this.topSpeed = topSpeed;
+            this.bottomSpeed = bottomSpeed;
+            this.hoodPosition = hoodPosition;
+        }
+
+        /**
+         * @return the top roller speed in percent output
+         */
+        public double getTopSpeed() {
+            return topSpeed;
+        }
+
+        /**
+         * @return the bottom roller speed in percent output
+         */
+        public double getBottomSpeed() {
+            return bottomSpeed;
+        }
+
+        /**
+         * @return the hood position in degrees
+         */
+        public double getHoodPosition() {
+            return hoodPosition;
+        }
+
+        /**
+         * @return whether the shot can be made from this distance
+         */
+        public boolean isValid() {
+            return topSpeed != NO_SHOT;
+        }
+    }
+}
@@ -5,9 +5,10 @@ package frc.robot.utilities;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.EntryNotification;
@@ -19,7 +20,7 @@ import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
 
 //----- CLASS -----\\
 /**
@@ -37,10 +38,25 @@ public class ShuffleboardUtility {
 
     private static ShuffleboardUtility instance;
 
-    private Map<ShuffleboardKeys, MapData> shuffleboardMap;
-    private Map<ShuffleboardKeys, MapData> pastDataMap;
-
-    private SendableChooser<Command> autonChooser;
+    private static final int KEY_COUNT = ShuffleboardKeys.values().length;
+
+    // The widget for each key, what type it shows and the value it should show,
+    // indexed by the key's ordinal. Numbers and booleans are kept in primitive
+    // arrays so putting them every loop doesn't allocate
+    private final NetworkTableEntry[] entries = new NetworkTableEntry[KEY_COUNT];
+    private final EntryType[] entryTypes = new EntryType[KEY_COUNT];
+    private final double[] doubleValues = new double[KEY_COUNT];
+    private final boolean[] booleanValues = new boolean[KEY_COUNT];
+    private final Object[] objectValues = new Object[KEY_COUNT];
+
+    // The keys whose values changed since the last update. The values and this
+    // queue are only touched while holding this object's lock, since other
+    // threads can put values while the main loop is sending them
+    private final boolean[] isDirty = new boolean[KEY_COUNT];
+    private final int[] dirtyKeys = new int[KEY_COUNT];
+    private int dirtyCount = 0;
+
+    private SendableChooser<Supplier<Command>> autonChooser;
     private SendableChooser<Integer> pipelineChooser;
 
     private final boolean IS_DEBUGGING = false;
@@ -58,9 +74,6 @@ public class ShuffleboardUtility {
     // ----- CONSTRUCTOR -----\\
 
     private ShuffleboardUtility() {
-        shuffleboardMap = new HashMap<>();
-        pastDataMap = new HashMap<>();
-
         autonChooser = new SendableChooser<>();
 
         pipelineChooser = new SendableChooser<>();
@@ -132,6 +145,15 @@ public class ShuffleboardUtility {
         driverTab.add("Auton Path Selector", autonChooser);
 
         driverTab.add("Pipeline Selector", pipelineChooser);
+
+        // Lets us tune the shot table on the roborio without redeploying. This needs
+        // to run while disabled, since that is when we will be editing the table
+        testingTab.add("Reload Shot Table", new InstantCommand(() -> ShotTable.getInstance().reload()) {
+            @Override
+            public boolean runsWhenDisabled() {
+                return true;
+            }
+        });
     }
 
     // ----- METHOD(S) -----\\
@@ -152,66 +174,183 @@ public class ShuffleboardUtility {
     }
 
     /**
-     * <h3>putToDriverTab</h3>
+     * <h3>putDouble</h3>
      * 
-     * Receives data then inserts it into storage and the shuffleboard widgets on
-     * driver tab.
+     * Puts a number on shuffleboard. The widget is made the first time the key
+     * is put, and is only sent the new value on the next update if it changed.
      * 
-     * @param key
-     * @param data
+     * @param tab   the tab to show the number on
+     * @param key   the widget to show it in
+     * @param value the number
      */
-    public void putToShuffleboard(ShuffleboardTab tab, ShuffleboardKeys key, ShuffleBoardData<?> data) {
-        if (IS_DEBUGGING || !tab.equals(testingTab)) {
-            // Check to see if we have to add a new widget to the Shuffleboard tab
-            if (shuffleboardMap.containsKey(key)) {
-                // If the widget exists, simply update it to the new value
-                shuffleboardMap.put(key, new MapData(data, shuffleboardMap.get(key).m_entry));
-            } else {
-                // Since the widget doesn't exist, we need to create a new entry for it
-                shuffleboardMap.put(key, new MapData(data, tab.add(key.m_name, data.m_data).getEntry()));
-            }
+    public synchronized void putDouble(ShuffleboardTab tab, ShuffleboardKeys key, double value) {
+        int index = getIndex(tab, key, EntryType.DOUBLE);
+        if (index >= 0 && Double.compare(doubleValues[index], value) != 0) {
+            doubleValues[index] = value;
+            markDirty(index);
+        }
+    }
+
+    /**
+     * <h3>putBoolean</h3>
+     * 
+     * Puts a boolean on shuffleboard. The widget is made the first time the key
+     * is put, and is only sent the new value on the next update if it changed.
+     * 
+     * @param tab   the tab to show the boolean on
+     * @param key   the widget to show it in
+     * @param value the boolean
+     */
+    public synchronized void putBoolean(ShuffleboardTab tab, ShuffleboardKeys key, boolean value) {
+        int index = getIndex(tab, key, EntryType.BOOLEAN);
+        if (index >= 0 && booleanValues[index] != value) {
+            booleanValues[index] = value;
+            markDirty(index);
+        }
+    }
+
+    /**
+     * <h3>putString</h3>
+     * 
+     * Puts text on shuffleboard. The widget is made the first time the key is
+     * put, and is only sent the new value on the next update if it changed.
+     * 
+     * @param tab   the tab to show the text on
+     * @param key   the widget to show it in
+     * @param value the text
+     */
+    public synchronized void putString(ShuffleboardTab tab, ShuffleboardKeys key, String value) {
+        int index = getIndex(tab, key, EntryType.STRING);
+        if (index >= 0 && !objectValues[index].equals(value)) {
+            objectValues[index] = value;
+            markDirty(index);
         }
     }
 
     /**
-     * <h3>getFromShuffleboard</h3>
+     * <h3>putStringArray</h3>
      * 
-     * This method gets a value from the shuffleboard
+     * Puts a list of text on shuffleboard. The widget is made the first time the
+     * key is put, and is only sent the new value on the next update if it
+     * changed. The array is kept until then, so it shouldn't be changed after
+     * it is put.
      * 
-     * @param key the value to get from the shuffleboard
-     * @return the value that the shuffleboard has for the key
+     * @param tab   the tab to show the text on
+     * @param key   the widget to show it in
+     * @param value the text
      */
-    public ShuffleBoardData<?> getFromShuffleboard(ShuffleboardKeys key) {
-        if (shuffleboardMap.containsKey(key)) {
-            return shuffleboardMap.get(key).m_dataContainer;
-        } else {
-            return null;
+    public synchronized void putStringArray(ShuffleboardTab tab, ShuffleboardKeys key, String[] value) {
+        int index = getIndex(tab, key, EntryType.STRING_ARRAY);
+        if (index >= 0 && !Arrays.equals((String[]) objectValues[index], value)) {
+            objectValues[index] = value;
+            markDirty(index);
         }
     }
 
+    /**
+     * <h3>getDouble</h3>
+     * 
+     * @param key the widget to get the number from
+     * @return the last number put to the key, or 0 if nothing has been
+     */
+    public synchronized double getDouble(ShuffleboardKeys key) {
+        return doubleValues[key.ordinal()];
+    }
+
+    /**
+     * <h3>getBoolean</h3>
+     * 
+     * @param key the widget to get the boolean from
+     * @return the last boolean put to the key, or false if nothing has been
+     */
+    public synchronized boolean getBoolean(ShuffleboardKeys key) {
+        return booleanValues[key.ordinal()];
+    }
+
+    /**
+     * <h3>getString</h3>
+     * 
+     * @param key the widget to get the text from
+     * @return the last text put to the key, or null if nothing has been
+     */
+    public synchronized String getString(ShuffleboardKeys key) {
+        Object value = objectValues[key.ordinal()];
+        return value instanceof String ? (String) value : null;
+    }
+
     /**
      * <h3>update</h3>
      * 
-     * Updates all of the entries on shuffleboard
+     * Sends the values that changed since the last update to shuffleboard. This
+     * holds the lock while it sends, so a put from another thread waits until the
+     * values are sent instead of being lost from the queue.
      * 
      * Gets called in robotPeriodic
      */
-    public void update() {
-        MapData data;
-        for (ShuffleboardKeys currentKey : shuffleboardMap.keySet()) {
-            if (pastDataMap.containsKey(currentKey)) {
-                if (!pastDataMap.get(currentKey).equals(shuffleboardMap.get(currentKey))) {
-                    data = shuffleboardMap.get(currentKey);
-                    // Sets the network table entry
-                    data.m_entry.setValue(data.m_dataContainer.m_data);
-
-                    pastDataMap.put(currentKey, data);
-                }
-            } else {
-                pastDataMap.put(currentKey, shuffleboardMap.get(currentKey));
+    public synchronized void update() {
+        for (int i = 0; i < dirtyCount; i++) {
+            int index = dirtyKeys[i];
+            switch (entryTypes[index]) {
+                case DOUBLE:
+                    entries[index].setDouble(doubleValues[index]);
+                    break;
+                case BOOLEAN:
+                    entries[index].setBoolean(booleanValues[index]);
+                    break;
+                case STRING:
+                    entries[index].setString((String) objectValues[index]);
+                    break;
+                case STRING_ARRAY:
+                    entries[index].setStringArray((String[]) objectValues[index]);
+                    break;
+            }
+            isDirty[index] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * <h3>getIndex</h3>
+     * 
+     * Finds where a key's value is stored, making its widget the first time it
+     * is put. The widget starts with the type's default value, which is also
+     * what is stored, so the next put only sends its value if it is different.
+     * 
+     * @param tab  the tab to show the widget on
+     * @param key  the widget
+     * @param type the type of value being put
+     * @return the key's index, or -1 if it shouldn't be put
+     */
+    private int getIndex(ShuffleboardTab tab, ShuffleboardKeys key, EntryType type) {
+        int index = key.ordinal();
+        if (entries[index] == null) {
+            // The testing tab is only filled in while debugging
+            if (!IS_DEBUGGING && tab.equals(testingTab)) {
+                return -1;
             }
+            entries[index] = tab.add(key.m_name, type.m_defaultValue).getEntry();
+            entryTypes[index] = type;
+            objectValues[index] = type.m_defaultValue;
+        } else if (entryTypes[index] != type) {
+            System.out.println("****** SHUFFLEBOARD KEY " + key + " IS A " + entryTypes[index] + ", NOT A "
+                    + type + " ******");
+            return -1;
         }
+        return index;
+    }
 
+    /**
+     * <h3>markDirty</h3>
+     * 
+     * Queues a key to be sent on the next update
+     * 
+     * @param index the key's index
+     */
+    private void markDirty(int index) {
+        if (!isDirty[index]) {
+            isDirty[index] = true;
+            dirtyKeys[dirtyCount++] = index;
+        }
     }
 
     /**
@@ -244,9 +383,10 @@ public class ShuffleboardUtility {
      * Adds an option for auton selection
      * 
      * @param pathName    name of the path added
-     * @param autoCommand instance of the command being added
+     * @param autoCommand creates the command being added. This is only called
+     *                    once the path is selected
      */
-    public void addAutonOptions(String pathName, CommandBase autoCommand) {
+    public void addAutonOptions(String pathName, Supplier<Command> autoCommand) {
         autonChooser.addOption(pathName, autoCommand);
     }
 
@@ -255,9 +395,9 @@ public class ShuffleboardUtility {
      * 
      * Get the option selected on the Shuffleboard
      * 
-     * @return the selected auton path
+     * @return what creates the selected auton path
      */
-    public Command getSelectedAutonPath() {
+    public Supplier<Command> getSelectedAutonPath() {
         return autonChooser.getSelected();
     }
 
@@ -267,9 +407,10 @@ public class ShuffleboardUtility {
      * Sets the default option for auton selection
      * 
      * @param pathName    name of the path added
-     * @param autoCommand instance of the command being added
+     * @param autoCommand creates the command being added, or null for no
+     *                    command
      */
-    public void setDefaultAutonOptions(String pathName, CommandBase autoCommand) {
+    public void setDefaultAutonOptions(String pathName, Supplier<Command> autoCommand) {
         autonChooser.setDefaultOption(pathName, autoCommand);
     }
 
@@ -285,6 +426,7 @@ public class ShuffleboardUtility {
         SHOOTER_TOP_SPEED("Shooter Top Speed"),
         SHOOTER_BOTTOM_SPEED("Shooter Bottom Speed"),
         SHOOTER_HOOD_POSITION("Hood Position"),
+        SHOOTER_RECOVERY_TIME("Shooter Recovery Time"),
 
         // BALL MANAGEMENT
         LOADED_SENSOR("Loaded Sensor"),
@@ -308,10 +450,19 @@ public class ShuffleboardUtility {
         RIGHT_SPEED("Speed of right drivetrain"),
         DRIVETRAIN_SHIFTED("Drivetrain shifted"),
 
+        // CAN BUS
+        CAN_ESTIMATED_LOAD("Estimated CAN Load"),
+        CAN_MEASURED_LOAD("Measured CAN Load"),
+
+        // LOOP TIMING
+        LOOP_PROFILE("Slowest Loop Sections"),
+
         // MISCELLANEOUS
         CAMERA_STREAM("Camera stream"),
         DISTANCE_FROM_GOAL("Distance from goal"),
         PHOTON_READY("Photon Ready?"),
+        PHOTON_TIME_TO_READY("Photon Time To Ready"),
+        PHOTON_RECONNECTS("Photon Reconnects"),
 
         AIMED("Is Aimed?"),
         PHOTON_YAW("Photon Angle");
@@ -323,47 +474,22 @@ public class ShuffleboardUtility {
         }
     }
 
-    // ----- STRUCT(S) -----\\
-    /**
-     * <h3>ShuffleboardData</h3>
-     * 
-     * A template class for storing the data that we will put to shuffleboard
-     * 
-     * T is a generic type that could be anything
-     */
-    public static class ShuffleBoardData<T> {
-        private final T m_data;
-
-        public ShuffleBoardData(T data) {
-            m_data = data;
-        }
-
-        public T getData() {
-            return m_data;
-        }
-    }
-
     /**
-     * <h3>MapData</h3>
+     * <h3>EntryType</h3>
      * 
-     * Stores a pair of a data and a network table entry
+     * The types of value a widget can show, with what it shows before anything
+     * is put
      */
-    private static class MapData {
-        // A generic data entry
-        public final ShuffleBoardData<?> m_dataContainer;
-        // The network table entry that we will use to
-        public final NetworkTableEntry m_entry;
-
-        public MapData(ShuffleBoardData<?> data, NetworkTableEntry entry) {
-            m_dataContainer = data;
-            m_entry = entry;
-        }
+    private static enum EntryType {
+        DOUBLE(0.0),
+        BOOLEAN(false),
+        STRING(""),
+        STRING_ARRAY(new String[0]);
 
-        @Override
-        public boolean equals(Object obj) {
-            MapData compareData = (MapData) obj;
+        final Object m_defaultValue;
 
-            return compareData.m_dataContainer.getData().equals(m_dataContainer.getData());
+        EntryType(Object defaultValue) {
+            m_defaultValue = defaultValue;
         }
     }
 }
\ No newline at end of file
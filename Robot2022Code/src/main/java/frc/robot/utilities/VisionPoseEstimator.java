@@ -0,0 +1,226 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.utilities.PoseHistoryBuffer.PoseSample;
+
+/**
+ * <h3>VisionPoseEstimator</h3>
+ * 
+ * Corrects drift in the odometry with the hub camera. The hub is always in the
+ * same place, so the range and yaw to it tell us where the robot is on the
+ * field. That is blended with the odometry like a Kalman filter: the more we
+ * have driven since the last good frame, the more we trust the camera, and the
+ * farther away the hub is, the less.
+ * <p>
+ * The gyro is much better than the camera at heading, so only the position is
+ * corrected. The correction is kept as an offset on top of the odometry, which
+ * lets frames that are a few loops old be compared with the odometry from when
+ * they were captured.
+ */
+public class VisionPoseEstimator {
+    // ----- CONSTANTS ----- \\
+
+    // How unsure we are of the starting pose in meters. Autos start from a known
+    // spot, so this is small
+    private static final double INITIAL_STANDARD_DEVIATION = 0.1;
+    // How much drift the odometry picks up per meter driven, in meters
+    private static final double ODOMETRY_DRIFT_PER_METER = 0.05;
+    // How far off a hub measurement is up close, and how much worse it gets per
+    // meter of range, in meters. Most of this comes from the pitch smoothing and
+    // the yaw being a fraction of a degree off
+    private static final double VISION_BASE_STANDARD_DEVIATION = 0.15;
+    private static final double VISION_STANDARD_DEVIATION_PER_METER = 0.05;
+    // Measurements more than this many standard deviations from where we think
+    // we are are thrown out. These are usually reflections or the wrong target
+    private static final double OUTLIER_STANDARD_DEVIATIONS = 3.0;
+    // Frames captured while turning faster than this (in radians per second) are
+    // blurred, so they are thrown out
+    private static final double MAX_TURN_RATE = 2.0;
+
+    // The camera's range is to the vision tape, less the 0.2 m PhotonVisionUtility
+    // takes off so the shot table can use it. Working back to the centers of the
+    // robot and hub adds that back, the radius of the tape ring from the field
+    // drawings (4 ft 5.375 in across), and how far the camera is from the center
+    // of the robot
+    private static final double PHOTON_RANGE_ADJUSTMENT_METERS = 0.2;
+    private static final double HUB_TAPE_RADIUS_METERS = Units.inchesToMeters(53.375 / 2);
+    // PLACEHOLDER: this is a guess, it was never measured on the robot. Every
+    // inch it is off moves every corrected pose an inch, so measure from the
+    // camera lens to the center of the robot along the camera's axis, put that
+    // here and set IS_CAMERA_OFFSET_MEASURED before turning the correction on
+    private static final double CAMERA_TO_ROBOT_CENTER_METERS = Units.inchesToMeters(12.7);
+    static final double CAMERA_RANGE_TO_HUB_CENTER_OFFSET_METERS = PHOTON_RANGE_ADJUSTMENT_METERS
+            + HUB_TAPE_RADIUS_METERS + CAMERA_TO_ROBOT_CENTER_METERS;
+    // False until the camera offset above has been measured. The drive doesn't
+    // correct its pose with the hub camera until then, except in tests
+    public static final boolean IS_CAMERA_OFFSET_MEASURED = false;
+
+    // ----- VARIABLES ----- \\
+
+    // Where the center of the hub is on the field in meters
+    private final double hubX;
+    private final double hubY;
+
+    // How far the odometry is from the real pose, in meters
+    private double correctionX = 0;
+    private double correctionY = 0;
+    // How unsure we are of the corrected pose, in meters squared
+    private double variance;
+
+    private int acceptedCount = 0;
+    private int rejectedCount = 0;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>VisionPoseEstimator</h3>
+     * 
+     * Creates an estimator that uses the hub position of
+     * {@link frc.robot.utilities.CurrentToHubDistanceUtility
+     * CurrentToHubDistanceUtility}
+     */
+    public VisionPoseEstimator() {
+        this(new CurrentToHubDistanceUtility());
+    }
+
+    /**
+     * <h3>VisionPoseEstimator</h3>
+     * 
+     * @param hubDistanceUtility the utility that knows where the hub is
+     */
+    private VisionPoseEstimator(CurrentToHubDistanceUtility hubDistanceUtility) {
+        this(hubDistanceUtility.hubPosition.x, hubDistanceUtility.hubPosition.y);
+    }
+
+    /**
+     * <h3>VisionPoseEstimator</h3>
+     * 
+     * Creates an estimator for a hub at the passed position
+     * 
+     * @param hubX the x position of the center of the hub in meters
+     * @param hubY the y position of the center of the hub in meters
+     */
+    VisionPoseEstimator(double hubX, double hubY) {
+        this.hubX = hubX;
+        this.hubY = hubY;
+        reset();
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>reset</h3>
+     * 
+     * Throws away the correction. This should be called whenever the odometry is
+     * reset to a known pose.
+     */
+    public void reset() {
+        correctionX = 0;
+        correctionY = 0;
+        variance = INITIAL_STANDARD_DEVIATION * INITIAL_STANDARD_DEVIATION;
+    }
+
+    /**
+     * <h3>addOdometry</h3>
+     * 
+     * Grows how unsure we are of the pose by how far we drove. This needs to be
+     * called every loop.
+     * 
+     * @param distance how far the robot drove since last loop in meters
+     */
+    public void addOdometry(double distance) {
+        double drift = ODOMETRY_DRIFT_PER_METER * Math.abs(distance);
+        variance += drift * drift;
+    }
+
+    /**
+     * <h3>addHubMeasurement</h3>
+     * 
+     * Blends a hub camera frame into the correction
+     * 
+     * @param odometry the odometry when the frame was captured
+     * @param hubRange the range to the hub from the camera, as adjusted by
+     *                 {@link frc.robot.utilities.PhotonVisionUtility
+     *                 PhotonVisionUtility}, in meters
+     * @param hubYaw   the yaw to the hub in degrees, positive to the right
+     * @return true if the measurement was used
+     */
+    public boolean addHubMeasurement(PoseSample odometry, double hubRange, double hubYaw) {
+        double turnRate = (odometry.getRightSpeed() - odometry.getLeftSpeed()) / DriveSubsystem.TRACK_WIDTH;
+        if (hubRange <= 0 || Math.abs(turnRate) > MAX_TURN_RATE) {
+            rejectedCount++;
+            return false;
+        }
+
+        // Work back from the hub to where the camera says the center of the robot was
+        double distance = hubRange + CAMERA_RANGE_TO_HUB_CENTER_OFFSET_METERS;
+        double angleToHub = Math.toRadians(odometry.getHeading() - hubYaw);
+        double measuredX = hubX - distance * Math.cos(angleToHub);
+        double measuredY = hubY - distance * Math.sin(angleToHub);
+
+        // How far the camera is from where we think we were
+        double errorX = measuredX - (odometry.getX() + correctionX);
+        double errorY = measuredY - (odometry.getY() + correctionY);
+
+        double visionStandardDeviation = VISION_BASE_STANDARD_DEVIATION
+                + VISION_STANDARD_DEVIATION_PER_METER * distance;
+        double visionVariance = visionStandardDeviation * visionStandardDeviation;
+        double totalVariance = variance + visionVariance;
+
+        if (errorX * errorX + errorY * errorY > OUTLIER_STANDARD_DEVIATIONS * OUTLIER_STANDARD_DEVIATIONS
+                * totalVariance) {
+            rejectedCount++;
+            return false;
+        }
+
+        // Move towards the camera by how much more we trust it than the odometry
+        double gain = variance / totalVariance;
+        correctionX += gain * errorX;
+        correctionY += gain * errorY;
+        variance *= 1 - gain;
+        acceptedCount++;
+        return true;
+    }
+
+    // ----- GETTERS ----- \\
+
+    /**
+     * @return how far to move the odometry's x position to get the real one, in
+     *         meters
+     */
+    public double getCorrectionX() {
+        return correctionX;
+    }
+
+    /**
+     * @return how far to move the odometry's y position to get the real one, in
+     *         meters
+     */
+    public double getCorrectionY() {
+        return correctionY;
+    }
+
+    /**
+     * @return how unsure we are of the corrected position in meters
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * @return the number of measurements that were blended in
+     */
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * @return the number of measurements that were thrown out
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+}
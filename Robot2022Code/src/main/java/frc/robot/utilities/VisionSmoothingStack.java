@@ -1,7 +1,5 @@
 package frc.robot.utilities;
 
-import java.util.LinkedList;
-
 import org.photonvision.targeting.PhotonTrackedTarget;
 
 /**
@@ -11,15 +9,83 @@ import org.photonvision.targeting.PhotonTrackedTarget;
  * to use, otherwise we would be jittering all over the place
  */
 public class VisionSmoothingStack {
+    /**
+     * How many median absolute deviations a sample can be away from the median
+     * before it is thrown out as an outlier
+     */
+    private static final double OUTLIER_MAD_THRESHOLD = 3.0;
+
+    /**
+     * Scales the median absolute deviation so it lines up with a standard
+     * deviation for normally distributed noise
+     */
+    private static final double MAD_SCALE = 1.4826;
+
+    /**
+     * The smallest spread (in degrees) the outlier gate will use. Without this, a
+     * run of identical samples would give a spread of zero and reject everything
+     */
+    private static final double MIN_OUTLIER_SPREAD = 0.5;
+
+    /**
+     * The fewest samples needed before the outlier gate starts rejecting
+     */
+    private static final int MIN_OUTLIER_SAMPLES = 3;
+
     /**
      * The size of the vision smoothing stack
      */
     private final int stackSize;
 
     /**
-     * The list that will hold all of the vision results
+     * The filter used by the smoothed getters
+     */
+    private final SmoothingMode mode;
+
+    /**
+     * The ring buffers that hold the yaw and pitch of the vision results
+     */
+    private final double[] yawValues;
+    private final double[] pitchValues;
+
+    /**
+     * Scratch space used for sorting when finding medians, so we never allocate
+     * while filtering
+     */
+    private final double[] sortBuffer;
+
+    /**
+     * The weight given to new samples by the exponential moving average
+     */
+    private final double emaAlpha;
+
+    /**
+     * The index that the next result will be written to
+     */
+    private int head;
+
+    /**
+     * The number of results currently held in the buffers
+     */
+    private int count;
+
+    /**
+     * Running totals of everything in the buffers, so averages don't have to
+     * walk the whole stack
+     */
+    private double yawTotal;
+    private double pitchTotal;
+
+    /**
+     * The current exponential moving average of the yaw and pitch
+     */
+    private double yawEma;
+    private double pitchEma;
+
+    /**
+     * How many samples in a row the outlier gate has thrown out
      */
-    private final LinkedList<PhotonTrackedTarget> results;
+    private int rejectedInARow;
 
     /**
      * <h3>VisionSmoothingStack</h3>
@@ -30,8 +96,27 @@ public class VisionSmoothingStack {
      * @param size the size of the stack
      */
     public VisionSmoothingStack(int size) {
+        this(size, SmoothingMode.AVERAGE);
+    }
+
+    /**
+     * <h3>VisionSmoothingStack</h3>
+     * 
+     * Initializes a new {@link frc.robot.utilities.VisionSmoothingStack
+     * VisionSmoothingStack} with the passed stack size and filter
+     * 
+     * @param size the size of the stack
+     * @param mode the filter to use for the smoothed yaw and pitch
+     */
+    public VisionSmoothingStack(int size, SmoothingMode mode) {
         stackSize = size;
-        results = new LinkedList<>();
+        this.mode = mode;
+        yawValues = new double[size];
+        pitchValues = new double[size];
+        sortBuffer = new double[size];
+        // This gives the average the same center of mass as a rolling average of
+        // the same size
+        emaAlpha = 2.0 / (size + 1);
     }
 
     /**
@@ -44,10 +129,91 @@ public class VisionSmoothingStack {
      *               PhotonTrackedTarget} to add to the list
      */
     public void addItem(PhotonTrackedTarget result) {
-        if (results.size() >= stackSize) {
-            results.removeFirst();
+        addItem(result.getYaw(), result.getPitch());
+    }
+
+    /**
+     * <h3>addItem</h3>
+     * 
+     * Add the passed yaw and pitch to the buffers, overwriting the oldest values
+     * once the stack is full.
+     * 
+     * @param yaw   the yaw of the target in degrees
+     * @param pitch the pitch of the target in degrees
+     */
+    public void addItem(double yaw, double pitch) {
+        if (mode == SmoothingMode.OUTLIER_REJECTION && isOutlier(yaw, pitch)) {
+            rejectedInARow++;
+            // If we have thrown out a whole stack worth of samples, the target has
+            // really moved and the old samples are the ones that are wrong
+            if (rejectedInARow < stackSize) {
+                return;
+            }
+            clear();
+        }
+        rejectedInARow = 0;
+
+        // Once the buffers are full, the slot we are about to write holds the oldest
+        // value, so take it out of the running totals first
+        if (count >= stackSize) {
+            yawTotal -= yawValues[head];
+            pitchTotal -= pitchValues[head];
+        } else {
+            count++;
+        }
+
+        yawValues[head] = yaw;
+        pitchValues[head] = pitch;
+        yawTotal += yaw;
+        pitchTotal += pitch;
+
+        // The first sample seeds the moving average so it doesn't ramp up from zero
+        if (count == 1) {
+            yawEma = yaw;
+            pitchEma = pitch;
+        } else {
+            yawEma += emaAlpha * (yaw - yawEma);
+            pitchEma += emaAlpha * (pitch - pitchEma);
+        }
+
+        // Wrap the head back around to the start of the buffers
+        head = (head + 1) % stackSize;
+
+        // Adding and taking away values leaves a little rounding error in the
+        // totals each time, so add them up again once every full lap of the
+        // buffers to keep it from building up over a match
+        if (head == 0 && count == stackSize) {
+            resyncTotals();
+        }
+    }
+
+    /**
+     * <h3>resyncTotals</h3>
+     * 
+     * Adds the running totals up again from the values in the buffers
+     */
+    private void resyncTotals() {
+        yawTotal = 0;
+        pitchTotal = 0;
+        for (int i = 0; i < count; i++) {
+            yawTotal += yawValues[i];
+            pitchTotal += pitchValues[i];
         }
-        results.add(result);
+    }
+
+    /**
+     * <h3>clear</h3>
+     * 
+     * Removes all of the results from the stack
+     */
+    public void clear() {
+        head = 0;
+        count = 0;
+        yawTotal = 0;
+        pitchTotal = 0;
+        yawEma = 0;
+        pitchEma = 0;
+        rejectedInARow = 0;
     }
 
     /**
@@ -58,11 +224,7 @@ public class VisionSmoothingStack {
      * @return the average pitch of all the results
      */
     public double getAveragePitch() {
-        double total = 0;
-        for (PhotonTrackedTarget target : results) {
-            total += target.getPitch();
-        }
-        return (total / results.size());
+        return (pitchTotal / count);
     }
 
     /**
@@ -73,10 +235,178 @@ public class VisionSmoothingStack {
      * @return the average yaw of all the results
      */
     public double getAverageYaw() {
-        double total = 0;
-        for (PhotonTrackedTarget target : results) {
-            total += target.getYaw();
+        return (yawTotal / count);
+    }
+
+    /**
+     * <h3>getMedianPitch</h3>
+     * 
+     * Gets the median pitch of all the results
+     * 
+     * @return the median pitch of all the results
+     */
+    public double getMedianPitch() {
+        return median(pitchValues);
+    }
+
+    /**
+     * <h3>getMedianYaw</h3>
+     * 
+     * Gets the median yaw of all the results
+     * 
+     * @return the median yaw of all the results
+     */
+    public double getMedianYaw() {
+        return median(yawValues);
+    }
+
+    /**
+     * <h3>getSmoothedPitch</h3>
+     * 
+     * Gets the pitch using the filter that this stack was created with
+     * 
+     * @return the filtered pitch
+     */
+    public double getSmoothedPitch() {
+        switch (mode) {
+            case MEDIAN:
+                return getMedianPitch();
+            case EXPONENTIAL:
+                return (count == 0) ? Double.NaN : pitchEma;
+            default:
+                // Outlier rejection averages whatever made it through the gate
+                return getAveragePitch();
         }
-        return (total / results.size());
     }
-}
\ No newline at end of file
+
+    /**
+     * <h3>getSmoothedYaw</h3>
+     * 
+     * Gets the yaw using the filter that this stack was created with
+     * 
+     * @return the filtered yaw
+     */
+    public double getSmoothedYaw() {
+        switch (mode) {
+            case MEDIAN:
+                return getMedianYaw();
+            case EXPONENTIAL:
+                return (count == 0) ? Double.NaN : yawEma;
+            default:
+                // Outlier rejection averages whatever made it through the gate
+                return getAverageYaw();
+        }
+    }
+
+    /**
+     * <h3>getMode</h3>
+     * 
+     * Gets the filter that this stack was created with
+     * 
+     * @return the smoothing mode
+     */
+    public SmoothingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * <h3>isOutlier</h3>
+     * 
+     * Checks if either the yaw or pitch is too far from the median of the stack.
+     * The allowed distance is based on the median absolute deviation so a single
+     * bad value can't drag it around the way it would a standard deviation.
+     * 
+     * @param yaw   the yaw to check
+     * @param pitch the pitch to check
+     * @return true if the sample should be thrown out
+     */
+    private boolean isOutlier(double yaw, double pitch) {
+        // Not enough samples to know what the trend is yet
+        if (count < MIN_OUTLIER_SAMPLES) {
+            return false;
+        }
+        return isOutlier(yawValues, yaw) || isOutlier(pitchValues, pitch);
+    }
+
+    /**
+     * <h3>isOutlier</h3>
+     * 
+     * Checks if a value is too far from the median of a buffer
+     * 
+     * @param values the buffer to compare against
+     * @param value  the value to check
+     * @return true if the value is an outlier
+     */
+    private boolean isOutlier(double[] values, double value) {
+        double median = median(values);
+
+        // Find the median of the distances from the median
+        for (int i = 0; i < count; i++) {
+            sortBuffer[i] = Math.abs(values[i] - median);
+        }
+        double spread = Math.max(sortedMedian() * MAD_SCALE, MIN_OUTLIER_SPREAD);
+
+        return Math.abs(value - median) > OUTLIER_MAD_THRESHOLD * spread;
+    }
+
+    /**
+     * <h3>median</h3>
+     * 
+     * Finds the median of the filled part of a buffer
+     * 
+     * @param values the buffer to find the median of
+     * @return the median, or NaN if the stack is empty
+     */
+    private double median(double[] values) {
+        System.arraycopy(values, 0, sortBuffer, 0, count);
+        return sortedMedian();
+    }
+
+    /**
+     * <h3>sortedMedian</h3>
+     * 
+     * Sorts the filled part of the sort buffer and returns its median. The
+     * stack is only a handful of items, so an insertion sort is plenty.
+     * 
+     * @return the median, or NaN if the stack is empty
+     */
+    private double sortedMedian() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        for (int i = 1; i < count; i++) {
+            double current = sortBuffer[i];
+            int j = i - 1;
+            while (j >= 0 && sortBuffer[j] > current) {
+                sortBuffer[j + 1] = sortBuffer[j];
+                j--;
+            }
+            sortBuffer[j + 1] = current;
+        }
+
+        int middle = count / 2;
+        if (count % 2 == 0) {
+            return (sortBuffer[middle - 1] + sortBuffer[middle]) / 2.0;
+        }
+        return sortBuffer[middle];
+    }
+
+    // ----- ENUM -----\\
+
+    /**
+     * <h3>SmoothingMode</h3>
+     * 
+     * The filters that can be used to smooth the vision results
+     */
+    public static enum SmoothingMode {
+        // Plain rolling average of the stack
+        AVERAGE,
+        // Rolling median of the stack. A single bad frame can't move this at all
+        MEDIAN,
+        // Exponential moving average weighted like a rolling average of the same size
+        EXPONENTIAL,
+        // Rolling average that throws out samples too far from the median
+        OUTLIER_REJECTION
+    }
+}
@@ -0,0 +1,165 @@
+package frc.robot.utilities;
+
+import frc.robot.utilities.ShotTable.ShotSetpoint;
+
+/**
+ * <h3>VisionSnapshot</h3>
+ * 
+ * An immutable copy of everything the vision thread in
+ * {@link frc.robot.utilities.PhotonVisionUtility PhotonVisionUtility} worked
+ * out from one set of camera frames. Because it never changes after it is
+ * created, commands can read it from the main loop without any locking.
+ */
+public final class VisionSnapshot {
+    /**
+     * A snapshot with no targets, used before the vision thread has run
+     */
+    public static final VisionSnapshot EMPTY = new VisionSnapshot(false, 0, 0, 0, 0,
+            defaultShot(), false, 0, 0);
+
+    // ----- HUB CAMERA -----\\
+
+    private final boolean hasHubTarget;
+    private final double hubTimestamp;
+    private final double hubYaw;
+    private final double hubPitch;
+    private final double hubRange;
+
+    // ----- SHOOTER -----\\
+
+    private final double shooterTopSpeed;
+    private final double shooterBottomSpeed;
+    private final double shooterHoodPosition;
+
+    // ----- CARGO CAMERA -----\\
+
+    private final boolean hasCargoTarget;
+    private final double cargoYaw;
+    private final double cargoPitch;
+
+    /**
+     * <h3>VisionSnapshot</h3>
+     * 
+     * Creates a snapshot. When there is no hub target, the shot should be the one
+     * for the default distance.
+     * 
+     * @param hasHubTarget   whether the hub camera sees the hub
+     * @param hubTimestamp   the FPGA time in seconds that the hub frame was
+     *                       captured
+     * @param hubYaw         the yaw of the hub in this frame in degrees
+     * @param hubPitch       the smoothed pitch of the hub in degrees
+     * @param hubRange       the horizontal distance to the hub in meters
+     * @param shot           the shooter setpoints for the hub distance, which are
+     *                       copied so the caller can reuse it
+     * @param hasCargoTarget whether the cargo camera sees any cargo
+     * @param cargoYaw       the yaw of the best cargo in degrees
+     * @param cargoPitch     the pitch of the best cargo in degrees
+     */
+    public VisionSnapshot(boolean hasHubTarget, double hubTimestamp, double hubYaw, double hubPitch,
+            double hubRange, ShotSetpoint shot, boolean hasCargoTarget, double cargoYaw, double cargoPitch) {
+        this.hasHubTarget = hasHubTarget;
+        this.hubTimestamp = hubTimestamp;
+        this.hubYaw = hubYaw;
+        this.hubPitch = hubPitch;
+        this.hubRange = hubRange;
+
+        shooterTopSpeed = shot.getTopSpeed();
+        shooterBottomSpeed = shot.getBottomSpeed();
+        shooterHoodPosition = shot.getHoodPosition();
+
+        this.hasCargoTarget = hasCargoTarget;
+        this.cargoYaw = cargoYaw;
+        this.cargoPitch = cargoPitch;
+    }
+
+    /**
+     * @return whether the hub camera sees the hub
+     */
+    public boolean hasHubTarget() {
+        return hasHubTarget;
+    }
+
+    /**
+     * @return the FPGA time in seconds that the hub frame was captured
+     */
+    public double getHubTimestamp() {
+        return hubTimestamp;
+    }
+
+    /**
+     * @return the yaw of the hub relative to the camera in degrees. This is not
+     *         smoothed, because it is only valid for the heading the robot had at
+     *         the capture time
+     */
+    public double getHubYaw() {
+        return hubYaw;
+    }
+
+    /**
+     * @return the smoothed pitch of the hub relative to the camera in degrees
+     */
+    public double getHubPitch() {
+        return hubPitch;
+    }
+
+    /**
+     * @return the horizontal distance from the front of the robot to the hub in
+     *         meters, or 0 if there is no target
+     */
+    public double getHubRange() {
+        return hubRange;
+    }
+
+    /**
+     * @return the top shooter speed for the hub distance in percent output
+     */
+    public double getShooterTopSpeed() {
+        return shooterTopSpeed;
+    }
+
+    /**
+     * @return the bottom shooter speed for the hub distance in percent output
+     */
+    public double getShooterBottomSpeed() {
+        return shooterBottomSpeed;
+    }
+
+    /**
+     * @return the hood position for the hub distance in degrees
+     */
+    public double getShooterHoodPosition() {
+        return shooterHoodPosition;
+    }
+
+    /**
+     * @return whether the cargo camera sees any cargo
+     */
+    public boolean hasCargoTarget() {
+        return hasCargoTarget;
+    }
+
+    /**
+     * @return the yaw of the best cargo in degrees
+     */
+    public double getCargoYaw() {
+        return cargoYaw;
+    }
+
+    /**
+     * @return the pitch of the best cargo in degrees
+     */
+    public double getCargoPitch() {
+        return cargoPitch;
+    }
+
+    /**
+     * <h3>defaultShot</h3>
+     * 
+     * @return the shooter setpoints for the default distance
+     */
+    private static ShotSetpoint defaultShot() {
+        ShotSetpoint shot = new ShotSetpoint();
+        ShooterUtility.calculateShot(ShooterUtility.DEFAULT_DISTANCE, shot);
+        return shot;
+    }
+}
@@ -0,0 +1,366 @@
+package frc.robot;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.utilities.CargoSimulation;
+import frc.robot.utilities.LoopProfiler;
+import frc.robot.utilities.PathPlannerSequentialCommandGroupUtility;
+
+/**
+ * <h3>AutoSimulationTest</h3>
+ * 
+ * Runs every auto on the chooser in simulation as fast as the computer can,
+ * without the simulator GUI, so a broken auto fails the build instead of a
+ * match. Each auto is its own test case. To only run some of them:
+ * {@code ./gradlew simulateAutos --tests "*FiveBallAuto*"}
+ * <p>
+ * The real robot code is started the same way the simulator starts it, except
+ * the simulated clock is paused and stepped one loop at a time. Each auto is
+ * picked on the auto chooser, then the robot is enabled in autonomous until the
+ * auto command finishes or the autonomous period runs out. The drivetrain is
+ * simulated under the real DriveSubsystem, so this runs the same path following
+ * code as the robot. Each auto has to finish inside the autonomous period, end
+ * close to the end of its path, and not have too many loops that took longer
+ * than a real loop has.
+ * <p>
+ * Cargo is simulated too. The robot starts with its preloaded cargo, and cargo
+ * is put on the field at the end of every path in the auto, since that is
+ * where our autos pick it up. Every auto that shoots has to get at least one
+ * cargo out through the shooter, and no picked up cargo can take too long to
+ * be shot. The report includes how many cargo were shot, how long the last one
+ * took from pickup to the loaded sensor and from there out of the shooter, and
+ * the longest any cargo took from pickup to shot.
+ */
+@RunWith(Parameterized.class)
+public class AutoSimulationTest {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // How long the autonomous period is in seconds
+    private static final double AUTONOMOUS_LENGTH = 15.0;
+    // How long to keep running after the path ends, so the robot can settle
+    private static final double SETTLE_TIME = 0.5;
+    // How many loops to run disabled between autos
+    private static final int DISABLED_LOOPS = 5;
+    // How far from the end of the path the robot can finish, in meters
+    private static final double MAX_POSE_ERROR = 0.3;
+    // The fraction of loops that can take longer than a real loop. A build
+    // machine is shared and the first auto runs before the JIT has warmed up, so
+    // a few are allowed
+    private static final double MAX_OVERRUN_FRACTION = 0.05;
+    // The longest a cargo can take from pickup to leaving the shooter, in
+    // seconds. Our longest drive from cargo back to a shot is about 3 s, so a
+    // cargo slower than this is stuck somewhere in the robot
+    private static final double MAX_CYCLE_TIME = 5.0;
+
+    // Where the auto chooser is on NetworkTables
+    private static final String CHOOSER_TABLE = "Shuffleboard/Driver Tab/Auton Path Selector";
+    // The chooser option that doesn't run an auto
+    private static final String NO_AUTO = "(None)";
+    // The autos that only drive and never shoot
+    private static final List<String> AUTOS_WITHOUT_SHOTS = Arrays.asList("defaultAutoPathCommand");
+
+    // ----- VARIABLES ----- \\
+
+    // The robot is started once and every auto is run on it, like autos being
+    // picked one after another on a real robot
+    private static SimulatedRobot robot;
+    // How every auto went, to show them all together at the end
+    private static final List<AutoResult> results = new ArrayList<>();
+
+    private final String auto;
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>AutoSimulationTest</h3>
+     * 
+     * @param auto the name of the auto on the chooser
+     */
+    public AutoSimulationTest(String auto) {
+        this.auto = auto;
+    }
+
+    // ----- SETUP ----- \\
+
+    /**
+     * <h3>autos</h3>
+     * 
+     * Starts the robot code and reads the autos off of its chooser
+     * 
+     * @return the name of every auto, one test case each
+     */
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> autos() {
+        startRobot();
+        List<Object[]> autos = new ArrayList<>();
+        for (String option : getChooserTable().getEntry("options").getStringArray(new String[0])) {
+            if (!option.equals(NO_AUTO)) {
+                autos.add(new Object[] { option });
+            }
+        }
+        assertFalse("No autos on the chooser", autos.isEmpty());
+        return autos;
+    }
+
+    @AfterClass
+    public static void printProfile() {
+        // Every auto in one table, so a run can be compared with the last one
+        System.out.println(AutoResult.HEADER);
+        for (AutoResult result : results) {
+            System.out.println(result);
+        }
+
+        // Show what the loop spent its time on, to explain any overruns
+        System.out.println("Slowest parts of the loop in the last report:");
+        for (String line : LoopProfiler.getInstance().getReport()) {
+            System.out.println(line);
+        }
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void autoFinishesAtEndOfPath() {
+        AutoResult result = robot.runAuto(auto);
+        results.add(result);
+        System.out.println(AutoResult.HEADER);
+        System.out.println(result);
+
+        assertTrue(auto + " didn't finish in autonomous, took " + result.time + " s", result.isFinished);
+        assertTrue(auto + " ended " + result.poseError + " m from the end of its path",
+                result.poseError <= MAX_POSE_ERROR);
+        assertTrue(auto + " overran " + result.overruns + " of " + result.loops + " loops",
+                result.overruns <= MAX_OVERRUN_FRACTION * result.loops);
+
+        // The hood, indexer, intake and cargo simulations have to carry cargo from
+        // the intake out through the shooter for an auto to score
+        if (!AUTOS_WITHOUT_SHOTS.contains(auto)) {
+            assertTrue(auto + " never shot", result.shots > 0);
+        }
+        // NaN means only the preloaded cargo was shot, which has no cycle time
+        assertTrue(auto + " took " + result.longestCycleTime + " s to cycle a cargo",
+                Double.isNaN(result.longestCycleTime) || result.longestCycleTime <= MAX_CYCLE_TIME);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>startRobot</h3>
+     * 
+     * Starts the HAL with the clock paused and runs robotInit, the first time it
+     * is called
+     */
+    private static void startRobot() {
+        if (robot != null) {
+            return;
+        }
+
+        assertTrue("Couldn't start the HAL", HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+
+        robot = new SimulatedRobot();
+        robot.robotInit();
+        setMode(false, false);
+        robot.step();
+    }
+
+    /**
+     * <h3>setMode</h3>
+     * 
+     * Tells the robot it is enabled or disabled, and in autonomous or teleop, and
+     * waits for it to see the change
+     * 
+     * @param isEnabled    true if the robot should be enabled
+     * @param isAutonomous true if the robot should be in autonomous
+     */
+    private static void setMode(boolean isEnabled, boolean isAutonomous) {
+        DriverStationSim.setAutonomous(isAutonomous);
+        DriverStationSim.setEnabled(isEnabled);
+        DriverStationSim.notifyNewData();
+        DriverStation.waitForData(1.0);
+    }
+
+    /**
+     * <h3>getChooserTable</h3>
+     * 
+     * @return the NetworkTable the auto chooser is on
+     */
+    private static NetworkTable getChooserTable() {
+        return NetworkTableInstance.getDefault().getTable(CHOOSER_TABLE);
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>SimulatedRobot</h3>
+     * 
+     * The real robot, with its loop run by the test instead of by a timer
+     */
+    private static class SimulatedRobot extends Robot {
+        /**
+         * <h3>runAuto</h3>
+         * 
+         * Picks an auto on the chooser, disables the robot for a few loops so it
+         * gets created, then runs it in autonomous
+         * 
+         * @param name the name of the auto on the chooser
+         * @return how the auto went
+         */
+        private AutoResult runAuto(String name) {
+            getChooserTable().getEntry("selected").setString(name);
+            setMode(false, false);
+            for (int i = 0; i < DISABLED_LOOPS; i++) {
+                step();
+            }
+
+            setMode(true, true);
+            double startTime = Timer.getFPGATimestamp();
+            long startRealTime = System.nanoTime();
+            step();
+
+            RobotContainer container = getRobotContainer();
+            Command autoCommand = container.getAutonomousCommand();
+            Trajectory trajectory = container.getAutonomousTrajectory();
+            assertNotNull(name + " has no command", autoCommand);
+            assertNotNull(name + " has no trajectory", trajectory);
+
+            // Autonomous just reset the cargo, so the field cargo goes out now
+            CargoSimulation cargo = container.getCargoSimulation();
+            for (Trajectory path : ((PathPlannerSequentialCommandGroupUtility) autoCommand).getTrajectories()) {
+                cargo.addFieldCargo(path.sample(path.getTotalTimeSeconds()).poseMeters.getTranslation());
+            }
+
+            // Run the auto the way the robot would, until it finishes or autonomous
+            // is over
+            int loops = 0;
+            int overruns = 0;
+            long worstLoop = 0;
+            double elapsed = 0.0;
+            while (autoCommand.isScheduled() && elapsed < AUTONOMOUS_LENGTH) {
+                long loopTime = step();
+                loops++;
+                worstLoop = Math.max(worstLoop, loopTime);
+                if (loopTime > LOOP_PERIOD * 1e9) {
+                    overruns++;
+                }
+                elapsed = Timer.getFPGATimestamp() - startTime;
+            }
+            boolean isFinished = !autoCommand.isScheduled();
+            double realTime = (System.nanoTime() - startRealTime) / 1e9;
+
+            // Let the robot settle before checking where it stopped
+            double settleEnd = Timer.getFPGATimestamp() + SETTLE_TIME;
+            while (Timer.getFPGATimestamp() < settleEnd) {
+                step();
+            }
+
+            Pose2d finalPose = container.getDrivePose();
+            Pose2d targetPose = trajectory.sample(trajectory.getTotalTimeSeconds()).poseMeters;
+            double poseError = finalPose.getTranslation().getDistance(targetPose.getTranslation());
+
+            return new AutoResult(name, elapsed, realTime, isFinished, poseError, loops, overruns,
+                    worstLoop / 1e6, cargo.getShotCount(), cargo.getLastIndexTime(), cargo.getLastShootTime(),
+                    cargo.getLastCycleTime(), cargo.getLongestCycleTime());
+        }
+
+        /**
+         * <h3>step</h3>
+         * 
+         * Runs one robot loop, then moves the simulated clock forward by one loop
+         * 
+         * @return how long the robot loop took in real time, in nanoseconds
+         */
+        private long step() {
+            long start = System.nanoTime();
+            loopFunc();
+            long loopTime = System.nanoTime() - start;
+            SimHooks.stepTiming(LOOP_PERIOD);
+            return loopTime;
+        }
+    }
+
+    /**
+     * <h3>AutoResult</h3>
+     * 
+     * How one auto went
+     */
+    private static class AutoResult {
+        private static final String HEADER = String.format(Locale.US,
+                "%-24s %10s %10s %12s %10s %16s %7s %10s %10s %10s %12s", "Auto", "Time (s)", "Real (s)",
+                "Error (m)", "Overruns", "Worst loop (ms)", "Shots", "Index (s)", "Shoot (s)", "Cycle (s)",
+                "Longest (s)");
+
+        private final String name;
+        // How long the auto took on the simulated clock
+        private final double time;
+        // How long it took to simulate. The clock is stepped as soon as each loop
+        // is done, so this is much less than the time above
+        private final double realTime;
+        private final boolean isFinished;
+        private final double poseError;
+        private final int loops;
+        private final int overruns;
+        private final double worstLoop;
+        private final int shots;
+        // The last cargo shot's time from pickup to the loaded sensor, from there
+        // out through the shooter, and in total
+        private final double indexTime;
+        private final double shootTime;
+        private final double cycleTime;
+        private final double longestCycleTime;
+
+        private AutoResult(String name, double time, double realTime, boolean isFinished, double poseError,
+                int loops, int overruns, double worstLoop, int shots, double indexTime, double shootTime,
+                double cycleTime, double longestCycleTime) {
+            this.name = name;
+            this.time = time;
+            this.realTime = realTime;
+            this.isFinished = isFinished;
+            this.poseError = poseError;
+            this.loops = loops;
+            this.overruns = overruns;
+            this.worstLoop = worstLoop;
+            this.shots = shots;
+            this.indexTime = indexTime;
+            this.shootTime = shootTime;
+            this.cycleTime = cycleTime;
+            this.longestCycleTime = longestCycleTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-24s %10.2f %10.2f %12.3f %10d %16.2f %7d %10.2f %10.2f %10.2f %12.2f",
+                    name, time, realTime, poseError, overruns, worstLoop, shots, indexTime, shootTime, cycleTime,
+                    longestCycleTime);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package frc.robot;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystems.DriveIOSim;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.utilities.HubCameraSimulation;
+import frc.robot.utilities.ShifterUtility;
+
+/**
+ * <h3>VisionCorrectionSimulationTest</h3>
+ * 
+ * Runs FiveBallAuto in simulation twice on a drivetrain whose encoders read a
+ * little long, once on odometry alone and once with the hub camera correcting
+ * it, and checks that the camera leaves the robot knowing better where it is
+ * at the end. The hub frames come from {@link HubCameraSimulation}, which
+ * makes them from where the simulated robot really is.
+ * <p>
+ * This only shows the correction helps when the camera offset it uses is
+ * right, since the simulated camera uses the same offset. It says nothing
+ * about the real camera until that offset has been measured.
+ */
+public class VisionCorrectionSimulationTest {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // How long the autonomous period is in seconds
+    private static final double AUTONOMOUS_LENGTH = 15.0;
+    // How long to keep running after the auto ends, so the robot can settle
+    private static final double SETTLE_TIME = 0.5;
+    // How many loops to run disabled before the auto, so it gets created
+    private static final int DISABLED_LOOPS = 5;
+    // The encoders count 3% more than the wheels really drive. This isn't
+    // measured, it is just enough drift over a whole auto to be well above the
+    // noise on the simulated camera
+    private static final double ENCODER_SCALE = 1.03;
+
+    // The longest auto we have, so it drifts the most
+    private static final String AUTO = "FiveBallAuto";
+    // Where the auto chooser is on NetworkTables
+    private static final String CHOOSER_TABLE = "Shuffleboard/Driver Tab/Auton Path Selector";
+
+    // ----- VARIABLES ----- \\
+
+    private static SimulatedRobot robot;
+
+    // ----- SETUP ----- \\
+
+    @BeforeClass
+    public static void startRobot() {
+        assertTrue("Couldn't start the HAL", HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+
+        robot = new SimulatedRobot();
+        robot.robotInit();
+        setMode(false, false);
+        robot.step();
+    }
+
+    @AfterClass
+    public static void stopRobot() {
+        ShifterUtility.setShifterState(false);
+        SimHooks.resumeTiming();
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void hubCameraReducesEndOfAutoError() {
+        AutoResult odometryOnly = robot.runAuto(false);
+        AutoResult withVision = robot.runAuto(true);
+        System.out.println(String.format(Locale.US, "%-14s %16s %14s %8s %8s", "Correction",
+                "Pose error (m)", "Path error (m)", "Frames", "Used"));
+        System.out.println(odometryOnly.toString("Odometry"));
+        System.out.println(withVision.toString("Hub camera"));
+
+        assertTrue("The camera never saw the hub", withVision.acceptedFrames > 0);
+        assertTrue("Correcting with the camera left the pose " + withVision.poseError
+                + " m off, odometry alone was " + odometryOnly.poseError + " m off",
+                withVision.poseError < odometryOnly.poseError);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>setMode</h3>
+     * 
+     * Tells the robot it is enabled or disabled, and in autonomous or teleop, and
+     * waits for it to see the change
+     * 
+     * @param isEnabled    true if the robot should be enabled
+     * @param isAutonomous true if the robot should be in autonomous
+     */
+    private static void setMode(boolean isEnabled, boolean isAutonomous) {
+        DriverStationSim.setAutonomous(isAutonomous);
+        DriverStationSim.setEnabled(isEnabled);
+        DriverStationSim.notifyNewData();
+        DriverStation.waitForData(1.0);
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>SimulatedRobot</h3>
+     * 
+     * The real robot, with its loop run by the test instead of by a timer
+     */
+    private static class SimulatedRobot extends Robot {
+        /**
+         * <h3>runAuto</h3>
+         * 
+         * Puts the simulated robot at the start of the auto and runs it with the
+         * encoders reading long
+         * 
+         * @param isVisionEnabled true to correct the odometry with the hub camera
+         * @return how far off the robot was at the end
+         */
+        private AutoResult runAuto(boolean isVisionEnabled) {
+            NetworkTableInstance.getDefault().getTable(CHOOSER_TABLE).getEntry("selected").setString(AUTO);
+            setMode(false, false);
+            for (int i = 0; i < DISABLED_LOOPS; i++) {
+                step();
+            }
+
+            RobotContainer container = getRobotContainer();
+            Trajectory trajectory = container.getAutonomousTrajectory();
+            assertNotNull(AUTO + " has no trajectory", trajectory);
+            DriveSubsystem drive = container.getDriveSubsystem();
+            DriveIOSim drivetrain = (DriveIOSim) drive.getIO();
+            HubCameraSimulation camera = container.getHubCameraSimulation();
+
+            // Put the robot where the auto will tell the odometry it starts
+            drivetrain.setTruePose(trajectory.getInitialPose());
+            drivetrain.setEncoderScale(ENCODER_SCALE);
+            drive.setVisionCorrectionEnabled(isVisionEnabled);
+            int startingAccepted = drive.getPoseEstimator().getAcceptedCount();
+
+            setMode(true, true);
+            double startTime = Timer.getFPGATimestamp();
+            step();
+            Command autoCommand = container.getAutonomousCommand();
+            while (autoCommand.isScheduled() && Timer.getFPGATimestamp() - startTime < AUTONOMOUS_LENGTH) {
+                step();
+            }
+            double settleEnd = Timer.getFPGATimestamp() + SETTLE_TIME;
+            while (Timer.getFPGATimestamp() < settleEnd) {
+                step();
+            }
+
+            Pose2d truePose = drivetrain.getTruePose();
+            Pose2d targetPose = trajectory.sample(trajectory.getTotalTimeSeconds()).poseMeters;
+            double poseError = Math.hypot(drive.getEstimatedX() - truePose.getX(),
+                    drive.getEstimatedY() - truePose.getY());
+            double pathError = truePose.getTranslation().getDistance(targetPose.getTranslation());
+            return new AutoResult(poseError, pathError, camera.getFrameCount(),
+                    drive.getPoseEstimator().getAcceptedCount() - startingAccepted);
+        }
+
+        /**
+         * <h3>step</h3>
+         * 
+         * Runs one robot loop, then moves the simulated clock forward by one loop
+         */
+        private void step() {
+            loopFunc();
+            SimHooks.stepTiming(LOOP_PERIOD);
+        }
+    }
+
+    /**
+     * <h3>AutoResult</h3>
+     * 
+     * How far off the robot was at the end of one run of the auto
+     */
+    private static class AutoResult {
+        // How far the estimated pose was from where the robot really was
+        private final double poseError;
+        // How far the robot really was from the end of the path
+        private final double pathError;
+        private final int frames;
+        private final int acceptedFrames;
+
+        private AutoResult(double poseError, double pathError, int frames, int acceptedFrames) {
+            this.poseError = poseError;
+            this.pathError = pathError;
+            this.frames = frames;
+            this.acceptedFrames = acceptedFrames;
+        }
+
+        private String toString(String correction) {
+            return String.format(Locale.US, "%-14s %16.3f %14.3f %8d %8d", correction, poseError, pathError,
+                    frames, acceptedFrames);
+        }
+    }
+}
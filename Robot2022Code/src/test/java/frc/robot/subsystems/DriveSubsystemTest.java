@@ -0,0 +1,200 @@
+package frc.robot.subsystems;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.utilities.PhotonVisionUtility;
+import frc.robot.utilities.ShifterUtility;
+
+/**
+ * <h3>DriveSubsystemTest</h3>
+ * 
+ * Drives the real DriveSubsystem on the simulated drivetrain and checks the
+ * odometry against where the simulated robot really is, shifting part way
+ * through. The odometry is also checked against WPILib's
+ * DifferentialDriveOdometry fed the same distances, since it is meant to do
+ * the same math without making objects.
+ */
+public class DriveSubsystemTest {
+    // ----- CONSTANTS ----- \\
+
+    // How long one robot loop is in seconds
+    private static final double LOOP_PERIOD = 0.02;
+    // How long to drive in each gear in seconds
+    private static final double GEAR_TIME = 1.5;
+    // Driving the sides at different voltages curves the path, so the heading
+    // matters as well as the distance
+    private static final double LEFT_VOLTAGE = 6.0;
+    private static final double RIGHT_VOLTAGE = 8.0;
+    // The simulation integrates the same wheel motion more finely than one arc a
+    // loop, so the odometry is allowed to be a little off
+    private static final double MAX_POSE_ERROR = 0.02;
+    private static final double MAX_HEADING_ERROR = 1e-6;
+    // Our odometry and WPILib's should agree to rounding
+    private static final double MATCH_DELTA = 1e-9;
+    // A stopped robot can still be creeping a tiny bit
+    private static final double STOPPED_DELTA = 1e-4;
+
+    // ----- VARIABLES ----- \\
+
+    private DriveIOSim io;
+    private DriveSubsystem drive;
+    private DifferentialDriveOdometry wpilibOdometry;
+
+    // ----- SETUP ----- \\
+
+    @BeforeClass
+    public static void startHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Before
+    public void setUp() {
+        SimHooks.pauseTiming();
+        ShifterUtility.setShifterState(false);
+        io = new DriveIOSim();
+        drive = new DriveSubsystem(io);
+        wpilibOdometry = new DifferentialDriveOdometry(Rotation2d.fromDegrees(drive.getContinuousHeading()));
+    }
+
+    @After
+    public void tearDown() {
+        ShifterUtility.setShifterState(false);
+        SimHooks.resumeTiming();
+    }
+
+    @AfterClass
+    public static void stopVision() {
+        // The drive reads the latest hub frame every loop, which starts vision
+        PhotonVisionUtility.getInstance().close();
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void odometryFollowsSimulationThroughShifts() {
+        // High gear, then low gear part way along, then high again
+        runLoops(GEAR_TIME);
+        ShifterUtility.setShifterState(true);
+        runLoops(GEAR_TIME);
+        ShifterUtility.setShifterState(false);
+        runLoops(GEAR_TIME);
+
+        Pose2d truth = io.getTruePose();
+        double error = Math.hypot(drive.getEstimatedX() - truth.getX(), drive.getEstimatedY() - truth.getY());
+        double headingError = Math.abs(
+                Math.IEEEremainder(drive.getEstimatedHeading() - truth.getRotation().getRadians(), 2 * Math.PI));
+        System.out.println(String.format(Locale.US,
+                "Drove %.2f m and turned %.1f degrees with two shifts: odometry off by %.4f m and %.2e rad",
+                (drive.getLeftDistance() + drive.getRightDistance()) / 2, drive.getContinuousHeading(), error,
+                headingError));
+
+        // Make sure the robot really went somewhere and turned
+        assertTrue((drive.getLeftDistance() + drive.getRightDistance()) / 2 > 3.0);
+        assertTrue(Math.abs(drive.getContinuousHeading()) > 30.0);
+        assertTrue("Odometry was off by " + error + " m", error < MAX_POSE_ERROR);
+        assertTrue("Odometry heading was off by " + headingError + " rad", headingError < MAX_HEADING_ERROR);
+    }
+
+    @Test
+    public void shiftingWhileStoppedDoesNotMoveOdometry() {
+        runLoops(GEAR_TIME);
+        stopAndSettle();
+        double x = drive.getEstimatedX();
+        double y = drive.getEstimatedY();
+        double leftDistance = drive.getLeftDistance();
+
+        // Rescaling every tick by the new gear would pull the pose back by about
+        // half of the distance driven here
+        ShifterUtility.setShifterState(true);
+        runLoops(1.0, 0.0, 0.0);
+        assertEquals(x, drive.getEstimatedX(), STOPPED_DELTA);
+        assertEquals(y, drive.getEstimatedY(), STOPPED_DELTA);
+        assertEquals(leftDistance, drive.getLeftDistance(), STOPPED_DELTA);
+    }
+
+    @Test
+    public void resetOdometryStartsFromPassedPose() {
+        runLoops(GEAR_TIME);
+        Pose2d start = new Pose2d(5.0, 2.0, Rotation2d.fromDegrees(135));
+        double gyroAtReset = drive.getContinuousHeading();
+        drive.resetOdometry(start);
+        wpilibOdometry.resetPosition(start, Rotation2d.fromDegrees(gyroAtReset));
+        assertEquals(start.getX(), drive.getEstimatedX(), MATCH_DELTA);
+        assertEquals(start.getY(), drive.getEstimatedY(), MATCH_DELTA);
+        assertEquals(start.getRotation().getRadians(), drive.getEstimatedHeading(), MATCH_DELTA);
+
+        // The robot drives off from the new pose, turning from the new heading.
+        // Every loop of this is checked against WPILib too
+        ShifterUtility.setShifterState(true);
+        runLoops(GEAR_TIME);
+        assertTrue(Math.hypot(drive.getEstimatedX() - start.getX(), drive.getEstimatedY() - start.getY()) > 0.5);
+        double turned = Math.toRadians(drive.getContinuousHeading() - gyroAtReset);
+        assertEquals(0, Math.IEEEremainder(
+                drive.getEstimatedHeading() - start.getRotation().getRadians() - turned, 2 * Math.PI), MATCH_DELTA);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>runLoops</h3>
+     * 
+     * Drives on the curve for a while
+     * 
+     * @param seconds how long to drive for
+     */
+    private void runLoops(double seconds) {
+        runLoops(seconds, LEFT_VOLTAGE, RIGHT_VOLTAGE);
+    }
+
+    /**
+     * <h3>runLoops</h3>
+     * 
+     * Runs the drive the way the robot does each loop, and checks every loop
+     * that the odometry matches WPILib's given the same distances and heading
+     * 
+     * @param seconds      how long to drive for
+     * @param leftVoltage  the voltage for the left side
+     * @param rightVoltage the voltage for the right side
+     */
+    private void runLoops(double seconds, double leftVoltage, double rightVoltage) {
+        for (int loop = 0; loop < Math.round(seconds / LOOP_PERIOD); loop++) {
+            drive.setVoltages(leftVoltage, rightVoltage);
+            drive.periodic();
+
+            Pose2d expected = wpilibOdometry.update(Rotation2d.fromDegrees(drive.getContinuousHeading()),
+                    drive.getLeftDistance(), drive.getRightDistance());
+            assertEquals(expected.getX(), drive.getEstimatedX(), MATCH_DELTA);
+            assertEquals(expected.getY(), drive.getEstimatedY(), MATCH_DELTA);
+            assertEquals(0, Math.IEEEremainder(expected.getRotation().getRadians() - drive.getEstimatedHeading(),
+                    2 * Math.PI), MATCH_DELTA);
+
+            drive.simulationPeriodic();
+            SimHooks.stepTiming(LOOP_PERIOD);
+        }
+    }
+
+    /**
+     * <h3>stopAndSettle</h3>
+     * 
+     * Stops the motors and waits for the robot to stop rolling
+     */
+    private void stopAndSettle() {
+        runLoops(2.0, 0.0, 0.0);
+    }
+}
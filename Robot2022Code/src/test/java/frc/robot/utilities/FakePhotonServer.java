@@ -0,0 +1,495 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3>FakePhotonServer</h3>
+ * 
+ * A stand-in for photon's web server that runs in the test. It serves the
+ * settings zip over http and accepts photon's websocket, keeping every binary
+ * message the robot sends so tests can check them. It answers pings like
+ * photon does, unless it is told to go quiet, and it can be stopped and
+ * started again on the same port like a pi rebooting.
+ * <p>
+ * A slow network or a busy pi can be faked too. Every http response can be
+ * held back, the websocket handshake can be held back on top of that, and the
+ * server can stop taking connections so new ones hang like a pi that is
+ * powered but not answering.
+ */
+public class FakePhotonServer implements AutoCloseable {
+    // ----- CONSTANTS ----- \\
+
+    public static final String WEBSOCKET_PATH = "/websocket";
+    public static final String SETTINGS_ZIP_PATH = "/api/settings/photonvision_config.zip";
+
+    // Added to the client's key to make the handshake answer, from RFC 6455
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    // ----- VARIABLES ----- \\
+
+    private final int port;
+    private ServerSocket serverSocket;
+    private final List<Socket> openSockets = new CopyOnWriteArrayList<>();
+
+    private volatile byte[] settingsZip = new byte[0];
+    private volatile boolean isAnsweringPings = true;
+
+    // How long to hold back every http response, and the websocket handshake on
+    // top of that, in milliseconds
+    private volatile long responseDelayMs = 0;
+    private volatile long handshakeDelayMs = 0;
+    // Whether connections are taken off of the accept queue. Only one connection
+    // can wait in the queue, so once it is full new connections hang
+    private boolean isAccepting = true;
+
+    private final BlockingQueue<byte[]> messages = new LinkedBlockingQueue<>();
+    private final AtomicInteger webSocketCount = new AtomicInteger();
+    private final AtomicInteger settingsZipCount = new AtomicInteger();
+
+    // ----- CONSTRUCTOR ----- \\
+
+    /**
+     * <h3>FakePhotonServer</h3>
+     * 
+     * Makes a server on a free port. Nothing is listening until it is started.
+     * 
+     * @throws IOException if no port is free
+     */
+    public FakePhotonServer() throws IOException {
+        this(findFreePort());
+    }
+
+    /**
+     * <h3>FakePhotonServer</h3>
+     * 
+     * @param port the port to listen on once started
+     */
+    public FakePhotonServer(int port) {
+        this.port = port;
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>findFreePort</h3>
+     * 
+     * @return a port nothing is listening on right now
+     * @throws IOException if no port is free
+     */
+    public static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * <h3>start</h3>
+     * 
+     * Starts listening. This can be called again after {@link #stop()}.
+     * 
+     * @throws IOException if the port can't be listened on
+     */
+    public synchronized void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        // The smallest queue, so that a server that stops accepting fills it quickly
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1);
+        serverSocket = socket;
+
+        Thread acceptThread = new Thread(() -> acceptConnections(socket), "FakePhoton");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * <h3>stop</h3>
+     * 
+     * Stops listening and cuts every open connection without closing the
+     * websockets properly, like a pi losing power
+     */
+    public synchronized void stop() {
+        closeQuietly(serverSocket);
+        serverSocket = null;
+        notifyAll();
+        dropConnections();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * <h3>dropConnections</h3>
+     * 
+     * Cuts every open connection but keeps listening, like photon restarting
+     */
+    public void dropConnections() {
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        openSockets.clear();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the host to connect to the server with
+     */
+    public String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    /**
+     * @param zip the settings zip to serve
+     */
+    public void setSettingsZip(byte[] zip) {
+        settingsZip = zip;
+    }
+
+    /**
+     * @param isAnswering whether to answer pings, false to act like a hung pi
+     */
+    public void setAnsweringPings(boolean isAnswering) {
+        isAnsweringPings = isAnswering;
+    }
+
+    /**
+     * @param delayMs how long to hold back every http response in milliseconds,
+     *                like a slow network or a busy pi
+     */
+    public void setResponseDelay(long delayMs) {
+        responseDelayMs = delayMs;
+    }
+
+    /**
+     * @param delayMs how much longer to hold back the websocket handshake in
+     *                milliseconds, on top of the response delay
+     */
+    public void setHandshakeDelay(long delayMs) {
+        handshakeDelayMs = delayMs;
+    }
+
+    /**
+     * <h3>setAccepting</h3>
+     * 
+     * Stops or starts taking new connections. While stopped, the first couple of
+     * connections wait in the operating system's queue and every one after that
+     * hangs until it times out, like a pi that is on the network but not
+     * answering. Connections that were waiting are handled once accepting starts
+     * again.
+     * 
+     * @param isAccepting whether to take new connections
+     */
+    public synchronized void setAccepting(boolean isAccepting) {
+        this.isAccepting = isAccepting;
+        notifyAll();
+    }
+
+    /**
+     * <h3>fillAcceptQueue</h3>
+     * 
+     * Connects until the accept queue is full, so the next connection hangs.
+     * This only works while the server isn't accepting.
+     * 
+     * @param timeoutMs how long a connect can take before the queue counts as
+     *                  full
+     * @throws IOException if a connect fails for another reason
+     */
+    public void fillAcceptQueue(int timeoutMs) throws IOException {
+        while (true) {
+            Socket filler = new Socket();
+            try {
+                filler.connect(new InetSocketAddress(getHost(), port), timeoutMs);
+            } catch (SocketTimeoutException e) {
+                closeQuietly(filler);
+                return;
+            }
+            openSockets.add(filler);
+        }
+    }
+
+    /**
+     * @return how many websockets have been opened
+     */
+    public int getWebSocketCount() {
+        return webSocketCount.get();
+    }
+
+    /**
+     * @return how many times the settings zip has been downloaded
+     */
+    public int getSettingsZipCount() {
+        return settingsZipCount.get();
+    }
+
+    /**
+     * <h3>takeMessage</h3>
+     * 
+     * Waits for the next binary message from the robot
+     * 
+     * @param timeoutMs how long to wait in milliseconds
+     * @return the message, or null if none came in time
+     * @throws InterruptedException if the test is interrupted
+     */
+    public byte[] takeMessage(long timeoutMs) throws InterruptedException {
+        return messages.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>acceptConnections</h3>
+     * 
+     * Handles each connection on its own thread until the server socket closes
+     * 
+     * @param socket the server socket
+     */
+    private void acceptConnections(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                waitUntilAccepting(socket);
+                Socket client = socket.accept();
+                openSockets.add(client);
+                Thread clientThread = new Thread(() -> handleConnection(client), "FakePhotonClient");
+                clientThread.setDaemon(true);
+                clientThread.start();
+            } catch (IOException e) {
+                // The server was stopped
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * <h3>waitUntilAccepting</h3>
+     * 
+     * Holds up the accept thread while the server isn't taking connections
+     * 
+     * @param socket the server socket, which stops the wait when it closes
+     * @throws InterruptedException if the accept thread is interrupted
+     */
+    private synchronized void waitUntilAccepting(ServerSocket socket) throws InterruptedException {
+        while (!isAccepting && !socket.isClosed()) {
+            wait();
+        }
+    }
+
+    /**
+     * <h3>handleConnection</h3>
+     * 
+     * Reads one http request and either serves the settings zip or upgrades to a
+     * websocket. The connection probe just connects and hangs up, which ends up
+     * here as an empty request.
+     * 
+     * @param client the connection
+     */
+    private void handleConnection(Socket client) {
+        try (Socket socket = client) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return;
+            }
+            String webSocketKey = null;
+            String header;
+            while ((header = readLine(in)) != null && !header.isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    webSocketKey = header.substring(colon + 1).trim();
+                }
+            }
+
+            String path = requestLine.split(" ")[1];
+            sleep(responseDelayMs);
+            if (path.equals(WEBSOCKET_PATH) && webSocketKey != null) {
+                sleep(handshakeDelayMs);
+                out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + acceptKey(webSocketKey) + "\r\n\r\n")
+                                .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                webSocketCount.incrementAndGet();
+                readFrames(in, out);
+            } else if (path.equals(SETTINGS_ZIP_PATH)) {
+                settingsZipCount.incrementAndGet();
+                byte[] zip = settingsZip;
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/zip\r\nContent-Length: " + zip.length
+                        + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(zip);
+                out.flush();
+            } else {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The robot hung up, or the test cut the connection
+        } finally {
+            openSockets.remove(client);
+        }
+    }
+
+    /**
+     * <h3>readFrames</h3>
+     * 
+     * Reads websocket frames until the robot closes the websocket. The robot
+     * always sends whole messages in one frame, so fragments aren't handled.
+     * 
+     * @param in  the stream from the robot
+     * @param out the stream to the robot
+     * @throws IOException if the connection breaks
+     */
+    private void readFrames(DataInputStream in, OutputStream out) throws IOException {
+        while (true) {
+            int opcode = in.readUnsignedByte() & 0x0F;
+            int second = in.readUnsignedByte();
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+
+            // Frames from a client are always masked
+            byte[] mask = new byte[4];
+            if ((second & 0x80) != 0) {
+                in.readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i % 4];
+            }
+
+            switch (opcode) {
+                case OPCODE_BINARY:
+                    messages.add(payload);
+                    break;
+                case OPCODE_PING:
+                    if (isAnsweringPings) {
+                        writeFrame(out, OPCODE_PONG, payload);
+                    }
+                    break;
+                case OPCODE_CLOSE:
+                    writeFrame(out, OPCODE_CLOSE, payload);
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * <h3>writeFrame</h3>
+     * 
+     * Sends a short unmasked frame to the robot
+     * 
+     * @param out     the stream to the robot
+     * @param opcode  the type of frame
+     * @param payload what to send, at most 125 bytes
+     * @throws IOException if the connection breaks
+     */
+    private static synchronized void writeFrame(OutputStream out, int opcode, byte[] payload) throws IOException {
+        out.write(0x80 | opcode);
+        out.write(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    /**
+     * <h3>readLine</h3>
+     * 
+     * @param in the stream to read
+     * @return the next line of the http request without the line ending, or
+     *         null if the stream ended
+     * @throws IOException if the connection breaks
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = in.read()) != -1) {
+            if (next == '\n') {
+                return line.toString(StandardCharsets.US_ASCII).replace("\r", "");
+            }
+            line.write(next);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * <h3>acceptKey</h3>
+     * 
+     * @param key the key the robot sent in the handshake
+     * @return the answer the robot expects for it
+     */
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder()
+                    .encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * <h3>sleep</h3>
+     * 
+     * Waits to fake a delay, giving up early if the thread is interrupted
+     * 
+     * @param delayMs how long to wait in milliseconds
+     */
+    private static void sleep(long delayMs) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed
+        }
+    }
+}
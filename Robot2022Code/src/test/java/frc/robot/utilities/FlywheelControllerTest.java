@@ -0,0 +1,220 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.ctre.phoenix.motorcontrol.FollowerType;
+import com.ctre.phoenix.motorcontrol.InvertType;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.unmanaged.Unmanaged;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.utilities.FlywheelController.FlywheelControlMode;
+
+/**
+ * <h3>FlywheelControllerTest</h3>
+ * 
+ * Spins a simulated shooter wheel up in each control mode, drops a ball
+ * through it, and times how long it takes to be back at speed. Also checks
+ * that a follower puts out the same voltage as its master when the battery
+ * isn't at the nominal voltage.
+ */
+public class FlywheelControllerTest {
+    // ----- CONSTANTS ----- \\
+
+    // The speed the shot table uses for a shot from the tarmac
+    private static final double SHOT_SPEED = 0.75;
+    // Matches ShooterSubsystem's simulated ball
+    private static final double SHOT_SPEED_LOSS = 0.08;
+
+    // The phoenix sim runs in real time, so each loop has to take a real loop
+    private static final long LOOP_PERIOD_MS = 20;
+    private static final int MAX_SPIN_UP_LOOPS = 250;
+    // Time for the wheel to stop changing after it first reaches its target
+    private static final int SETTLE_LOOPS = 25;
+
+    // The indexer feeds the next ball about half a second after the last one, so
+    // closed loop control has to be back at speed before then
+    private static final double MAX_RECOVERY_SECONDS = 0.5;
+    private static final double BATTERY_VOLTAGE = 12.6;
+    private static final double VOLTAGE_TOLERANCE = 0.25;
+
+    // ----- VARIABLES ----- \\
+
+    // Every test uses new CAN IDs, since the phoenix sim keeps old devices around
+    private static int nextID = 40;
+    // What each mode measured, so they can be shown side by side at the end
+    private static final Map<FlywheelControlMode, String> recoveries = new EnumMap<>(FlywheelControlMode.class);
+    private WPI_TalonFX master;
+    private WPI_TalonFX follower;
+
+    // ----- SETUP ----- \\
+
+    @BeforeClass
+    public static void startHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @After
+    public void tearDown() {
+        RoboRioSim.resetData();
+        if (master != null) {
+            master.close();
+        }
+        if (follower != null) {
+            follower.close();
+        }
+    }
+
+    @AfterClass
+    public static void printRecoveries() {
+        // Show every mode together so they can be compared and written down
+        System.out.println(String.format(Locale.US, "%-16s %14s %16s %12s", "Mode", "At speed (RPM)",
+                "After ball (RPM)", "Recovery (s)"));
+        for (String recovery : recoveries.values()) {
+            System.out.println(recovery);
+        }
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void talonVelocityRecoversAfterBall() throws InterruptedException {
+        double recovery = measureRecovery(FlywheelControlMode.TALON_VELOCITY);
+        assertTrue("Took " + recovery + " s to recover", recovery < MAX_RECOVERY_SECONDS);
+    }
+
+    @Test
+    public void stateSpaceRecoversAfterBall() throws InterruptedException {
+        double recovery = measureRecovery(FlywheelControlMode.STATE_SPACE);
+        assertTrue("Took " + recovery + " s to recover", recovery < MAX_RECOVERY_SECONDS);
+    }
+
+    @Test
+    public void percentOutputSettlesAfterBall() throws InterruptedException {
+        // Open loop doesn't hold a target, it just has to stop accelerating again
+        double recovery = measureRecovery(FlywheelControlMode.PERCENT_OUTPUT);
+        assertTrue("Never settled", recovery < MAX_SPIN_UP_LOOPS * LOOP_PERIOD_MS / 1000.0);
+    }
+
+    @Test
+    public void followerMatchesMasterOnFullBattery() throws InterruptedException {
+        RoboRioSim.setVInVoltage(BATTERY_VOLTAGE);
+        FlywheelController flywheel = createFlywheel(FlywheelControlMode.TALON_VELOCITY);
+        flywheel.setSpeed(SHOT_SPEED);
+        spinUp(flywheel);
+
+        double masterVoltage = master.getMotorOutputVoltage();
+        double followerVoltage = follower.getMotorOutputVoltage();
+        System.out.println(String.format(Locale.US, "Bottom wheel on %.1f V: master %.2f V, follower %.2f V",
+                BATTERY_VOLTAGE, masterVoltage, followerVoltage));
+        assertTrue(masterVoltage > 0);
+        assertEquals(masterVoltage, followerVoltage, VOLTAGE_TOLERANCE);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>measureRecovery</h3>
+     * 
+     * Spins a two falcon wheel like the bottom shooter wheel up, drops a ball
+     * through it and counts the loops until it is at speed again
+     * 
+     * @param controlMode how to control the wheel
+     * @return how long the wheel took to recover in seconds
+     * @throws InterruptedException if the test is interrupted
+     */
+    private double measureRecovery(FlywheelControlMode controlMode) throws InterruptedException {
+        FlywheelController flywheel = createFlywheel(controlMode);
+        flywheel.setSpeed(SHOT_SPEED);
+        spinUp(flywheel);
+        double settledVelocity = flywheel.getVelocity();
+
+        flywheel.simulateShot(SHOT_SPEED_LOSS);
+        // The ball's hit shows up on the next sample
+        runLoop(flywheel);
+        double droppedVelocity = flywheel.getVelocity();
+        assertTrue("Ball didn't slow the wheel", droppedVelocity < settledVelocity);
+
+        int loops = 1;
+        while (!flywheel.isAtSpeed()) {
+            assertTrue(controlMode + " never recovered", loops < MAX_SPIN_UP_LOOPS);
+            runLoop(flywheel);
+            loops++;
+        }
+
+        double recovery = loops * LOOP_PERIOD_MS / 1000.0;
+        System.out.println(String.format(Locale.US, "%s: %.0f RPM dropped to %.0f RPM, recovered in %.2f s",
+                controlMode, settledVelocity, droppedVelocity, recovery));
+        recoveries.put(controlMode, String.format(Locale.US, "%-16s %14.0f %16.0f %12.2f", controlMode,
+                settledVelocity, droppedVelocity, recovery));
+        return recovery;
+    }
+
+    /**
+     * <h3>createFlywheel</h3>
+     * 
+     * Sets up a master and follower the way ShooterSubsystem sets up the bottom
+     * wheel
+     * 
+     * @param controlMode how to control the wheel
+     * @return the controller for the wheel
+     */
+    private FlywheelController createFlywheel(FlywheelControlMode controlMode) {
+        master = new WPI_TalonFX(nextID++);
+        follower = new WPI_TalonFX(nextID++);
+        master.configFactoryDefault();
+        follower.configFactoryDefault();
+        master.setInverted(InvertType.None);
+        follower.follow(master, FollowerType.PercentOutput);
+        follower.setInverted(InvertType.FollowMaster);
+        return new FlywheelController(master, controlMode, follower);
+    }
+
+    /**
+     * <h3>spinUp</h3>
+     * 
+     * Runs the wheel until it is at speed and has had time to settle there
+     * 
+     * @param flywheel the wheel to spin up
+     * @throws InterruptedException if the test is interrupted
+     */
+    private void spinUp(FlywheelController flywheel) throws InterruptedException {
+        int loops = 0;
+        while (!flywheel.isAtSpeed()) {
+            assertTrue("Never got to speed", loops < MAX_SPIN_UP_LOOPS);
+            runLoop(flywheel);
+            loops++;
+        }
+        for (int i = 0; i < SETTLE_LOOPS; i++) {
+            runLoop(flywheel);
+        }
+    }
+
+    /**
+     * <h3>runLoop</h3>
+     * 
+     * Runs one robot loop of the wheel with the robot enabled
+     * 
+     * @param flywheel the wheel to run
+     * @throws InterruptedException if the test is interrupted
+     */
+    private static void runLoop(FlywheelController flywheel) throws InterruptedException {
+        Unmanaged.feedEnable(100);
+        flywheel.update();
+        flywheel.simulate();
+        Thread.sleep(LOOP_PERIOD_MS);
+    }
+}
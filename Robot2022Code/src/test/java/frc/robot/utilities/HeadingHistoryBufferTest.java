@@ -0,0 +1,165 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <h3>HeadingHistoryBufferTest</h3>
+ * 
+ * Checks the interpolating lookup at the ends of the buffer, once the ring has
+ * wrapped around, and as the oldest samples are shifted out
+ */
+public class HeadingHistoryBufferTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final int CAPACITY = 5;
+    private static final double LOOP_PERIOD = 0.02;
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    private final HeadingHistoryBuffer buffer = new HeadingHistoryBuffer(CAPACITY);
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void emptyBufferHasNoHeading() {
+        assertTrue(Double.isNaN(buffer.getHeadingAt(0)));
+
+        buffer.addSample(1, 10);
+        buffer.clear();
+        assertTrue(Double.isNaN(buffer.getHeadingAt(1)));
+    }
+
+    @Test
+    public void singleSampleIsUsedForEveryTime() {
+        buffer.addSample(1, 42);
+
+        assertEquals(42, buffer.getHeadingAt(0), DELTA);
+        assertEquals(42, buffer.getHeadingAt(1), DELTA);
+        assertEquals(42, buffer.getHeadingAt(2), DELTA);
+    }
+
+    @Test
+    public void interpolatesBetweenSamples() {
+        addLoops(0, 4);
+
+        for (int loop = 0; loop < 4; loop++) {
+            double time = loop * LOOP_PERIOD;
+            assertEquals(heading(loop), buffer.getHeadingAt(time), DELTA);
+            assertEquals((heading(loop) + heading(loop + 1)) / 2, buffer.getHeadingAt(time + LOOP_PERIOD / 2),
+                    DELTA);
+            assertEquals(heading(loop) + (heading(loop + 1) - heading(loop)) / 4,
+                    buffer.getHeadingAt(time + LOOP_PERIOD / 4), DELTA);
+        }
+    }
+
+    @Test
+    public void timesPastTheEndsAreClamped() {
+        addLoops(0, 4);
+
+        // Exactly at the ends
+        assertEquals(heading(0), buffer.getHeadingAt(0), DELTA);
+        assertEquals(heading(4), buffer.getHeadingAt(4 * LOOP_PERIOD), DELTA);
+        // Just inside them
+        assertEquals(heading(0) + (heading(1) - heading(0)) * 0.01, buffer.getHeadingAt(0.01 * LOOP_PERIOD),
+                1e-6);
+        assertEquals(heading(4) - (heading(4) - heading(3)) * 0.01, buffer.getHeadingAt(3.99 * LOOP_PERIOD),
+                1e-6);
+        // And past them
+        assertEquals(heading(0), buffer.getHeadingAt(-1), DELTA);
+        assertEquals(heading(4), buffer.getHeadingAt(100), DELTA);
+    }
+
+    @Test
+    public void lookupsWorkAfterRingWrapsAround() {
+        // Fill the buffer more than twice, so the newest samples are written over
+        // the start of the arrays and the oldest are in the middle
+        addLoops(0, 2 * CAPACITY + 2);
+        int oldest = CAPACITY + 3;
+        int newest = 2 * CAPACITY + 2;
+
+        assertEquals(heading(oldest), buffer.getHeadingAt(0), DELTA);
+        assertEquals(heading(newest), buffer.getHeadingAt(100), DELTA);
+        // Every pair, including the one split across the end of the arrays
+        for (int loop = oldest; loop < newest; loop++) {
+            double time = (loop + 0.5) * LOOP_PERIOD;
+            assertEquals("Loop " + loop, (heading(loop) + heading(loop + 1)) / 2, buffer.getHeadingAt(time), DELTA);
+        }
+    }
+
+    @Test
+    public void oldestSamplesShiftOut() {
+        addLoops(0, CAPACITY - 1);
+        double time = 1.5 * LOOP_PERIOD;
+        assertEquals((heading(1) + heading(2)) / 2, buffer.getHeadingAt(time), DELTA);
+
+        // One more sample pushes out loop 0, and the rest still interpolate
+        addLoops(CAPACITY, CAPACITY);
+        assertEquals(heading(1), buffer.getHeadingAt(0.5 * LOOP_PERIOD), DELTA);
+        assertEquals((heading(1) + heading(2)) / 2, buffer.getHeadingAt(time), DELTA);
+
+        // Once loops 1 and 2 are gone the same time clamps to the oldest sample left
+        addLoops(CAPACITY + 1, CAPACITY + 2);
+        assertEquals(heading(3), buffer.getHeadingAt(time), DELTA);
+        assertEquals(heading(CAPACITY + 2), buffer.getHeadingAt(100), DELTA);
+    }
+
+    @Test
+    public void interpolatesByTimeAcrossUnevenLoops() {
+        // A loop overrun leaves a long gap between two samples
+        buffer.addSample(0.00, 0);
+        buffer.addSample(0.02, 10);
+        buffer.addSample(0.12, 20);
+        buffer.addSample(0.14, 30);
+
+        assertEquals(15, buffer.getHeadingAt(0.07), DELTA);
+        assertEquals(12.5, buffer.getHeadingAt(0.045), DELTA);
+        assertEquals(25, buffer.getHeadingAt(0.13), DELTA);
+    }
+
+    @Test
+    public void continuousHeadingPastFullTurnIsInterpolated() {
+        // The gyro heading keeps counting past 360 instead of wrapping
+        buffer.addSample(0, 350);
+        buffer.addSample(LOOP_PERIOD, 370);
+
+        assertEquals(360, buffer.getHeadingAt(LOOP_PERIOD / 2), DELTA);
+    }
+
+    @Test
+    public void clearStartsOver() {
+        addLoops(0, 2 * CAPACITY);
+        buffer.clear();
+
+        buffer.addSample(5, -30);
+        buffer.addSample(5 + LOOP_PERIOD, -40);
+        assertEquals(-30, buffer.getHeadingAt(0), DELTA);
+        assertEquals(-35, buffer.getHeadingAt(5 + LOOP_PERIOD / 2), DELTA);
+        assertEquals(-40, buffer.getHeadingAt(100), DELTA);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>addLoops</h3>
+     * 
+     * Adds one sample a loop, turning faster every loop
+     * 
+     * @param first the first loop to add
+     * @param last  the last loop to add
+     */
+    private void addLoops(int first, int last) {
+        for (int loop = first; loop <= last; loop++) {
+            buffer.addSample(loop * LOOP_PERIOD, heading(loop));
+        }
+    }
+
+    private static double heading(int loop) {
+        return 3 * loop * loop - 20;
+    }
+}
@@ -0,0 +1,109 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * <h3>LoopProfilerTest</h3>
+ * 
+ * Measures what the profiler itself costs each loop, so timing the loop
+ * doesn't become the reason it runs over
+ */
+public class LoopProfilerTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final long LOOP_PERIOD_NANOSECONDS = 20000000;
+    // The profiler should cost less than 1% of the loop
+    private static final double MAX_OVERHEAD_FRACTION = 0.01;
+    // The robot times about 16 sections a loop with every subsystem, the
+    // scheduler and a few commands, so this is twice that
+    private static final int SECTIONS_PER_LOOP = 32;
+    // 200 reports worth of loops
+    private static final int BENCHMARK_LOOPS = 50000;
+    // A report is made every 250 loops, so the code that makes it runs rarely and
+    // needs a lot of loops before the JIT has compiled it
+    private static final int REPORT_LOOPS = 250;
+    private static final int WARMUP_RUNS = 10;
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void profilerCostsLessThanOnePercentOfLoop() {
+        LoopProfiler profiler = LoopProfiler.getInstance();
+        int[] sections = new int[SECTIONS_PER_LOOP];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = profiler.addSection("Benchmark " + i);
+        }
+
+        // Warm up so the JIT has compiled everything, including the reports
+        long[] loopTimes = new long[BENCHMARK_LOOPS];
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runLoops(profiler, sections, loopTimes);
+        }
+        runLoops(profiler, sections, loopTimes);
+
+        // Loops that make a report are timed separately, since they are the slow
+        // ones. The first report lands on the last loop of each set of 250
+        int reportCount = BENCHMARK_LOOPS / REPORT_LOOPS;
+        long[] reportTimes = new long[reportCount];
+        long normalTotal = 0;
+        long reportTotal = 0;
+        long worstLoop = 0;
+        for (int loop = 0; loop < loopTimes.length; loop++) {
+            if ((loop + 1) % REPORT_LOOPS == 0) {
+                reportTimes[loop / REPORT_LOOPS] = loopTimes[loop];
+                reportTotal += loopTimes[loop];
+            } else {
+                normalTotal += loopTimes[loop];
+            }
+            worstLoop = Math.max(worstLoop, loopTimes[loop]);
+        }
+        Arrays.sort(reportTimes);
+        double normalNanoseconds = normalTotal / (double) (BENCHMARK_LOOPS - reportCount);
+        double reportNanoseconds = reportTotal / (double) reportCount;
+        long medianReportNanoseconds = reportTimes[reportCount / 2];
+        double averageNanoseconds = (normalTotal + reportTotal) / (double) BENCHMARK_LOOPS;
+        double overhead = averageNanoseconds / LOOP_PERIOD_NANOSECONDS;
+
+        System.out.println(String.format(Locale.US,
+                "Loop profiler with %d sections: %.2f us a loop, report loops %.2f us median %.2f us average, "
+                        + "%.2f us worst, %.3f%% of the loop on average",
+                SECTIONS_PER_LOOP, normalNanoseconds / 1000, medianReportNanoseconds / 1000.0,
+                reportNanoseconds / 1000, worstLoop / 1000.0, overhead * 100));
+        assertTrue("Profiler took " + overhead * 100 + "% of the loop", overhead < MAX_OVERHEAD_FRACTION);
+        // The loop that makes a report has to fit too. The median is used since the
+        // build machine can stall any one loop for a few milliseconds
+        assertTrue("A report loop took " + medianReportNanoseconds + " ns",
+                medianReportNanoseconds < MAX_OVERHEAD_FRACTION * LOOP_PERIOD_NANOSECONDS);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>runLoops</h3>
+     * 
+     * Starts and stops every section once a loop and ends the loop, like the
+     * robot does with nothing in between
+     * 
+     * @param profiler  the profiler to time with
+     * @param sections  the sections to time
+     * @param loopTimes where to put how long each loop took in nanoseconds
+     */
+    private static void runLoops(LoopProfiler profiler, int[] sections, long[] loopTimes) {
+        for (int loop = 0; loop < loopTimes.length; loop++) {
+            long startTime = System.nanoTime();
+            for (int section : sections) {
+                profiler.start(section);
+                profiler.stop(section);
+            }
+            profiler.endLoop();
+            loopTimes[loop] = System.nanoTime() - startTime;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * <h3>PhotonCommandQueueTest</h3>
+ * 
+ * Checks that commands are converted straight into reused buffers, sent one
+ * at a time in order, and that a replaced command is timed from when it was
+ * replaced
+ */
+public class PhotonCommandQueueTest {
+    // ----- VARIABLES ----- \\
+
+    private final ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
+    private FakeWebSocket webSocket;
+    private PhotonCommandQueue queue;
+
+    // ----- SETUP ----- \\
+
+    @Before
+    public void setUp() {
+        webSocket = new FakeWebSocket();
+        queue = new PhotonCommandQueue(objectMapper, () -> webSocket);
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void sendsMessagesInOrder() throws Exception {
+        CompletableFuture<Void> sent = queue.submit("exposure", setting("currentPipeline", 1),
+                setting("cameraExposure", 12.5));
+
+        assertEquals(setting("currentPipeline", 1), webSocket.finishSend());
+        assertFalse(sent.isDone());
+        assertEquals(setting("cameraExposure", 12.5), webSocket.finishSend());
+        assertTrue(sent.isDone());
+        assertEquals(1, queue.getSentCount());
+    }
+
+    @Test
+    public void onlyOneSendInFlight() throws Exception {
+        queue.submit(null, setting("currentPipeline", 0));
+        queue.submit(null, setting("currentPipeline", 1));
+
+        assertEquals(1, webSocket.sends.size());
+        assertEquals(setting("currentPipeline", 0), webSocket.finishSend());
+        assertEquals(setting("currentPipeline", 1), webSocket.finishSend());
+        assertEquals(2, queue.getSentCount());
+    }
+
+    @Test
+    public void reusesBuffersBetweenSends() throws Exception {
+        queue.submit(null, setting("currentPipeline", 0));
+        ByteBuffer firstBuffer = webSocket.sends.get(0).buffer;
+        webSocket.finishSend();
+
+        queue.submit(null, setting("currentPipeline", 1));
+        assertSame(firstBuffer, webSocket.sends.get(0).buffer);
+        assertEquals(setting("currentPipeline", 1), webSocket.finishSend());
+    }
+
+    @Test
+    public void messagesBiggerThanABufferStillSend() throws Exception {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longName.append("pipeline");
+        }
+        Map<String, Object> bigMessage = setting("pipelineNickname", longName.toString());
+
+        queue.submit(null, bigMessage);
+        assertTrue(webSocket.sends.get(0).buffer.remaining() > 256);
+        assertEquals(bigMessage, webSocket.finishSend());
+
+        // The pool still works after a message outgrew its buffer
+        queue.submit(null, setting("currentPipeline", 2));
+        assertEquals(setting("currentPipeline", 2), webSocket.finishSend());
+    }
+
+    @Test
+    public void replacedCommandSendsLatestValue() throws Exception {
+        // Hold the websocket so the next commands have to wait
+        queue.submit(null, setting("currentPipeline", 0));
+        CompletableFuture<Void> first = queue.submit("pipeline", setting("currentPipeline", 1));
+        CompletableFuture<Void> second = queue.submit("pipeline", setting("currentPipeline", 2));
+
+        assertSame(first, second);
+        assertEquals(1, queue.getCoalescedCount());
+        webSocket.finishSend();
+        assertEquals(setting("currentPipeline", 2), webSocket.finishSend());
+        assertTrue(second.isDone());
+        assertTrue(webSocket.sends.isEmpty());
+        assertEquals(2, queue.getSentCount());
+    }
+
+    @Test
+    public void replacedCommandIsTimedFromReplacement() throws Exception {
+        queue.submit(null, setting("currentPipeline", 0));
+        queue.submit("pipeline", setting("currentPipeline", 1));
+
+        // The first value waits a long time before it is replaced
+        Thread.sleep(300);
+        queue.submit("pipeline", setting("currentPipeline", 2));
+        webSocket.finishSend();
+        webSocket.finishSend();
+
+        assertTrue("Latency " + queue.getLastLatency() + " ms", queue.getLastLatency() < 250);
+    }
+
+    @Test
+    public void unconvertableMessageFailsAndKeepsQueueWorking() throws Exception {
+        try {
+            queue.submit(null, new Object());
+            fail("Expected the message to fail to convert");
+        } catch (IOException e) {
+            // Expected, a plain object has nothing to write
+        }
+        assertTrue(webSocket.sends.isEmpty());
+
+        queue.submit(null, setting("currentPipeline", 3));
+        assertEquals(setting("currentPipeline", 3), webSocket.finishSend());
+    }
+
+    @Test
+    public void clearFailsWaitingCommands() throws Exception {
+        queue.submit(null, setting("currentPipeline", 0));
+        CompletableFuture<Void> waiting = queue.submit("pipeline", setting("currentPipeline", 1));
+
+        queue.clear();
+        assertTrue(waiting.isCompletedExceptionally());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    // ----- HELPERS ----- \\
+
+    private static Map<String, Object> setting(String name, Object value) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put(name, value);
+        message.put("cameraIndex", 0);
+        return message;
+    }
+
+    /**
+     * <h3>FakeWebSocket</h3>
+     * 
+     * Holds on to every send until the test finishes it, like a slow network
+     */
+    private class FakeWebSocket implements WebSocket {
+        private final List<Send> sends = new ArrayList<>();
+
+        /**
+         * <h3>finishSend</h3>
+         * 
+         * Decodes the oldest send and then finishes it
+         * 
+         * @return the message that was sent
+         * @throws IOException if the message isn't valid msgpack
+         */
+        private Map<String, Object> finishSend() throws IOException {
+            Send send = sends.remove(0);
+            byte[] bytes = new byte[send.buffer.remaining()];
+            send.buffer.duplicate().get(bytes);
+            Map<String, Object> message = objectMapper.readValue(bytes, new TypeReference<Map<String, Object>>() {
+            });
+            send.future.complete(this);
+            return message;
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendBinary(ByteBuffer data, boolean last) {
+            Send send = new Send(data);
+            sends.add(send);
+            return send.future;
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendText(CharSequence data, boolean last) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPing(ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPong(ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendClose(int statusCode, String reason) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public String getSubprotocol() {
+            return "";
+        }
+
+        @Override
+        public boolean isOutputClosed() {
+            return false;
+        }
+
+        @Override
+        public boolean isInputClosed() {
+            return false;
+        }
+
+        @Override
+        public void abort() {
+        }
+    }
+
+    /**
+     * <h3>Send</h3>
+     * 
+     * A buffer handed to the websocket and the future that finishes it
+     */
+    private static class Send {
+        private final ByteBuffer buffer;
+        private final CompletableFuture<WebSocket> future = new CompletableFuture<>();
+
+        private Send(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import frc.robot.utilities.PhotonConnectionManager.ConnectionState;
+
+/**
+ * <h3>PhotonConnectionManagerTest</h3>
+ * 
+ * Checks the backoff between attempts, and runs the connection manager against
+ * a fake photon to check that it connects, reconnects after photon goes away,
+ * and notices when photon stops answering pings. The fake photon can also be
+ * slowed down, which checks the probe timeout and the settle time and measures
+ * how long a slow photon takes to be ready.
+ */
+public class PhotonConnectionManagerTest {
+    // ----- CONSTANTS ----- \\
+
+    // The websocket settles for 2 s before it counts as connected, so give every
+    // connect plenty of time on a slow build machine
+    private static final long CONNECT_TIMEOUT_MS = 10000;
+    // The health check gives up after 3 s without a pong and checks every second
+    private static final long HEALTH_CHECK_TIMEOUT_MS = 3000;
+    private static final long HEALTH_CHECK_PERIOD_MS = 1000;
+    // The manager's timings, which the slow photon tests check against
+    private static final long PROBE_TIMEOUT_MS = 1000;
+    private static final long WEBSOCKET_SETTLE_MS = 2000;
+    private static final long WEBSOCKET_CONNECT_TIMEOUT_MS = 5000;
+    // How late a timer can fire or a thread can wake up on a busy build machine
+    private static final long TIMING_SLACK_MS = 500;
+    // The response delays to measure time to ready with
+    private static final long[] RESPONSE_DELAYS_MS = { 0, 1000, 3000 };
+
+    // ----- VARIABLES ----- \\
+
+    private FakePhotonServer server;
+    private PhotonConnectionManager manager;
+    private final BlockingQueue<ConnectionState> states = new LinkedBlockingQueue<>();
+    // When each state in the queue was reported, in the same order
+    private final BlockingQueue<Long> stateTimes = new LinkedBlockingQueue<>();
+
+    // ----- SETUP ----- \\
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakePhotonServer();
+        manager = new PhotonConnectionManager(server.getHost(), server.getPort(), FakePhotonServer.WEBSOCKET_PATH,
+                HttpClient.newHttpClient());
+        manager.addListener(this::recordState);
+    }
+
+    @After
+    public void tearDown() {
+        manager.stop();
+        server.stop();
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void backoffDoublesFromMinimumToMaximum() {
+        assertEquals(250, PhotonConnectionManager.getBackoff(0));
+        assertEquals(500, PhotonConnectionManager.getBackoff(1));
+        assertEquals(1000, PhotonConnectionManager.getBackoff(2));
+        assertEquals(2000, PhotonConnectionManager.getBackoff(3));
+        assertEquals(4000, PhotonConnectionManager.getBackoff(4));
+        assertEquals(5000, PhotonConnectionManager.getBackoff(5));
+        // Even after a whole match of failures the shift can't overflow
+        assertEquals(5000, PhotonConnectionManager.getBackoff(1000));
+        assertEquals(5000, PhotonConnectionManager.getBackoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void retryDelayIsJitteredWithinBackoff() {
+        for (int failedAttempts = 0; failedAttempts < 12; failedAttempts++) {
+            long backoff = PhotonConnectionManager.getBackoff(failedAttempts);
+            Set<Long> delays = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                long delay = PhotonConnectionManager.getRetryDelay(failedAttempts);
+                assertTrue("Delay " + delay + " below half of " + backoff, delay >= backoff / 2);
+                assertTrue("Delay " + delay + " above " + backoff, delay <= backoff);
+                delays.add(delay);
+            }
+            // The same delay every time would mean there is no jitter
+            assertTrue(delays.size() > 10);
+        }
+        // Nothing is ever retried faster than 125 ms or slower than 5 s
+        assertTrue(PhotonConnectionManager.getRetryDelay(0) >= 125);
+        assertTrue(PhotonConnectionManager.getRetryDelay(100) <= 5000);
+    }
+
+    @Test
+    public void connectsToRunningPhoton() throws Exception {
+        server.start();
+        manager.start();
+
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(1, server.getWebSocketCount());
+        assertTrue(manager.getWebSocket() != null);
+        assertEquals(0, manager.getReconnectCount());
+        // The websocket settles for 2 s before it counts as ready
+        assertTrue(manager.getFirstTimeToReady() >= 2.0);
+        assertEquals(manager.getFirstTimeToReady(), manager.getLastTimeToReady(), 0);
+    }
+
+    @Test
+    public void connectsOncePhotonComesUp() throws Exception {
+        manager.start();
+
+        // Let a few probes fail while photon is still booting
+        awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        assertTrue(manager.getWebSocket() == null);
+        server.start();
+
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(1, server.getWebSocketCount());
+        // Failed probes aren't reconnects, we were never connected
+        assertEquals(0, manager.getReconnectCount());
+    }
+
+    @Test
+    public void reconnectsAfterPhotonDropsConnection() throws Exception {
+        server.start();
+        manager.start();
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+
+        server.dropConnections();
+        awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(1, manager.getReconnectCount());
+        assertTrue(manager.getWebSocket() == null);
+
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(2, server.getWebSocketCount());
+        assertEquals(1, manager.getReconnectCount());
+        assertTrue(manager.getWebSocket() != null);
+    }
+
+    @Test
+    public void reconnectsAfterPhotonRestarts() throws Exception {
+        server.start();
+        manager.start();
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+
+        // The pi reboots, so nothing is listening for a while
+        server.stop();
+        awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        Thread.sleep(1000);
+        assertTrue(manager.getState() != ConnectionState.CONNECTED);
+        server.start();
+
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(2, server.getWebSocketCount());
+        assertEquals(1, manager.getReconnectCount());
+        // Time to ready is measured from when the connection was lost
+        assertTrue(manager.getLastTimeToReady() >= 3.0);
+        assertTrue(manager.getFirstTimeToReady() < manager.getLastTimeToReady());
+    }
+
+    @Test
+    public void healthCheckDropsPhotonThatStopsAnsweringPings() throws Exception {
+        server.start();
+        manager.start();
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+
+        // The pi hangs with the socket still open, so only the pings can tell
+        long hangTime = System.nanoTime();
+        server.setAnsweringPings(false);
+        awaitState(ConnectionState.DISCONNECTED, HEALTH_CHECK_TIMEOUT_MS + 3 * HEALTH_CHECK_PERIOD_MS);
+        long detectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - hangTime);
+        assertTrue("Dropped after " + detectMs + " ms", detectMs >= HEALTH_CHECK_TIMEOUT_MS - HEALTH_CHECK_PERIOD_MS);
+        assertEquals(1, manager.getReconnectCount());
+
+        // Once photon answers again we reconnect and stay connected
+        server.setAnsweringPings(true);
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        Thread.sleep(HEALTH_CHECK_TIMEOUT_MS + HEALTH_CHECK_PERIOD_MS);
+        assertEquals(ConnectionState.CONNECTED, manager.getState());
+        assertEquals(1, manager.getReconnectCount());
+    }
+
+    @Test
+    public void healthCheckKeepsAnsweringPhotonConnected() throws Exception {
+        server.start();
+        manager.start();
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+
+        // Several health check timeouts go by without anything going wrong
+        Thread.sleep(2 * HEALTH_CHECK_TIMEOUT_MS);
+        assertEquals(ConnectionState.CONNECTED, manager.getState());
+        assertEquals(0, manager.getReconnectCount());
+        assertEquals(1, server.getWebSocketCount());
+    }
+
+    @Test
+    public void probeTimesOutWhilePhotonIsNotAnswering() throws Exception {
+        // The pi is on the network but photon is stuck, so connects just hang
+        server.start();
+        server.setAccepting(false);
+        server.fillAcceptQueue((int) PROBE_TIMEOUT_MS);
+        manager.start();
+
+        long probeTime = awaitState(ConnectionState.PROBING, CONNECT_TIMEOUT_MS);
+        long failTime = awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        long probeMs = TimeUnit.NANOSECONDS.toMillis(failTime - probeTime);
+        System.out.println("Probe gave up after " + probeMs + " ms");
+        // The probe waited the whole timeout, and not much longer
+        assertTrue("Probe gave up after " + probeMs + " ms", probeMs >= PROBE_TIMEOUT_MS - TIMING_SLACK_MS);
+        assertTrue("Probe gave up after " + probeMs + " ms", probeMs <= PROBE_TIMEOUT_MS + TIMING_SLACK_MS);
+        assertTrue(manager.getWebSocket() == null);
+
+        // Once photon gets going again the next probe gets through
+        server.setAccepting(true);
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertEquals(1, server.getWebSocketCount());
+        assertEquals(0, manager.getReconnectCount());
+        // At least one timed out probe and the settle time went by before it was ready
+        assertTrue(manager.getFirstTimeToReady() >= (PROBE_TIMEOUT_MS + WEBSOCKET_SETTLE_MS) / 1000.0);
+    }
+
+    @Test
+    public void timeToReadyGrowsWithResponseDelay() throws Exception {
+        server.start();
+        for (long responseDelayMs : RESPONSE_DELAYS_MS) {
+            server.setResponseDelay(responseDelayMs);
+            double timeToReady = measureTimeToReady();
+            System.out.println("Response delay " + responseDelayMs + " ms: ready in " + timeToReady + " s");
+
+            // The handshake waits out the delay and then the websocket settles
+            double expected = (responseDelayMs + WEBSOCKET_SETTLE_MS) / 1000.0;
+            assertTrue("Ready in " + timeToReady + " s", timeToReady >= expected);
+            assertTrue("Ready in " + timeToReady + " s", timeToReady <= expected + TIMING_SLACK_MS / 1000.0);
+        }
+    }
+
+    @Test
+    public void retriesHandshakeSlowerThanConnectTimeout() throws Exception {
+        // Photon takes longer to answer the handshake than we are willing to wait
+        server.start();
+        server.setHandshakeDelay(WEBSOCKET_CONNECT_TIMEOUT_MS + 1000);
+        manager.start();
+
+        long connectingTime = awaitState(ConnectionState.CONNECTING, CONNECT_TIMEOUT_MS);
+        long failTime = awaitState(ConnectionState.DISCONNECTED, CONNECT_TIMEOUT_MS);
+        long handshakeMs = TimeUnit.NANOSECONDS.toMillis(failTime - connectingTime);
+        System.out.println("Handshake gave up after " + handshakeMs + " ms");
+        assertTrue("Handshake gave up after " + handshakeMs + " ms",
+                handshakeMs >= WEBSOCKET_CONNECT_TIMEOUT_MS - TIMING_SLACK_MS);
+        assertTrue(manager.getWebSocket() == null);
+
+        // Photon speeds back up, so the retry connects
+        server.setHandshakeDelay(0);
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        assertTrue(manager.getWebSocket() != null);
+        assertEquals(0, manager.getReconnectCount());
+        assertTrue(manager.getFirstTimeToReady() >= (WEBSOCKET_CONNECT_TIMEOUT_MS + WEBSOCKET_SETTLE_MS) / 1000.0);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>recordState</h3>
+     * 
+     * Keeps each state the manager reports along with when it was reported
+     * 
+     * @param state the new state
+     */
+    private void recordState(ConnectionState state) {
+        stateTimes.add(System.nanoTime());
+        states.add(state);
+    }
+
+    /**
+     * <h3>measureTimeToReady</h3>
+     * 
+     * Connects a new manager to the fake photon and stops it again
+     * 
+     * @return how long the manager took to be ready in seconds
+     * @throws InterruptedException if the test is interrupted
+     */
+    private double measureTimeToReady() throws InterruptedException {
+        manager.stop();
+        states.clear();
+        stateTimes.clear();
+        manager = new PhotonConnectionManager(server.getHost(), server.getPort(), FakePhotonServer.WEBSOCKET_PATH,
+                HttpClient.newHttpClient());
+        manager.addListener(this::recordState);
+        manager.start();
+        awaitState(ConnectionState.CONNECTED, CONNECT_TIMEOUT_MS);
+        return manager.getFirstTimeToReady();
+    }
+
+    /**
+     * <h3>awaitState</h3>
+     * 
+     * Waits for the manager to tell its listeners about a state, skipping over
+     * any other states on the way
+     * 
+     * @param expected  the state to wait for
+     * @param timeoutMs how long to wait in milliseconds
+     * @return when the state was reported, from {@link System#nanoTime()}
+     * @throws InterruptedException if the test is interrupted
+     */
+    private long awaitState(ConnectionState expected, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            ConnectionState state = states.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            if (state == null) {
+                throw new AssertionError("Never reached " + expected + ", stuck in " + manager.getState());
+            }
+            // The time is added before the state, so it is always there
+            long stateTime = stateTimes.take();
+            if (state == expected) {
+                return stateTime;
+            }
+        }
+    }
+}
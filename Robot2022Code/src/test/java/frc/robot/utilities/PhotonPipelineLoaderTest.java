@@ -0,0 +1,182 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import frc.robot.utilities.PhotonPipelineLoader.PipelineSettings;
+
+/**
+ * <h3>PhotonPipelineLoaderTest</h3>
+ * 
+ * Checks that the pipeline cache is used when the settings zip hasn't changed,
+ * and that a changed zip or a broken cache falls back to parsing the zip
+ */
+public class PhotonPipelineLoaderTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final String PIPELINE_PATH = "cameras/mmal_service_16.1/pipelines/";
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheFile;
+    private PhotonPipelineLoader loader;
+
+    // ----- SETUP ----- \\
+
+    @Before
+    public void setUp() {
+        cacheFile = new File(folder.getRoot(), "photon_pipeline_cache.bin");
+        loader = new PhotonPipelineLoader(cacheFile);
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void parsesPipelinesAndSkipsOtherFiles() throws IOException {
+        List<PipelineSettings> pipelines = loader.load(settingsZip(15.0));
+
+        assertFalse(loader.wasLastLoadCached());
+        assertEquals(2, pipelines.size());
+        assertPipeline(pipelines.get(0), "Hub", 0, 15.0);
+        assertPipeline(pipelines.get(1), "Close Hub", 1, 30.0);
+        assertTrue(cacheFile.exists());
+    }
+
+    @Test
+    public void usesCacheWhenZipIsTheSame() throws IOException {
+        loader.load(settingsZip(15.0));
+
+        // A new loader is what happens on the next boot
+        PhotonPipelineLoader nextBoot = new PhotonPipelineLoader(cacheFile);
+        List<PipelineSettings> pipelines = nextBoot.load(settingsZip(15.0));
+
+        assertTrue(nextBoot.wasLastLoadCached());
+        assertEquals(2, pipelines.size());
+        assertPipeline(pipelines.get(0), "Hub", 0, 15.0);
+        assertPipeline(pipelines.get(1), "Close Hub", 1, 30.0);
+    }
+
+    @Test
+    public void parsesAgainWhenZipChanges() throws IOException {
+        loader.load(settingsZip(15.0));
+
+        List<PipelineSettings> pipelines = loader.load(settingsZip(18.5));
+        assertFalse(loader.wasLastLoadCached());
+        assertPipeline(pipelines.get(0), "Hub", 0, 18.5);
+
+        // The cache was rewritten for the new zip
+        pipelines = loader.load(settingsZip(18.5));
+        assertTrue(loader.wasLastLoadCached());
+        assertPipeline(pipelines.get(0), "Hub", 0, 18.5);
+    }
+
+    @Test
+    public void parsesAgainWhenCacheIsGarbage() throws IOException {
+        Files.write(cacheFile.toPath(), "not a cache".getBytes(StandardCharsets.UTF_8));
+
+        List<PipelineSettings> pipelines = loader.load(settingsZip(15.0));
+
+        assertFalse(loader.wasLastLoadCached());
+        assertPipeline(pipelines.get(0), "Hub", 0, 15.0);
+        // The broken cache was replaced with a good one
+        loader.load(settingsZip(15.0));
+        assertTrue(loader.wasLastLoadCached());
+    }
+
+    @Test
+    public void parsesAgainWhenCacheIsCutOff() throws IOException {
+        loader.load(settingsZip(15.0));
+        // Losing power while writing the cache leaves it cut off after the hash
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        List<PipelineSettings> pipelines = loader.load(settingsZip(15.0));
+
+        assertFalse(loader.wasLastLoadCached());
+        assertEquals(2, pipelines.size());
+        assertPipeline(pipelines.get(1), "Close Hub", 1, 30.0);
+    }
+
+    @Test(expected = IOException.class)
+    public void failsOnPipelineMissingSettings() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, PIPELINE_PATH + "Hub.json", "[\"ReflectivePipelineSettings\",{\"pipelineIndex\":0}]");
+        }
+        loader.load(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>settingsZip</h3>
+     * 
+     * Makes a settings zip laid out like photon's, with two pipelines and some
+     * other files that should be skipped
+     * 
+     * @param hubExposure the exposure of the first pipeline
+     * @return the zip
+     * @throws IOException if the zip can't be written
+     */
+    private static ByteArrayInputStream settingsZip(double hubExposure) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, "hardwareConfig.json", "{\"deviceName\":\"pi\",\"cameraExposure\":99}");
+            addEntry(zip, "cameras/mmal_service_16.1/config.json", "{\"baseName\":\"mmal\"}");
+            zip.putNextEntry(new ZipEntry(PIPELINE_PATH));
+            zip.closeEntry();
+            addEntry(zip, PIPELINE_PATH + "Hub.json", pipelineJson("Hub", 0, hubExposure));
+            addEntry(zip, PIPELINE_PATH + "Close Hub.json", pipelineJson("Close Hub", 1, 30.0));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    /**
+     * <h3>pipelineJson</h3>
+     * 
+     * @return a pipeline json like photon writes, with the settings in a list
+     *         and nested settings that have the same names
+     */
+    private static String pipelineJson(String name, int index, double exposure) {
+        return "[\"ReflectivePipelineSettings\",{\"hsvHue\":{\"first\":50,\"second\":180},"
+                + "\"offsetDualPointA\":{\"cameraExposure\":1.0},\"pipelineIndex\":" + index
+                + ",\"cameraExposure\":" + exposure + ",\"contourGroupingMode\":\"Single\","
+                + "\"pipelineNickname\":\"" + name + "\",\"ledMode\":true}]";
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, String contents) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(contents.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static void assertPipeline(PipelineSettings pipeline, String name, int index, double exposure) {
+        assertEquals(name, pipeline.name);
+        assertEquals(index, pipeline.index);
+        assertEquals(exposure, pipeline.exposure, DELTA);
+    }
+}
@@ -0,0 +1,249 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.utilities.PhotonConnectionManager.ConnectionState;
+import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+
+/**
+ * <h3>PhotonVisionUtilityTest</h3>
+ * 
+ * Runs the photon utility against a fake photon to check that it loads the
+ * pipelines from the settings zip when photon comes up, sends the camera
+ * settings once the websocket is ready, and sends them again after photon
+ * reconnects
+ */
+public class PhotonVisionUtilityTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final String PIPELINE_PATH = "cameras/mmal_service_16.1/pipelines/";
+    private static final String[] PIPELINE_NAMES = { "Hub", "Hub Far" };
+    private static final double[] PIPELINE_EXPOSURES = { 15.0, 40.0 };
+
+    // The websocket settles for 2 s before it counts as connected
+    private static final long CONNECT_TIMEOUT_MS = 10000;
+    private static final long MESSAGE_TIMEOUT_MS = 2000;
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
+    private FakePhotonServer server;
+    private File cacheFile;
+    private PhotonVisionUtility photon;
+
+    // ----- SETUP ----- \\
+
+    @BeforeClass
+    public static void startHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakePhotonServer();
+        server.setSettingsZip(settingsZip());
+        server.start();
+        cacheFile = new File(folder.getRoot(), "photon_pipeline_cache.bin");
+    }
+
+    @After
+    public void tearDown() {
+        if (photon != null) {
+            photon.close();
+        }
+        server.stop();
+    }
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void connectsAndSendsSettings() throws Exception {
+        photon = new PhotonVisionUtility(server.getHost(), server.getPort(), true, cacheFile);
+        awaitConnected(photon, 0);
+
+        // The pipelines are loaded from the zip and cached for next boot
+        assertEquals(1, server.getSettingsZipCount());
+        assertTrue(cacheFile.exists());
+
+        assertExposureSent();
+        // The first connection also puts photon on the first pipeline
+        Map<String, Object> pipeline = takeMessage();
+        assertEquals(0, pipeline.get("currentPipeline"));
+        assertEquals(0, pipeline.get("cameraIndex"));
+        assertNull(server.takeMessage(500));
+
+        // The ready banner is put from the main loop, not the connection thread
+        awaitPhotonReady(photon);
+    }
+
+    @Test
+    public void reconnectSendsSettingsAgain() throws Exception {
+        photon = new PhotonVisionUtility(server.getHost(), server.getPort(), true, cacheFile);
+        awaitConnected(photon, 0);
+        assertExposureSent();
+        takeMessage();
+
+        // Photon restarts and forgets its settings
+        server.dropConnections();
+        awaitConnected(photon, 1);
+
+        assertExposureSent();
+        // Setting the exposure already puts photon back on the selected pipeline
+        assertNull(server.takeMessage(500));
+        // The pipelines don't change when photon reconnects, so they aren't downloaded again
+        assertEquals(1, server.getSettingsZipCount());
+        assertEquals(2, server.getWebSocketCount());
+    }
+
+    @Test
+    public void connectsOncePhotonComesUp() throws Exception {
+        server.stop();
+        photon = new PhotonVisionUtility(server.getHost(), server.getPort(), true, cacheFile);
+
+        Thread.sleep(1000);
+        assertTrue(photon.getConnectionManager().getState() != ConnectionState.CONNECTED);
+        server.start();
+
+        awaitConnected(photon, 0);
+        assertEquals(1, server.getSettingsZipCount());
+        assertExposureSent();
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>awaitConnected</h3>
+     * 
+     * Waits for the utility to be connected to photon after a number of
+     * reconnects
+     * 
+     * @param photon     the utility to wait on
+     * @param reconnects how many reconnects to expect
+     * @throws InterruptedException if the test is interrupted
+     */
+    private void awaitConnected(PhotonVisionUtility photon, int reconnects) throws InterruptedException {
+        PhotonConnectionManager manager = photon.getConnectionManager();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MS);
+        while (manager.getState() != ConnectionState.CONNECTED || manager.getReconnectCount() != reconnects) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Never connected, stuck in " + manager.getState() + " after "
+                        + manager.getReconnectCount() + " reconnects");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * <h3>awaitPhotonReady</h3>
+     * 
+     * Runs the main loop's shuffleboard update until it shows photon as ready
+     * 
+     * @param photon the utility to wait on
+     * @throws InterruptedException if the test is interrupted
+     */
+    private void awaitPhotonReady(PhotonVisionUtility photon) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MESSAGE_TIMEOUT_MS);
+        while (true) {
+            photon.updateShuffleboard();
+            if (ShuffleboardUtility.getInstance().getBoolean(ShuffleboardKeys.PHOTON_READY)) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Photon was never shown as ready");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * <h3>assertExposureSent</h3>
+     * 
+     * Checks that photon was sent the selected pipeline, then its exposure
+     * nudged up and back down
+     * 
+     * @throws Exception if a message doesn't come or can't be read
+     */
+    private void assertExposureSent() throws Exception {
+        int selectedPipeline = ShuffleboardUtility.getInstance().getSelectedPipelineChooser();
+        double exposure = PIPELINE_EXPOSURES[selectedPipeline];
+
+        Map<String, Object> pipeline = takeMessage();
+        assertEquals(selectedPipeline, pipeline.get("currentPipeline"));
+        assertEquals(0, pipeline.get("cameraIndex"));
+
+        assertEquals(exposure + 0.1, getExposure(takeMessage()), DELTA);
+        assertEquals(exposure, getExposure(takeMessage()), DELTA);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double getExposure(Map<String, Object> message) {
+        Map<String, Object> setting = (Map<String, Object>) message.get("changePipelineSetting");
+        return ((Number) setting.get("cameraExposure")).doubleValue();
+    }
+
+    /**
+     * <h3>takeMessage</h3>
+     * 
+     * @return the next message photon got from the robot
+     * @throws Exception if no message comes or it can't be read
+     */
+    private Map<String, Object> takeMessage() throws Exception {
+        byte[] message = server.takeMessage(MESSAGE_TIMEOUT_MS);
+        if (message == null) {
+            throw new AssertionError("Photon never got the message");
+        }
+        return objectMapper.readValue(message, new TypeReference<LinkedHashMap<String, Object>>() {
+        });
+    }
+
+    /**
+     * <h3>settingsZip</h3>
+     * 
+     * @return a photon settings zip with the test pipelines
+     * @throws IOException if the zip can't be written
+     */
+    private static byte[] settingsZip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("hardwareConfig.json"));
+            zip.write("{}".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < PIPELINE_NAMES.length; i++) {
+                zip.putNextEntry(new ZipEntry(PIPELINE_PATH + PIPELINE_NAMES[i] + ".json"));
+                zip.write(("[\"ReflectivePipelineSettings\", {\"pipelineIndex\": " + i + ", \"pipelineNickname\": \""
+                        + PIPELINE_NAMES[i] + "\", \"cameraExposure\": " + PIPELINE_EXPOSURES[i] + "}]")
+                                .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,320 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import frc.robot.utilities.PoseHistoryBuffer.PoseSample;
+
+/**
+ * <h3>PoseHistoryBufferTest</h3>
+ * 
+ * Checks the interpolating lookup at the ends of the buffer, once the ring has
+ * wrapped around, as the oldest samples are shifted out, and across the
+ * +/-180 degree heading wrap. Adding and looking up samples are also timed at
+ * the size the robot uses, and checked to allocate nothing.
+ */
+public class PoseHistoryBufferTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final int CAPACITY = 5;
+    private static final double LOOP_PERIOD = 0.02;
+    private static final double DELTA = 1e-9;
+
+    // The drive keeps 5 s of history, and vision looks back up to a few hundred
+    // milliseconds
+    private static final int ROBOT_CAPACITY = 250;
+    private static final double MAX_LATENCY = 0.3;
+    private static final int BENCHMARK_CALLS = 1000000;
+    // Both are a few array writes or a short binary search, so anywhere near a
+    // microsecond means something is badly wrong
+    private static final double MAX_ADD_NANOSECONDS = 1000;
+    private static final double MAX_LOOKUP_NANOSECONDS = 2000;
+
+    // ----- VARIABLES ----- \\
+
+    private final PoseHistoryBuffer buffer = new PoseHistoryBuffer(CAPACITY);
+    private final PoseSample sample = new PoseSample();
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void emptyBufferLeavesSampleAlone() {
+        assertFalse(buffer.getSampleAt(0, sample));
+        assertEquals(0, buffer.size());
+        assertTrue(Double.isNaN(buffer.getOldestTimestamp()));
+        assertTrue(Double.isNaN(buffer.getNewestTimestamp()));
+
+        addLoops(0, 0);
+        assertTrue(buffer.getSampleAt(0, sample));
+        buffer.clear();
+        assertFalse(buffer.getSampleAt(0, sample));
+        // The old result is still there
+        assertSample(0, 0);
+    }
+
+    @Test
+    public void interpolatesEveryField() {
+        addLoops(0, 4);
+
+        for (int loop = 0; loop < 4; loop++) {
+            assertTrue(buffer.getSampleAt(loop * LOOP_PERIOD, sample));
+            assertSample(loop, loop * LOOP_PERIOD);
+
+            double time = (loop + 0.25) * LOOP_PERIOD;
+            assertTrue(buffer.getSampleAt(time, sample));
+            assertEquals(time, sample.getTimestamp(), DELTA);
+            assertEquals(x(loop) + (x(loop + 1) - x(loop)) / 4, sample.getX(), DELTA);
+            assertEquals(y(loop) + (y(loop + 1) - y(loop)) / 4, sample.getY(), DELTA);
+            assertEquals(heading(loop) + (heading(loop + 1) - heading(loop)) / 4, sample.getHeading(), DELTA);
+            assertEquals(leftSpeed(loop) + (leftSpeed(loop + 1) - leftSpeed(loop)) / 4, sample.getLeftSpeed(),
+                    DELTA);
+            assertEquals(rightSpeed(loop) + (rightSpeed(loop + 1) - rightSpeed(loop)) / 4,
+                    sample.getRightSpeed(), DELTA);
+        }
+    }
+
+    @Test
+    public void timesPastTheEndsAreClamped() {
+        addLoops(0, 4);
+        assertEquals(0, buffer.getOldestTimestamp(), DELTA);
+        assertEquals(4 * LOOP_PERIOD, buffer.getNewestTimestamp(), DELTA);
+
+        // Exactly at the ends
+        buffer.getSampleAt(0, sample);
+        assertSample(0, 0);
+        buffer.getSampleAt(4 * LOOP_PERIOD, sample);
+        assertSample(4, 4 * LOOP_PERIOD);
+        // Past them, the closest sample is returned with its own time
+        buffer.getSampleAt(-1, sample);
+        assertSample(0, 0);
+        buffer.getSampleAt(100, sample);
+        assertSample(4, 4 * LOOP_PERIOD);
+        // Just inside them
+        buffer.getSampleAt(3.99 * LOOP_PERIOD, sample);
+        assertEquals(x(4) - (x(4) - x(3)) * 0.01, sample.getX(), 1e-6);
+    }
+
+    @Test
+    public void lookupsWorkAfterRingWrapsAround() {
+        // Fill the buffer more than twice, so the newest samples are written over
+        // the start of the arrays and the oldest are in the middle
+        addLoops(0, 2 * CAPACITY + 2);
+        int oldest = CAPACITY + 3;
+        int newest = 2 * CAPACITY + 2;
+        assertEquals(CAPACITY, buffer.size());
+        assertEquals(oldest * LOOP_PERIOD, buffer.getOldestTimestamp(), DELTA);
+        assertEquals(newest * LOOP_PERIOD, buffer.getNewestTimestamp(), DELTA);
+
+        buffer.getSampleAt(0, sample);
+        assertSample(oldest, oldest * LOOP_PERIOD);
+        buffer.getSampleAt(100, sample);
+        assertSample(newest, newest * LOOP_PERIOD);
+        // Every pair, including the one split across the end of the arrays
+        for (int loop = oldest; loop < newest; loop++) {
+            buffer.getSampleAt((loop + 0.5) * LOOP_PERIOD, sample);
+            assertEquals("Loop " + loop, (x(loop) + x(loop + 1)) / 2, sample.getX(), DELTA);
+            assertEquals("Loop " + loop, (y(loop) + y(loop + 1)) / 2, sample.getY(), DELTA);
+            assertEquals("Loop " + loop, (heading(loop) + heading(loop + 1)) / 2, sample.getHeading(), DELTA);
+        }
+    }
+
+    @Test
+    public void oldestSamplesShiftOut() {
+        addLoops(0, CAPACITY - 1);
+        double time = 1.5 * LOOP_PERIOD;
+        buffer.getSampleAt(time, sample);
+        assertEquals((x(1) + x(2)) / 2, sample.getX(), DELTA);
+
+        // One more sample pushes out loop 0, and the rest still interpolate
+        addLoops(CAPACITY, CAPACITY);
+        assertEquals(LOOP_PERIOD, buffer.getOldestTimestamp(), DELTA);
+        buffer.getSampleAt(time, sample);
+        assertEquals((x(1) + x(2)) / 2, sample.getX(), DELTA);
+
+        // Once loops 1 and 2 are gone the same time clamps to the oldest sample left
+        addLoops(CAPACITY + 1, CAPACITY + 2);
+        buffer.getSampleAt(time, sample);
+        assertSample(3, 3 * LOOP_PERIOD);
+    }
+
+    @Test
+    public void headingsStayContinuousAcrossWrap() {
+        // Turning left through 180 degrees, with the gyro wrapped to +/-180
+        buffer.addSample(0, 0, 0, 170, 0, 0);
+        buffer.addSample(LOOP_PERIOD, 0, 0, -170, 0, 0);
+        buffer.addSample(2 * LOOP_PERIOD, 0, 0, -150, 0, 0);
+
+        buffer.getSampleAt(LOOP_PERIOD / 2, sample);
+        assertEquals(180, sample.getHeading(), DELTA);
+        buffer.getSampleAt(1.5 * LOOP_PERIOD, sample);
+        assertEquals(200, sample.getHeading(), DELTA);
+        // The stored heading is continuous, not wrapped
+        buffer.getSampleAt(100, sample);
+        assertEquals(210, sample.getHeading(), DELTA);
+    }
+
+    @Test
+    public void headingsStayContinuousAcrossWrapAfterShift() {
+        // Spin right around more than once, wrapping the ring while doing it
+        for (int loop = 0; loop <= 3 * CAPACITY; loop++) {
+            buffer.addSample(loop * LOOP_PERIOD, 0, 0, Math.IEEEremainder(-50.0 * loop, 360), 0, 0);
+        }
+
+        int oldest = 2 * CAPACITY + 1;
+        for (int loop = oldest; loop < 3 * CAPACITY; loop++) {
+            buffer.getSampleAt((loop + 0.5) * LOOP_PERIOD, sample);
+            double expected = -50.0 * (loop + 0.5);
+            // The buffer only knows the heading up to whole turns from the first sample
+            assertEquals("Loop " + loop, 0, Math.IEEEremainder(sample.getHeading() - expected, 360), DELTA);
+            buffer.getSampleAt((loop + 1) * LOOP_PERIOD, sample);
+            double next = sample.getHeading();
+            buffer.getSampleAt(loop * LOOP_PERIOD, sample);
+            assertEquals("Loop " + loop, -50, next - sample.getHeading(), DELTA);
+        }
+    }
+
+    @Test
+    public void clearForgetsOldPose() {
+        addLoops(0, 2 * CAPACITY);
+
+        // The pose was reset, so the next samples start somewhere else
+        buffer.clear();
+        buffer.addSample(5, 10, 10, 350, 0, 0);
+        buffer.addSample(5 + LOOP_PERIOD, 12, 10, 352, 0, 0);
+        assertEquals(2, buffer.size());
+
+        buffer.getSampleAt(5 + LOOP_PERIOD / 2, sample);
+        assertEquals(11, sample.getX(), DELTA);
+        assertEquals(351, sample.getHeading(), DELTA);
+        // The new heading isn't made continuous with the one before the reset,
+        // which would have turned it into -10 degrees
+        buffer.getSampleAt(0, sample);
+        assertEquals(10, sample.getX(), DELTA);
+        assertEquals(350, sample.getHeading(), DELTA);
+    }
+
+    @Test
+    public void addAndLookupAreFastAndAllocateNothing() {
+        PoseHistoryBuffer robotBuffer = new PoseHistoryBuffer(ROBOT_CAPACITY);
+
+        // Warm up so the JIT has compiled both
+        double checksum = runAdds(robotBuffer, BENCHMARK_CALLS) + runLookups(robotBuffer, BENCHMARK_CALLS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+
+        long startBytes = threads.getThreadAllocatedBytes(threadID);
+        long startTime = System.nanoTime();
+        checksum += runAdds(robotBuffer, BENCHMARK_CALLS);
+        double addNanoseconds = (System.nanoTime() - startTime) / (double) BENCHMARK_CALLS;
+        long addBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        startBytes = threads.getThreadAllocatedBytes(threadID);
+        startTime = System.nanoTime();
+        checksum += runLookups(robotBuffer, BENCHMARK_CALLS);
+        double lookupNanoseconds = (System.nanoTime() - startTime) / (double) BENCHMARK_CALLS;
+        long lookupBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        System.out.println(String.format(Locale.US,
+                "Pose history: add %.1f ns, %d bytes; lookup %.1f ns, %d bytes (checksum %.1f)", addNanoseconds,
+                addBytes, lookupNanoseconds, lookupBytes, checksum));
+        assertTrue("Add took " + addNanoseconds + " ns", addNanoseconds < MAX_ADD_NANOSECONDS);
+        assertTrue("Lookup took " + lookupNanoseconds + " ns", lookupNanoseconds < MAX_LOOKUP_NANOSECONDS);
+        // Reading the allocation counter can allocate a little itself, but a call
+        // that allocated would show up as megabytes here
+        assertTrue("Adds allocated " + addBytes + " bytes", addBytes < 1024);
+        assertTrue("Lookups allocated " + lookupBytes + " bytes", lookupBytes < 1024);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>runAdds</h3>
+     * 
+     * Adds a sample a loop, wrapping the ring over and over
+     * 
+     * @param robotBuffer the buffer to add to
+     * @param adds        how many samples to add
+     * @return the newest timestamp, so the adds can't be optimized away
+     */
+    private static double runAdds(PoseHistoryBuffer robotBuffer, int adds) {
+        for (int loop = 0; loop < adds; loop++) {
+            robotBuffer.addSample(loop * LOOP_PERIOD, x(loop), y(loop), heading(loop), leftSpeed(loop),
+                    rightSpeed(loop));
+        }
+        return robotBuffer.getNewestTimestamp();
+    }
+
+    /**
+     * <h3>runLookups</h3>
+     * 
+     * Looks up times sweeping back from the newest sample like vision results
+     * with different latencies
+     * 
+     * @param robotBuffer the buffer to look up from
+     * @param lookups     how many lookups to do
+     * @return a sum of the results, so the lookups can't be optimized away
+     */
+    private double runLookups(PoseHistoryBuffer robotBuffer, int lookups) {
+        double newest = robotBuffer.getNewestTimestamp();
+        double sum = 0;
+        for (int i = 0; i < lookups; i++) {
+            robotBuffer.getSampleAt(newest - (i % 1000) * MAX_LATENCY / 1000, sample);
+            sum += sample.getX();
+        }
+        return sum;
+    }
+
+    /**
+     * <h3>addLoops</h3>
+     * 
+     * Adds one sample a loop along a curving path
+     * 
+     * @param first the first loop to add
+     * @param last  the last loop to add
+     */
+    private void addLoops(int first, int last) {
+        for (int loop = first; loop <= last; loop++) {
+            buffer.addSample(loop * LOOP_PERIOD, x(loop), y(loop), heading(loop), leftSpeed(loop),
+                    rightSpeed(loop));
+        }
+    }
+
+    private void assertSample(int loop, double timestamp) {
+        assertEquals(timestamp, sample.getTimestamp(), DELTA);
+        assertEquals(x(loop), sample.getX(), DELTA);
+        assertEquals(y(loop), sample.getY(), DELTA);
+        assertEquals(heading(loop), sample.getHeading(), DELTA);
+        assertEquals(leftSpeed(loop), sample.getLeftSpeed(), DELTA);
+        assertEquals(rightSpeed(loop), sample.getRightSpeed(), DELTA);
+    }
+
+    private static double x(int loop) {
+        return 1 + 0.05 * loop * loop;
+    }
+
+    private static double y(int loop) {
+        return 2 - 0.03 * loop;
+    }
+
+    private static double heading(int loop) {
+        return 2 * loop;
+    }
+
+    private static double leftSpeed(int loop) {
+        return 0.5 * loop;
+    }
+
+    private static double rightSpeed(int loop) {
+        return 0.25 * loop * loop;
+    }
+}
@@ -0,0 +1,183 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
+
+/**
+ * <h3>ShootOnTheMoveSolverTest</h3>
+ * 
+ * Sweeps the solver across robot speeds, headings and distances to check that
+ * the virtual target always settles, that its flight time agrees with the
+ * distance to it, and that it leads the hub the right way
+ */
+public class ShootOnTheMoveSolverTest {
+    // ----- CONSTANTS ----- \\
+
+    // The center of the field, where the hub is
+    private static final double HUB_X = 8.23;
+    private static final double HUB_Y = 4.115;
+
+    // Distances from the hub center in meters, from the fender out past the
+    // tarmac, and the fastest the drivetrain goes in meters per second
+    private static final double[] DISTANCES = { 1.5, 2.5, 3.5, 5.0, 6.5 };
+    private static final double MAX_SPEED = 5.0;
+    private static final double SPEED_STEP = 0.5;
+    private static final int HEADING_STEP_DEGREES = 15;
+
+    // How far the flight time to the virtual target can be from the guess it
+    // settled on, in seconds
+    private static final double TIME_OF_FLIGHT_TOLERANCE = 0.001;
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    private final ShootOnTheMoveSolver solver = new ShootOnTheMoveSolver(HUB_X, HUB_Y);
+    private final ShotSetpoint stationaryShot = new ShotSetpoint();
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void stationaryRobotAimsAtHub() {
+        for (double distance : DISTANCES) {
+            for (int angle = 0; angle < 360; angle += HEADING_STEP_DEGREES) {
+                double robotX = HUB_X - distance * Math.cos(Math.toRadians(angle));
+                double robotY = HUB_Y - distance * Math.sin(Math.toRadians(angle));
+                solver.solveWithFieldVelocity(robotX, robotY, 0, 0);
+
+                assertTrue(solver.isConverged());
+                assertEquals(HUB_X, solver.getVirtualTargetX(), DELTA);
+                assertEquals(HUB_Y, solver.getVirtualTargetY(), DELTA);
+                assertEquals(0, solver.getLeadAngle(), DELTA);
+                assertEquals(0, Math.IEEEremainder(solver.getAimHeading() - angle, 360), 1e-6);
+                assertEquals(Units.metersToFeet(distance - ShootOnTheMoveSolver.CENTER_TO_SHOT_DISTANCE_OFFSET_METERS),
+                        solver.getShotDistance(), 1e-6);
+                assertEquals(ShootOnTheMoveSolver.calculateTimeOfFlight(distance), solver.getTimeOfFlight(),
+                        TIME_OF_FLIGHT_TOLERANCE);
+
+                // Standing still is the same shot the table gives for the real distance
+                ShooterUtility.calculateShot(solver.getShotDistance(), stationaryShot);
+                assertEquals(stationaryShot.getHoodPosition(), solver.getShot().getHoodPosition(), DELTA);
+                assertEquals(stationaryShot.getTopSpeed(), solver.getShot().getTopSpeed(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void sweepSettlesOnSelfConsistentTarget() {
+        int solves = 0;
+        int worstIterations = 0;
+        double worstTimeError = 0;
+        double worstLead = 0;
+
+        for (double distance : DISTANCES) {
+            for (int angle = 0; angle < 360; angle += 45) {
+                double robotX = HUB_X - distance * Math.cos(Math.toRadians(angle));
+                double robotY = HUB_Y - distance * Math.sin(Math.toRadians(angle));
+
+                for (double speed = 0; speed <= MAX_SPEED + DELTA; speed += SPEED_STEP) {
+                    for (int heading = 0; heading < 360; heading += HEADING_STEP_DEGREES) {
+                        double velocityX = speed * Math.cos(Math.toRadians(heading));
+                        double velocityY = speed * Math.sin(Math.toRadians(heading));
+                        solver.solveWithFieldVelocity(robotX, robotY, velocityX, velocityY);
+                        String state = String.format(Locale.US, "%.1f m at %d deg, %.1f m/s toward %d deg",
+                                distance, angle, speed, heading);
+
+                        assertTrue("Didn't settle " + state, solver.isConverged());
+
+                        // The virtual target is where the hub is offset by the drift during the flight
+                        double flightTime = solver.getTimeOfFlight();
+                        assertEquals(HUB_X - velocityX * flightTime, solver.getVirtualTargetX(), DELTA);
+                        assertEquals(HUB_Y - velocityY * flightTime, solver.getVirtualTargetY(), DELTA);
+
+                        // And the flight time is the one for a shot at the virtual target
+                        double virtualDistance = Math.hypot(solver.getVirtualTargetX() - robotX,
+                                solver.getVirtualTargetY() - robotY);
+                        double timeError = Math
+                                .abs(ShootOnTheMoveSolver.calculateTimeOfFlight(virtualDistance) - flightTime);
+                        assertTrue("Flight time off by " + timeError + " s " + state,
+                                timeError < TIME_OF_FLIGHT_TOLERANCE);
+
+                        // The lead is what turns the real hub into the virtual target
+                        assertEquals(0, Math.IEEEremainder(
+                                angle + solver.getLeadAngle() - solver.getAimHeading(), 360), 1e-6);
+
+                        solves++;
+                        worstIterations = Math.max(worstIterations, solver.getIterations());
+                        worstTimeError = Math.max(worstTimeError, timeError);
+                        worstLead = Math.max(worstLead, Math.abs(solver.getLeadAngle()));
+                    }
+                }
+            }
+        }
+
+        System.out.println(String.format(Locale.US,
+                "Shoot on the move sweep: %d solves, at most %d iterations, flight time off by %.2e s, lead up to %.1f degrees",
+                solves, worstIterations, worstTimeError, worstLead));
+    }
+
+    @Test
+    public void drivingAtHubShortensShot() {
+        double robotX = HUB_X - 4;
+        solver.solveWithFieldVelocity(robotX, HUB_Y, 0, 0);
+        double stationaryDistance = solver.getShotDistance();
+        double stationaryTime = solver.getTimeOfFlight();
+
+        for (double speed = SPEED_STEP; speed <= MAX_SPEED + DELTA; speed += SPEED_STEP) {
+            solver.solveWithFieldVelocity(robotX, HUB_Y, speed, 0);
+            assertTrue(solver.getShotDistance() < stationaryDistance);
+            assertTrue(solver.getTimeOfFlight() < stationaryTime);
+            assertEquals(0, solver.getLeadAngle(), DELTA);
+
+            solver.solveWithFieldVelocity(robotX, HUB_Y, -speed, 0);
+            assertTrue(solver.getShotDistance() > stationaryDistance);
+            assertTrue(solver.getTimeOfFlight() > stationaryTime);
+            assertEquals(0, solver.getLeadAngle(), DELTA);
+        }
+    }
+
+    @Test
+    public void sidewaysDriftIsLedAgainst() {
+        double robotX = HUB_X - 4;
+        double lastLead = 0;
+
+        for (double speed = SPEED_STEP; speed <= MAX_SPEED + DELTA; speed += SPEED_STEP) {
+            // Driving to the left carries the cargo left, so aim right of the hub
+            solver.solveWithFieldVelocity(robotX, HUB_Y, 0, speed);
+            double leftLead = solver.getLeadAngle();
+            assertTrue("Lead " + leftLead + " at " + speed + " m/s", leftLead < 0);
+            assertTrue(leftLead < lastLead);
+            lastLead = leftLead;
+
+            // Driving to the right leads the same amount the other way
+            solver.solveWithFieldVelocity(robotX, HUB_Y, 0, -speed);
+            assertEquals(-leftLead, solver.getLeadAngle(), 1e-6);
+        }
+    }
+
+    @Test
+    public void wheelSpeedsDriveAlongHeading() {
+        double robotX = HUB_X - 3;
+        double robotY = HUB_Y + 1;
+        ShootOnTheMoveSolver fieldSolver = new ShootOnTheMoveSolver(HUB_X, HUB_Y);
+
+        for (int heading = 0; heading < 360; heading += HEADING_STEP_DEGREES) {
+            double radians = Math.toRadians(heading);
+            // Turning while driving still moves the robot at the average wheel speed
+            solver.solve(robotX, robotY, radians, 2.0, 3.0);
+            fieldSolver.solveWithFieldVelocity(robotX, robotY, 2.5 * Math.cos(radians), 2.5 * Math.sin(radians));
+
+            assertEquals(fieldSolver.getVirtualTargetX(), solver.getVirtualTargetX(), DELTA);
+            assertEquals(fieldSolver.getVirtualTargetY(), solver.getVirtualTargetY(), DELTA);
+            assertEquals(fieldSolver.getShotDistance(), solver.getShotDistance(), DELTA);
+        }
+    }
+}
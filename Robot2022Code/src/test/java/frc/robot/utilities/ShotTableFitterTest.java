@@ -0,0 +1,219 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import frc.robot.tools.ShotTableFitter;
+import frc.robot.utilities.ShotTable.ShotSetpoint;
+
+/**
+ * <h3>ShotTableFitterTest</h3>
+ * 
+ * Writes shot logs the way the robot does, fits a table from them, and loads
+ * the table back with ShotTable to check that the fitted rows land on the
+ * curve the makes were taken along
+ */
+public class ShotTableFitterTest {
+    // ----- CONSTANTS ----- \\
+
+    // A table with a step at 10 ft. The shots are all taken below it, so only the
+    // first segment is refit
+    private static final String[] CURRENT_TABLE = { "distance_feet,top_speed,bottom_speed,hood_degrees",
+            "4,0.5000,0.2000,5.000", "6,0.5000,0.2000,5.000", "8,0.5000,0.2000,5.000", "10,0.5000,0.2000,5.000",
+            "10,0.9000,0.4000,25.000", "12,0.9000,0.4000,25.000", "14,0.9000,0.4000,25.000" };
+    private static final double[] REFIT_DISTANCES = { 4, 6, 8 };
+    private static final double[] KEPT_DISTANCES = { 10, 12, 14 };
+
+    // The table is written with 4 decimal speeds and 3 decimal hood positions,
+    // and the log with floats
+    private static final double SPEED_TOLERANCE = 1e-4;
+    private static final double HOOD_TOLERANCE = 1e-3;
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ShotSetpoint shot = new ShotSetpoint();
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void fittedTableMatchesMakes() throws IOException {
+        Path log = folder.newFile("shots.bin").toPath();
+        try (DataOutputStream output = openLog(log)) {
+            ShotRecord.writeHeader(output);
+            ShotRecord.writeSession(output, 0);
+            int shotNumber = 0;
+            for (double distance = 4.5; distance < 10; distance += 1.0) {
+                writeMake(output, ++shotNumber, distance);
+                // A miss with the old setpoints, which mustn't pull the curve
+                ShotRecord.writeShot(output, ++shotNumber, shotNumber, distance, 5, 0.5, 0.2, 0, 0);
+                ShotRecord.writeOutcome(output, shotNumber, ShotRecord.MISSED);
+                // And one the driver never tagged
+                ShotRecord.writeShot(output, ++shotNumber, shotNumber, distance, 0, 1, 1, 0, 0);
+            }
+        }
+
+        ShotTable table = fit(log);
+
+        for (double distance : REFIT_DISTANCES) {
+            table.lookup(distance, shot);
+            assertEquals(topSpeed(distance), shot.getTopSpeed(), SPEED_TOLERANCE);
+            assertEquals(bottomSpeed(distance), shot.getBottomSpeed(), SPEED_TOLERANCE);
+            assertEquals(hood(distance), shot.getHoodPosition(), HOOD_TOLERANCE);
+        }
+        // Past the step there was too little to fit, so the old rows are kept
+        for (double distance : KEPT_DISTANCES) {
+            table.lookup(distance, shot);
+            assertEquals(0.9, shot.getTopSpeed(), DELTA);
+            assertEquals(0.4, shot.getBottomSpeed(), DELTA);
+            assertEquals(25, shot.getHoodPosition(), DELTA);
+        }
+        // The step itself survives the fit
+        table.lookup(9.999, shot);
+        assertTrue(shot.getTopSpeed() < 0.9);
+        assertEquals(14, table.getMaxDistance(), DELTA);
+    }
+
+    @Test
+    public void outcomesOnlyTagShotsFromTheirSession() throws IOException {
+        Path firstLog = folder.newFile("first.bin").toPath();
+        try (DataOutputStream output = openLog(firstLog)) {
+            ShotRecord.writeHeader(output);
+            ShotRecord.writeSession(output, 0);
+            writeMake(output, 1, 4);
+            writeMake(output, 2, 6);
+            writeMake(output, 3, 8);
+
+            // The robot restarted, so the shot numbers start over. A miss here must
+            // only tag the new shot 1, not the make from the last session
+            ShotRecord.writeSession(output, 0);
+            ShotRecord.writeShot(output, 1, 1, 6, 0, 1, 1, 0, 0);
+            ShotRecord.writeOutcome(output, 1, ShotRecord.MISSED);
+        }
+
+        // A second log from another day, cut off partway through its last record
+        // when the robot lost power
+        Path secondLog = folder.newFile("second.bin").toPath();
+        try (DataOutputStream output = openLog(secondLog)) {
+            ShotRecord.writeHeader(output);
+            ShotRecord.writeSession(output, 0);
+            writeMake(output, 1, 5);
+            writeMake(output, 2, 7);
+            output.writeByte(ShotRecord.SHOT);
+            output.writeInt(3);
+        }
+
+        ShotTable table = fit(firstLog, secondLog);
+
+        for (double distance : REFIT_DISTANCES) {
+            table.lookup(distance, shot);
+            assertEquals(topSpeed(distance), shot.getTopSpeed(), SPEED_TOLERANCE);
+            assertEquals(bottomSpeed(distance), shot.getBottomSpeed(), SPEED_TOLERANCE);
+            assertEquals(hood(distance), shot.getHoodPosition(), HOOD_TOLERANCE);
+        }
+    }
+
+    @Test
+    public void shotsWithoutHoodKeepOldHood() throws IOException {
+        Path log = folder.newFile("shots.bin").toPath();
+        try (DataOutputStream output = openLog(log)) {
+            ShotRecord.writeHeader(output);
+            ShotRecord.writeSession(output, 0);
+            // Shot without waiting on the hood, so its position wasn't known
+            for (int shotNumber = 1; shotNumber <= 5; shotNumber++) {
+                double distance = 3 + shotNumber;
+                ShotRecord.writeShot(output, shotNumber, shotNumber, distance, Double.NaN, topSpeed(distance),
+                        bottomSpeed(distance), 0, 0);
+                ShotRecord.writeOutcome(output, shotNumber, ShotRecord.MADE);
+            }
+        }
+
+        ShotTable table = fit(log);
+
+        for (double distance : REFIT_DISTANCES) {
+            table.lookup(distance, shot);
+            assertEquals(topSpeed(distance), shot.getTopSpeed(), SPEED_TOLERANCE);
+            assertEquals(5, shot.getHoodPosition(), DELTA);
+        }
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>fit</h3>
+     * 
+     * Runs the fitter on the current table and loads what it writes
+     * 
+     * @param logs the shot logs to fit from
+     * @return the fitted table, as the robot would load it
+     * @throws IOException if the files can't be written
+     */
+    private ShotTable fit(Path... logs) throws IOException {
+        Path currentTable = folder.newFile("shottable.csv").toPath();
+        Files.write(currentTable, Arrays.asList(CURRENT_TABLE));
+        Path newTable = folder.getRoot().toPath().resolve("shottable-new.csv");
+
+        String[] args = new String[logs.length + 2];
+        args[0] = currentTable.toString();
+        args[1] = newTable.toString();
+        for (int i = 0; i < logs.length; i++) {
+            args[i + 2] = logs[i].toString();
+        }
+        ShotTableFitter.main(args);
+
+        assertTrue(Files.exists(newTable));
+        return new ShotTable(newTable);
+    }
+
+    private static DataOutputStream openLog(Path path) throws IOException {
+        OutputStream stream = Files.newOutputStream(path);
+        return new DataOutputStream(new BufferedOutputStream(stream));
+    }
+
+    /**
+     * <h3>writeMake</h3>
+     * 
+     * Logs a shot right on the curves and tags it as made
+     * 
+     * @param output     the log to write to
+     * @param shotNumber the number of the shot in this session
+     * @param distance   the distance from the hub in feet
+     * @throws IOException if the write fails
+     */
+    private static void writeMake(DataOutputStream output, int shotNumber, double distance) throws IOException {
+        ShotRecord.writeShot(output, shotNumber, shotNumber, distance, hood(distance), topSpeed(distance),
+                bottomSpeed(distance), 0, 0);
+        ShotRecord.writeOutcome(output, shotNumber, ShotRecord.MADE);
+    }
+
+    // The curves the makes were taken along. They are no higher than the
+    // fitter's degree, so it should find them exactly
+    private static double topSpeed(double distance) {
+        return 0.6 + 0.01 * distance;
+    }
+
+    private static double bottomSpeed(double distance) {
+        return 0.25 + 0.005 * distance;
+    }
+
+    private static double hood(double distance) {
+        return 8 + 0.5 * distance + 0.05 * distance * distance;
+    }
+}
@@ -0,0 +1,254 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import frc.robot.utilities.ShotTable.ShotSetpoint;
+
+/**
+ * <h3>ShotTableTest</h3>
+ * 
+ * Checks the interpolation between shots, that the deployed table still
+ * matches the best-fit curves it was generated from, and that a lookup is fast
+ * and allocates nothing
+ */
+public class ShotTableTest {
+    // ----- CONSTANTS ----- \\
+
+    // The table that gets deployed to the robot
+    private static final Path DEPLOYED_TABLE = Paths.get("src/main/deploy/shooter/shottable.csv");
+    private static final double DELTA = 1e-9;
+
+    // The best-fit curves the deployed table was generated from, and the hood
+    // positions it was held at past 8 and 19 feet, see
+    // https://www.desmos.com/calculator/mbuhfoziwi
+    private static final double MAX_DISTANCE = 27;
+    private static final double SPEED_M = 1.323076923;
+    private static final double TOP_SPEED_B = 65.48717949;
+    private static final double BOT_SPEED_B = 15.48717949;
+    private static final double HOOD_A = 0.13834842;
+    private static final double HOOD_B = -2.30271897;
+    private static final double HOOD_C = 15.14317395;
+    private static final double HOOD_D = -16.10579851;
+
+    // How far the table can be from the curves. The speeds are straight lines so
+    // they should match, the hood is a cubic so the straight lines between rows
+    // cut its corners a little
+    private static final double SPEED_TOLERANCE = 0.001;
+    private static final double HOOD_TOLERANCE_DEGREES = 0.1;
+
+    // How many lookups to time, and the slowest a lookup can be on average. The
+    // robot does a handful of lookups a loop, so this is very generous
+    private static final int BENCHMARK_LOOKUPS = 1000000;
+    private static final double MAX_LOOKUP_NANOSECONDS = 2000;
+
+    // ----- VARIABLES ----- \\
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ShotSetpoint shot = new ShotSetpoint();
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void rowsAreReturnedExactly() throws IOException {
+        ShotTable table = table("1,0.5,0.2,10", "3,0.7,0.4,20", "5,0.9,0.6,40");
+
+        table.lookup(3, shot);
+        assertShot(0.7, 0.4, 20);
+        table.lookup(1, shot);
+        assertShot(0.5, 0.2, 10);
+        table.lookup(5, shot);
+        assertShot(0.9, 0.6, 40);
+    }
+
+    @Test
+    public void interpolatesBetweenRows() throws IOException {
+        ShotTable table = table("1,0.5,0.2,10", "3,0.7,0.4,20", "5,0.9,0.6,40");
+
+        table.lookup(2, shot);
+        assertShot(0.6, 0.3, 15);
+        table.lookup(4.5, shot);
+        assertShot(0.85, 0.55, 35);
+    }
+
+    @Test
+    public void repeatedDistanceMakesAStep() throws IOException {
+        ShotTable table = table("1,1.0,0.2,10", "2,1.0,0.2,20", "2,0.74,0.2,20", "3,0.74,0.2,30");
+
+        // Right up to the step, the first row is used
+        table.lookup(1.999, shot);
+        assertEquals(1.0, shot.getTopSpeed(), DELTA);
+        // From the step on, the second row is used
+        table.lookup(2, shot);
+        assertShot(0.74, 0.2, 20);
+        table.lookup(2.5, shot);
+        assertShot(0.74, 0.2, 25);
+    }
+
+    @Test
+    public void distancesOutsideTableCantBeMade() throws IOException {
+        ShotTable table = table("1,0.5,0.2,10", "3,0.7,0.4,20");
+
+        table.lookup(0.999, shot);
+        assertShot(-1, -1, -1);
+        assertFalse(shot.isValid());
+        table.lookup(3.001, shot);
+        assertFalse(shot.isValid());
+        table.lookup(Double.NaN, shot);
+        assertFalse(shot.isValid());
+        table.lookup(2, shot);
+        assertTrue(shot.isValid());
+    }
+
+    @Test
+    public void badTableKeepsOldTable() throws IOException {
+        Path file = folder.newFile("shottable.csv").toPath();
+        Files.write(file, Arrays.asList("distance_feet,top_speed,bottom_speed,hood_degrees", "1,0.5,0.2,10",
+                "3,0.7,0.4,20"));
+        ShotTable table = new ShotTable(file);
+
+        // Out of order rows are refused
+        Files.write(file, Arrays.asList("3,0.7,0.4,20", "1,0.5,0.2,10"));
+        assertFalse(table.reload());
+        table.lookup(2, shot);
+        assertShot(0.6, 0.3, 15);
+
+        Files.write(file, Arrays.asList("# tuned at the practice field", "", "1,0.6,0.2,10", "3,0.8,0.4,20"));
+        assertTrue(table.reload());
+        table.lookup(2, shot);
+        assertShot(0.7, 0.3, 15);
+    }
+
+    @Test
+    public void deployedTableMatchesBestFitCurves() {
+        ShotTable table = new ShotTable(DEPLOYED_TABLE);
+        assertEquals(MAX_DISTANCE, table.getMaxDistance(), DELTA);
+
+        double worstSpeedError = 0;
+        double worstHoodError = 0;
+        // Check every hundredth of a foot, staying off of the steps where the old
+        // formulas switched lines
+        for (int hundredths = 0; hundredths <= MAX_DISTANCE * 100; hundredths++) {
+            double distance = hundredths / 100.0;
+            if (hundredths == 200 || hundredths == 500 || hundredths == 800 || hundredths == 1900) {
+                continue;
+            }
+
+            table.lookup(distance, shot);
+            assertTrue("No shot at " + distance, shot.isValid());
+            worstSpeedError = Math.max(worstSpeedError, Math.abs(shot.getTopSpeed() - curveTopSpeed(distance)));
+            worstSpeedError = Math.max(worstSpeedError,
+                    Math.abs(shot.getBottomSpeed() - curveBottomSpeed(distance)));
+            worstHoodError = Math.max(worstHoodError, Math.abs(shot.getHoodPosition() - curveHood(distance)));
+        }
+
+        System.out.println(String.format(Locale.US, "Shot table error: speed %.5f, hood %.3f degrees",
+                worstSpeedError, worstHoodError));
+        assertTrue("Speed off by " + worstSpeedError, worstSpeedError < SPEED_TOLERANCE);
+        assertTrue("Hood off by " + worstHoodError, worstHoodError < HOOD_TOLERANCE_DEGREES);
+    }
+
+    @Test
+    public void lookupIsFastAndAllocatesNothing() {
+        ShotTable table = new ShotTable(DEPLOYED_TABLE);
+
+        // Warm up so the JIT has compiled the lookup
+        double checksum = runLookups(table, BENCHMARK_LOOKUPS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(threadID);
+        long startTime = System.nanoTime();
+        checksum += runLookups(table, BENCHMARK_LOOKUPS);
+        long elapsed = System.nanoTime() - startTime;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        double nanosecondsPerLookup = elapsed / (double) BENCHMARK_LOOKUPS;
+        System.out.println(String.format(Locale.US, "Shot table lookup: %.1f ns, %d bytes allocated (checksum %.1f)",
+                nanosecondsPerLookup, allocatedBytes, checksum));
+        assertTrue("Lookup took " + nanosecondsPerLookup + " ns", nanosecondsPerLookup < MAX_LOOKUP_NANOSECONDS);
+        // Reading the allocation counter can allocate a little itself, but a lookup
+        // that allocated would show up as megabytes here
+        assertTrue("Lookups allocated " + allocatedBytes + " bytes", allocatedBytes < 1024);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>runLookups</h3>
+     * 
+     * Looks up distances sweeping across the table
+     * 
+     * @param table   the table to look up from
+     * @param lookups how many lookups to do
+     * @return a sum of the results, so the lookups can't be optimized away
+     */
+    private double runLookups(ShotTable table, int lookups) {
+        double sum = 0;
+        for (int i = 0; i < lookups; i++) {
+            table.lookup((i % 2700) / 100.0, shot);
+            sum += shot.getHoodPosition();
+        }
+        return sum;
+    }
+
+    private ShotTable table(String... rows) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, Arrays.asList(rows));
+        return new ShotTable(file);
+    }
+
+    private void assertShot(double topSpeed, double bottomSpeed, double hoodPosition) {
+        assertEquals(topSpeed, shot.getTopSpeed(), DELTA);
+        assertEquals(bottomSpeed, shot.getBottomSpeed(), DELTA);
+        assertEquals(hoodPosition, shot.getHoodPosition(), DELTA);
+    }
+
+    private static double curveTopSpeed(double distance) {
+        if (distance >= 8) {
+            return (SPEED_M * distance + TOP_SPEED_B) / 100;
+        } else if (distance >= 5) {
+            return 0.76;
+        } else if (distance >= 2) {
+            return 0.74;
+        }
+        return 1.0;
+    }
+
+    private static double curveBottomSpeed(double distance) {
+        if (distance >= 8) {
+            return (SPEED_M * distance + BOT_SPEED_B) / 100;
+        } else if (distance >= 5) {
+            return 0.26;
+        }
+        return 0.2;
+    }
+
+    private static double curveHood(double distance) {
+        if (distance >= 19) {
+            return 30.0;
+        } else if (distance >= 8) {
+            return 28.44;
+        }
+        return HOOD_A * distance * distance * distance + HOOD_B * distance * distance + HOOD_C * distance
+                + HOOD_D;
+    }
+}
@@ -0,0 +1,195 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.utilities.PoseHistoryBuffer.PoseSample;
+
+/**
+ * <h3>VisionPoseEstimatorTest</h3>
+ * 
+ * Drives a robot whose odometry has drifted and feeds the estimator the hub
+ * frames a camera at the real pose would see, to check that the correction
+ * pulls the odometry back to the real pose and that bad frames are ignored
+ */
+public class VisionPoseEstimatorTest {
+    // ----- CONSTANTS ----- \\
+
+    // The center of the field, where the hub is
+    private static final double HUB_X = 8.23;
+    private static final double HUB_Y = 4.115;
+
+    // Where the robot really is, and where the odometry thinks it is after a
+    // long auto
+    private static final double REAL_X = 5.0;
+    private static final double REAL_Y = 3.0;
+    private static final double DRIFT_X = 0.3;
+    private static final double DRIFT_Y = -0.2;
+    private static final double DRIVEN_METERS = 15.0;
+
+    private static final double POSITION_TOLERANCE = 0.02;
+    private static final double DELTA = 1e-9;
+
+    // ----- VARIABLES ----- \\
+
+    private final VisionPoseEstimator estimator = new VisionPoseEstimator(HUB_X, HUB_Y);
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void rightOdometryIsLeftAlone() {
+        estimator.addOdometry(DRIVEN_METERS);
+        PoseSample odometry = odometry(REAL_X, REAL_Y, headingToHub(REAL_X, REAL_Y), 0, 0);
+
+        for (int frame = 0; frame < 10; frame++) {
+            assertTrue(estimator.addHubMeasurement(odometry, range(REAL_X, REAL_Y), 0));
+        }
+        assertEquals(0, estimator.getCorrectionX(), 1e-6);
+        assertEquals(0, estimator.getCorrectionY(), 1e-6);
+        assertEquals(10, estimator.getAcceptedCount());
+    }
+
+    @Test
+    public void driftIsCorrected() {
+        estimator.addOdometry(DRIVEN_METERS);
+        double heading = headingToHub(REAL_X, REAL_Y);
+        PoseSample odometry = odometry(REAL_X + DRIFT_X, REAL_Y + DRIFT_Y, heading, 0, 0);
+        double startingDeviation = estimator.getStandardDeviation();
+
+        double lastError = Double.MAX_VALUE;
+        for (int frame = 0; frame < 30; frame++) {
+            assertTrue(estimator.addHubMeasurement(odometry, range(REAL_X, REAL_Y), 0));
+            // Every frame moves us closer to the real pose
+            double error = Math.hypot(REAL_X + DRIFT_X + estimator.getCorrectionX() - REAL_X,
+                    REAL_Y + DRIFT_Y + estimator.getCorrectionY() - REAL_Y);
+            assertTrue(error < lastError);
+            lastError = error;
+        }
+
+        assertEquals(-DRIFT_X, estimator.getCorrectionX(), POSITION_TOLERANCE);
+        assertEquals(-DRIFT_Y, estimator.getCorrectionY(), POSITION_TOLERANCE);
+        assertTrue(estimator.getStandardDeviation() < startingDeviation);
+    }
+
+    @Test
+    public void yawToHubIsUsed() {
+        estimator.addOdometry(DRIVEN_METERS);
+        // The robot is pointed 10 degrees to the left of the hub, so the camera sees
+        // the hub 10 degrees to the right
+        double heading = headingToHub(REAL_X, REAL_Y) + 10;
+        PoseSample odometry = odometry(REAL_X + DRIFT_X, REAL_Y + DRIFT_Y, heading, 0, 0);
+
+        for (int frame = 0; frame < 30; frame++) {
+            assertTrue(estimator.addHubMeasurement(odometry, range(REAL_X, REAL_Y), 10));
+        }
+        assertEquals(-DRIFT_X, estimator.getCorrectionX(), POSITION_TOLERANCE);
+        assertEquals(-DRIFT_Y, estimator.getCorrectionY(), POSITION_TOLERANCE);
+    }
+
+    @Test
+    public void firstFrameAfterLongDriveMostlyTrustsCamera() {
+        // After a long drive the odometry is much less sure than the camera, so one
+        // frame nearly lands on where the camera says we are. This pins down the
+        // range to hub center offset
+        estimator.addOdometry(100);
+        double heading = headingToHub(REAL_X, REAL_Y);
+        assertTrue(estimator.addHubMeasurement(odometry(REAL_X + DRIFT_X, REAL_Y, heading, 0, 0),
+                range(REAL_X, REAL_Y), 0));
+
+        assertEquals(-DRIFT_X, estimator.getCorrectionX(), POSITION_TOLERANCE);
+    }
+
+    @Test
+    public void fartherHubIsTrustedLess() {
+        VisionPoseEstimator farEstimator = new VisionPoseEstimator(HUB_X, HUB_Y);
+        estimator.addOdometry(DRIVEN_METERS);
+        farEstimator.addOdometry(DRIVEN_METERS);
+
+        // The same drift up close and far away
+        double nearX = HUB_X - 2.5;
+        double farX = HUB_X - 6;
+        estimator.addHubMeasurement(odometry(nearX + DRIFT_X, HUB_Y, 0, 0, 0), range(nearX, HUB_Y), 0);
+        farEstimator.addHubMeasurement(odometry(farX + DRIFT_X, HUB_Y, 0, 0, 0), range(farX, HUB_Y), 0);
+
+        assertTrue(Math.abs(farEstimator.getCorrectionX()) < Math.abs(estimator.getCorrectionX()));
+        assertEquals(0, estimator.getCorrectionY(), DELTA);
+    }
+
+    @Test
+    public void badFramesAreRejected() {
+        estimator.addOdometry(DRIVEN_METERS);
+        double heading = headingToHub(REAL_X, REAL_Y);
+
+        // A reflection that puts the hub 3 m from where it is
+        assertFalse(estimator.addHubMeasurement(odometry(REAL_X, REAL_Y, heading, 0, 0),
+                range(REAL_X, REAL_Y) + 3, 0));
+        // No range
+        assertFalse(estimator.addHubMeasurement(odometry(REAL_X, REAL_Y, heading, 0, 0), 0, 0));
+        // Blurred from spinning in place
+        double wheelSpeed = 1.5 * DriveSubsystem.TRACK_WIDTH;
+        assertFalse(estimator.addHubMeasurement(odometry(REAL_X + DRIFT_X, REAL_Y, heading, -wheelSpeed, wheelSpeed),
+                range(REAL_X, REAL_Y), 0));
+
+        assertEquals(3, estimator.getRejectedCount());
+        assertEquals(0, estimator.getAcceptedCount());
+        assertEquals(0, estimator.getCorrectionX(), DELTA);
+        assertEquals(0, estimator.getCorrectionY(), DELTA);
+    }
+
+    @Test
+    public void resetForgetsCorrection() {
+        estimator.addOdometry(DRIVEN_METERS);
+        double heading = headingToHub(REAL_X, REAL_Y);
+        estimator.addHubMeasurement(odometry(REAL_X + DRIFT_X, REAL_Y, heading, 0, 0), range(REAL_X, REAL_Y), 0);
+        assertTrue(estimator.getCorrectionX() < 0);
+
+        estimator.reset();
+        assertEquals(0, estimator.getCorrectionX(), DELTA);
+        assertEquals(0, estimator.getCorrectionY(), DELTA);
+        // A freshly reset pose is trusted over a single frame
+        estimator.addHubMeasurement(odometry(REAL_X + 0.1, REAL_Y, heading, 0, 0), range(REAL_X, REAL_Y), 0);
+        assertTrue(Math.abs(estimator.getCorrectionX()) < 0.05);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>range</h3>
+     * 
+     * @param robotX the real x position of the robot in meters
+     * @param robotY the real y position of the robot in meters
+     * @return the range to the hub the camera reports from there
+     */
+    private static double range(double robotX, double robotY) {
+        return Math.hypot(HUB_X - robotX, HUB_Y - robotY)
+                - VisionPoseEstimator.CAMERA_RANGE_TO_HUB_CENTER_OFFSET_METERS;
+    }
+
+    private static double headingToHub(double robotX, double robotY) {
+        return Math.toDegrees(Math.atan2(HUB_Y - robotY, HUB_X - robotX));
+    }
+
+    /**
+     * <h3>odometry</h3>
+     * 
+     * @param x          the x position the odometry has in meters
+     * @param y          the y position the odometry has in meters
+     * @param heading    the heading in degrees
+     * @param leftSpeed  the speed of the left wheels in meters per second
+     * @param rightSpeed the speed of the right wheels in meters per second
+     * @return the odometry the drivetrain would have recorded for the frame
+     */
+    private static PoseSample odometry(double x, double y, double heading, double leftSpeed, double rightSpeed) {
+        PoseHistoryBuffer history = new PoseHistoryBuffer(1);
+        history.addSample(0, x, y, heading, leftSpeed, rightSpeed);
+        PoseSample sample = new PoseSample();
+        history.getSampleAt(0, sample);
+        return sample;
+    }
+}
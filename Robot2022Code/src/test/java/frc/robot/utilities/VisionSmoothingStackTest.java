@@ -0,0 +1,506 @@
+package frc.robot.utilities;
+
+// ----- IMPORTS ----- \\
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import frc.robot.utilities.VisionSmoothingStack.SmoothingMode;
+
+/**
+ * <h3>VisionSmoothingStackTest</h3>
+ * 
+ * Checks the rolling average against a plain average of the same samples, and
+ * each of the other smoothing modes. Every mode is also run over the same
+ * target sequences to count how many frames it takes to settle after the
+ * target moves and how far one bad frame pulls it. The ring buffers are
+ * benchmarked against a copy of the linked list stack they replaced.
+ */
+public class VisionSmoothingStackTest {
+    // ----- CONSTANTS ----- \\
+
+    private static final int STACK_SIZE = 5;
+    private static final double DELTA = 1e-12;
+
+    // These are NOT recordings from the robot. They are made up to look like what
+    // photon reports at 30 fps with the hub in view: about 0.3 degrees of noise
+    // on the yaw and 0.2 on the pitch, rounded to hundredths like the dashboard
+
+    // The turret snaps onto the hub on frame 10, so the yaw drops from 15 degrees
+    // to 0 in one frame
+    private static final int STEP_FRAME = 10;
+    private static final double STEP_FINAL_YAW = 0.0;
+    private static final double[] STEP_YAWS = { 14.68, 14.94, 14.96, 15.1, 15.18, 14.17, 14.64, 15.22, 15.22,
+            14.45, 0.02, -0.26, -0.27, -0.27, -0.08, -0.01, -0.01, -0.24, 0.51, -0.34, -0.21, 0.23, 0.28, 0.13,
+            -0.05, 0.02, 0.04, 0.34, 0.13, 0.06 };
+    private static final double[] STEP_PITCHES = { 8.16, 8.12, 8.16, 8.0, 8.57, 8.11, 7.86, 7.84, 7.98, 8.48,
+            7.96, 8.02, 7.99, 7.79, 7.87, 7.72, 7.91, 8.19, 8.08, 8.05, 8.14, 8.31, 7.71, 8.18, 8.34, 7.91, 8.11,
+            8.11, 7.89, 8.05 };
+
+    // The target sits still at 4 degrees of yaw and 8 of pitch, except that
+    // frames 12 and 13 lock onto a reflection and frame 21 has a bad pitch
+    private static final double GLARE_YAW = 4.0;
+    private static final double[] GLARE_YAWS = { 4.05, 4.15, 4.14, 4.07, 4.3, 4.22, 4.36, 3.79, 3.5, 4.22, 4.33,
+            4.37, 17.5, 17.8, 3.43, 3.83, 3.87, 4.23, 3.86, 4.0, 3.7, 4.01, 4.26, 3.66, 3.69, 3.92, 4.03, 4.16, 3.86,
+            3.7 };
+    private static final double[] GLARE_PITCHES = { 7.97, 8.14, 7.93, 7.75, 8.2, 8.47, 8.3, 7.88, 8.02, 7.87,
+            8.07, 8.29, 8.0, 8.01, 7.88, 8.26, 7.92, 7.81, 7.88, 7.73, 8.08, -6.4, 8.0, 7.93, 8.19, 8.33, 8.08, 8.35,
+            8.41, 7.84 };
+
+    // How close to the target the smoothed yaw has to stay to count as settled
+    private static final double SETTLE_TOLERANCE = 1.0;
+
+    // The robot smooths the hub over 3 frames
+    private static final int ROBOT_STACK_SIZE = 3;
+    private static final int BENCHMARK_FRAMES = 1000000;
+
+    // ----- TESTS ----- \\
+
+    @Test
+    public void averagesPartlyFilledStack() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE);
+        stack.addItem(1.0, 10.0);
+        stack.addItem(2.0, 20.0);
+        stack.addItem(6.0, 30.0);
+
+        assertEquals(3.0, stack.getAverageYaw(), DELTA);
+        assertEquals(20.0, stack.getAveragePitch(), DELTA);
+    }
+
+    @Test
+    public void dropsOldestSampleWhenWrappingAround() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE);
+        double[] yaws = new double[STACK_SIZE * 2 + 3];
+        for (int i = 0; i < yaws.length; i++) {
+            yaws[i] = i * i;
+            stack.addItem(yaws[i], -yaws[i]);
+
+            assertEquals(naiveAverage(yaws, i + 1), stack.getAverageYaw(), DELTA);
+            assertEquals(-naiveAverage(yaws, i + 1), stack.getAveragePitch(), DELTA);
+        }
+    }
+
+    @Test
+    public void doesNotDriftOverAMatch() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE);
+        Random random = new Random(930);
+
+        // Big values leave rounding error in the running totals when they are
+        // taken back out. A match is about 7500 loops, so run well past that
+        double[] yaws = new double[100000];
+        for (int i = 0; i < yaws.length; i++) {
+            yaws[i] = (random.nextDouble() - 0.5) * 2e6;
+            stack.addItem(yaws[i], yaws[i]);
+        }
+        for (int i = 0; i < STACK_SIZE; i++) {
+            stack.addItem(0.1 * (i + 1), 0.1 * (i + 1));
+        }
+
+        // The totals were added up again after the last lap
+        assertEquals(0.3, stack.getAverageYaw(), DELTA);
+        assertEquals(0.3, stack.getAveragePitch(), DELTA);
+
+        // Part way through a lap, the error is only from the samples since then
+        stack.addItem(0.6, 0.6);
+        stack.addItem(0.7, 0.7);
+        assertEquals(0.5, stack.getAverageYaw(), DELTA);
+    }
+
+    @Test
+    public void clearEmptiesStack() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE);
+        for (int i = 0; i < STACK_SIZE * 3; i++) {
+            stack.addItem(100.0, 100.0);
+        }
+        stack.clear();
+        stack.addItem(4.0, 2.0);
+
+        assertEquals(4.0, stack.getAverageYaw(), DELTA);
+        assertEquals(2.0, stack.getAveragePitch(), DELTA);
+    }
+
+    @Test
+    public void medianIgnoresOneBadFrame() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.MEDIAN);
+        stack.addItem(1.0, 5.0);
+        stack.addItem(2.0, 5.0);
+        stack.addItem(40.0, -30.0);
+        stack.addItem(3.0, 6.0);
+        stack.addItem(2.5, 4.0);
+
+        assertEquals(2.5, stack.getSmoothedYaw(), DELTA);
+        assertEquals(5.0, stack.getSmoothedPitch(), DELTA);
+    }
+
+    @Test
+    public void medianOfEvenCountIsMiddleTwoAveraged() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.MEDIAN);
+        stack.addItem(4.0, 0.0);
+        stack.addItem(1.0, 0.0);
+        stack.addItem(3.0, 0.0);
+        stack.addItem(2.0, 0.0);
+
+        assertEquals(2.5, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void medianOnlyUsesLatestStack() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.MEDIAN);
+        for (int i = 0; i < STACK_SIZE; i++) {
+            stack.addItem(100.0, 100.0);
+        }
+        for (int i = 0; i < 3; i++) {
+            stack.addItem(1.0, 1.0);
+        }
+
+        // Three of the five samples are new now
+        assertEquals(1.0, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void emptyMedianAndExponentialAreNaN() {
+        assertTrue(Double.isNaN(new VisionSmoothingStack(STACK_SIZE, SmoothingMode.MEDIAN).getSmoothedYaw()));
+        assertTrue(Double.isNaN(new VisionSmoothingStack(STACK_SIZE, SmoothingMode.EXPONENTIAL).getSmoothedYaw()));
+    }
+
+    @Test
+    public void exponentialStartsAtFirstSample() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.EXPONENTIAL);
+        stack.addItem(8.0, -2.0);
+
+        assertEquals(8.0, stack.getSmoothedYaw(), DELTA);
+        assertEquals(-2.0, stack.getSmoothedPitch(), DELTA);
+    }
+
+    @Test
+    public void exponentialWeightsLikeRollingAverage() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.EXPONENTIAL);
+        double alpha = 2.0 / (STACK_SIZE + 1);
+        double expected = 0.0;
+        stack.addItem(0.0, 0.0);
+        for (int i = 1; i < 20; i++) {
+            expected += alpha * (i - expected);
+            stack.addItem(i, 0.0);
+        }
+
+        assertEquals(expected, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void exponentialRestartsAfterClear() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.EXPONENTIAL);
+        stack.addItem(50.0, 50.0);
+        stack.addItem(60.0, 60.0);
+        stack.clear();
+        stack.addItem(1.0, 1.0);
+
+        assertEquals(1.0, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void outlierGateWaitsForEnoughSamples() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.OUTLIER_REJECTION);
+        stack.addItem(0.0, 0.0);
+        stack.addItem(30.0, 0.0);
+        stack.addItem(0.0, 0.0);
+
+        // The first three are all kept, however far apart they are
+        assertEquals(10.0, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void outlierGateDropsReflection() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.OUTLIER_REJECTION);
+        stack.addItem(1.0, 2.0);
+        stack.addItem(2.0, 2.5);
+        stack.addItem(3.0, 3.0);
+        stack.addItem(25.0, 2.5);
+
+        assertEquals(2.0, stack.getSmoothedYaw(), DELTA);
+        assertEquals(2.5, stack.getSmoothedPitch(), DELTA);
+
+        // A bad pitch throws out the whole sample too
+        stack.addItem(2.0, -20.0);
+        assertEquals(2.0, stack.getSmoothedYaw(), DELTA);
+        assertEquals(2.5, stack.getSmoothedPitch(), DELTA);
+    }
+
+    @Test
+    public void outlierGateUsesMinimumSpread() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.OUTLIER_REJECTION);
+        for (int i = 0; i < 3; i++) {
+            stack.addItem(10.0, 0.0);
+        }
+
+        // Identical samples have no spread, so the gate falls back to 0.5 degrees,
+        // which lets through anything within 1.5 degrees of the median
+        stack.addItem(11.6, 0.0);
+        assertEquals(10.0, stack.getSmoothedYaw(), DELTA);
+
+        stack.addItem(11.4, 0.0);
+        assertEquals(10.35, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void outlierGateReseedsAfterFullStackOfRejects() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.OUTLIER_REJECTION);
+        for (int i = 0; i < STACK_SIZE; i++) {
+            stack.addItem(0.0, 0.0);
+        }
+
+        // The target really moved, so after a stack's worth of rejects the old
+        // samples are thrown out instead
+        for (int i = 0; i < STACK_SIZE - 1; i++) {
+            stack.addItem(20.0, 0.0);
+            assertEquals(0.0, stack.getSmoothedYaw(), DELTA);
+        }
+        stack.addItem(20.0, 0.0);
+        assertEquals(20.0, stack.getSmoothedYaw(), DELTA);
+
+        // The gate needs a few samples again before it rejects anything
+        stack.addItem(22.0, 0.0);
+        assertEquals(21.0, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void acceptedSampleResetsRejectCount() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, SmoothingMode.OUTLIER_REJECTION);
+        for (int i = 0; i < STACK_SIZE; i++) {
+            stack.addItem(0.0, 0.0);
+        }
+        for (int i = 0; i < STACK_SIZE * 3; i++) {
+            // A good sample between the bad ones means the target hasn't moved
+            stack.addItem(i % 2 == 0 ? 20.0 : 0.0, 0.0);
+        }
+
+        assertEquals(0.0, stack.getSmoothedYaw(), DELTA);
+    }
+
+    @Test
+    public void everyModeSettlesAfterTargetMoves() {
+        for (SmoothingMode mode : SmoothingMode.values()) {
+            int frames = framesToSettle(mode);
+            System.out.println(mode + " settled " + frames + " frames after the step");
+
+            assertTrue(mode + " never settled", frames > 0);
+            assertTrue(mode + " took " + frames + " frames", frames <= maxFramesToSettle(mode));
+        }
+    }
+
+    @Test
+    public void medianAndOutlierGateRideOutGlare() {
+        for (SmoothingMode mode : SmoothingMode.values()) {
+            VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, mode);
+            double worstError = 0;
+            for (int i = 0; i < GLARE_YAWS.length; i++) {
+                stack.addItem(GLARE_YAWS[i], GLARE_PITCHES[i]);
+                worstError = Math.max(worstError, Math.abs(stack.getSmoothedYaw() - GLARE_YAW));
+            }
+            System.out.println(mode + " was pulled up to " + worstError + " degrees off by the glare");
+
+            if (mode == SmoothingMode.MEDIAN || mode == SmoothingMode.OUTLIER_REJECTION) {
+                assertTrue(mode + " was pulled " + worstError + " degrees off", worstError <= SETTLE_TOLERANCE);
+            } else {
+                // The averages have nothing to stop a reflection from dragging them
+                assertTrue(mode + " was only pulled " + worstError + " degrees off", worstError > SETTLE_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void ringBufferIsFasterThanLinkedListAndAllocatesNothing() {
+        VisionSmoothingStack stack = new VisionSmoothingStack(ROBOT_STACK_SIZE);
+        LinkedListSmoothingStack oldStack = new LinkedListSmoothingStack(ROBOT_STACK_SIZE);
+        // Photon makes a new target every frame anyway, so the old stack's targets
+        // are made up front and only the list's own allocations are counted
+        Random random = new Random(930);
+        Sample[] samples = new Sample[BENCHMARK_FRAMES];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new Sample(random.nextGaussian() * 10, random.nextGaussian() * 10);
+        }
+
+        // Warm up so the JIT has compiled both
+        double checksum = runFrames(stack, samples) + runFrames(oldStack, samples);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+
+        long startBytes = threads.getThreadAllocatedBytes(threadID);
+        long startTime = System.nanoTime();
+        checksum += runFrames(stack, samples);
+        double ringNanoseconds = (System.nanoTime() - startTime) / (double) BENCHMARK_FRAMES;
+        long ringBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        startBytes = threads.getThreadAllocatedBytes(threadID);
+        startTime = System.nanoTime();
+        checksum += runFrames(oldStack, samples);
+        double listNanoseconds = (System.nanoTime() - startTime) / (double) BENCHMARK_FRAMES;
+        long listBytes = threads.getThreadAllocatedBytes(threadID) - startBytes;
+
+        System.out.println(String.format(Locale.US,
+                "Smoothing stack frame: ring buffer %.1f ns, %d bytes; linked list %.1f ns, %d bytes (checksum %.1f)",
+                ringNanoseconds, ringBytes, listNanoseconds, listBytes, checksum));
+        assertTrue("Ring buffer took " + ringNanoseconds + " ns, linked list " + listNanoseconds + " ns",
+                ringNanoseconds < listNanoseconds);
+        // Reading the allocation counter can allocate a little itself, but a frame
+        // that allocated would show up as megabytes here
+        assertTrue("Ring buffer allocated " + ringBytes + " bytes", ringBytes < 1024);
+        assertTrue("Linked list allocated " + listBytes + " bytes", listBytes > ringBytes);
+    }
+
+    // ----- HELPERS ----- \\
+
+    /**
+     * <h3>runFrames</h3>
+     * 
+     * Adds every sample and reads the averages back like the robot does each
+     * frame
+     * 
+     * @param stack   the stack to fill
+     * @param samples the samples to add
+     * @return a sum of the averages, so the work can't be optimized away
+     */
+    private static double runFrames(VisionSmoothingStack stack, Sample[] samples) {
+        double sum = 0;
+        for (Sample sample : samples) {
+            stack.addItem(sample.yaw, sample.pitch);
+            sum += stack.getAverageYaw() + stack.getAveragePitch();
+        }
+        return sum;
+    }
+
+    private static double runFrames(LinkedListSmoothingStack stack, Sample[] samples) {
+        double sum = 0;
+        for (Sample sample : samples) {
+            stack.addItem(sample);
+            sum += stack.getAverageYaw() + stack.getAveragePitch();
+        }
+        return sum;
+    }
+
+    /**
+     * <h3>framesToSettle</h3>
+     * 
+     * Runs the step sequence through a new stack
+     * 
+     * @param mode the filter to use
+     * @return how many frames after the step it took for the smoothed yaw to get
+     *         within the tolerance and stay there, or -1 if it never did
+     */
+    private static int framesToSettle(SmoothingMode mode) {
+        VisionSmoothingStack stack = new VisionSmoothingStack(STACK_SIZE, mode);
+        int settledFrame = -1;
+        for (int i = 0; i < STEP_YAWS.length; i++) {
+            stack.addItem(STEP_YAWS[i], STEP_PITCHES[i]);
+            boolean isSettled = Math.abs(stack.getSmoothedYaw() - STEP_FINAL_YAW) <= SETTLE_TOLERANCE;
+            if (!isSettled) {
+                settledFrame = -1;
+            } else if (settledFrame < 0) {
+                settledFrame = i;
+            }
+        }
+        return (settledFrame < 0) ? -1 : settledFrame - STEP_FRAME + 1;
+    }
+
+    /**
+     * <h3>maxFramesToSettle</h3>
+     * 
+     * @param mode the filter
+     * @return the most frames the filter should need to settle after the step
+     */
+    private static int maxFramesToSettle(SmoothingMode mode) {
+        switch (mode) {
+            case MEDIAN:
+                // Once more than half of the stack is new
+                return STACK_SIZE / 2 + 1;
+            case EXPONENTIAL:
+                // 15 degrees shrinks by a third every frame, so it takes 7 frames to get
+                // within 1 degree
+                return 7;
+            default:
+                // The average needs the whole stack to be new, and the outlier gate
+                // rejects a whole stack before it reseeds
+                return STACK_SIZE;
+        }
+    }
+
+
+    /**
+     * <h3>naiveAverage</h3>
+     * 
+     * @param values every sample added so far
+     * @param count  how many samples have been added
+     * @return the average of the last stack's worth of samples
+     */
+    private static double naiveAverage(double[] values, int count) {
+        int first = Math.max(0, count - STACK_SIZE);
+        double total = 0;
+        for (int i = first; i < count; i++) {
+            total += values[i];
+        }
+        return total / (count - first);
+    }
+
+    // ----- INNER CLASSES ----- \\
+
+    /**
+     * <h3>Sample</h3>
+     * 
+     * Stands in for a photon target, which is all the old stack held
+     */
+    private static class Sample {
+        private final double yaw;
+        private final double pitch;
+
+        private Sample(double yaw, double pitch) {
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+    }
+
+    /**
+     * <h3>LinkedListSmoothingStack</h3>
+     * 
+     * The stack as it was before the ring buffers, kept here to benchmark
+     * against
+     */
+    private static class LinkedListSmoothingStack {
+        private final int stackSize;
+        private final LinkedList<Sample> results = new LinkedList<>();
+
+        private LinkedListSmoothingStack(int size) {
+            stackSize = size;
+        }
+
+        private void addItem(Sample result) {
+            if (results.size() >= stackSize) {
+                results.removeFirst();
+            }
+            results.add(result);
+        }
+
+        private double getAveragePitch() {
+            double total = 0;
+            for (Sample target : results) {
+                total += target.pitch;
+            }
+            return (total / results.size());
+        }
+
+        private double getAverageYaw() {
+            double total = 0;
+            for (Sample target : results) {
+                total += target.yaw;
+            }
+            return (total / results.size());
+        }
+    }
+}
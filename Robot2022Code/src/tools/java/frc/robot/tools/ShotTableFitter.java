@@ -0,0 +1,438 @@
+package frc.robot.tools;
+
+// ----- IMPORTS ----- \\
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import frc.robot.utilities.ShotRecord;
+
+/**
+ * <h3>ShotTableFitter</h3>
+ * 
+ * Builds a new shot table from shot logs pulled off the robot. This runs on a
+ * laptop with {@code ./gradlew fitShotTable}, not on the robot.
+ * <p>
+ * The current table is split into segments at its steps, since the shooter
+ * switches to a different kind of shot there. Each segment is refit from the
+ * shots that were tagged as makes in it, using a least squares curve for each
+ * column, and the new rows are written at the same distances as the old ones.
+ * Segments without enough makes keep their old rows.
+ */
+public class ShotTableFitter {
+    // ----- CONSTANTS ----- \\
+
+    // The fewest makes a segment needs before it is refit
+    private static final int MIN_MAKES_PER_SEGMENT = 3;
+    // The highest power of the fitted curves. Going higher than this just fits
+    // the noise in our shots
+    private static final int MAX_CURVE_DEGREE = 2;
+
+    // The limits of what the robot can actually do
+    private static final double MIN_SPEED = 0.0;
+    private static final double MAX_SPEED = 1.0;
+    private static final double MIN_HOOD_DEGREES = 0.0;
+    private static final double MAX_HOOD_DEGREES = 30.0;
+
+    // Table columns
+    private static final int DISTANCE = 0;
+    private static final int TOP_SPEED = 1;
+    private static final int BOTTOM_SPEED = 2;
+    private static final int HOOD = 3;
+
+    // ----- MAIN ----- \\
+
+    /**
+     * <h3>main</h3>
+     * 
+     * @param args the current shot table, where to write the new one, then one
+     *             or more shot logs
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: ShotTableFitter <current shottable.csv> <output csv> <shot log>...");
+            System.exit(1);
+        }
+
+        try {
+            List<double[]> currentTable = readTable(Paths.get(args[0]));
+
+            List<ShotRecord> shots = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                shots.addAll(readLog(Paths.get(args[i])));
+            }
+
+            List<String> lines = fitTable(currentTable, shots, args);
+            Files.write(Paths.get(args[1]), lines);
+            System.out.println("Wrote " + args[1]);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            System.out.println("****** COULDN'T FIT SHOT TABLE ******");
+            System.exit(1);
+        }
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>readLog</h3>
+     * 
+     * Reads every shot out of a shot log and applies the driver's tags to them.
+     * A log that was cut off partway through a record still gives back the
+     * shots before it.
+     * 
+     * @param path the log to read
+     * @return the shots in the log
+     * @throws IOException if the log can't be read
+     */
+    private static List<ShotRecord> readLog(Path path) throws IOException {
+        List<ShotRecord> shots = new ArrayList<>();
+        // Shot numbers start over every session, so only look up shots from this one
+        Map<Integer, ShotRecord> sessionShots = new HashMap<>();
+
+        try (InputStream stream = Files.newInputStream(path);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(stream))) {
+            ShotRecord.readHeader(input);
+
+            ShotRecord record = new ShotRecord();
+            while (true) {
+                try {
+                    record.read(input);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                switch (record.getType()) {
+                    case ShotRecord.SESSION:
+                        sessionShots.clear();
+                        break;
+
+                    case ShotRecord.SHOT:
+                        ShotRecord shot = record.copy();
+                        shots.add(shot);
+                        sessionShots.put(shot.getShotNumber(), shot);
+                        break;
+
+                    case ShotRecord.OUTCOME:
+                        ShotRecord taggedShot = sessionShots.get(record.getShotNumber());
+                        if (taggedShot != null) {
+                            taggedShot.setOutcome(record.getOutcome());
+                        }
+                        break;
+                }
+            }
+        }
+
+        System.out.println("Read " + shots.size() + " shots from " + path);
+        return shots;
+    }
+
+    /**
+     * <h3>readTable</h3>
+     * 
+     * Reads a shot table the same way the robot does
+     * 
+     * @param path the table to read
+     * @return the rows of the table, sorted by distance
+     * @throws IOException if the table can't be read
+     */
+    private static List<double[]> readTable(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        List<double[]> rows = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("distance")) {
+                continue;
+            }
+
+            String[] columns = line.split(",");
+            if (columns.length != 4) {
+                throw new IllegalArgumentException("Shot table line " + (i + 1) + " should have 4 columns");
+            }
+
+            double[] row = new double[4];
+            for (int column = 0; column < 4; column++) {
+                row[column] = Double.parseDouble(columns[column].trim());
+            }
+            rows.add(row);
+        }
+
+        if (rows.size() < 2) {
+            throw new IllegalArgumentException("Shot table needs at least 2 rows");
+        }
+        return rows;
+    }
+
+    /**
+     * <h3>fitTable</h3>
+     * 
+     * Refits every segment of the current table that has enough makes
+     * 
+     * @param currentTable the rows of the current table
+     * @param shots        every shot from the logs
+     * @param args         the arguments the tool was run with, for the header
+     * @return the lines of the new table file
+     */
+    private static List<String> fitTable(List<double[]> currentTable, List<ShotRecord> shots, String[] args) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Shot table for the shooter, used by ShotTable.");
+        lines.add("# Rows must be sorted by distance. Two rows with the same distance make a step,");
+        lines.add("# the second row is used from that distance on.");
+        lines.add("# Fit by ShotTableFitter on " + LocalDateTime.now().withNano(0) + " from:");
+        for (int i = 2; i < args.length; i++) {
+            lines.add("#   " + Paths.get(args[i]).getFileName());
+        }
+        lines.add("distance_feet,top_speed,bottom_speed,hood_degrees");
+
+        // Each segment runs from one step (or the start of the table) to the next
+        int segmentStart = 0;
+        for (int i = 1; i <= currentTable.size(); i++) {
+            boolean isStep = i < currentTable.size()
+                    && currentTable.get(i)[DISTANCE] == currentTable.get(i - 1)[DISTANCE];
+            if (i == currentTable.size() || isStep) {
+                List<double[]> segment = currentTable.subList(segmentStart, i);
+                // The last segment includes its end, the others stop at the next step
+                boolean isLastSegment = i == currentTable.size();
+                double end = isLastSegment ? segment.get(segment.size() - 1)[DISTANCE] : currentTable.get(i)[DISTANCE];
+                fitSegment(segment, end, isLastSegment, shots, lines);
+                segmentStart = i;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * <h3>fitSegment</h3>
+     * 
+     * Refits the rows of one segment and adds them to the table
+     * 
+     * @param segment       the current rows of the segment
+     * @param end           the distance the segment stops at
+     * @param isEndIncluded whether shots at the end distance belong to this
+     *                      segment
+     * @param shots         every shot from the logs
+     * @param lines         the lines of the table to add to
+     */
+    private static void fitSegment(List<double[]> segment, double end, boolean isEndIncluded,
+            List<ShotRecord> shots, List<String> lines) {
+        double start = segment.get(0)[DISTANCE];
+
+        List<ShotRecord> makes = new ArrayList<>();
+        int misses = 0;
+        for (ShotRecord shot : shots) {
+            double distance = shot.getDistance();
+            if (!(distance >= start && (distance < end || (isEndIncluded && distance == end)))) {
+                continue;
+            }
+            if (shot.getOutcome() == ShotRecord.MADE) {
+                makes.add(shot);
+            } else if (shot.getOutcome() == ShotRecord.MISSED) {
+                misses++;
+            }
+        }
+
+        String summary = String.format(Locale.US, "%.2f to %.2f ft: %d makes, %d misses", start, end,
+                makes.size(), misses);
+        if (makes.size() < MIN_MAKES_PER_SEGMENT) {
+            System.out.println(summary + ", keeping the old rows");
+            lines.add("# " + summary + ", kept");
+            for (double[] row : segment) {
+                lines.add(formatRow(row[DISTANCE], row[TOP_SPEED], row[BOTTOM_SPEED], row[HOOD]));
+            }
+            return;
+        }
+
+        // Center the distances on the segment so the curve math stays accurate
+        double center = (start + end) / 2.0;
+        List<double[]> hoodPoints = new ArrayList<>();
+        double[][] topPoints = new double[makes.size()][];
+        double[][] bottomPoints = new double[makes.size()][];
+        for (int i = 0; i < makes.size(); i++) {
+            ShotRecord make = makes.get(i);
+            double x = make.getDistance() - center;
+            topPoints[i] = new double[] { x, make.getTopSpeed() };
+            bottomPoints[i] = new double[] { x, make.getBottomSpeed() };
+            // Shots taken without waiting on the hood don't know where it was
+            if (!Double.isNaN(make.getHoodPosition())) {
+                hoodPoints.add(new double[] { x, make.getHoodPosition() });
+            }
+        }
+
+        double[] topCurve = fitCurve(topPoints);
+        double[] bottomCurve = fitCurve(bottomPoints);
+        double[] hoodCurve = (hoodPoints.size() < MIN_MAKES_PER_SEGMENT) ? null
+                : fitCurve(hoodPoints.toArray(new double[0][]));
+
+        System.out.println(String.format(Locale.US, "%s, top error %.4f, bottom error %.4f, hood error %s",
+                summary, getRmsError(topCurve, topPoints), getRmsError(bottomCurve, bottomPoints),
+                (hoodCurve == null) ? "kept"
+                        : String.format(Locale.US, "%.3f",
+                                getRmsError(hoodCurve, hoodPoints.toArray(new double[0][])))));
+        lines.add("# " + summary + ((hoodCurve == null) ? ", hood kept" : ""));
+
+        for (double[] row : segment) {
+            double x = row[DISTANCE] - center;
+            double hood = (hoodCurve == null) ? row[HOOD]
+                    : clamp(evaluate(hoodCurve, x), MIN_HOOD_DEGREES, MAX_HOOD_DEGREES);
+            lines.add(formatRow(row[DISTANCE], clamp(evaluate(topCurve, x), MIN_SPEED, MAX_SPEED),
+                    clamp(evaluate(bottomCurve, x), MIN_SPEED, MAX_SPEED), hood));
+        }
+    }
+
+    /**
+     * <h3>fitCurve</h3>
+     * 
+     * Fits a polynomial to points with least squares. The degree is lowered when
+     * there aren't enough points to pin it down.
+     * 
+     * @param points the x and y of each point
+     * @return the coefficients of the curve, lowest power first
+     */
+    private static double[] fitCurve(double[][] points) {
+        return fitCurve(points, Math.min(MAX_CURVE_DEGREE, points.length - 1) + 1);
+    }
+
+    /**
+     * <h3>fitCurve</h3>
+     * 
+     * Fits a polynomial with a set number of coefficients to points with least
+     * squares
+     * 
+     * @param points the x and y of each point
+     * @param size   how many coefficients the curve has, at least 1
+     * @return the coefficients of the curve, lowest power first
+     */
+    private static double[] fitCurve(double[][] points, int size) {
+        // Build the normal equations, (A^T A) c = A^T y, as one augmented matrix
+        double[][] matrix = new double[size][size + 1];
+        for (double[] point : points) {
+            double[] powers = new double[size];
+            powers[0] = 1;
+            for (int power = 1; power < size; power++) {
+                powers[power] = powers[power - 1] * point[0];
+            }
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    matrix[row][column] += powers[row] * powers[column];
+                }
+                matrix[row][size] += powers[row] * point[1];
+            }
+        }
+
+        // Gaussian elimination with partial pivoting
+        for (int pivot = 0; pivot < size; pivot++) {
+            int best = pivot;
+            for (int row = pivot + 1; row < size; row++) {
+                if (Math.abs(matrix[row][pivot]) > Math.abs(matrix[best][pivot])) {
+                    best = row;
+                }
+            }
+            double[] swap = matrix[pivot];
+            matrix[pivot] = matrix[best];
+            matrix[best] = swap;
+
+            // The shots were taken from too few spots to pin down this many
+            // coefficients, so fit a lower degree curve instead. The first pivot is
+            // the number of shots, so this always leaves at least a flat line
+            if (Math.abs(matrix[pivot][pivot]) < 1e-9) {
+                return fitCurve(points, pivot);
+            }
+
+            for (int row = pivot + 1; row < size; row++) {
+                double factor = matrix[row][pivot] / matrix[pivot][pivot];
+                for (int column = pivot; column <= size; column++) {
+                    matrix[row][column] -= factor * matrix[pivot][column];
+                }
+            }
+        }
+
+        double[] coefficients = new double[size];
+        for (int row = size - 1; row >= 0; row--) {
+            double sum = matrix[row][size];
+            for (int column = row + 1; column < size; column++) {
+                sum -= matrix[row][column] * coefficients[column];
+            }
+            coefficients[row] = sum / matrix[row][row];
+        }
+        return coefficients;
+    }
+
+    /**
+     * <h3>evaluate</h3>
+     * 
+     * @param coefficients the curve, lowest power first
+     * @param x            where to evaluate it
+     * @return the value of the curve at x
+     */
+    private static double evaluate(double[] coefficients, double x) {
+        double value = 0;
+        for (int power = coefficients.length - 1; power >= 0; power--) {
+            value = value * x + coefficients[power];
+        }
+        return value;
+    }
+
+    /**
+     * <h3>getRmsError</h3>
+     * 
+     * @param coefficients the curve, lowest power first
+     * @param points       the points it was fit to
+     * @return the root mean square distance from the points to the curve
+     */
+    private static double getRmsError(double[] coefficients, double[][] points) {
+        double sum = 0;
+        for (double[] point : points) {
+            double error = evaluate(coefficients, point[0]) - point[1];
+            sum += error * error;
+        }
+        return Math.sqrt(sum / points.length);
+    }
+
+    /**
+     * <h3>clamp</h3>
+     * 
+     * @param value the value to clamp
+     * @param min   the lowest it can be
+     * @param max   the highest it can be
+     * @return the value kept between min and max
+     */
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * <h3>formatRow</h3>
+     * 
+     * @param distance    the distance from the hub in feet
+     * @param topSpeed    the top roller speed in percent output
+     * @param bottomSpeed the bottom roller speed in percent output
+     * @param hood        the hood position in degrees
+     * @return one row of the table, in the same format as the deployed table
+     */
+    private static String formatRow(double distance, double topSpeed, double bottomSpeed, double hood) {
+        return String.format(Locale.US, "%s,%.4f,%.4f,%.3f", formatDistance(distance), topSpeed, bottomSpeed, hood);
+    }
+
+    /**
+     * <h3>formatDistance</h3>
+     * 
+     * @param distance the distance from the hub in feet
+     * @return the distance without trailing zeros, like the deployed table
+     */
+    private static String formatDistance(double distance) {
+        return BigDecimal.valueOf(distance).stripTrailingZeros().toPlainString();
+    }
+}
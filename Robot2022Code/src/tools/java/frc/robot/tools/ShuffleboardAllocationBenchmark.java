@@ -0,0 +1,270 @@
+package frc.robot.tools;
+
+// ----- IMPORTS ----- \\
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.utilities.ShuffleboardUtility;
+import frc.robot.utilities.ShuffleboardUtility.ShuffleboardKeys;
+
+/**
+ * <h3>ShuffleboardAllocationBenchmark</h3>
+ * 
+ * Measures how much memory putting our driver tab values to shuffleboard
+ * allocates each loop, so garbage collection pauses from it can be caught
+ * before they show up as loop overruns. How long the puts take each loop is
+ * measured too, since every put and update now takes a lock. This runs on a laptop with
+ * {@code ./gradlew benchmarkShuffleboard}, not on the robot.
+ * <p>
+ * Each loop puts what the aim command and shooter utility put while aiming,
+ * with the numbers changing every loop, then updates shuffleboard. This is run
+ * on ShuffleboardUtility, and on a copy of how it used to store values (a new
+ * boxed value and map entry for every put, and a walk over every key with
+ * {@code equals} on every update) to compare against.
+ */
+public class ShuffleboardAllocationBenchmark {
+    // ----- CONSTANTS ----- \\
+
+    // How many loops to run before measuring, so the JIT has compiled everything
+    private static final int WARMUP_LOOPS = 20000;
+    // How many loops to measure
+    private static final int MEASURED_LOOPS = 100000;
+    // How many loops the robot runs a second
+    private static final int LOOPS_PER_SECOND = 50;
+
+    // ----- MAIN ----- \\
+
+    /**
+     * <h3>main</h3>
+     * 
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        if (!HAL.initialize(500, 0)) {
+            System.out.println("****** COULDN'T START THE HAL ******");
+            System.exit(1);
+        }
+
+        LoopBody current = new LoopBody() {
+            private final ShuffleboardUtility shuffleboard = ShuffleboardUtility.getInstance();
+
+            @Override
+            public void putDouble(ShuffleboardKeys key, double value) {
+                shuffleboard.putDouble(ShuffleboardUtility.driverTab, key, value);
+            }
+
+            @Override
+            public void putBoolean(ShuffleboardKeys key, boolean value) {
+                shuffleboard.putBoolean(ShuffleboardUtility.driverTab, key, value);
+            }
+
+            @Override
+            public void update() {
+                shuffleboard.update();
+            }
+        };
+        LegacyStore legacy = new LegacyStore(NetworkTableInstance.getDefault().getTable("Benchmark"));
+
+        Measurement legacyResult = measure(legacy);
+        Measurement currentResult = measure(current);
+
+        System.out.println(String.format(Locale.US, "%-20s %10s %12s %10s %10s", "Storage", "B/loop", "KB/s",
+                "ns/loop", "% of loop"));
+        print("Boxed HashMap", legacyResult);
+        print("Primitive arrays", currentResult);
+        System.exit(0);
+    }
+
+    // ----- METHODS ----- \\
+
+    /**
+     * <h3>measure</h3>
+     * 
+     * Runs the loop body enough to warm it up, then measures it
+     * 
+     * @param body what to run each loop
+     * @return the average bytes allocated and time taken each loop
+     */
+    private static Measurement measure(LoopBody body) {
+        runLoops(body, 0, WARMUP_LOOPS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(threadID);
+        long startTime = System.nanoTime();
+        runLoops(body, WARMUP_LOOPS, MEASURED_LOOPS);
+        long endTime = System.nanoTime();
+        long endBytes = threads.getThreadAllocatedBytes(threadID);
+
+        return new Measurement((endBytes - startBytes) / (double) MEASURED_LOOPS,
+                (endTime - startTime) / (double) MEASURED_LOOPS);
+    }
+
+    /**
+     * <h3>runLoops</h3>
+     * 
+     * Puts what the aim command and shooter utility put while aiming, with the
+     * robot slowly turning and driving closer to the hub
+     * 
+     * @param body      what to put the values with
+     * @param firstLoop the loop to start from
+     * @param loops     how many loops to run
+     */
+    private static void runLoops(LoopBody body, int firstLoop, int loops) {
+        for (int loop = firstLoop; loop < firstLoop + loops; loop++) {
+            double yaw = 5.0 * Math.sin(loop * 0.01);
+            double distance = 3.0 + Math.cos(loop * 0.001);
+
+            body.putDouble(ShuffleboardKeys.PHOTON_YAW, yaw);
+            body.putDouble(ShuffleboardKeys.DISTANCE_FROM_GOAL, distance);
+            body.putBoolean(ShuffleboardKeys.AIMED, Math.abs(yaw) < 1.0);
+            body.putDouble(ShuffleboardKeys.SHOOTER_BOTTOM_SPEED, 2000.0 + 300.0 * distance);
+            body.putDouble(ShuffleboardKeys.SHOOTER_TOP_SPEED, 1500.0 + 400.0 * distance);
+            body.putDouble(ShuffleboardKeys.SHOOTER_HOOD_POSITION, 10.0 * distance);
+            body.update();
+        }
+    }
+
+    /**
+     * <h3>print</h3>
+     * 
+     * Prints one row of the results
+     * 
+     * @param name   what was measured
+     * @param result the average bytes allocated and time taken each loop
+     */
+    private static void print(String name, Measurement result) {
+        System.out.println(String.format(Locale.US, "%-20s %10.1f %12.2f %10.1f %10.4f", name,
+                result.bytesPerLoop, result.bytesPerLoop * LOOPS_PER_SECOND / 1024.0, result.nanosecondsPerLoop,
+                result.nanosecondsPerLoop * LOOPS_PER_SECOND / 1e9 * 100));
+    }
+
+    // ----- INTERFACES ----- \\
+
+    /**
+     * <h3>LoopBody</h3>
+     * 
+     * The puts the benchmark makes each loop
+     */
+    private interface LoopBody {
+        void putDouble(ShuffleboardKeys key, double value);
+
+        void putBoolean(ShuffleboardKeys key, boolean value);
+
+        void update();
+    }
+
+    // ----- STRUCT(S) ----- \\
+
+    /**
+     * <h3>Measurement</h3>
+     * 
+     * What one run of the benchmark measured
+     */
+    private static class Measurement {
+        // The average bytes allocated each loop
+        private final double bytesPerLoop;
+        // The average time each loop took in nanoseconds
+        private final double nanosecondsPerLoop;
+
+        public Measurement(double bytesPerLoop, double nanosecondsPerLoop) {
+            this.bytesPerLoop = bytesPerLoop;
+            this.nanosecondsPerLoop = nanosecondsPerLoop;
+        }
+    }
+
+    /**
+     * <h3>LegacyStore</h3>
+     * 
+     * How ShuffleboardUtility used to store values, kept here to measure against
+     */
+    private static class LegacyStore implements LoopBody {
+        private final NetworkTable table;
+        private final Map<ShuffleboardKeys, MapData> shuffleboardMap = new HashMap<>();
+        private final Map<ShuffleboardKeys, MapData> pastDataMap = new HashMap<>();
+
+        public LegacyStore(NetworkTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public void putDouble(ShuffleboardKeys key, double value) {
+            put(key, new Data<Double>(value));
+        }
+
+        @Override
+        public void putBoolean(ShuffleboardKeys key, boolean value) {
+            put(key, new Data<Boolean>(value));
+        }
+
+        private void put(ShuffleboardKeys key, Data<?> data) {
+            if (shuffleboardMap.containsKey(key)) {
+                shuffleboardMap.put(key, new MapData(data, shuffleboardMap.get(key).m_entry));
+            } else {
+                NetworkTableEntry entry = table.getEntry(key.name());
+                entry.setValue(data.m_data);
+                shuffleboardMap.put(key, new MapData(data, entry));
+            }
+        }
+
+        @Override
+        public void update() {
+            MapData data;
+            for (ShuffleboardKeys currentKey : shuffleboardMap.keySet()) {
+                if (pastDataMap.containsKey(currentKey)) {
+                    if (!pastDataMap.get(currentKey).equals(shuffleboardMap.get(currentKey))) {
+                        data = shuffleboardMap.get(currentKey);
+                        data.m_entry.setValue(data.m_dataContainer.m_data);
+
+                        pastDataMap.put(currentKey, data);
+                    }
+                } else {
+                    pastDataMap.put(currentKey, shuffleboardMap.get(currentKey));
+                }
+            }
+        }
+    }
+
+    /**
+     * <h3>Data</h3>
+     * 
+     * The old boxed value holder
+     */
+    private static class Data<T> {
+        private final T m_data;
+
+        public Data(T data) {
+            m_data = data;
+        }
+    }
+
+    /**
+     * <h3>MapData</h3>
+     * 
+     * The old pair of a value and its network table entry
+     */
+    private static class MapData {
+        public final Data<?> m_dataContainer;
+        public final NetworkTableEntry m_entry;
+
+        public MapData(Data<?> data, NetworkTableEntry entry) {
+            m_dataContainer = data;
+            m_entry = entry;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            MapData compareData = (MapData) obj;
+
+            return compareData.m_dataContainer.m_data.equals(m_dataContainer.m_data);
+        }
+    }
+}
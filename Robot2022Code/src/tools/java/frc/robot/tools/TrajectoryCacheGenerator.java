@@ -0,0 +1,50 @@
+package frc.robot.tools;
+
+// ----- IMPORTS ----- \\
+
+import java.io.File;
+import java.io.IOException;
+
+import frc.robot.commands.autocommands.AutoPath;
+import frc.robot.commands.autocommands.TrajectoryCache;
+
+/**
+ * <h3>TrajectoryCacheGenerator</h3>
+ * 
+ * Generates the trajectory for every {@link AutoPath} and saves them to the
+ * deploy directory, so the robot doesn't have to parse the paths when it
+ * boots. This runs as part of the build with
+ * {@code ./gradlew cacheTrajectories}, not on the robot.
+ * <p>
+ * PathPlanner always reads paths from the deploy directory, which off the
+ * robot is {@code src/main/deploy} under the working directory, so this has
+ * to be run from the project directory.
+ */
+public class TrajectoryCacheGenerator {
+
+    // ----- MAIN ----- \\
+
+    /**
+     * <h3>main</h3>
+     * 
+     * @param args the deploy directory to save the cache into
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: TrajectoryCacheGenerator <deploy directory>");
+            System.exit(1);
+        }
+
+        File deployDirectory = new File(args[0]);
+        for (AutoPath path : AutoPath.values()) {
+            try {
+                TrajectoryCache.writeCache(path, deployDirectory);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                System.out.println("****** COULDN'T CACHE " + path + " (" + path.getPathName() + ") ******");
+                System.exit(1);
+            }
+        }
+        System.out.println("Cached " + AutoPath.values().length + " trajectories");
+    }
+}